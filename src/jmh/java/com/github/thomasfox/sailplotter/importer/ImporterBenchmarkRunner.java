@@ -0,0 +1,42 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the importer benchmarks with the gc profiler
+ * and writes the results as json, so that the results of two versions can be diffed.
+ * Usage: <code>java -cp target/benchmarks.jar com.github.thomasfox.sailplotter.importer.ImporterBenchmarkRunner
+ * [jmh options]</code>.
+ * The usual jmh command line options can be given, e.g. <code>-p recordCount=10000</code>
+ * to restrict the parameters or <code>-rff jmh-importers-1.2.json</code> to change the result file,
+ * which defaults to <code>jmh-importers.json</code> in the working directory.
+ */
+public class ImporterBenchmarkRunner
+{
+  private static final String DEFAULT_RESULT_FILE = "jmh-importers.json";
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException
+  {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder()
+        .parent(commandLineOptions)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(commandLineOptions.getResultFormat().orElse(ResultFormatType.JSON));
+    if (commandLineOptions.getIncludes().isEmpty())
+    {
+      options.include(ImporterThroughputBenchmark.class.getSimpleName());
+    }
+    if (!commandLineOptions.getResult().hasValue())
+    {
+      options.result(DEFAULT_RESULT_FILE);
+    }
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,94 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.TrackFileGenerator.Format;
+import com.github.thomasfox.sailplotter.model.Data;
+
+/**
+ * Loads generated files through each importer and reports the retained heap of the imported data.
+ * The retained heap is measured as the difference of the used heap after garbage collection
+ * before and after the import, and reported together with the estimate of Data.getMemoryFootprint().
+ * Run with <code>-prof gc</code> to also get the allocation rate.
+ * The largest record count needs a large heap, e.g. <code>-jvmArgs -Xmx16g</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImporterMemoryBenchmark
+{
+  @Param({"saillog", "gpx", "log", "vrtp"})
+  public Format format;
+
+  @Param({"10000", "1000000", "10000000"})
+  public int recordCount;
+
+  private File file;
+
+  private Importer importer;
+
+  @Setup
+  public void setUp()
+  {
+    file = new TrackFileGenerator().getFile(format, recordCount);
+    importer = new ImporterRegistry().select(file).create(new LoadProgress(null));
+  }
+
+  /**
+   * Secondary results reported per invocation.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class HeapCounters
+  {
+    /** The measured heap retained by the imported data, in bytes. */
+    public long retainedBytes;
+
+    /** The heap retained by the imported data as estimated by Data.getMemoryFootprint(), in bytes. */
+    public long estimatedBytes;
+
+    /** The measured retained heap per data point, in bytes. */
+    public long retainedBytesPerPoint;
+  }
+
+  @Benchmark
+  public Data importFile(HeapCounters counters)
+  {
+    long usedBefore = usedHeapAfterGc();
+    Data data = importer.read(file).getData();
+    counters.retainedBytes = usedHeapAfterGc() - usedBefore;
+    counters.estimatedBytes = data.getMemoryFootprint().getTotalBytes();
+    counters.retainedBytesPerPoint = data.size() == 0 ? 0 : counters.retainedBytes / data.size();
+    return data;
+  }
+
+  private static long usedHeapAfterGc()
+  {
+    MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 3; i++)
+    {
+      System.gc();
+    }
+    return memoryBean.getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,82 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.TrackFileGenerator.Format;
+import com.github.thomasfox.sailplotter.model.Data;
+
+/**
+ * Reads generated files through the importer selected for each format
+ * and reports the throughput in files, samples and megabytes per second.
+ * A sample is a record in the file; for saillog files this includes
+ * the magnetic field and acceleration records, not only the points of the imported data.
+ * Run with <code>-prof gc</code> to also get the allocation rate,
+ * or use ImporterBenchmarkRunner which does this and writes the results as json.
+ * The largest record count needs a large heap, e.g. <code>-jvmArgs -Xmx16g</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImporterThroughputBenchmark
+{
+  @Param({"saillog", "gpx", "log", "vrtp"})
+  public Format format;
+
+  @Param({"10000", "1000000", "10000000"})
+  public int recordCount;
+
+  private File file;
+
+  private double megabytes;
+
+  private Importer importer;
+
+  @Setup
+  public void setUp()
+  {
+    file = new TrackFileGenerator().getFile(format, recordCount);
+    megabytes = file.length() / 1_000_000d;
+    importer = new ImporterRegistry().select(file).create(new LoadProgress(null));
+  }
+
+  /**
+   * Secondary results, which JMH reports as rates per second.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class ThroughputCounters
+  {
+    /** The number of records read. */
+    public long samples;
+
+    /** The number of megabytes (10^6 bytes) read. */
+    public double megabytes;
+  }
+
+  @Benchmark
+  public Data importFile(ThroughputCounters counters)
+  {
+    Data data = importer.read(file).getData();
+    counters.samples += recordCount;
+    counters.megabytes += megabytes;
+    return data;
+  }
+}
@@ -0,0 +1,125 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import static java.time.temporal.ChronoField.DAY_OF_MONTH;
+import static java.time.temporal.ChronoField.HOUR_OF_DAY;
+import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
+import static java.time.temporal.ChronoField.MONTH_OF_YEAR;
+import static java.time.temporal.ChronoField.NANO_OF_SECOND;
+import static java.time.temporal.ChronoField.SECOND_OF_MINUTE;
+import static java.time.temporal.ChronoField.YEAR;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.TrackFileGenerator.Format;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+
+/**
+ * Compares the byte-level parser on the memory-mapped file used by SailRacerImporter.read(),
+ * parsing chunks in parallel and sequentially,
+ * with the line-based parser using BufferedReader, String.split() and LocalDateTime.parse().
+ * Run with <code>-prof gc</code> to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SailRacerParserBenchmark
+{
+  private static final DateTimeFormatter dateTimeFormatter = new DateTimeFormatterBuilder()
+      .appendValue(YEAR, 4, 10, SignStyle.EXCEEDS_PAD)
+      .appendLiteral('.')
+      .appendValue(MONTH_OF_YEAR, 2)
+      .appendLiteral('.')
+      .appendValue(DAY_OF_MONTH, 2)
+      .appendLiteral(' ')
+      .appendValue(HOUR_OF_DAY, 2)
+      .appendLiteral(':')
+      .appendValue(MINUTE_OF_HOUR, 2)
+      .optionalStart()
+      .appendLiteral(':')
+      .appendValue(SECOND_OF_MINUTE, 2)
+      .appendLiteral(':')
+      .appendFraction(NANO_OF_SECOND, 0, 9, false)
+      .toFormatter();
+
+  @Param({"1000000"})
+  public int recordCount;
+
+  private File file;
+
+  private SailRacerImporter importer;
+
+  private SailRacerImporter sequentialImporter;
+
+  @Setup
+  public void setUp()
+  {
+    file = new TrackFileGenerator().getFile(Format.log, recordCount);
+    importer = new SailRacerImporter(new LoadProgress(null));
+    sequentialImporter = new SailRacerImporter(new LoadProgress(null), Integer.MAX_VALUE, Integer.MAX_VALUE);
+  }
+
+  @Benchmark
+  public Data mappedByteParser()
+  {
+    return importer.read(file).getData();
+  }
+
+  @Benchmark
+  public Data sequentialMappedByteParser()
+  {
+    return sequentialImporter.read(file).getData();
+  }
+
+  /**
+   * Reads the file like the original line-based parser, which split each line into strings
+   * and parsed the time with LocalDateTime.parse(). Only the imported fields are parsed.
+   */
+  @Benchmark
+  public Data lineParser() throws IOException
+  {
+    Data.Builder dataBuilder = new Data.Builder();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.ISO_8859_1))
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        String[] token = line.split("\t");
+        DataPoint dataPoint = new DataPoint(0);
+        dataPoint.location = new Location();
+        dataPoint.location.latitude = Double.parseDouble(token[1]) / 180d * Math.PI;
+        dataPoint.location.longitude = Double.parseDouble(token[2]) / 180d * Math.PI;
+        dataPoint.time = LocalDateTime.parse(token[0], dateTimeFormatter).toInstant(ZoneOffset.UTC).toEpochMilli();
+        dataBuilder.add(dataPoint);
+      }
+    }
+    return dataBuilder.build();
+  }
+}
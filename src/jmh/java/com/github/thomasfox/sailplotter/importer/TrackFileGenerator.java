@@ -0,0 +1,337 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates deterministic track files in the formats read by the importers, for benchmarks.
+ * The boat sails upwind in tacks of 40 to 120 seconds at 4 to 6 knots,
+ * heeling to leeward, with GPS noise of a few meters.
+ * The saillog files also contain magnetic field and acceleration channels
+ * which follow the bearing and heel of the boat.
+ * The same format and record count always produce the same file content.
+ */
+public class TrackFileGenerator
+{
+  /** The supported formats, named by their file extension. */
+  public enum Format
+  {
+    saillog,
+    gpx,
+    log,
+    vrtp
+  }
+
+  private static final long START_TIME = 1_500_000_000_000L;
+
+  private static final double START_LATITUDE_DEGREES = 53.5d;
+
+  private static final double START_LONGITUDE_DEGREES = 10.0d;
+
+  private static final double METERS_PER_DEGREE_LATITUDE = 111_120d;
+
+  private static final double SPEED_METERS_PER_SECOND = 2.57d;
+
+  private static final double GRAVITY = 9.81d;
+
+  /** The horizontal component of the earth's magnetic field, in micro tesla. */
+  private static final double MAGNETIC_FIELD_HORIZONTAL = 18d;
+
+  /** The vertical component of the earth's magnetic field, in micro tesla. */
+  private static final double MAGNETIC_FIELD_VERTICAL = -45d;
+
+  /** Increased if the generated content changes, so that files generated before are not reused. */
+  private static final int GENERATOR_VERSION = 2;
+
+  private static final DateTimeFormatter GPX_TIME_FORMAT
+      = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+  private static final DateTimeFormatter SAIL_RACER_TIME_FORMAT
+      = DateTimeFormatter.ofPattern("yyyy.MM.dd HH:mm:ss:SSS");
+
+  private final File directory;
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory where generated files are stored, not null.
+   */
+  public TrackFileGenerator(File directory)
+  {
+    this.directory = directory;
+  }
+
+  /**
+   * Creates a generator storing its files in a subdirectory of the temp directory.
+   */
+  public TrackFileGenerator()
+  {
+    this(new File(System.getProperty("java.io.tmpdir"), "sailplotter-benchmark"));
+  }
+
+  /**
+   * Returns a generated file, generating it if it does not exist yet.
+   *
+   * @param format the format of the file, not null.
+   * @param recordCount the number of records in the file.
+   *
+   * @return the generated file, not null.
+   */
+  public File getFile(Format format, int recordCount)
+  {
+    File file = new File(directory, "track-v" + GENERATOR_VERSION + "-" + recordCount + "." + format.name());
+    if (file.exists())
+    {
+      return file;
+    }
+    try
+    {
+      Files.createDirectories(directory.toPath());
+      File tempFile = new File(directory, file.getName() + ".tmp");
+      try (Writer writer = new BufferedWriter(
+          new OutputStreamWriter(Files.newOutputStream(tempFile.toPath()), StandardCharsets.ISO_8859_1),
+          1 << 16))
+      {
+        write(format, recordCount, writer);
+      }
+      if (!tempFile.renameTo(file))
+      {
+        throw new IOException("Could not rename " + tempFile + " to " + file);
+      }
+      return file;
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Writes the content of a generated file.
+   *
+   * @param format the format of the file, not null.
+   * @param recordCount the number of records to write.
+   * @param writer the writer to write to, not null.
+   *
+   * @throws IOException if writing fails.
+   */
+  public void write(Format format, int recordCount, Writer writer) throws IOException
+  {
+    switch (format)
+    {
+      case saillog:
+        writeSailLog(recordCount, writer);
+        break;
+      case gpx:
+        writeGpx(recordCount, writer);
+        break;
+      case log:
+        writeSailRacerLog(recordCount, writer);
+        break;
+      case vrtp:
+        writeViewRanger(recordCount, writer);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown format " + format);
+    }
+  }
+
+  /**
+   * Writes a saillog file with 100 records per second:
+   * one GPS record per second, the other records alternate between magnetic field and acceleration.
+   */
+  private void writeSailLog(int recordCount, Writer writer) throws IOException
+  {
+    Random random = new Random(recordCount);
+    Track track = new Track(recordCount);
+    writer.write("{\"start\":{\"format\":\"1.0\",\"loggedBy\":\"TrackFileGenerator\",\"startT\":"
+        + START_TIME + "},\"track\":[");
+    for (int i = 0; i < recordCount; i++)
+    {
+      long time = START_TIME + 10L * i;
+      if (i > 0)
+      {
+        writer.write(",\n");
+      }
+      if (i % 100 == 0)
+      {
+        track.advanceTo(time);
+        writer.write("{\"locT\":" + time
+            + ",\"locAcc\":3.0"
+            + ",\"locLat\":" + format(track.getMeasuredLatitude())
+            + ",\"locLong\":" + format(track.getMeasuredLongitude())
+            + ",\"locBear\":" + format(track.bearingDegrees)
+            + ",\"locVel\":" + format(track.speed)
+            + ",\"locAlt\":0.0"
+            + ",\"locDevT\":" + time + "}");
+      }
+      else if (i % 2 == 1)
+      {
+        // device axes: x to starboard, y forward, z up; the field points north and down
+        double bearing = Math.toRadians(track.bearingDegrees);
+        double heel = Math.toRadians(track.heelDegrees);
+        double forward = MAGNETIC_FIELD_HORIZONTAL * Math.cos(bearing);
+        double starboard = -MAGNETIC_FIELD_HORIZONTAL * Math.sin(bearing);
+        writer.write("{\"magT\":" + time
+            + ",\"magX\":" + format(starboard * Math.cos(heel) - MAGNETIC_FIELD_VERTICAL * Math.sin(heel)
+                + random.nextGaussian())
+            + ",\"magY\":" + format(forward + random.nextGaussian())
+            + ",\"magZ\":" + format(MAGNETIC_FIELD_VERTICAL * Math.cos(heel) + starboard * Math.sin(heel)
+                + random.nextGaussian()) + "}");
+      }
+      else
+      {
+        double heel = Math.toRadians(track.heelDegrees);
+        writer.write("{\"accT\":" + time
+            + ",\"accX\":" + format(GRAVITY * Math.sin(heel) + random.nextGaussian() * 0.5d)
+            + ",\"accY\":" + format(random.nextGaussian() * 0.5d)
+            + ",\"accZ\":" + format(GRAVITY * Math.cos(heel) + random.nextGaussian() * 0.5d) + "}");
+      }
+    }
+    writer.write("],\"end\":{\"endT\":" + (START_TIME + 10L * recordCount) + "}}");
+  }
+
+  /**
+   * Writes a gpx file with one track point per second.
+   */
+  private void writeGpx(int recordCount, Writer writer) throws IOException
+  {
+    Track track = new Track(recordCount);
+    writer.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+        + "<gpx version=\"1.1\" creator=\"TrackFileGenerator\">\n<trk>\n<trkseg>\n");
+    for (int i = 0; i < recordCount; i++)
+    {
+      long time = START_TIME + 1000L * i;
+      track.advanceTo(time);
+      writer.write("<trkpt lat=\"" + format(track.getMeasuredLatitude())
+          + "\" lon=\"" + format(track.getMeasuredLongitude()) + "\">"
+          + "<ele>0.0</ele>"
+          + "<time>" + GPX_TIME_FORMAT.format(Instant.ofEpochMilli(time)) + "</time>"
+          + "<extensions><speed>" + format(track.speed) + "</speed>"
+          + "<course>" + format(track.bearingDegrees) + "</course></extensions></trkpt>\n");
+    }
+    writer.write("</trkseg>\n</trk>\n</gpx>\n");
+  }
+
+  /**
+   * Writes a SailRacer log file with one line per second.
+   */
+  private void writeSailRacerLog(int recordCount, Writer writer) throws IOException
+  {
+    Track track = new Track(recordCount);
+    for (int i = 0; i < recordCount; i++)
+    {
+      long time = START_TIME + 1000L * i;
+      track.advanceTo(time);
+      LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC);
+      writer.write(SAIL_RACER_TIME_FORMAT.format(dateTime)
+          + "\t" + format(track.getMeasuredLatitude())
+          + "\t" + format(track.getMeasuredLongitude())
+          + "\t" + Math.round(track.bearingDegrees)
+          + "\t" + format(track.speed)
+          + "\t" + Math.round(track.bearingDegrees)
+          + "\t0.0\n");
+    }
+  }
+
+  /**
+   * Writes a ViewRanger file with one point per second.
+   */
+  private void writeViewRanger(int recordCount, Writer writer) throws IOException
+  {
+    Track track = new Track(recordCount);
+    writer.write("{\"header\":{\"colour\":0,\"name\":\"generated\",\"lastModTime\":" + START_TIME
+        + ",\"gridPositionCoordType\":0},\"points\":[");
+    for (int i = 0; i < recordCount; i++)
+    {
+      long time = START_TIME + 1000L * i;
+      track.advanceTo(time);
+      if (i > 0)
+      {
+        writer.write(",\n");
+      }
+      writer.write("{\"lat\":" + format(track.getMeasuredLatitude())
+          + ",\"lon\":" + format(track.getMeasuredLongitude())
+          + ",\"alt\":0.0,\"time\":" + time
+          + ",\"from_gps\":true,\"has_position\":true}");
+    }
+    writer.write("]}");
+  }
+
+  private static String format(double value)
+  {
+    return String.format(Locale.ROOT, "%.7f", value);
+  }
+
+  /**
+   * The position and motion of the generated boat.
+   * The wind comes from north; the boat tacks between 45 and 315 degrees.
+   */
+  private static class Track
+  {
+    private static final double GPS_NOISE_METERS = 2d;
+
+    private final Random random;
+
+    private double latitude = START_LATITUDE_DEGREES;
+
+    private double longitude = START_LONGITUDE_DEGREES;
+
+    private double bearingDegrees = 45d;
+
+    private double speed = SPEED_METERS_PER_SECOND;
+
+    private double heelDegrees;
+
+    private long time = START_TIME;
+
+    private long tackEndTime = START_TIME;
+
+    private boolean starboardTack = false;
+
+    private Track(long seed)
+    {
+      random = new Random(seed);
+    }
+
+    private void advanceTo(long newTime)
+    {
+      if (newTime >= tackEndTime)
+      {
+        starboardTack = !starboardTack;
+        tackEndTime = newTime + 40_000L + random.nextInt(80_000);
+      }
+      double seconds = (newTime - time) / 1000d;
+      bearingDegrees = (starboardTack ? 45d : 315d) + random.nextGaussian() * 3d;
+      speed = Math.max(0.5d, Math.min(3.1d, speed + random.nextGaussian() * 0.05d * Math.sqrt(seconds)));
+      heelDegrees = (starboardTack ? -1 : 1) * (10d + speed * 3d) + random.nextGaussian();
+      double distance = seconds * speed;
+      latitude += distance * Math.cos(Math.toRadians(bearingDegrees)) / METERS_PER_DEGREE_LATITUDE;
+      longitude += distance * Math.sin(Math.toRadians(bearingDegrees))
+          / METERS_PER_DEGREE_LATITUDE / Math.cos(Math.toRadians(latitude));
+      time = newTime;
+    }
+
+    private double getMeasuredLatitude()
+    {
+      return latitude + random.nextGaussian() * GPS_NOISE_METERS / METERS_PER_DEGREE_LATITUDE;
+    }
+
+    private double getMeasuredLongitude()
+    {
+      return longitude + random.nextGaussian() * GPS_NOISE_METERS
+          / METERS_PER_DEGREE_LATITUDE / Math.cos(Math.toRadians(latitude));
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the distance calculation between consecutive track points
+ * when evaluating the projection trigonometry on every call, as Location.approximateDistance() does,
+ * with reading the projection which is computed once per track into the columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark
+{
+  @Param({"100000"})
+  public int pointCount;
+
+  private List<DataPoint> points;
+
+  private DataColumns columns;
+
+  @Setup
+  public void setUp()
+  {
+    Random random = new Random(42);
+    Data.Builder builder = new Data.Builder(pointCount);
+    double latitude = 0.9d;
+    double longitude = 0.12d;
+    for (int i = 0; i < pointCount; i++)
+    {
+      DataPoint point = new DataPoint(i);
+      point.time = 1000L * i;
+      point.location = new Location();
+      point.location.latitude = latitude;
+      point.location.longitude = longitude;
+      builder.add(point);
+      latitude += (random.nextDouble() - 0.5d) * 1e-6d;
+      longitude += (random.nextDouble() - 0.5d) * 1e-6d;
+    }
+    Data data = builder.build();
+    points = data.getPointsWithLocation();
+    columns = data.getColumns();
+  }
+
+  @Benchmark
+  public double trigonometryPerCall()
+  {
+    double result = 0d;
+    for (int i = 1; i < points.size(); i++)
+    {
+      result += points.get(i).location.approximateDistance(points.get(i - 1).location);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public double projectionColumns()
+  {
+    double result = 0d;
+    for (int row = 1; row < columns.size(); row++)
+    {
+      result += columns.approximateDistance(row, row - 1);
+    }
+    return result;
+  }
+}
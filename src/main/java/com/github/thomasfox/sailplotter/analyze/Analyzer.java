@@ -1,25 +1,79 @@
 package com.github.thomasfox.sailplotter.analyze;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
 import com.github.thomasfox.sailplotter.model.Data;
 
 public class Analyzer
 {
+  /**
+   * Runs all analysis stages on the data.
+   * A stage is skipped if its results are already present in the data,
+   * e.g. because they were restored from a saved file,
+   * unless a stage it depends on has been run.
+   *
+   * @param data the data to analyze, not null.
+   * @param loadProgress where to report the progress, not null.
+   */
   public static void analyze(Data data, LoadProgress loadProgress)
   {
-    loadProgress.startCorrectTimeUsingGpsTime();
-    new UseGpsTimeDataCorrector().correct(data);
-    loadProgress.startInterpolatingLocation();
-    new LocationInterpolator().interpolateLocation(data);
-    loadProgress.startCalculateLocationAndBearing();
-    new VelocityBearingAnalyzer().analyze(data);
-    loadProgress.startCalculateTackList();
-    data.getTackList().clear();
-    data.getTackList().addAll(new TackListByCorrelationAnalyzer().analyze(data));
-    loadProgress.startCalculateTackSeriesList();
-    data.getTackSeriesList().clear();
-    data.getTackSeriesList().addAll(new TackSeriesAnalyzer().analyze(data.getTackList()));
-    loadProgress.startAnalyzeOrientation();
-    new DeviceOrientationAnalyzer().analyze(data, loadProgress);
+    Set<AnalysisStage> stagesRun = EnumSet.noneOf(AnalysisStage.class);
+    if (mustRun(AnalysisStage.TIME_CORRECTION, data, stagesRun))
+    {
+      loadProgress.startCorrectTimeUsingGpsTime();
+      new UseGpsTimeDataCorrector().correct(data);
+      stageRun(AnalysisStage.TIME_CORRECTION, data, stagesRun);
+    }
+    if (mustRun(AnalysisStage.VELOCITY_BEARING, data, stagesRun))
+    {
+      loadProgress.startCalculateLocationAndBearing();
+      new VelocityBearingAnalyzer().analyze(data, loadProgress);
+      stageRun(AnalysisStage.VELOCITY_BEARING, data, stagesRun);
+    }
+    if (mustRun(AnalysisStage.TACKS, data, stagesRun))
+    {
+      loadProgress.startCalculateTackList();
+      data.getTackList().clear();
+      data.getTackList().addAll(new TackListByCorrelationAnalyzer().analyze(data, loadProgress));
+      stageRun(AnalysisStage.TACKS, data, stagesRun);
+    }
+    if (mustRun(AnalysisStage.TACK_SERIES, data, stagesRun))
+    {
+      loadProgress.startCalculateTackSeriesList();
+      data.getTackSeriesList().clear();
+      data.getTackSeriesList().addAll(new TackSeriesAnalyzer().analyze(data.getTackList()));
+      stageRun(AnalysisStage.TACK_SERIES, data, stagesRun);
+    }
+    if (mustRun(AnalysisStage.DEVICE_ORIENTATION, data, stagesRun))
+    {
+      loadProgress.startAnalyzeOrientation();
+      new DeviceOrientationAnalyzer().analyze(data, loadProgress);
+      stageRun(AnalysisStage.DEVICE_ORIENTATION, data, stagesRun);
+    }
+  }
+
+  private static boolean mustRun(AnalysisStage stage, Data data, Set<AnalysisStage> stagesRun)
+  {
+    if (!data.isAnalyzed(stage))
+    {
+      return true;
+    }
+    for (AnalysisStage dependency : stage.getDependencies())
+    {
+      if (stagesRun.contains(dependency))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void stageRun(AnalysisStage stage, Data data, Set<AnalysisStage> stagesRun)
+  {
+    stagesRun.add(stage);
+    data.setAnalyzed(stage);
   }
 }
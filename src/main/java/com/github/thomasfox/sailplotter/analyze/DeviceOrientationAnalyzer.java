@@ -5,6 +5,7 @@ import java.util.List;
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
 import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
 import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
 import com.github.thomasfox.sailplotter.model.vector.TwoDimVector;
@@ -54,6 +55,7 @@ public class DeviceOrientationAnalyzer
 
   public Data analyze(Data data, LoadProgress loadProgress)
   {
+    data.loadSensorValues();
     loadProgress.startAnalyzeOrientationCalculateHorizontalCoordinateSystem();
     // calculate a horizontal Coordinate system in device coordinates from average acceleration
     CoordinateSystem approximateHorizontalCoordinateSystem
@@ -67,14 +69,14 @@ public class DeviceOrientationAnalyzer
     // in the horizontal plane, calculate the compass direction with respect to the horizontal
     // coordinate system, and save angle as compass bearing
     loadProgress.startAnalyzeOrientationSetCompassBearings();
-    setCompassBearings(data, approximateHorizontalCoordinateSystem);
+    setCompassBearings(data, approximateHorizontalCoordinateSystem, 1, loadProgress);
 
     // To find where front is in the horizontal coordinate system in boat coordinates:
     // Create a histogram for the angle betweeen gps direction and "compass north" direction
     // and take the bucket with the most occurences as angle between x direction and boat front
     loadProgress.startAnalyzeOrientationGetCompassToGpsAngle();
     Double maxOccurenceOfRelativeBearingInArcs
-        = getMaximumOccurenceOfRelativeBearingOfCompassToGpsInArcs(data.getAllPoints());
+        = getMaximumOccurenceOfRelativeBearingOfCompassToGpsInArcs(data, loadProgress);
 
     if (maxOccurenceOfRelativeBearingInArcs != null)
     {
@@ -82,13 +84,49 @@ public class DeviceOrientationAnalyzer
           = approximateHorizontalCoordinateSystem.getRotatedAroundZ(maxOccurenceOfRelativeBearingInArcs);
       data.setBoatCoordinatesInDeviceCoordinates(approximateHorizontalCoordinateSystem);
       loadProgress.startAnalyzeOrientationSetCompassBearings();
-      setCompassBearings(data, approximateHorizontalCoordinateSystem);
+      setCompassBearings(data, approximateHorizontalCoordinateSystem, 1, loadProgress);
       loadProgress.startAnalyzeOrientationSetHeelAndRoll();
-      setHeelAndRoll(data.getAllPoints(), approximateHorizontalCoordinateSystem);
+      setHeelAndRoll(data.getAllPoints(), approximateHorizontalCoordinateSystem, 1, loadProgress);
     }
     return data;
   }
 
+  /**
+   * Sets compass bearings, heel and roll for points appended to already analyzed data,
+   * using the boat coordinate system determined by the previous analysis.
+   * The boat coordinate system itself is not recalculated.
+   *
+   * @param data the data to analyze, not null.
+   * @param firstAppendedIndex the index of the first appended point.
+   */
+  public void analyzeAppended(Data data, int firstAppendedIndex)
+  {
+    CoordinateSystem boatCoordinateSystem = data.getBoatCoordinatesInDeviceCoordinates();
+    if (boatCoordinateSystem == null)
+    {
+      return;
+    }
+    data.loadSensorValues();
+    // the last point before the appended points was skipped by the previous analysis
+    int fromIndex = Math.max(firstAppendedIndex - 1, 1);
+    LoadProgress noProgress = new LoadProgress(null);
+    setCompassBearings(data, boatCoordinateSystem, fromIndex, noProgress);
+    setHeelAndRoll(data.getAllPoints(), boatCoordinateSystem, fromIndex, noProgress);
+  }
+
+  /**
+   * Sets compass bearings, heel and roll for all points
+   * from the boat coordinate system which is already known,
+   * e.g. because it was restored from a saved file.
+   * The result is the same as after analyze(Data, LoadProgress) determined this coordinate system.
+   *
+   * @param data the data to analyze, not null.
+   */
+  public void applyBoatCoordinates(Data data)
+  {
+    analyzeAppended(data, 0);
+  }
+
   /**
    * Returns a horizontal coordinate system in the device coordinate system.
    * Coordinate system x is approximately device x,
@@ -132,13 +170,18 @@ public class DeviceOrientationAnalyzer
    * @param data the data to set compass bearings for, non null.
    * @param approximateHorizontalCoordinateSystem A coordinate systems which is fixed at the device
    *        and which z axis is approximately up in neutral position of the ship, not null.
+   * @param fromIndex the index of the first point to set the compass bearing for.
+   * @param loadProgress where to check for cancellation, not null.
    */
   private void setCompassBearings(
       Data data,
-      CoordinateSystem approximateHorizontalCoordinateSystem)
+      CoordinateSystem approximateHorizontalCoordinateSystem,
+      int fromIndex,
+      LoadProgress loadProgress)
   {
-    for (int i = 1; i < data.size() - 1; ++i)
+    for (int i = fromIndex; i < data.size() - 1; ++i)
     {
+      loadProgress.analyzingPoint(i);
       DataPoint point = data.get(i);
       if (point.hasMagneticField())
       {
@@ -166,10 +209,13 @@ public class DeviceOrientationAnalyzer
 
   private void setHeelAndRoll(
       List<DataPoint> points,
-      CoordinateSystem horizontalCoordinateSystem)
+      CoordinateSystem horizontalCoordinateSystem,
+      int fromIndex,
+      LoadProgress loadProgress)
   {
-    for (int i = 1; i < points.size() - 1; ++i)
+    for (int i = fromIndex; i < points.size() - 1; ++i)
     {
+      loadProgress.analyzingPoint(i);
       DataPoint point = points.get(i);
       if (point.hasAcceleration())
       {
@@ -180,16 +226,22 @@ public class DeviceOrientationAnalyzer
     }
   }
 
-  private Double getMaximumOccurenceOfRelativeBearingOfCompassToGpsInArcs(
-      List<DataPoint> points)
+  private Double getMaximumOccurenceOfRelativeBearingOfCompassToGpsInArcs(Data data, LoadProgress loadProgress)
   {
     int[] bearingHistogram = new int[HISTOGRAM_SIZE];
-    for (int i = 1; i < points.size() - 1; ++i)
+    LocationInterpolator locationInterpolator = new LocationInterpolator(data);
+    for (int i = 1; i < data.size() - 1; ++i)
     {
-      DataPoint point = points.get(i);
-      if (point.hasMagneticField() && point.location != null && point.location.bearing != null)
+      loadProgress.analyzingPoint(i);
+      DataPoint point = data.get(i);
+      if (!point.hasMagneticField())
+      {
+        continue;
+      }
+      Location location = point.hasLocation() ? point.location : locationInterpolator.getLocationAt(point.time);
+      if (location != null && location.bearing != null)
       {
-        Double relativeNormalizedBearing = getNormalizedRelativeBearingOfCompassToGps(point);
+        Double relativeNormalizedBearing = getNormalizedRelativeBearingOfCompassToGps(point, location);
         if (relativeNormalizedBearing != null)
         {
           int histogramBucket = Double.valueOf(HISTOGRAM_SIZE * relativeNormalizedBearing).intValue();
@@ -228,14 +280,30 @@ public class DeviceOrientationAnalyzer
    * @return
    */
   public Double getNormalizedRelativeBearingOfCompassToGps(DataPoint point)
+  {
+    return getNormalizedRelativeBearingOfCompassToGps(point, point.location);
+  }
+
+  /**
+   * Returns the relative bearing between horizontal compass direction of a point
+   * and the GPS bearing of a location as a value between 0 (0 degrees) and 1 (360 degrees).
+   * If no compass direction or GPS Direction can be obtained,
+   * null is returned.
+   *
+   * @param point the point to calculate the relative bearing for.
+   * @param location the location at the time of the point, may be resampled, or null.
+   *
+   * @return the normalized relative bearing, or null.
+   */
+  public Double getNormalizedRelativeBearingOfCompassToGps(DataPoint point, Location location)
   {
     if (point.magneticField == null || point.magneticField.compassBearing == null
-        || point.location == null || point.location.bearing == null)
+        || location == null || location.bearing == null)
     {
       return null;
     }
     double compassBearing = point.magneticField.compassBearing;
-    double normalizedRelativeBearing = (compassBearing - point.location.bearing) / 2 / Math.PI;
+    double normalizedRelativeBearing = (compassBearing - location.bearing) / 2 / Math.PI;
     if (normalizedRelativeBearing < 0)
     {
       normalizedRelativeBearing += 1;
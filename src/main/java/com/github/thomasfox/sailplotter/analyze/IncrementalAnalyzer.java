@@ -0,0 +1,186 @@
+package com.github.thomasfox.sailplotter.analyze;
+
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Tack;
+import com.github.thomasfox.sailplotter.model.TackList;
+
+/**
+ * Analyzes data which grows at its end, e.g. while the log file is still being written.
+ *
+ * The first points appended are analyzed like in Analyzer.analyze().
+ * For later points, only the points near the end of the data are analyzed:
+ * velocity and bearing are calculated for the new points and the last point before them,
+ * the tack detection is continued from where it stopped, and compass bearings,
+ * heel and roll are calculated using the boat orientation and the GPS time correction
+ * determined in the first analysis.
+ * Thus the cost of appending points does not depend on the length of the data already analyzed,
+ * except for the tack series, which are recalculated from the tack list.
+ *
+ * In contrast to Analyzer.analyze(), the tack which is still being sailed
+ * is included as last tack in the tack list.
+ *
+ * The analyzed data keeps changing at its end, so it should not be displayed directly;
+ * getSettledData() returns the part which does not change any more, without copying the points.
+ *
+ * This class is not thread safe.
+ */
+public class IncrementalAnalyzer
+{
+  private final Data data;
+
+  private final VelocityBearingAnalyzer velocityBearingAnalyzer = new VelocityBearingAnalyzer();
+
+  private final TackListByCorrelationAnalyzer tackListAnalyzer = new TackListByCorrelationAnalyzer();
+
+  private final TackListByCorrelationAnalyzer.FirstPass tackFirstPass
+      = new TackListByCorrelationAnalyzer.FirstPass();
+
+  private final DeviceOrientationAnalyzer deviceOrientationAnalyzer = new DeviceOrientationAnalyzer();
+
+  private long timeCorrection;
+
+  private boolean initialAnalysisDone;
+
+  /** The position in the points with location of the first point without velocity and bearing. */
+  private int nextVelocityBearingLocation = 0;
+
+  /** The number of tacks in the first pass of the tack detection which were adjusted to their predecessor. */
+  private int adjustedTackCount = 1;
+
+  /**
+   * Constructor.
+   *
+   * @param data the data to append to, not null. Must be empty.
+   */
+  public IncrementalAnalyzer(Data data)
+  {
+    if (data.size() != 0)
+    {
+      throw new IllegalArgumentException("data must be empty");
+    }
+    this.data = data;
+  }
+
+  public Data getData()
+  {
+    return data;
+  }
+
+  /**
+   * Appends points to the data and analyzes them.
+   *
+   * @param points the points to append, not null. Must be ordered in time
+   *        and must not be earlier than the last point of the data.
+   *        The points are owned by the data afterwards.
+   */
+  public void append(List<DataPoint> points)
+  {
+    if (points.isEmpty())
+    {
+      return;
+    }
+    int firstAppendedIndex = data.size();
+    if (initialAnalysisDone)
+    {
+      for (DataPoint point : points)
+      {
+        if (point.time != null)
+        {
+          point.time = point.time + timeCorrection;
+        }
+      }
+    }
+    data.appendAll(points);
+    if (!initialAnalysisDone)
+    {
+      timeCorrection = new UseGpsTimeDataCorrector().correct(data);
+    }
+    nextVelocityBearingLocation = velocityBearingAnalyzer.analyze(data, nextVelocityBearingLocation);
+    analyzeTacks();
+    if (!initialAnalysisDone)
+    {
+      deviceOrientationAnalyzer.analyze(data, new LoadProgress(null));
+      initialAnalysisDone = data.getBoatCoordinatesInDeviceCoordinates() != null
+          || !data.getPointsWithLocation().isEmpty();
+    }
+    else
+    {
+      deviceOrientationAnalyzer.analyzeAppended(data, firstAppendedIndex);
+    }
+  }
+
+  /**
+   * Returns the part of the data which does not change when further points are appended, for publication.
+   * The last point with location and the points after it are left out, because the velocity and bearing
+   * of the last point with location and the compass bearing, heel and roll of the last point
+   * are only calculated when further points are appended.
+   * The returned data is a prefix of the analyzed data (see Data.prefix(int)), so this method
+   * does not copy the points. Its tack list contains copies of the tacks, which may still be adjusted later,
+   * and its tack series are calculated from these copies.
+   * Before the boat orientation is known, all points can still change, so a copy of the data is returned.
+   *
+   * @return the settled data, not null. Must not be modified.
+   */
+  public Data getSettledData()
+  {
+    if (!initialAnalysisDone)
+    {
+      return new Data(data);
+    }
+    List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
+    int settledSize = data.size() - 1;
+    if (!pointsWithLocation.isEmpty())
+    {
+      settledSize = Math.min(settledSize, data.getLocationRow(pointsWithLocation.size() - 1));
+    }
+    Data result = data.prefix(settledSize);
+    List<DataPoint> settledPointsWithLocation = result.getPointsWithLocation();
+    for (Tack tack : data.getTackList())
+    {
+      Tack copy = new Tack(tack);
+      if (copy.pointsWithinTack != null)
+      {
+        // the points of the prefix can be read from another thread, in contrast to those of the analyzed data
+        copy.pointsWithinTack = settledPointsWithLocation.subList(
+            copy.startOfTackDataPointIndex,
+            copy.endOfTackDataPointIndex + 1);
+      }
+      result.getTackList().add(copy);
+    }
+    result.getTackSeriesList().addAll(new TackSeriesAnalyzer().analyze(result.getTackList()));
+    return result;
+  }
+
+  /**
+   * Continues the tack detection for all points with final velocity and bearing,
+   * and replaces the tack list and the tack series list of the data.
+   */
+  private void analyzeTacks()
+  {
+    List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
+    tackFirstPass.process(pointsWithLocation, nextVelocityBearingLocation);
+    TackList tacks = tackFirstPass.tacks;
+    if (tacks.size() > adjustedTackCount)
+    {
+      tackListAnalyzer.adjustTackStartAndEndPoint(tacks, pointsWithLocation, adjustedTackCount);
+      // the end of the previously last tack has changed, so its connection is recalculated
+      tackListAnalyzer.connectTacks(tacks, adjustedTackCount - 1 > 0 ? adjustedTackCount - 1 : 1);
+      adjustedTackCount = tacks.size();
+    }
+
+    TackList tackList = data.getTackList();
+    tackList.clear();
+    tackList.addAll(tacks);
+    Tack currentTack = tackFirstPass.currentTack;
+    if (currentTack != null && currentTack.end != null)
+    {
+      tackList.add(currentTack);
+    }
+    data.getTackSeriesList().clear();
+    data.getTackSeriesList().addAll(new TackSeriesAnalyzer().analyze(tackList));
+  }
+}
@@ -3,58 +3,63 @@ package com.github.thomasfox.sailplotter.analyze;
 import java.util.List;
 
 import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataColumns;
 import com.github.thomasfox.sailplotter.model.DataPoint;
 import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.TimeIndex;
 
 /**
- * Interpolates location data for points which do not have location data.
- * This is done only for points between other points with location data.
+ * Resamples the location channel of the data at arbitrary points in time.
+ * The location is interpolated between the neighbouring points with location data
+ * on demand, so points without location data need not carry interpolated locations.
  */
 public class LocationInterpolator
 {
-  public void interpolateLocation(Data data)
+  private final List<DataPoint> pointsWithLocation;
+
+  private final TimeIndex locationTimeIndex;
+
+  public LocationInterpolator(Data data)
   {
-    List<DataPoint> allPoints = data.getAllPoints();
-    Location lastLocation = null;
-    Long lastLocationTime = null;
-    Location nextLocation = null;
-    Long nextLocationTime = null;
-    for (int i = 1; i < data.size() - 1; ++i)
-    {
-      DataPoint point = data.get(i);
-      if (point.hasLocation())
-      {
-        lastLocation = point.location;
-        lastLocationTime = point.time;
-        DataPoint nextPointWithLocation = getNextPointWithLocation(allPoints, i);
-        if (nextPointWithLocation == null)
-        {
-          break;
-        }
-        nextLocation = nextPointWithLocation.location;
-        nextLocationTime = nextPointWithLocation.time;
-        continue;
-      }
-      if (lastLocation != null)
-      {
-        point.location = Location.interpolate(lastLocation, nextLocationTime - point.time, nextLocation, point.time - lastLocationTime);
-      }
-    }
+    this.pointsWithLocation = data.getPointsWithLocation();
+    this.locationTimeIndex = data.getLocationTimeIndex();
   }
 
-  private DataPoint getNextPointWithLocation(List<DataPoint> points, int fromIndex)
+  /**
+   * Returns the location at a certain time.
+   * If a point with location exists at exactly that time, its location is returned.
+   * Otherwise, the location is interpolated between the last point with location before
+   * and the next point with location after the given time.
+   * Points with location but without time are not used for interpolation.
+   *
+   * @param time the time in millis since 01.01.1970 0:00:00.000 GMT.
+   *
+   * @return the location at the given time, or null if the time is not
+   *         within the time range of the location data.
+   */
+  public Location getLocationAt(long time)
   {
-    if (fromIndex >= points.size())
+    int nextIndex = locationTimeIndex.firstIndexNotBefore(time);
+    if (nextIndex >= pointsWithLocation.size())
+    {
+      return null;
+    }
+    DataPoint next = pointsWithLocation.get(nextIndex);
+    long nextTime = locationTimeIndex.getTime(nextIndex);
+    if (nextTime == time)
+    {
+      return next.location;
+    }
+    if (nextIndex == 0)
     {
       return null;
     }
-    for (int i = fromIndex + 1; i < points.size(); ++i)
+    long lastTime = locationTimeIndex.getTime(nextIndex - 1);
+    if (lastTime == DataColumns.NO_TIME)
     {
-      if (points.get(i).hasLocation())
-      {
-        return points.get(i);
-      }
+      return null;
     }
-    return null;
+    DataPoint last = pointsWithLocation.get(nextIndex - 1);
+    return Location.interpolate(last.location, nextTime - time, next.location, time - lastTime);
   }
 }
@@ -2,6 +2,7 @@ package com.github.thomasfox.sailplotter.analyze;
 
 import java.util.List;
 
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.DataPoint;
 import com.github.thomasfox.sailplotter.model.Location;
@@ -19,24 +20,46 @@ public class TackListByCorrelationAnalyzer
   private static final int ADJUSTMENT_RADIUS = 10;
 
   public TackList analyze(Data data)
+  {
+    return analyze(data, new LoadProgress(null));
+  }
+
+  /**
+   * Calculates the tack list of the points with location.
+   *
+   * @param data the data to analyze, not null.
+   * @param loadProgress where to check for cancellation, not null.
+   *
+   * @return the tack list, not null.
+   */
+  public TackList analyze(Data data, LoadProgress loadProgress)
   {
     List<DataPoint> points = data.getPointsWithLocation();
-    TackList tackList = calculateTacksByMaxOffBearing(points);
-    tackList = adjustTackStartAndEndPoint(tackList, points);
+    TackList tackList = calculateTacksByMaxOffBearing(points, loadProgress);
+    tackList = adjustTackStartAndEndPoint(tackList, points, 1);
+    loadProgress.checkCancelled();
+    connectTacks(tackList, 1);
+    return tackList;
+  }
 
-    for (int i = 1; i < tackList.size(); ++i)
+  /**
+   * Determines the maneuver types and the intersections of the straight lines
+   * between neighbouring tacks.
+   *
+   * @param tackList the tacks to connect, not null.
+   * @param fromTackIndex the index of the first tack to connect to its predecessor.
+   */
+  void connectTacks(TackList tackList, int fromTackIndex)
+  {
+    for (int i = fromTackIndex; i < tackList.size(); ++i)
     {
       Tack lastTack = tackList.get(i - 1);
       Tack nextTack = tackList.get(i);
       ManeuverType maneuverTypeBetweenTacks = determineManeuverTypeBetweenTacks(lastTack, nextTack);
       lastTack.maneuverTypeAtEnd = maneuverTypeBetweenTacks;
       nextTack.maneuverTypeAtStart = maneuverTypeBetweenTacks;
-    }
-
-    for (int i = 1; i < tackList.size(); ++i)
-    {
-      Tack lastTack = tackList.get(i - 1);
-      Tack nextTack = tackList.get(i);
+      lastTack.tackStraightLineIntersectionEnd = null;
+      nextTack.tackStraightLineIntersectionStart = null;
       if (lastTack.hasMainPoints() && nextTack.hasMainPoints())
       {
         Location intersection = Location.intersection(
@@ -52,12 +75,21 @@ public class TackListByCorrelationAnalyzer
         calculateTackIntersectionTimes(lastTack, nextTack);
       }
     }
-    return tackList;
   }
 
-  private TackList adjustTackStartAndEndPoint(TackList tacks, List<DataPoint> points)
+  /**
+   * Moves the borders between neighbouring tacks to where the bearing of the points
+   * fits best to the bearing of the tacks.
+   *
+   * @param tacks the tacks to adjust, not null.
+   * @param points the points with location, not null.
+   * @param fromTackIndex the index of the first tack to adjust against its predecessor.
+   *
+   * @return the adjusted tacks.
+   */
+  TackList adjustTackStartAndEndPoint(TackList tacks, List<DataPoint> points, int fromTackIndex)
   {
-    for (int tackIndex = 1; tackIndex < tacks.size(); ++tackIndex)
+    for (int tackIndex = fromTackIndex; tackIndex < tacks.size(); ++tackIndex)
     {
       Tack lastTack = tacks.get(tackIndex - 1);
       Tack nextTack = tacks.get(tackIndex);
@@ -151,26 +183,66 @@ public class TackListByCorrelationAnalyzer
    * This method tends to put the end tacks too late.
    *
    * @param points the measured data points
+   * @param loadProgress where to check for cancellation, not null.
    * @return the list of tacks determined from the points.
    */
-  private TackList calculateTacksByMaxOffBearing(List<DataPoint> points)
+  private TackList calculateTacksByMaxOffBearing(List<DataPoint> points, LoadProgress loadProgress)
   {
-    int tackIndex = 0;
-    TackList firstPass = new TackList();
+    FirstPass firstPass = new FirstPass();
+    int end = 0;
+    while (end < points.size())
+    {
+      end = Math.min(end + LoadProgress.CANCEL_CHECK_INTERVAL, points.size());
+      firstPass.process(points, end);
+      loadProgress.checkCancelled();
+    }
+    // TODO last tack
+    return firstPass.tacks;
+  }
+
+  /**
+   * The state of calculateTacksByMaxOffBearing(),
+   * which can be continued if more points become available.
+   */
+  static final class FirstPass
+  {
+    final TackList tacks = new TackList();
+
     Tack currentTack = null;
-    int offTackCounter = 0;
-    for (int dataPointIndex = 0; dataPointIndex < points.size(); ++dataPointIndex)
+
+    private int tackIndex = 0;
+
+    private int offTackCounter = 0;
+
+    private int nextDataPointIndex = 0;
+
+    /**
+     * Processes the points which were not processed yet.
+     *
+     * @param points the points with location, not null.
+     * @param end the index of the first point not to process.
+     */
+    void process(List<DataPoint> points, int end)
+    {
+      for (int dataPointIndex = nextDataPointIndex; dataPointIndex < end; ++dataPointIndex)
+      {
+        processPoint(points, dataPointIndex);
+      }
+      nextDataPointIndex = Math.max(end, nextDataPointIndex);
+    }
+
+    private void processPoint(List<DataPoint> points, int dataPointIndex)
     {
       DataPoint point = points.get(dataPointIndex);
       if (point.location == null)
       {
-        continue;
+        return;
       }
       if (point.location.bearingFromLatLong == null)
       {
         if (currentTack == null)
         {
-          continue;
+          return;
         }
         // bearing == null means that current velocity is zero. Does not end current tack.
         // Does not increase offTackCounter but does not reset it either.
@@ -183,7 +255,7 @@ public class TackListByCorrelationAnalyzer
           currentTack = new Tack();
           currentTack.index = tackIndex;
           currentTack.start(point, dataPointIndex);
-          continue;
+          return;
         }
         currentTack.end(point, dataPointIndex, points);
         Double bearingDifference = point.getBearingDifference(currentTack.getAbsoluteBearingInArcs());
@@ -205,7 +277,7 @@ public class TackListByCorrelationAnalyzer
         currentTack.end(point, dataPointIndex, points);
         if (offTackCounter >= OFF_TACK_COUNTS_STARTS_NEW)
         {
-          firstPass.add(currentTack);
+          tacks.add(currentTack);
           tackIndex++;
           currentTack = new Tack();
           currentTack.index = tackIndex;
@@ -214,8 +286,6 @@ public class TackListByCorrelationAnalyzer
         }
       }
     }
-    // TODO last tack
-    return firstPass;
   }
 
   void calculateTackIntersectionTimes(Tack lastTack, Tack nextTack)
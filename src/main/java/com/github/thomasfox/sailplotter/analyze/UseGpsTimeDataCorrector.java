@@ -12,14 +12,21 @@ import com.github.thomasfox.sailplotter.model.DataPoint;
  */
 public class UseGpsTimeDataCorrector
 {
-  public void correct(Data data)
+  /**
+   * Corrects the times of all points of the data.
+   *
+   * @param data the data to correct, not null.
+   *
+   * @return the time in milliseconds which was added to the point times, 0 if none.
+   */
+  public long correct(Data data)
   {
     long timeDistanceSum = 0;
     int count = 0;
     List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
     for (DataPoint point : pointsWithLocation)
     {
-      if (point.location.satelliteTime != null)
+      if (point.location.satelliteTime != null && point.time != null)
       {
         timeDistanceSum += point.location.satelliteTime - point.time;
         count++;
@@ -30,8 +37,14 @@ public class UseGpsTimeDataCorrector
       long timeDistance = timeDistanceSum / count;
       for (DataPoint point : data.getAllPoints())
       {
-        point.time = point.time + timeDistance;
+        if (point.time != null)
+        {
+          point.time = point.time + timeDistance;
+        }
       }
+      data.resetColumnCache();
+      return timeDistance;
     }
+    return 0;
   }
 }
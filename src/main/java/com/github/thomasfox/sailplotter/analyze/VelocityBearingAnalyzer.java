@@ -3,7 +3,10 @@ package com.github.thomasfox.sailplotter.analyze;
 import java.util.List;
 
 import com.github.thomasfox.sailplotter.Constants;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.CompactTrack;
 import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataColumns;
 import com.github.thomasfox.sailplotter.model.DataPoint;
 import com.github.thomasfox.sailplotter.model.Wind;
 
@@ -11,21 +14,98 @@ public class VelocityBearingAnalyzer
 {
   public void analyze(Data data)
   {
+    analyze(data, new LoadProgress(null));
+  }
+
+  /**
+   * Calculates velocity and bearing for all points with location.
+   *
+   * @param data the data to analyze, not null.
+   * @param loadProgress where to check for cancellation, not null.
+   */
+  public void analyze(Data data, LoadProgress loadProgress)
+  {
+    DataColumns columns = data.getColumns();
+    int rowBefore = columns.nextLocationRow(0);
+    int row = rowBefore == -1 ? -1 : columns.nextLocationRow(rowBefore + 1);
+    int rowAfter = row == -1 ? -1 : columns.nextLocationRow(row + 1);
+    while (rowAfter != -1)
+    {
+      loadProgress.analyzingPoint(row);
+      analyzePoint(data, columns, rowBefore, row, rowAfter);
+      rowBefore = row;
+      row = rowAfter;
+      rowAfter = columns.nextLocationRow(rowAfter + 1);
+    }
+    data.resetColumnCache();
+  }
+
+  /**
+   * Calculates velocity and bearing for a range of points with location,
+   * e.g. after points were appended to the data.
+   * The first and the last point with location get no velocity and bearing,
+   * as for analyze(Data).
+   * Only the cached columns of the changed points are updated.
+   *
+   * @param data the data to analyze, not null.
+   * @param fromLocation the position in the points with location of the first point to analyze.
+   *
+   * @return the position in the points with location of the first point
+   *         which could not be analyzed yet because it has no successor.
+   */
+  public int analyze(Data data, int fromLocation)
+  {
+    DataColumns columns = data.getColumns();
     List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
-    for (int i = 1; i < pointsWithLocation.size() - 1; ++i)
+    int position = Math.max(fromLocation, 1);
+    while (position < pointsWithLocation.size() - 1)
+    {
+      int row = data.getLocationRow(position);
+      analyzePoint(
+          data,
+          columns,
+          data.getLocationRow(position - 1),
+          row,
+          data.getLocationRow(position + 1));
+      data.pointValuesChanged(row);
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Calculates velocity and bearing for all locations of a compact track,
+   * reading the coordinates and times from the compact encoding.
+   * As for analyze(Data), the first and the last location get no velocity and bearing.
+   *
+   * @param track the track to analyze, not null.
+   */
+  public void analyze(CompactTrack track)
+  {
+    for (int n = 1; n < track.size() - 1; n++)
+    {
+      double distance = track.approximateDistance(n + 1, n - 1);
+      long timeDistanceMillis = track.getTime(n + 1) - track.getTime(n - 1);
+      track.setVelocityBearingFromLatLong(
+          n,
+          distance / timeDistanceMillis * 1000 / Constants.NAUTICAL_MILE * 3600d,
+          track.getBearing(n - 1, n + 1));
+    }
+  }
+
+  private void analyzePoint(Data data, DataColumns columns, int rowBefore, int row, int rowAfter)
+  {
+    DataPoint point = data.get(row);
+    DataPoint pointBefore = data.get(rowBefore);
+    DataPoint pointAfter = data.get(rowAfter);
+    double distance = columns.approximateDistance(rowAfter, rowBefore);
+    point.location.velocityFromLatLong = distance / pointAfter.timeDistanceMillis(pointBefore) * 1000 / Constants.NAUTICAL_MILE * 3600d;
+    point.location.bearingFromLatLong = columns.getBearing(rowBefore, rowAfter);
+    point.location.velocityBearingAveragedOverDistance = distance;
+    if (point.wind == null)
     {
-      DataPoint point = pointsWithLocation.get(i);
-      DataPoint pointBefore = pointsWithLocation.get(i - 1);
-      DataPoint pointAfter = pointsWithLocation.get(i + 1);
-      double distance = pointAfter.location.approximateDistance(pointBefore.location);
-      point.location.velocityFromLatLong = distance / pointAfter.timeDistanceMillis(pointBefore) * 1000 / Constants.NAUTICAL_MILE * 3600d;
-      point.location.bearingFromLatLong = pointBefore.getBearingTo(pointAfter);
-      point.location.velocityBearingAveragedOverDistance = distance;
-      if (point.wind == null)
-      {
-        point.wind = new Wind();
-      }
-      point.wind.direction = data.getAverageWindBearing();
+      point.wind = new Wind();
     }
+    point.wind.direction = data.getAverageWindBearing();
   }
 }
@@ -1,10 +1,11 @@
 package com.github.thomasfox.sailplotter.exporter;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.thomasfox.sailplotter.model.Data;
 
 public class Exporter
@@ -31,12 +32,37 @@ public class Exporter
     return new File(result);
   }
 
+  /**
+   * Saves the data in the binary sailplot format.
+   *
+   * @param file the file to write to, not null.
+   * @param data the data to save, not null.
+   */
   public void save(File file, Data data)
   {
-    try
+    try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
     {
-      data.resetCache();
-      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, data);
+      new SailplotWriter().write(data, outputStream);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Exports the data as JSON, e.g. for processing by other tools.
+   *
+   * @param file the file to write to, not null.
+   * @param data the data to export, not null.
+   * @param profile which values to export, not null.
+   * @param indent whether to indent the JSON.
+   */
+  public void exportJson(File file, Data data, JsonExporter.Profile profile, boolean indent)
+  {
+    try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16))
+    {
+      new JsonExporter(profile, indent).write(data, outputStream);
     }
     catch (IOException e)
     {
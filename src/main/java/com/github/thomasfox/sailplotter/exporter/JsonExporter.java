@@ -0,0 +1,250 @@
+package com.github.thomasfox.sailplotter.exporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.github.thomasfox.sailplotter.model.Acceleration;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.MagneticField;
+import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
+import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
+
+/**
+ * Writes data as JSON with a streaming generator, in a single pass over the points
+ * and without building an intermediate tree.
+ * The data is only read, its caches are left untouched.
+ *
+ * The profile determines which values are written.
+ * The RAW and RAW_AND_DERIVED profiles use the property names of the model classes,
+ * as ObjectMapper did when it serialized the whole object graph.
+ */
+public class JsonExporter
+{
+  private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+      .enable(StreamWriteFeature.USE_FAST_DOUBLE_WRITER)
+      .build();
+
+  /**
+   * The sets of values which can be written.
+   */
+  public enum Profile
+  {
+    /**
+     * The recorded values only: times, locations, magnetic fields and accelerations.
+     */
+    RAW,
+
+    /**
+     * The recorded values together with the values calculated by the analysis:
+     * velocities and bearings from the locations, compass bearings,
+     * heel and roll, wind and manoeuver state.
+     */
+    RAW_AND_DERIVED,
+
+    /**
+     * The recorded values with short property names and the locations and sensor values flattened into
+     * the point: t (time), lat, lon, alt, v (velocity), b (bearing), st (satellite time),
+     * mx, my, mz (magnetic field) and ax, ay, az (acceleration).
+     */
+    COMPACT
+  }
+
+  private final Profile profile;
+
+  private final boolean indent;
+
+  /**
+   * Constructor.
+   *
+   * @param profile which values to write, not null.
+   * @param indent whether to indent the output. Without indentation, the output is about half as large.
+   */
+  public JsonExporter(Profile profile, boolean indent)
+  {
+    this.profile = profile;
+    this.indent = indent;
+  }
+
+  /**
+   * Writes the data as UTF-8 encoded JSON.
+   *
+   * @param data the data to write, not null.
+   * @param outputStream the stream to write to, not null. Is flushed but not closed.
+   *
+   * @throws IOException if writing fails.
+   */
+  public void write(Data data, OutputStream outputStream) throws IOException
+  {
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8))
+    {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      if (indent)
+      {
+        generator.useDefaultPrettyPrinter();
+      }
+      generator.writeStartObject();
+      if (data.comment != null)
+      {
+        generator.writeStringField("comment", data.comment);
+      }
+      generator.writeNumberField("averageWindBearing", data.getAverageWindBearing());
+      writeCoordinateSystem("deviceOrientation", data.deviceOrientation, generator);
+      writeCoordinateSystem("boatCoordinatesInDeviceCoordinates",
+          data.getBoatCoordinatesInDeviceCoordinates(), generator);
+      generator.writeArrayFieldStart("allPoints");
+      for (DataPoint point : data.getAllPoints())
+      {
+        if (profile == Profile.COMPACT)
+        {
+          writeCompactPoint(point, generator);
+        }
+        else
+        {
+          writePoint(point, generator);
+        }
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  private void writePoint(DataPoint point, JsonGenerator generator) throws IOException
+  {
+    boolean derived = profile == Profile.RAW_AND_DERIVED;
+    generator.writeStartObject();
+    writeNumberField("time", point.time, generator);
+    Location location = point.location;
+    if (location != null)
+    {
+      generator.writeObjectFieldStart("location");
+      writeNumberField("latitude", location.latitude, generator);
+      writeNumberField("longitude", location.longitude, generator);
+      writeNumberField("altitude", location.altitude, generator);
+      writeNumberField("velocity", location.velocity, generator);
+      writeNumberField("bearing", location.bearing, generator);
+      if (derived)
+      {
+        writeNumberField("velocityFromLatLong", location.velocityFromLatLong, generator);
+        writeNumberField("bearingFromLatLong", location.bearingFromLatLong, generator);
+        writeNumberField("velocityBearingAveragedOverDistance",
+            location.velocityBearingAveragedOverDistance, generator);
+      }
+      writeNumberField("satelliteTime", location.satelliteTime, generator);
+      generator.writeEndObject();
+    }
+    MagneticField magneticField = point.magneticField;
+    if (magneticField != null)
+    {
+      generator.writeObjectFieldStart("magneticField");
+      writeVectorFields(magneticField, generator);
+      if (derived)
+      {
+        writeNumberField("compassBearing", magneticField.compassBearing, generator);
+      }
+      generator.writeEndObject();
+    }
+    Acceleration acceleration = point.acceleration;
+    if (acceleration != null)
+    {
+      generator.writeObjectFieldStart("acceleration");
+      writeVectorFields(acceleration, generator);
+      if (derived)
+      {
+        writeNumberField("heel", acceleration.heel, generator);
+        writeNumberField("roll", acceleration.roll, generator);
+      }
+      generator.writeEndObject();
+    }
+    if (derived && point.wind != null)
+    {
+      generator.writeObjectFieldStart("wind");
+      writeNumberField("direction", point.wind.direction, generator);
+      writeNumberField("velocity", point.wind.velocity, generator);
+      generator.writeEndObject();
+    }
+    if (derived && point.manoeuverState != null)
+    {
+      generator.writeStringField("manoeuverState", point.manoeuverState.name());
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeCompactPoint(DataPoint point, JsonGenerator generator) throws IOException
+  {
+    generator.writeStartObject();
+    writeNumberField("t", point.time, generator);
+    Location location = point.location;
+    if (location != null)
+    {
+      writeNumberField("lat", location.latitude, generator);
+      writeNumberField("lon", location.longitude, generator);
+      writeNumberField("alt", location.altitude, generator);
+      writeNumberField("v", location.velocity, generator);
+      writeNumberField("b", location.bearing, generator);
+      writeNumberField("st", location.satelliteTime, generator);
+    }
+    if (point.magneticField != null)
+    {
+      generator.writeNumberField("mx", point.magneticField.x);
+      generator.writeNumberField("my", point.magneticField.y);
+      generator.writeNumberField("mz", point.magneticField.z);
+    }
+    if (point.acceleration != null)
+    {
+      generator.writeNumberField("ax", point.acceleration.x);
+      generator.writeNumberField("ay", point.acceleration.y);
+      generator.writeNumberField("az", point.acceleration.z);
+    }
+    generator.writeEndObject();
+  }
+
+  private void writeCoordinateSystem(String name, CoordinateSystem coordinateSystem, JsonGenerator generator)
+      throws IOException
+  {
+    if (coordinateSystem == null)
+    {
+      return;
+    }
+    generator.writeObjectFieldStart(name);
+    writeVector("x", coordinateSystem.x, generator);
+    writeVector("y", coordinateSystem.y, generator);
+    writeVector("z", coordinateSystem.z, generator);
+    generator.writeEndObject();
+  }
+
+  private void writeVector(String name, ThreeDimVector vector, JsonGenerator generator) throws IOException
+  {
+    generator.writeObjectFieldStart(name);
+    writeVectorFields(vector, generator);
+    generator.writeEndObject();
+  }
+
+  private void writeVectorFields(ThreeDimVector vector, JsonGenerator generator) throws IOException
+  {
+    generator.writeNumberField("x", vector.x);
+    generator.writeNumberField("y", vector.y);
+    generator.writeNumberField("z", vector.z);
+  }
+
+  private void writeNumberField(String name, Double value, JsonGenerator generator) throws IOException
+  {
+    if (value != null)
+    {
+      generator.writeNumberField(name, value);
+    }
+  }
+
+  private void writeNumberField(String name, Long value, JsonGenerator generator) throws IOException
+  {
+    if (value != null)
+    {
+      generator.writeNumberField(name, value);
+    }
+  }
+}
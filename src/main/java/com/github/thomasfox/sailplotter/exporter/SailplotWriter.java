@@ -0,0 +1,383 @@
+package com.github.thomasfox.sailplotter.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.importer.sailplot.SailplotFormat;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.Tack;
+import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
+import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
+
+/**
+ * Writes data in the binary sailplot format described in SailplotFormat.
+ * Each block is assembled in memory before it is written, because its length precedes its content.
+ * The results of the analysis stages which have run on the data are saved,
+ * except the tack series, which are cheap to recalculate.
+ */
+public class SailplotWriter
+{
+  /** The analysis stages whose results can be saved. */
+  private static final List<AnalysisStage> SAVED_STAGES = List.of(
+      AnalysisStage.TIME_CORRECTION,
+      AnalysisStage.VELOCITY_BEARING,
+      AnalysisStage.TACKS,
+      AnalysisStage.DEVICE_ORIENTATION);
+
+  public void write(Data data, OutputStream outputStream) throws IOException
+  {
+    Block block = new Block();
+    block.write(SailplotFormat.MAGIC);
+    block.writeVarLong(SailplotFormat.VERSION);
+    block.writeTo(outputStream);
+    block.reset();
+
+    SailplotFormat.DataHash dataHash = new SailplotFormat.DataHash();
+    writeHeader(data, block);
+    writeBlock(SailplotFormat.BLOCK_HEADER, block, outputStream);
+    writePoints(data, block);
+    block.hashInto(dataHash);
+    writeBlock(SailplotFormat.BLOCK_POINTS, block, outputStream);
+    writeLocations(data, block);
+    block.hashInto(dataHash);
+    writeBlock(SailplotFormat.BLOCK_LOCATIONS, block, outputStream);
+    for (DataPoint point : data.getAllPoints())
+    {
+      if (point.hasMagneticField())
+      {
+        block.writeVector(point.magneticField);
+      }
+    }
+    block.hashInto(dataHash);
+    writeBlock(SailplotFormat.BLOCK_MAGNETIC_FIELDS, block, outputStream);
+    for (DataPoint point : data.getAllPoints())
+    {
+      if (point.hasAcceleration())
+      {
+        block.writeVector(point.acceleration);
+      }
+    }
+    block.hashInto(dataHash);
+    writeBlock(SailplotFormat.BLOCK_ACCELERATIONS, block, outputStream);
+    List<AnalysisStage> savedStages = getSavedStages(data);
+    if (!savedStages.isEmpty())
+    {
+      writeAnalysis(data, savedStages, dataHash.getValue(), block);
+      writeBlock(SailplotFormat.BLOCK_ANALYSIS, block, outputStream);
+    }
+    writeBlock(SailplotFormat.BLOCK_END, block, outputStream);
+  }
+
+  private void writeBlock(int type, Block block, OutputStream outputStream) throws IOException
+  {
+    Block blockStart = new Block();
+    blockStart.writeVarLong(type);
+    if (type != SailplotFormat.BLOCK_END)
+    {
+      blockStart.writeVarLong(block.size());
+    }
+    blockStart.writeTo(outputStream);
+    block.writeTo(outputStream);
+    block.reset();
+  }
+
+  private void writeHeader(Data data, Block block)
+  {
+    CoordinateSystem boatCoordinates = data.getBoatCoordinatesInDeviceCoordinates();
+    int flags = (data.comment != null ? SailplotFormat.HEADER_COMMENT : 0)
+        | (data.deviceOrientation != null ? SailplotFormat.HEADER_DEVICE_ORIENTATION : 0)
+        | (boatCoordinates != null ? SailplotFormat.HEADER_BOAT_COORDINATES : 0);
+    block.write(flags);
+    block.writeDouble(data.getAverageWindBearing());
+    if (data.comment != null)
+    {
+      byte[] comment = data.comment.getBytes(StandardCharsets.UTF_8);
+      block.writeVarLong(comment.length);
+      block.write(comment);
+    }
+    if (data.deviceOrientation != null)
+    {
+      block.writeCoordinateSystem(data.deviceOrientation);
+    }
+    if (boatCoordinates != null)
+    {
+      block.writeCoordinateSystem(boatCoordinates);
+    }
+  }
+
+  private void writePoints(Data data, Block block)
+  {
+    block.writeVarLong(data.size());
+    long previousTime = 0;
+    for (DataPoint point : data.getAllPoints())
+    {
+      int flags = (point.time != null ? SailplotFormat.POINT_TIME : 0)
+          | (point.location != null ? SailplotFormat.POINT_LOCATION : 0)
+          | (point.hasMagneticField() ? SailplotFormat.POINT_MAGNETIC_FIELD : 0)
+          | (point.hasAcceleration() ? SailplotFormat.POINT_ACCELERATION : 0);
+      block.write(flags);
+      if (point.time != null)
+      {
+        block.writeVarLong(SailplotFormat.zigzagEncode(point.time - previousTime));
+        previousTime = point.time;
+      }
+    }
+  }
+
+  private void writeLocations(Data data, Block block)
+  {
+    long previousLatitude = 0;
+    long previousLongitude = 0;
+    for (DataPoint point : data.getPointsWithLocation())
+    {
+      if (point.location.latitude != null && point.location.longitude != null)
+      {
+        previousLatitude = SailplotFormat.toCoordinateUnits(point.location.latitude);
+        previousLongitude = SailplotFormat.toCoordinateUnits(point.location.longitude);
+        break;
+      }
+    }
+    block.writeVarLong(SailplotFormat.zigzagEncode(previousLatitude));
+    block.writeVarLong(SailplotFormat.zigzagEncode(previousLongitude));
+    for (DataPoint point : data.getAllPoints())
+    {
+      if (point.location == null)
+      {
+        continue;
+      }
+      Location location = point.location;
+      int flags = (location.latitude != null ? SailplotFormat.LOCATION_LATITUDE : 0)
+          | (location.longitude != null ? SailplotFormat.LOCATION_LONGITUDE : 0)
+          | (location.altitude != null ? SailplotFormat.LOCATION_ALTITUDE : 0)
+          | (location.velocity != null ? SailplotFormat.LOCATION_VELOCITY : 0)
+          | (location.bearing != null ? SailplotFormat.LOCATION_BEARING : 0)
+          | (location.satelliteTime != null && point.time != null ? SailplotFormat.LOCATION_SATELLITE_TIME : 0);
+      block.write(flags);
+      if (location.latitude != null)
+      {
+        long latitude = SailplotFormat.toCoordinateUnits(location.latitude);
+        block.writeVarLong(SailplotFormat.zigzagEncode(latitude - previousLatitude));
+        previousLatitude = latitude;
+      }
+      if (location.longitude != null)
+      {
+        long longitude = SailplotFormat.toCoordinateUnits(location.longitude);
+        block.writeVarLong(SailplotFormat.zigzagEncode(longitude - previousLongitude));
+        previousLongitude = longitude;
+      }
+      if (location.altitude != null)
+      {
+        block.writeDouble(location.altitude);
+      }
+      if (location.velocity != null)
+      {
+        block.writeDouble(location.velocity);
+      }
+      if (location.bearing != null)
+      {
+        block.writeDouble(location.bearing);
+      }
+      if ((flags & SailplotFormat.LOCATION_SATELLITE_TIME) != 0)
+      {
+        block.writeVarLong(SailplotFormat.zigzagEncode(location.satelliteTime - point.time));
+      }
+    }
+  }
+
+  /**
+   * Returns the analysis stages whose results are present in the data and can be saved.
+   * A stage is only saved if the stages it depends on are saved.
+   */
+  private List<AnalysisStage> getSavedStages(Data data)
+  {
+    List<AnalysisStage> result = new ArrayList<>();
+    for (AnalysisStage stage : SAVED_STAGES)
+    {
+      if (data.isAnalyzed(stage)
+          && result.containsAll(stage.getDependencies())
+          && (stage != AnalysisStage.DEVICE_ORIENTATION || data.getBoatCoordinatesInDeviceCoordinates() != null))
+      {
+        result.add(stage);
+      }
+    }
+    return result;
+  }
+
+  private void writeAnalysis(Data data, List<AnalysisStage> stages, long dataHash, Block block)
+  {
+    block.writeVarLong(stages.size());
+    for (AnalysisStage stage : stages)
+    {
+      block.writeVarLong(stage.ordinal());
+      block.writeLong(SailplotFormat.fingerprint(dataHash, data.getAverageWindBearing(), stage));
+    }
+    if (stages.contains(AnalysisStage.VELOCITY_BEARING))
+    {
+      writeVelocityBearing(data, block);
+    }
+    if (stages.contains(AnalysisStage.TACKS))
+    {
+      writeTacks(data, block);
+    }
+  }
+
+  private void writeVelocityBearing(Data data, Block block)
+  {
+    for (DataPoint point : data.getAllPoints())
+    {
+      if (point.location == null)
+      {
+        continue;
+      }
+      Location location = point.location;
+      Double windDirection = point.wind == null ? null : point.wind.direction;
+      int flags = (location.velocityFromLatLong != null ? SailplotFormat.VELOCITY_FROM_LAT_LONG : 0)
+          | (location.bearingFromLatLong != null ? SailplotFormat.VELOCITY_BEARING_FROM_LAT_LONG : 0)
+          | (location.velocityBearingAveragedOverDistance != null
+              ? SailplotFormat.VELOCITY_AVERAGED_OVER_DISTANCE : 0)
+          | (windDirection != null ? SailplotFormat.VELOCITY_WIND_DIRECTION : 0);
+      block.write(flags);
+      writeIfNotNull(location.velocityFromLatLong, block);
+      writeIfNotNull(location.bearingFromLatLong, block);
+      writeIfNotNull(location.velocityBearingAveragedOverDistance, block);
+      writeIfNotNull(windDirection, block);
+    }
+  }
+
+  private void writeTacks(Data data, Block block)
+  {
+    List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
+    block.writeVarLong(data.getTackList().size());
+    for (Tack tack : data.getTackList())
+    {
+      block.writeVarLong(tack.startOfTackDataPointIndex);
+      block.writeVarLong(tack.end == null ? 0 : tack.endOfTackDataPointIndex + 1);
+      if (tack.pointsWithinTack == null || tack.pointsWithinTack.isEmpty())
+      {
+        block.writeVarLong(0);
+      }
+      else
+      {
+        block.writeVarLong(tack.pointsWithinTack.size());
+        block.writeVarLong(Collections.binarySearch(pointsWithLocation, tack.pointsWithinTack.get(0),
+            Comparator.comparingInt((DataPoint point) -> point.index)));
+      }
+      block.writeVarLong(tack.pointOfSail == null ? 0 : tack.pointOfSail.ordinal() + 1);
+      block.writeVarLong(tack.maneuverTypeAtStart == null ? 0 : tack.maneuverTypeAtStart.ordinal() + 1);
+      block.writeVarLong(tack.maneuverTypeAtEnd == null ? 0 : tack.maneuverTypeAtEnd.ordinal() + 1);
+      DataPoint intersectionStart = tack.tackStraightLineIntersectionStart;
+      DataPoint intersectionEnd = tack.tackStraightLineIntersectionEnd;
+      int flags = (tack.windDirection != null ? SailplotFormat.TACK_WIND_DIRECTION : 0)
+          | (intersectionStart != null ? SailplotFormat.TACK_INTERSECTION_START : 0)
+          | (intersectionStart != null && intersectionStart.time != null
+              ? SailplotFormat.TACK_INTERSECTION_START_TIME : 0)
+          | (intersectionEnd != null ? SailplotFormat.TACK_INTERSECTION_END : 0)
+          | (intersectionEnd != null && intersectionEnd.time != null
+              ? SailplotFormat.TACK_INTERSECTION_END_TIME : 0);
+      block.write(flags);
+      writeIfNotNull(tack.windDirection, block);
+      writeIntersection(intersectionStart, block);
+      writeIntersection(intersectionEnd, block);
+    }
+  }
+
+  private void writeIntersection(DataPoint intersection, Block block)
+  {
+    if (intersection == null)
+    {
+      return;
+    }
+    block.writeDouble(intersection.location.latitude);
+    block.writeDouble(intersection.location.longitude);
+    if (intersection.time != null)
+    {
+      block.writeVarLong(SailplotFormat.zigzagEncode(intersection.time));
+    }
+  }
+
+  private void writeIfNotNull(Double value, Block block)
+  {
+    if (value != null)
+    {
+      block.writeDouble(value);
+    }
+  }
+
+  /**
+   * The content of a block, with methods to write the encoded values.
+   */
+  private static class Block extends ByteArrayOutputStream
+  {
+    private Block()
+    {
+      super(1 << 16);
+    }
+
+    @Override
+    public void write(byte[] bytes)
+    {
+      write(bytes, 0, bytes.length);
+    }
+
+    private void writeVarLong(long value)
+    {
+      long remaining = value;
+      while ((remaining & ~0x7FL) != 0)
+      {
+        write((int) ((remaining & 0x7F) | 0x80));
+        remaining >>>= 7;
+      }
+      write((int) remaining);
+    }
+
+    private void writeDouble(double value)
+    {
+      writeLong(Double.doubleToLongBits(value));
+    }
+
+    private void writeLong(long value)
+    {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    private void hashInto(SailplotFormat.DataHash dataHash)
+    {
+      dataHash.update(buf, 0, count);
+    }
+
+    private void writeInt(int value)
+    {
+      write(value >>> 24);
+      write(value >>> 16);
+      write(value >>> 8);
+      write(value);
+    }
+
+    private void writeVector(ThreeDimVector vector)
+    {
+      writeDouble(vector.x);
+      writeDouble(vector.y);
+      writeDouble(vector.z);
+    }
+
+    private void writeCoordinateSystem(CoordinateSystem coordinateSystem)
+    {
+      for (ThreeDimVector axis : new ThreeDimVector[] {coordinateSystem.x, coordinateSystem.y, coordinateSystem.z})
+      {
+        writeDouble(axis.x);
+        writeDouble(axis.y);
+        writeDouble(axis.z);
+      }
+    }
+  }
+}
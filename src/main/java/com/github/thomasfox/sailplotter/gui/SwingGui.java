@@ -9,7 +9,6 @@ import java.util.Optional;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
-import com.github.thomasfox.sailplotter.analyze.Analyzer;
 import com.github.thomasfox.sailplotter.exporter.Exporter;
 import com.github.thomasfox.sailplotter.gui.component.Menubar;
 import com.github.thomasfox.sailplotter.gui.component.SailplotterFrame;
@@ -21,8 +20,11 @@ import com.github.thomasfox.sailplotter.gui.component.view.InfoView;
 import com.github.thomasfox.sailplotter.gui.component.view.MagneticFieldAccelerationView;
 import com.github.thomasfox.sailplotter.gui.component.view.Overview;
 import com.github.thomasfox.sailplotter.gui.component.view.RelativeToWindView;
+import com.github.thomasfox.sailplotter.gui.component.worker.FollowFileWorker;
 import com.github.thomasfox.sailplotter.gui.component.worker.LoadFileWorker;
+import com.github.thomasfox.sailplotter.gui.component.worker.ReanalyzeWorker;
 import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataSnapshot;
 
 public class SwingGui
 {
@@ -52,10 +54,21 @@ public class SwingGui
 
   private final ProgressDialog progressDialog;
 
-  private Data data;
+  /**
+   * The currently displayed data.
+   * Replaced as a whole when new data is loaded, analyzed or, if a file is followed, extended.
+   * The published data is never modified. Only replaced in the event dispatch thread.
+   */
+  private volatile DataSnapshot dataSnapshot = DataSnapshot.EMPTY;
 
   private final JPanel views;
 
+  /** The worker following the currently followed file, or null if no file is followed. */
+  private FollowFileWorker followFileWorker;
+
+  /** The worker analyzing the data with a changed wind direction, or null if no such analysis runs. */
+  private ReanalyzeWorker reanalyzeWorker;
+
   public boolean inUpdate = false;
 
   public SwingGui(String filePath)
@@ -79,6 +92,7 @@ public class SwingGui
     File currentFile = Optional.ofNullable(filePath).map(File::new).orElse(null);
     menubar = new Menubar(frame)
         .addLoadFileMenuItem(currentFile, this::loadFile)
+        .addFollowFileMenuItem(this::followFile)
         .addSaveFileMenuItem(new Exporter().replaceExtension(currentFile), this::saveFile)
         .addViews(this::changeView,
             OVERVIEW_VIEW_NAME,
@@ -99,10 +113,6 @@ public class SwingGui
     {
       loadFile(new File(filePath));
     }
-    else
-    {
-      data = new Data();
-    }
   }
 
   public static void main(String[] args)
@@ -162,10 +172,12 @@ public class SwingGui
     String inputValue = event.getActionCommand();
     try
     {
+      // the followed data cannot be reanalyzed incrementally with another wind direction
+      stopFollowing();
+      stopReanalyzing();
       int newWindDirection = Integer.parseInt(inputValue);
-      data.setAverageWindBearing(newWindDirection * Math.PI / 180d);
-      Analyzer.analyze(data, new LoadProgress(null));
-      dataChanged();
+      reanalyzeWorker = new ReanalyzeWorker(getData(), newWindDirection * Math.PI / 180d, this::setData);
+      reanalyzeWorker.execute();
     }
     catch (Exception e)
     {
@@ -176,6 +188,8 @@ public class SwingGui
 
   public void loadFile(File file)
   {
+    stopFollowing();
+    stopReanalyzing();
     menubar.setLoadStartFile(file);
     menubar.setSaveStartFile(new Exporter().replaceExtension(file));
 
@@ -183,6 +197,7 @@ public class SwingGui
     try
     {
       LoadFileWorker worker = new LoadFileWorker(loadProgress, file, this::setData, frame);
+      progressDialog.setCancelAction(worker::cancelLoading);
       worker.execute();
     }
     catch (Throwable t)
@@ -196,15 +211,68 @@ public class SwingGui
     }
   }
 
-  public void setData(Data data)
+  /**
+   * Loads a saillog file which is still being written,
+   * and displays the points appended to it until another file is loaded or followed.
+   * Only the appended points are read and analyzed, in the background, see FollowFileWorker.
+   *
+   * @param file the file to follow, not null.
+   */
+  public void followFile(File file)
+  {
+    stopFollowing();
+    stopReanalyzing();
+    menubar.setLoadStartFile(file);
+    menubar.setSaveStartFile(new Exporter().replaceExtension(file));
+
+    followFileWorker = new FollowFileWorker(file, this::setData, frame);
+    followFileWorker.execute();
+  }
+
+  private void stopFollowing()
   {
-    this.data = data;
+    if (followFileWorker != null)
+    {
+      followFileWorker.cancel(true);
+      followFileWorker = null;
+    }
+  }
+
+  private void stopReanalyzing()
+  {
+    if (reanalyzeWorker != null)
+    {
+      reanalyzeWorker.cancel(true);
+      reanalyzeWorker = null;
+    }
+  }
+
+  /**
+   * Displays a new version of the data.
+   *
+   * @param snapshot the new version, not null.
+   */
+  public void setData(DataSnapshot snapshot)
+  {
+    dataSnapshot = snapshot;
     dataChanged();
-    frame.setTitleFromData(data);
+    frame.setTitleFromData(snapshot.getData());
+  }
+
+  /**
+   * Returns the currently displayed data.
+   * The returned data must not be modified.
+   *
+   * @return the currently displayed data, not null.
+   */
+  public Data getData()
+  {
+    return dataSnapshot.getData();
   }
 
   public void dataChanged()
   {
+    Data data = getData();
     try
     {
       inUpdate = true;
@@ -233,7 +301,7 @@ public class SwingGui
       }
       else
       {
-        new Exporter().save(file, data);
+        new Exporter().save(file, getData());
         JOptionPane.showMessageDialog(
             frame,
             "File saved: " + file.getName() ,
@@ -29,6 +29,8 @@ public class Menubar extends JMenuBar
 
   private Consumer<File> saveFileConsumer;
 
+  private Consumer<File> followFileConsumer;
+
   private File loadStartFile;
 
   private File saveStartFile;
@@ -89,6 +91,37 @@ public class Menubar extends JMenuBar
     this.loadStartFile = loadStartFile;
   }
 
+  /**
+   * Adds a follow file menu item, which loads a file which is still being written
+   * and keeps loading the data appended to it.
+   * The file chooser starts at the same file as for the load file menu item.
+   *
+   * @param followFileConsumer the function which is called whenever the user selects a file to follow.
+   */
+  public Menubar addFollowFileMenuItem(Consumer<File> followFileConsumer)
+  {
+    this.followFileConsumer = followFileConsumer;
+
+    JMenuItem followFile = new JMenuItem("follow", KeyEvent.VK_F);
+    followFile.addActionListener(this::followFile);
+    fileMenu.add(followFile);
+    return this;
+  }
+
+  public void followFile(ActionEvent e)
+  {
+    if (loadStartFile != null)
+    {
+      fileChooser.setSelectedFile(loadStartFile);
+    }
+    int returnVal = fileChooser.showOpenDialog(applicationFrame);
+    if (returnVal == JFileChooser.APPROVE_OPTION)
+    {
+      File file = fileChooser.getSelectedFile();
+      followFileConsumer.accept(file);
+    }
+  }
+
   /**
    * Adds a save file menu item.
    *
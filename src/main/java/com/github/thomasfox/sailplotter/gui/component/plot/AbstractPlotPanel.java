@@ -30,6 +30,9 @@ public abstract class AbstractPlotPanel extends JPanel implements ZoomChangeList
 {
   private static final long serialVersionUID = 1L;
 
+  /** The plot width in pixels which is assumed before the chart is laid out. */
+  private static final int DEFAULT_PIXEL_WIDTH = 2560;
+
   protected ZoomedData zoomedData;
 
   protected ChartPanel chartPanel;
@@ -85,6 +88,30 @@ public abstract class AbstractPlotPanel extends JPanel implements ZoomChangeList
   public XYSeries getXySeries(
       TimeWindowPosition position,
       Function<DataPoint, TwoDimVector> xyProvider)
+  {
+    return getXySeries(position, zoomedData.getLocationSubset(position), xyProvider);
+  }
+
+  /**
+   * Returns the width of the chart in pixels, which determines how many points are needed to draw a series.
+   * Before the chart is laid out, the width of a wide screen is assumed.
+   */
+  protected int getPixelWidth()
+  {
+    if (chartPanel != null && chartPanel.getWidth() > 0)
+    {
+      return chartPanel.getWidth();
+    }
+    return DEFAULT_PIXEL_WIDTH;
+  }
+
+  /**
+   * Returns a series of the given points, which must be points with location in the time window position.
+   */
+  public XYSeries getXySeries(
+      TimeWindowPosition position,
+      List<DataPoint> points,
+      Function<DataPoint, TwoDimVector> xyProvider)
   {
     XYSeries series = new XYSeries("XY" + position, false, true);
     if (zoomedData.getData() == null)
@@ -98,7 +125,7 @@ public abstract class AbstractPlotPanel extends JPanel implements ZoomChangeList
     }
     int tackIndex = 0;
     Tack containingTack = tackList.get(tackIndex);
-    for (DataPoint point : zoomedData.getLocationSubset(position))
+    for (DataPoint point : points)
     {
       while (containingTack.endOfTackDataPointIndex < point.index
           && tackIndex < zoomedData.getData().getTackList().size() - 1)
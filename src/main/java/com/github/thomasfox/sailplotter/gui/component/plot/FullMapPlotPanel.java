@@ -13,6 +13,7 @@ import org.jfree.data.xy.XYSeriesCollection;
 
 import com.github.thomasfox.sailplotter.Constants;
 import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
+import com.github.thomasfox.sailplotter.model.ChannelPyramid;
 import com.github.thomasfox.sailplotter.model.DataPoint;
 import com.github.thomasfox.sailplotter.model.MapArea;
 
@@ -52,12 +53,13 @@ public class FullMapPlotPanel extends AbstractPlotPanel
       return;
     }
     DataPoint startPoint = pointsWithLocation.get(0);
-    dataset.addSeries(getXySeries(TimeWindowPosition.BEFORE,
-        p -> (p.location.xyRelativeTo(startPoint.location))));
-    dataset.addSeries(getXySeries(TimeWindowPosition.IN,
-        p -> (p.location.xyRelativeTo(startPoint.location))));
-    dataset.addSeries(getXySeries(TimeWindowPosition.AFTER,
-        p -> (p.location.xyRelativeTo(startPoint.location))));
+    int pixelWidth = getPixelWidth();
+    for (TimeWindowPosition position : TimeWindowPosition.values())
+    {
+      List<DataPoint> points = zoomedData.getLocationSubset(
+          position, pixelWidth, ChannelPyramid.Channel.X, ChannelPyramid.Channel.Y);
+      dataset.addSeries(getXySeries(position, points, p -> (p.location.xyRelativeTo(startPoint.location))));
+    }
   }
 
   @Override
@@ -72,12 +72,15 @@ public class FullVelocityBearingOverTimePlotPanel extends AbstractPlotPanel
   {
     velocityDataset.removeAllSeries();
     bearingDataset.removeAllSeries();
-    velocityDataset.addSeries(zoomedData.getVelocityTimeSeries(TimeWindowPosition.BEFORE));
-    velocityDataset.addSeries(zoomedData.getVelocityTimeSeries(TimeWindowPosition.IN));
-    velocityDataset.addSeries(zoomedData.getVelocityTimeSeries(TimeWindowPosition.AFTER));
-    bearingDataset.addSeries(zoomedData.getBearingInDegreesFromLatLongTimeSeries(TimeWindowPosition.BEFORE));
-    bearingDataset.addSeries(zoomedData.getBearingInDegreesFromLatLongTimeSeries(TimeWindowPosition.IN));
-    bearingDataset.addSeries(zoomedData.getBearingInDegreesFromLatLongTimeSeries(TimeWindowPosition.AFTER));
+    int pixelWidth = getPixelWidth();
+    for (TimeWindowPosition position : TimeWindowPosition.values())
+    {
+      velocityDataset.addSeries(zoomedData.getVelocityTimeSeries(position, pixelWidth));
+    }
+    for (TimeWindowPosition position : TimeWindowPosition.values())
+    {
+      bearingDataset.addSeries(zoomedData.getBearingInDegreesFromLatLongTimeSeries(position, pixelWidth));
+    }
   }
 
   @Override
@@ -40,10 +40,12 @@ public class TackVelocityBearingPolarPlotPanel extends AbstractPlotPanel
       return;
     }
     XYSeries tackVelocity = new XYSeries("tackVelocity", false, true);
+    long zoomStartMillis = zoomedData.getLocationDataStartMillis();
+    long zoomEndMillis = zoomedData.getLocationDataEndMillis();
     for (Tack tack : zoomedData.getData().getTackList())
     {
-      if (tack.end.getLocalDateTime().isAfter(zoomedData.getLocationDataStartTime())
-          && tack.start.getLocalDateTime().isBefore(zoomedData.getLocationDataEndTime())
+      if (tack.end.time > zoomStartMillis
+          && tack.start.time < zoomEndMillis
           && tack.hasMainPoints())
       {
         if (tack.getRelativeBearingInDegrees() != null && tack.getVelocityInKnots() != null)
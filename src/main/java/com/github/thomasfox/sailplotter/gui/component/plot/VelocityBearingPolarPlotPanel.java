@@ -10,6 +10,7 @@ import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
 import com.github.thomasfox.sailplotter.Constants;
+import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
 import com.github.thomasfox.sailplotter.model.DataPoint;
 
 public class VelocityBearingPolarPlotPanel extends AbstractPlotPanel
@@ -44,17 +45,13 @@ public class VelocityBearingPolarPlotPanel extends AbstractPlotPanel
     {
       velocityBuckets.add(new ArrayList<Double>());
     }
-    for (DataPoint point : zoomedData.getPointsWithLocation())
+    for (DataPoint point : zoomedData.getLocationSubset(TimeWindowPosition.IN))
     {
-      if (point.getLocalDateTime().isAfter(zoomedData.getLocationDataStartTime())
-          && point.getLocalDateTime().isBefore(zoomedData.getLocationDataEndTime()))
+      if (point.location.bearingFromLatLong != null && point.location.velocityFromLatLong != null)
       {
-        if (point.location.bearingFromLatLong != null && point.location.velocityFromLatLong != null)
-        {
-          int bucket = Double.valueOf(
-              point.getRelativeBearingInArcs() * Constants.NUMBER_OF_BEARING_BINS / 2 / Math.PI).intValue();
-          velocityBuckets.get(bucket).add(point.location.velocityFromLatLong);
-        }
+        int bucket = Double.valueOf(
+            point.getRelativeBearingInArcs() * Constants.NUMBER_OF_BEARING_BINS / 2 / Math.PI).intValue();
+        velocityBuckets.get(bucket).add(point.location.velocityFromLatLong);
       }
     }
     int max = 0;
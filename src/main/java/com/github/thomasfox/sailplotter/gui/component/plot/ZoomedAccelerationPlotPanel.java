@@ -6,7 +6,6 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
 import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
-import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
 
 public class ZoomedAccelerationPlotPanel extends AbstractPlotPanel
@@ -49,8 +48,8 @@ public class ZoomedAccelerationPlotPanel extends AbstractPlotPanel
   {
     return zoomedData.getTimeSeries(
         "acceleration",
-        Data::getPointsWithAcceleration,
-        point -> zoomedData.isInSelectedPosition(point, TimeWindowPosition.IN),
+        zoomed -> zoomed.getAccelerationSubset(TimeWindowPosition.IN),
+        point -> true,
         point -> point.acceleration.getByIndex(coordinateIndex));
   }
 
@@ -10,7 +10,7 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
 import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
-import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
 
 public class ZoomedBearingOverTimePlotPanel extends AbstractPlotPanel
 {
@@ -61,8 +61,8 @@ public class ZoomedBearingOverTimePlotPanel extends AbstractPlotPanel
   {
     return zoomedData.getTimeSeries(
         "compass bearing",
-        Data::getPointsWithMagneticField,
-        point -> zoomedData.isInSelectedPosition(point, TimeWindowPosition.IN) && point.hasCompassBearing(),
+        zoomed -> zoomed.getMagneticFieldSubset(TimeWindowPosition.IN),
+        DataPoint::hasCompassBearing,
         point -> point.magneticField.getCompassBearingAs360Degrees());
   }
 
@@ -6,7 +6,7 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
 import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
-import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
 
 public class ZoomedHeelOverTimePlotPanel extends AbstractPlotPanel
 {
@@ -45,8 +45,8 @@ public class ZoomedHeelOverTimePlotPanel extends AbstractPlotPanel
   {
     return zoomedData.getTimeSeries(
         "heel",
-        Data::getPointsWithAcceleration,
-        point -> zoomedData.isInSelectedPosition(point, TimeWindowPosition.IN) && point.hasHeel(),
+        zoomed -> zoomed.getAccelerationSubset(TimeWindowPosition.IN),
+        DataPoint::hasHeel,
         point -> point.acceleration.heel * 180d / Math.PI);
   }
 
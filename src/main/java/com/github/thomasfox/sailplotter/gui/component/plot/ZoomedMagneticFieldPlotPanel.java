@@ -6,7 +6,6 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
 import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
-import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
 
 public class ZoomedMagneticFieldPlotPanel extends AbstractPlotPanel
@@ -49,8 +48,8 @@ public class ZoomedMagneticFieldPlotPanel extends AbstractPlotPanel
   {
     return zoomedData.getTimeSeries(
         "magnetic Field",
-        Data::getPointsWithMagneticField,
-        point -> zoomedData.isInSelectedPosition(point, TimeWindowPosition.IN),
+        zoomed -> zoomed.getMagneticFieldSubset(TimeWindowPosition.IN),
+        point -> true,
         point -> point.magneticField.getByIndex(coordinateIndex));
   }
 
@@ -6,7 +6,7 @@ import org.jfree.data.time.TimeSeries;
 import org.jfree.data.time.TimeSeriesCollection;
 
 import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
-import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
 
 public class ZoomedRollOverTimePlotPanel extends AbstractPlotPanel
 {
@@ -45,8 +45,8 @@ public class ZoomedRollOverTimePlotPanel extends AbstractPlotPanel
   {
     return zoomedData.getTimeSeries(
         "roll",
-        Data::getPointsWithAcceleration,
-        point -> zoomedData.isInSelectedPosition(point, TimeWindowPosition.IN) && point.hasRoll(),
+        zoomed -> zoomed.getAccelerationSubset(TimeWindowPosition.IN),
+        DataPoint::hasRoll,
         point -> point.acceleration.roll * 180d / Math.PI);
   }
 
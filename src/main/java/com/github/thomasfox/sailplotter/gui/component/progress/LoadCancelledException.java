@@ -0,0 +1,14 @@
+package com.github.thomasfox.sailplotter.gui.component.progress;
+
+/**
+ * Thrown by LoadProgress if loading a file was cancelled.
+ */
+public class LoadCancelledException extends RuntimeException
+{
+  private static final long serialVersionUID = 1L;
+
+  public LoadCancelledException()
+  {
+    super("Loading was cancelled");
+  }
+}
@@ -1,14 +1,35 @@
 package com.github.thomasfox.sailplotter.gui.component.progress;
 
 import java.util.List;
+import java.util.function.LongSupplier;
 
 /**
  * Advertises the progress of loading a file through a ProgressChanged instance.
+ *
+ * Loading can be cancelled from any thread by calling cancel().
+ * The reading progress, the start of each analyzing stage and the per-point checks
+ * within the long analyzing stages then throw a LoadCancelledException in the loading thread.
  */
 public class LoadProgress
 {
+  /** How many points an analyzing stage processes between two checks for cancellation. */
+  public static final int CANCEL_CHECK_INTERVAL = 4096;
+
+  /** The minimum time between two displayed updates of the reading progress. */
+  private static final long DISPLAY_INTERVAL_NANOS = 100_000_000L;
+
   private final ProgressChanged progressChanged;
 
+  private volatile boolean cancelled;
+
+  private long totalBytes = -1;
+
+  private LongSupplier bytesRead;
+
+  private long readingStartNanos;
+
+  private long lastDisplayNanos;
+
   /**
    * Constructor.
    *
@@ -34,72 +55,193 @@ public class LoadProgress
 
   public void finished()
   {
+    readingBytes(-1, null);
     progressChanged.setToDisplay(null);
     progressChanged.finished();
   }
 
+  /**
+   * Requests that loading is stopped as soon as possible.
+   * Can be called from any thread.
+   */
+  public void cancel()
+  {
+    cancelled = true;
+  }
+
+  public boolean isCancelled()
+  {
+    return cancelled;
+  }
+
+  /**
+   * Checks whether loading was cancelled.
+   *
+   * @throws LoadCancelledException if cancel() was called.
+   */
+  public void checkCancelled()
+  {
+    if (cancelled)
+    {
+      throw new LoadCancelledException();
+    }
+  }
+
+  /**
+   * Checks for cancellation while an analyzing stage processes its points.
+   * To keep this cheap in tight loops, only every CANCEL_CHECK_INTERVAL-th point is checked.
+   *
+   * @param pointIndex the index of the processed point.
+   *
+   * @throws LoadCancelledException if loading was cancelled.
+   */
+  public void analyzingPoint(int pointIndex)
+  {
+    if (pointIndex % CANCEL_CHECK_INTERVAL == 0)
+    {
+      checkCancelled();
+    }
+  }
+
+  public void checkingCacheStarted()
+  {
+    checkCancelled();
+    progressChanged.setToDisplay("checking cache...");
+  }
+
   public void fileReadingStarted()
   {
+    checkCancelled();
+    readingStartNanos = System.nanoTime();
+    lastDisplayNanos = readingStartNanos;
     progressChanged.setToDisplay("loading file...");
   }
 
+  /**
+   * Sets where the number of bytes read from the file can be obtained.
+   * Must be called by the reading thread before the reading progress is advertised;
+   * is reset when reading is finished.
+   *
+   * @param totalBytes the size of the file in bytes.
+   * @param bytesRead returns the number of bytes of the file consumed so far.
+   *        Is called from the reading thread only.
+   */
+  public void readingBytes(long totalBytes, LongSupplier bytesRead)
+  {
+    this.totalBytes = totalBytes;
+    this.bytesRead = bytesRead;
+  }
+
   public void fileReadingFinished()
   {
+    readingBytes(-1, null);
     progressChanged.setToDisplay("file loaded.");
   }
 
+  /**
+   * Advertises how many records have been read so far,
+   * together with the bytes read and the parse throughput.
+   * To keep this cheap, the display is updated at most every 100 ms.
+   *
+   * @param recordCount the number of records read.
+   *
+   * @throws LoadCancelledException if loading was cancelled.
+   */
+  public void fileReadingProgress(int recordCount)
+  {
+    checkCancelled();
+    long now = System.nanoTime();
+    if (now - lastDisplayNanos < DISPLAY_INTERVAL_NANOS)
+    {
+      return;
+    }
+    lastDisplayNanos = now;
+    long durationMillis = Math.max((now - readingStartNanos) / 1_000_000L, 1L);
+    StringBuilder toDisplay = new StringBuilder("loading file... ").append(recordCount).append(" records read");
+    if (bytesRead != null && totalBytes > 0)
+    {
+      long read = bytesRead.getAsLong();
+      int percentDone = (int) Math.min(read * 100 / totalBytes, 100);
+      toDisplay.append(", ").append(read / 1_000_000L).append(" of ").append(totalBytes / 1_000_000L)
+          .append(" MB (").append(percentDone).append(" %)");
+      progressChanged.setPercentDone(percentDone);
+    }
+    toDisplay.append(", ").append(recordCount * 1000L / durationMillis).append(" records/s");
+    progressChanged.setToDisplay(toDisplay.toString());
+  }
+
+  /**
+   * Advertises that the file was read, together with the parse throughput.
+   *
+   * @param recordCount the number of records read.
+   * @param durationNanos the time taken for reading in nanoseconds.
+   */
+  public void fileReadingFinished(int recordCount, long durationNanos)
+  {
+    readingBytes(-1, null);
+    progressChanged.setPercentDone(-1);
+    long durationMillis = Math.max(durationNanos / 1_000_000L, 1L);
+    progressChanged.setToDisplay("file loaded: " + recordCount + " records in " + durationMillis + " ms ("
+        + (recordCount * 1000L / durationMillis) + " records/s).");
+  }
+
   public void analyzingStarted()
   {
+    checkCancelled();
     progressChanged.setToDisplay("analyzing data...");
   }
 
   public void startCorrectTimeUsingGpsTime()
   {
+    checkCancelled();
     progressChanged.setToDisplay("correcting time to GPS time...");
   }
 
-  public void startInterpolatingLocation()
-  {
-    progressChanged.setToDisplay("interpolating location...");
-  }
-
   public void startCalculateLocationAndBearing()
   {
+    checkCancelled();
     progressChanged.setToDisplay("calculating location and bearing...");
   }
 
   public void startCalculateTackList()
   {
+    checkCancelled();
     progressChanged.setToDisplay("calculating tack list...");
   }
 
   public void startCalculateTackSeriesList()
   {
+    checkCancelled();
     progressChanged.setToDisplay("calculating tack series list...");
   }
 
   public void startAnalyzeOrientation()
   {
+    checkCancelled();
     progressChanged.setToDisplay("analyzing orientation...");
   }
 
   public void startAnalyzeOrientationCalculateHorizontalCoordinateSystem()
   {
+    checkCancelled();
     progressChanged.setToDisplay("analyzing orientation: calculate horizontal coordinate system...");
   }
 
   public void startAnalyzeOrientationSetCompassBearings()
   {
+    checkCancelled();
     progressChanged.setToDisplay("analyzing orientation: set compass bearings...");
   }
 
   public void startAnalyzeOrientationGetCompassToGpsAngle()
   {
+    checkCancelled();
     progressChanged.setToDisplay("analyzing orientation: get compass to GPS angle...");
   }
 
   public void startAnalyzeOrientationSetHeelAndRoll()
   {
+    checkCancelled();
     progressChanged.setToDisplay("analyzing orientation: set heel and roll...");
   }
 
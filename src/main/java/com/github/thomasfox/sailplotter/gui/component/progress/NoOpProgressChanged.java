@@ -14,6 +14,11 @@ public class NoOpProgressChanged implements ProgressChanged
   {
   }
 
+  @Override
+  public void setPercentDone(int percentDone)
+  {
+  }
+
   @Override
   public void setWarnings(List<String> warnings)
   {
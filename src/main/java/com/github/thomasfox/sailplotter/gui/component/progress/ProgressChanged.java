@@ -11,6 +11,13 @@ public interface ProgressChanged
 
   void setToDisplay(String toDisplay);
 
+  /**
+   * Sets how much of the work is done.
+   *
+   * @param percentDone the percentage of the work done, or a negative value if unknown.
+   */
+  void setPercentDone(int percentDone);
+
   void setWarnings(List<String> warnings);
 
   void finished();
@@ -4,6 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.util.List;
 
+import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -28,12 +29,18 @@ public class ProgressDialog extends JDialog implements ProgressChanged
 
   JScrollPane scrollPane = new JScrollPane(warnings);
 
+  private final JButton cancelButton = new JButton("Cancel");
+
+  private Runnable cancelAction;
+
   public ProgressDialog(JFrame parentFrame)
   {
     super(parentFrame, false);
     add(progressBar, BorderLayout.CENTER);
     add(label, BorderLayout.NORTH);
     add(scrollPane, BorderLayout.SOUTH);
+    add(cancelButton, BorderLayout.EAST);
+    cancelButton.addActionListener(e -> cancel());
     resetLayout();
     setLocationRelativeTo(parentFrame);
   }
@@ -57,6 +64,8 @@ public class ProgressDialog extends JDialog implements ProgressChanged
     label.setVisible(true);
     progressBar.setVisible(true);
     progressBar.setIndeterminate(true);
+    cancelButton.setVisible(cancelAction != null);
+    cancelButton.setEnabled(true);
 
     setVisible(true);
   }
@@ -67,6 +76,34 @@ public class ProgressDialog extends JDialog implements ProgressChanged
     label.setText(toDisplay);
   }
 
+  @Override
+  public void setPercentDone(int percentDone)
+  {
+    progressBar.setIndeterminate(percentDone < 0);
+    progressBar.setValue(Math.max(percentDone, 0));
+  }
+
+  /**
+   * Sets what is done if the cancel button is pressed.
+   *
+   * @param cancelAction the action to perform on cancel,
+   *        or null if the work cannot be cancelled.
+   */
+  public void setCancelAction(Runnable cancelAction)
+  {
+    this.cancelAction = cancelAction;
+  }
+
+  private void cancel()
+  {
+    cancelButton.setEnabled(false);
+    label.setText("cancelling...");
+    if (cancelAction != null)
+    {
+      cancelAction.run();
+    }
+  }
+
   @Override
   public void setWarnings(List<String> warningList)
   {
@@ -81,6 +118,8 @@ public class ProgressDialog extends JDialog implements ProgressChanged
   public void finished()
   {
     progressBar.setVisible(false);
+    cancelButton.setVisible(false);
+    cancelAction = null;
     if (warnings.getText() == null || "".equals(warnings.getText()))
     {
       warnings.setVisible(false);
@@ -1,6 +1,8 @@
 package com.github.thomasfox.sailplotter.gui.component.view;
 
 import java.awt.GridBagLayout;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 
 import javax.swing.JPanel;
 
@@ -12,9 +14,52 @@ public abstract class AbstractView extends JPanel implements DataChangeListener,
 {
   private static final long serialVersionUID = 1L;
 
+  /** Whether an update was skipped because this view was hidden. */
+  private boolean stale;
+
   public AbstractView()
   {
     setLayout(new GridBagLayout());
+    addComponentListener(new ComponentAdapter()
+    {
+      @Override
+      public void componentShown(ComponentEvent e)
+      {
+        if (stale)
+        {
+          stale = false;
+          refresh();
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs an update of the displayed content if this view is visible.
+   * Otherwise, the update is skipped and refresh() is called when this view is shown.
+   * This way, views which need the sensor values of the data do not cause them to be loaded
+   * as long as they are not looked at.
+   *
+   * @param update the update to run, not null.
+   */
+  protected void updateWhenVisible(Runnable update)
+  {
+    if (isVisible())
+    {
+      update.run();
+    }
+    else
+    {
+      stale = true;
+    }
+  }
+
+  /**
+   * Updates the whole displayed content from the current data and zoom.
+   * Is called when the view is shown after an update was skipped by updateWhenVisible(Runnable).
+   */
+  protected void refresh()
+  {
   }
 
   public Layout createLayout()
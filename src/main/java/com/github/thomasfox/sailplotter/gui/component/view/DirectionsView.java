@@ -21,6 +21,8 @@ public class DirectionsView extends AbstractView
 
   private final ZoomPanel zoomPanel;
 
+  private Data data;
+
   public DirectionsView(SwingGui gui)
   {
     zoomPanel = new ZoomPanel();
@@ -59,20 +61,34 @@ public class DirectionsView extends AbstractView
   @Override
   public void dataChanged(Data data)
   {
+    this.data = data;
     zoomPanel.dataChanged(data);
-    ZoomChangeEvent zoomChangeEvent = zoomPanel.getChangeEventFromCurrentData();
-    zoomedBearingOverTimePlotPanel.dataAndZoomChanged(data, zoomChangeEvent);
-    zoomedHeelOverTimePlotPanel.dataAndZoomChanged(data, zoomChangeEvent);
-    zoomedRollOverTimePlotPanel.dataAndZoomChanged(data, zoomChangeEvent);
+    updateWhenVisible(this::refresh);
   }
 
   @Override
   public void zoomChanged(ZoomChangeEvent zoomChangeEvent)
   {
     zoomPanel.zoomChanged(zoomChangeEvent);
-    zoomedBearingOverTimePlotPanel.zoomChanged(zoomChangeEvent);
-    zoomedHeelOverTimePlotPanel.zoomChanged(zoomChangeEvent);
-    zoomedRollOverTimePlotPanel.zoomChanged(zoomChangeEvent);
+    updateWhenVisible(() ->
+    {
+      zoomedBearingOverTimePlotPanel.zoomChanged(zoomChangeEvent);
+      zoomedHeelOverTimePlotPanel.zoomChanged(zoomChangeEvent);
+      zoomedRollOverTimePlotPanel.zoomChanged(zoomChangeEvent);
+    });
+  }
+
+  @Override
+  protected void refresh()
+  {
+    if (data == null)
+    {
+      return;
+    }
+    ZoomChangeEvent zoomChangeEvent = zoomPanel.getChangeEventFromCurrentData();
+    zoomedBearingOverTimePlotPanel.dataAndZoomChanged(data, zoomChangeEvent);
+    zoomedHeelOverTimePlotPanel.dataAndZoomChanged(data, zoomChangeEvent);
+    zoomedRollOverTimePlotPanel.dataAndZoomChanged(data, zoomChangeEvent);
   }
 
 }
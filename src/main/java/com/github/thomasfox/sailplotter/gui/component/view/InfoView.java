@@ -1,5 +1,7 @@
 package com.github.thomasfox.sailplotter.gui.component.view;
 
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 
@@ -9,6 +11,7 @@ import javax.swing.border.EmptyBorder;
 import com.github.thomasfox.sailplotter.gui.SwingGui;
 import com.github.thomasfox.sailplotter.gui.component.panel.CommentPanel;
 import com.github.thomasfox.sailplotter.gui.component.panel.ZoomChangeEvent;
+import com.github.thomasfox.sailplotter.importer.cache.AnalysisCache;
 import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
 
@@ -28,6 +31,10 @@ public class InfoView extends AbstractView
 
   private final JLabel coordinateSystemLabel = new JLabel();
 
+  private final JLabel memoryLabel = new JLabel();
+
+  private final JLabel cacheLabel = new JLabel();
+
   private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
 
   private final CommentPanel commentPanel;
@@ -68,9 +75,28 @@ public class InfoView extends AbstractView
     coordinateSystemLabel.setBorder(new EmptyBorder(0, 10, 0, 10));
     createLayout()
         .withGridy(6)
-        .withWeighty(0.96)
+        .withWeighty(0.01)
+        .add(memoryLabel);
+    memoryLabel.setBorder(new EmptyBorder(0, 10, 0, 10));
+    createLayout()
+        .withGridy(7)
+        .withWeighty(0.01)
+        .add(cacheLabel);
+    cacheLabel.setBorder(new EmptyBorder(0, 10, 0, 10));
+    createLayout()
+        .withGridy(8)
+        .withWeighty(0.95)
         .add(commentPanel);
     commentPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+    addComponentListener(new ComponentAdapter()
+    {
+      @Override
+      public void componentShown(ComponentEvent e)
+      {
+        // entries are written in the background, so the statistics may have changed without a data change
+        setCacheLabelText();
+      }
+    });
   }
 
   public void redisplay()
@@ -90,13 +116,30 @@ public class InfoView extends AbstractView
   {
     this.data = data;
     filenameLabel.setText("File: " + data.getFile().getAbsolutePath());
+    commentPanel.setText(data.comment);
+    commentPanel.setTextConsumer(data::setComment);
+    updateWhenVisible(this::refresh);
+  }
+
+  @Override
+  protected void refresh()
+  {
+    if (data == null)
+    {
+      return;
+    }
     setDataSizeLabelText(data);
     setDataFrequencyLabelText(data);
     setStartTimeLabelText(data);
     setEndTimeLabelText(data);
     setCoordinateSystemText(data);
-    commentPanel.setText(data.comment);
-    commentPanel.setTextConsumer(data::setComment);
+    memoryLabel.setText("Estimated memory: " + data.getMemoryFootprint());
+    setCacheLabelText();
+  }
+
+  private void setCacheLabelText()
+  {
+    cacheLabel.setText("Analysis " + AnalysisCache.getDefault().getStatistics());
   }
 
   private void setDataSizeLabelText(Data data)
@@ -28,6 +28,8 @@ public class MagneticFieldAccelerationView extends AbstractView
 
   private final ZoomPanel zoomPanel;
 
+  private Data data;
+
   public MagneticFieldAccelerationView(SwingGui gui)
   {
     zoomPanel = new ZoomPanel();
@@ -97,7 +99,34 @@ public class MagneticFieldAccelerationView extends AbstractView
   @Override
   public void dataChanged(Data data)
   {
+    this.data = data;
     zoomPanel.dataChanged(data);
+    updateWhenVisible(this::refresh);
+  }
+
+  @Override
+  public void zoomChanged(ZoomChangeEvent zoomChangeEvent)
+  {
+    zoomPanel.zoomChanged(zoomChangeEvent);
+    updateWhenVisible(() ->
+    {
+      zoomedMagneticFieldAbsValuePanel.zoomChanged(zoomChangeEvent);
+      zoomedMagneticFieldXPanel.zoomChanged(zoomChangeEvent);
+      zoomedMagneticFieldYPanel.zoomChanged(zoomChangeEvent);
+      zoomedMagneticFieldZPanel.zoomChanged(zoomChangeEvent);
+      zoomedAccelerationXPanel.zoomChanged(zoomChangeEvent);
+      zoomedAccelerationYPanel.zoomChanged(zoomChangeEvent);
+      zoomedAccelerationZPanel.zoomChanged(zoomChangeEvent);
+    });
+  }
+
+  @Override
+  protected void refresh()
+  {
+    if (data == null)
+    {
+      return;
+    }
     ZoomChangeEvent zoomChangeEvent = zoomPanel.getChangeEventFromCurrentData();
     zoomedMagneticFieldAbsValuePanel.dataAndZoomChanged(data, zoomChangeEvent);
     zoomedMagneticFieldXPanel.dataAndZoomChanged(data, zoomChangeEvent);
@@ -107,17 +136,4 @@ public class MagneticFieldAccelerationView extends AbstractView
     zoomedAccelerationYPanel.dataAndZoomChanged(data, zoomChangeEvent);
     zoomedAccelerationZPanel.dataAndZoomChanged(data, zoomChangeEvent);
   }
-
-  @Override
-  public void zoomChanged(ZoomChangeEvent zoomChangeEvent)
-  {
-    zoomPanel.zoomChanged(zoomChangeEvent);
-    zoomedMagneticFieldAbsValuePanel.zoomChanged(zoomChangeEvent);
-    zoomedMagneticFieldXPanel.zoomChanged(zoomChangeEvent);
-    zoomedMagneticFieldYPanel.zoomChanged(zoomChangeEvent);
-    zoomedMagneticFieldZPanel.zoomChanged(zoomChangeEvent);
-    zoomedAccelerationXPanel.zoomChanged(zoomChangeEvent);
-    zoomedAccelerationYPanel.zoomChanged(zoomChangeEvent);
-    zoomedAccelerationZPanel.zoomChanged(zoomChangeEvent);
-  }
 }
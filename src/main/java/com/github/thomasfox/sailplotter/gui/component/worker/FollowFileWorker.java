@@ -0,0 +1,123 @@
+package com.github.thomasfox.sailplotter.gui.component.worker;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+import com.github.thomasfox.sailplotter.analyze.IncrementalAnalyzer;
+import com.github.thomasfox.sailplotter.importer.saillogger.SailDataTailReader;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.DataSnapshot;
+
+/**
+ * Follows a saillog file which is still being written.
+ * The directory of the file is watched for modifications,
+ * and the points appended to the file are analyzed in the background by an IncrementalAnalyzer.
+ * After each analysis, a snapshot of the settled data (see IncrementalAnalyzer.getSettledData())
+ * is created in the background and passed to the consumer in the event dispatch thread;
+ * the settled data is not modified afterwards.
+ * Runs until it is cancelled.
+ */
+public class FollowFileWorker extends SwingWorker<Void, DataSnapshot>
+{
+  /**
+   * The maximum time to wait for a modification event before checking the file anyway.
+   * Some file systems report modifications late or not at all.
+   */
+  private static final long POLL_INTERVAL_MILLIS = 1000;
+
+  private final File file;
+
+  private final Consumer<DataSnapshot> dataConsumer;
+
+  private final JFrame frame;
+
+  public FollowFileWorker(File file, Consumer<DataSnapshot> dataConsumer, JFrame frame)
+  {
+    this.file = file;
+    this.dataConsumer = dataConsumer;
+    this.frame = frame;
+  }
+
+  @Override
+  protected Void doInBackground() throws Exception
+  {
+    Path directory = file.getAbsoluteFile().getParentFile().toPath();
+    Data data = new Data();
+    data.setFile(file);
+    IncrementalAnalyzer analyzer = new IncrementalAnalyzer(data);
+    try (SailDataTailReader reader = new SailDataTailReader(file);
+        WatchService watchService = directory.getFileSystem().newWatchService())
+    {
+      directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
+      analyzeAndPublish(analyzer, reader.readAppended());
+      while (!isCancelled())
+      {
+        WatchKey watchKey = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        if (watchKey != null)
+        {
+          // which file was modified does not matter, reading nothing is cheap
+          watchKey.pollEvents();
+          watchKey.reset();
+        }
+        List<DataPoint> appended = reader.readAppended();
+        if (!appended.isEmpty())
+        {
+          analyzeAndPublish(analyzer, appended);
+        }
+      }
+    }
+    return null;
+  }
+
+  private void analyzeAndPublish(IncrementalAnalyzer analyzer, List<DataPoint> appended)
+  {
+    analyzer.append(appended);
+    publish(DataSnapshot.of(analyzer.getSettledData()));
+  }
+
+  @Override
+  protected void process(List<DataSnapshot> chunks)
+  {
+    if (isCancelled())
+    {
+      return;
+    }
+    // each version contains the previous ones, so only the latest is displayed
+    dataConsumer.accept(chunks.get(chunks.size() - 1));
+  }
+
+  @Override
+  public void done()
+  {
+    try
+    {
+      get();
+    }
+    catch (CancellationException | InterruptedException e)
+    {
+      // following was stopped
+    }
+    catch (ExecutionException e)
+    {
+      e.getCause().printStackTrace();
+      JOptionPane.showMessageDialog(
+          frame,
+          "Could not follow File: " + e.getCause().getClass().getName() + ":" + e.getCause().getMessage(),
+          "Error following File",
+          JOptionPane.ERROR_MESSAGE);
+    }
+  }
+}
@@ -9,47 +9,116 @@ import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
 
 import com.github.thomasfox.sailplotter.analyze.Analyzer;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadCancelledException;
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.importer.FormatAwareImporter;
 import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.importer.cache.AnalysisCache;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
 import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataSnapshot;
 
-public class LoadFileWorker extends SwingWorker<Data, Void>
+/**
+ * Loads and analyzes a file in the background.
+ * The analysis cache is consulted first, by the path of the file and then by its content;
+ * on a miss the file is imported, analyzed, and the result is stored in the cache in the background.
+ */
+public class LoadFileWorker extends SwingWorker<DataSnapshot, Void>
 {
   private final LoadProgress loadProgress;
 
+  private final AnalysisCache analysisCache;
+
   private final File file;
 
-  private final Consumer<Data> dataConsumer;
+  private final Consumer<DataSnapshot> dataConsumer;
 
   private final JFrame frame;
 
-  public LoadFileWorker(LoadProgress loadProgress, File file, Consumer<Data> dataConsumer, JFrame frame)
+  public LoadFileWorker(LoadProgress loadProgress, File file, Consumer<DataSnapshot> dataConsumer, JFrame frame)
+  {
+    this(loadProgress, AnalysisCache.getDefault(), file, dataConsumer, frame);
+  }
+
+  public LoadFileWorker(
+      LoadProgress loadProgress,
+      AnalysisCache analysisCache,
+      File file,
+      Consumer<DataSnapshot> dataConsumer,
+      JFrame frame)
   {
     this.loadProgress = loadProgress;
+    this.analysisCache = analysisCache;
     this.file = file;
     this.dataConsumer = dataConsumer;
     this.frame = frame;
   }
 
   @Override
-  protected Data doInBackground() throws Exception
+  protected DataSnapshot doInBackground() throws Exception
   {
     loadProgress.start();
-    ImporterResult result = new FormatAwareImporter(loadProgress).read(file);
+    AnalysisCache.Lookup lookup = null;
+    ImporterResult result = null;
+    if (analysisCache.isCacheable(file))
+    {
+      loadProgress.checkingCacheStarted();
+      lookup = analysisCache.lookUp(file, loadProgress);
+      result = lookup.result;
+    }
+    if (result != null)
+    {
+      result.getData().setFile(file);
+    }
+    else
+    {
+      result = new FormatAwareImporter(loadProgress).read(file);
+    }
     if (result.hasWarnMessages())
     {
       loadProgress.warningsChanged(result.getWarnings());
     }
     loadProgress.analyzingStarted();
+    boolean fullyAnalyzed = isFullyAnalyzed(result.getData());
     Analyzer.analyze(result.getData(), loadProgress);
-    return result.getData();
+    DataSnapshot snapshot = DataSnapshot.of(result.getData());
+    if (lookup != null && lookup.key != null && !fullyAnalyzed)
+    {
+      // the cache writer reads the data while it is displayed, which is possible as its caches are built
+      analysisCache.putInBackground(file, lookup.fileState, lookup.key, result.getData(), result.getWarnings());
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns whether all saved analysis stages have been restored,
+   * so that storing the data again would not change the cache entry.
+   */
+  private boolean isFullyAnalyzed(Data data)
+  {
+    return data.isAnalyzed(AnalysisStage.TACKS)
+        && (data.getBoatCoordinatesInDeviceCoordinates() == null
+            || data.isAnalyzed(AnalysisStage.DEVICE_ORIENTATION));
+  }
+
+  /**
+   * Stops loading as soon as the importer or analyzer checks for cancellation,
+   * and interrupts blocking reads of the loading thread.
+   */
+  public void cancelLoading()
+  {
+    loadProgress.cancel();
+    cancel(true);
   }
 
   @Override
   public void done()
   {
     loadProgress.finished();
+    if (isCancelled())
+    {
+      return;
+    }
     try
     {
       dataConsumer.accept(get());
@@ -60,6 +129,10 @@ public class LoadFileWorker extends SwingWorker<Data, Void>
     }
     catch (ExecutionException e)
     {
+      if (e.getCause() instanceof LoadCancelledException)
+      {
+        return;
+      }
       handleException(e.getCause());
     }
   }
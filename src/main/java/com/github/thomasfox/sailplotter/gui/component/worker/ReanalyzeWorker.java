@@ -0,0 +1,66 @@
+package com.github.thomasfox.sailplotter.gui.component.worker;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.SwingWorker;
+
+import com.github.thomasfox.sailplotter.analyze.Analyzer;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataSnapshot;
+
+/**
+ * Analyzes data again in the background with another average wind bearing.
+ * The analysis works on a copy, so the passed data is only read and can be displayed meanwhile.
+ */
+public class ReanalyzeWorker extends SwingWorker<DataSnapshot, Void>
+{
+  private final Data data;
+
+  private final double averageWindBearing;
+
+  private final Consumer<DataSnapshot> dataConsumer;
+
+  /**
+   * Constructor.
+   *
+   * @param data the data to analyze again, not null. Must not be modified while the worker runs.
+   * @param averageWindBearing the new average wind bearing in arcs.
+   * @param dataConsumer receives the snapshot of the analyzed copy in the event dispatch thread, not null.
+   */
+  public ReanalyzeWorker(Data data, double averageWindBearing, Consumer<DataSnapshot> dataConsumer)
+  {
+    this.data = data;
+    this.averageWindBearing = averageWindBearing;
+    this.dataConsumer = dataConsumer;
+  }
+
+  @Override
+  protected DataSnapshot doInBackground() throws Exception
+  {
+    Data newVersion = new Data(data);
+    newVersion.setAverageWindBearing(averageWindBearing);
+    Analyzer.analyze(newVersion, new LoadProgress(null));
+    return DataSnapshot.of(newVersion);
+  }
+
+  @Override
+  public void done()
+  {
+    try
+    {
+      dataConsumer.accept(get());
+    }
+    catch (CancellationException | InterruptedException e)
+    {
+      // the analysis was superseded
+    }
+    catch (ExecutionException e)
+    {
+      System.err.println("Could not update wind direction");
+      e.getCause().printStackTrace(System.err);
+    }
+  }
+}
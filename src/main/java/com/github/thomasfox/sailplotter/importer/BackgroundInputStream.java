@@ -0,0 +1,204 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on a separate thread and hands the read bytes to the consumer
+ * through a bounded queue of blocks.
+ * This way, expensive work in the source stream (e.g. decompression)
+ * overlaps with the work done by the consumer (e.g. parsing).
+ * The blocks are recycled, so at most <code>blockCount</code> blocks are allocated.
+ */
+class BackgroundInputStream extends InputStream
+{
+  static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+  static final int DEFAULT_BLOCK_COUNT = 16;
+
+  /** Marks the end of the source stream in the queue of filled blocks. */
+  private static final Block END = new Block(new byte[0]);
+
+  private final InputStream source;
+
+  private final BlockingQueue<Block> filledBlocks;
+
+  private final BlockingQueue<Block> emptyBlocks;
+
+  private final Thread producer;
+
+  private volatile IOException producerException;
+
+  private volatile boolean closed;
+
+  private Block current;
+
+  private int position;
+
+  private boolean atEnd;
+
+  BackgroundInputStream(InputStream source, String threadName)
+  {
+    this(source, threadName, DEFAULT_BLOCK_SIZE, DEFAULT_BLOCK_COUNT);
+  }
+
+  BackgroundInputStream(InputStream source, String threadName, int blockSize, int blockCount)
+  {
+    this.source = source;
+    this.filledBlocks = new ArrayBlockingQueue<>(blockCount + 1);
+    this.emptyBlocks = new ArrayBlockingQueue<>(blockCount);
+    for (int i = 0; i < blockCount; i++)
+    {
+      emptyBlocks.add(new Block(new byte[blockSize]));
+    }
+    producer = new Thread(this::produce, threadName);
+    producer.setDaemon(true);
+    producer.start();
+  }
+
+  private void produce()
+  {
+    try (InputStream in = source)
+    {
+      while (!closed)
+      {
+        Block block = emptyBlocks.take();
+        int read = in.readNBytes(block.bytes, 0, block.bytes.length);
+        if (read > 0)
+        {
+          block.length = read;
+          filledBlocks.put(block);
+        }
+        if (read < block.bytes.length)
+        {
+          break;
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      producerException = e;
+    }
+    catch (InterruptedException e)
+    {
+      // closed by consumer
+    }
+    finally
+    {
+      filledBlocks.offer(END);
+    }
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    if (!nextBlockIfNeeded())
+    {
+      return -1;
+    }
+    return current.bytes[position++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    if (len == 0)
+    {
+      return 0;
+    }
+    if (!nextBlockIfNeeded())
+    {
+      return -1;
+    }
+    int result = Math.min(len, current.length - position);
+    System.arraycopy(current.bytes, position, b, off, result);
+    position += result;
+    return result;
+  }
+
+  @Override
+  public int available()
+  {
+    return current == null ? 0 : current.length - position;
+  }
+
+  /**
+   * Makes sure that the current block has unread bytes, waiting for the producer if necessary.
+   *
+   * @return false if the end of the source stream is reached, true otherwise.
+   *
+   * @throws IOException if the source stream threw an exception or the stream is closed.
+   */
+  private boolean nextBlockIfNeeded() throws IOException
+  {
+    if (closed)
+    {
+      throw new IOException("Stream closed");
+    }
+    if (current != null && position < current.length)
+    {
+      return true;
+    }
+    if (atEnd)
+    {
+      return false;
+    }
+    if (current != null)
+    {
+      emptyBlocks.add(current);
+      current = null;
+    }
+    Block block;
+    try
+    {
+      block = filledBlocks.take();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    if (block == END)
+    {
+      atEnd = true;
+      if (producerException != null)
+      {
+        throw new IOException(producerException.getMessage(), producerException);
+      }
+      return false;
+    }
+    current = block;
+    position = 0;
+    return true;
+  }
+
+  /**
+   * Stops the producer thread. The source stream is closed by the producer thread.
+   */
+  @Override
+  public void close()
+  {
+    if (closed)
+    {
+      return;
+    }
+    closed = true;
+    producer.interrupt();
+    filledBlocks.clear();
+  }
+
+  private static final class Block
+  {
+    private final byte[] bytes;
+
+    private int length;
+
+    private Block(byte[] bytes)
+    {
+      this.bytes = bytes;
+    }
+  }
+}
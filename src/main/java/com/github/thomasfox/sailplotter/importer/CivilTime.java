@@ -0,0 +1,37 @@
+package com.github.thomasfox.sailplotter.importer;
+
+/**
+ * Converts calendar dates and times in UTC to millis since 01.01.1970 0:00:00.000 GMT,
+ * without creating objects.
+ */
+final class CivilTime
+{
+  private CivilTime()
+  {
+  }
+
+  /**
+   * Converts a date and time in UTC to millis since 01.01.1970 0:00:00.000 GMT.
+   * The values are expected to be in their valid ranges.
+   *
+   * @return the time in millis since 01.01.1970 0:00:00.000 GMT.
+   */
+  static long toEpochMillis(int year, int month, int day, int hour, int minute, int second, int millis)
+  {
+    long epochSecond = daysFromCivil(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second;
+    return epochSecond * 1000L + millis;
+  }
+
+  /**
+   * Returns the number of days since 01.01.1970 for a date in the proleptic gregorian calendar.
+   */
+  static long daysFromCivil(int year, int month, int day)
+  {
+    int shiftedYear = month <= 2 ? year - 1 : year;
+    int era = Math.floorDiv(shiftedYear, 400);
+    int yearOfEra = shiftedYear - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146_097L + dayOfEra - 719_468L;
+  }
+}
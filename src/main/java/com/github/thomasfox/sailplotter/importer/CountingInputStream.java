@@ -0,0 +1,81 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from an input stream, and remembers whether its end was reached.
+ * The count can be queried from a thread other than the reading thread.
+ */
+public class CountingInputStream extends FilterInputStream
+{
+  private volatile long count;
+
+  private volatile boolean atEnd;
+
+  public CountingInputStream(InputStream in)
+  {
+    super(in);
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    int result = super.read();
+    if (result < 0)
+    {
+      atEnd = true;
+    }
+    else
+    {
+      count++;
+    }
+    return result;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException
+  {
+    int result = super.read(b, off, len);
+    if (result < 0)
+    {
+      atEnd = true;
+    }
+    else
+    {
+      count += result;
+    }
+    return result;
+  }
+
+  @Override
+  public long skip(long n) throws IOException
+  {
+    long result = super.skip(n);
+    count += result;
+    return result;
+  }
+
+  @Override
+  public boolean markSupported()
+  {
+    return false;
+  }
+
+  /**
+   * @return the number of bytes read or skipped so far.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * @return whether a read returned the end of the stream.
+   */
+  public boolean isAtEnd()
+  {
+    return atEnd;
+  }
+}
@@ -0,0 +1,304 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The decompressed content of a compressed file.
+ * Decompression runs on a separate thread while the content is read,
+ * and the start of the decompressed content is available for format detection.
+ * Zip archives must contain exactly one file; archives with more files are rejected.
+ */
+public class DecompressedInput implements Closeable
+{
+  /** The compression formats which can be decompressed. */
+  public enum Compression
+  {
+    NONE, GZIP, ZIP;
+
+    /**
+     * Determines the compression from the magic bytes at the start of the content.
+     *
+     * @param header the start of the content, not null.
+     *
+     * @return the compression, not null.
+     */
+    public static Compression of(ByteBuffer header)
+    {
+      int position = header.position();
+      if (header.remaining() >= 2
+          && (header.get(position) & 0xff) == 0x1f
+          && (header.get(position + 1) & 0xff) == 0x8b)
+      {
+        return GZIP;
+      }
+      if (header.remaining() >= 4
+          && header.get(position) == 'P'
+          && header.get(position + 1) == 'K'
+          && header.get(position + 2) == 3
+          && header.get(position + 3) == 4)
+      {
+        return ZIP;
+      }
+      return NONE;
+    }
+  }
+
+  private static final String GZIP_EXTENSION = ".gz";
+
+  private final String name;
+
+  private final Compression compression;
+
+  private final ByteBuffer header;
+
+  private final InputStream inputStream;
+
+  private final CountingInputStream compressedInputStream;
+
+  private DecompressedInput(
+      String name,
+      Compression compression,
+      ByteBuffer header,
+      InputStream inputStream,
+      CountingInputStream compressedInputStream)
+  {
+    this.name = name;
+    this.compression = compression;
+    this.header = header;
+    this.inputStream = inputStream;
+    this.compressedInputStream = compressedInputStream;
+  }
+
+  /**
+   * Opens a compressed file for reading.
+   * For zip files, the central directory is checked first, so that an archive
+   * with more than one file is rejected before anything is decompressed.
+   *
+   * @param file the file to open, not null.
+   * @param compression the compression of the file, as determined from its header, not null.
+   *
+   * @return the decompressed input, not null. Must be closed after use.
+   */
+  public static DecompressedInput open(File file, Compression compression)
+  {
+    try
+    {
+      if (compression == Compression.ZIP)
+      {
+        checkSingleFileEntry(file);
+      }
+      return open(new FileInputStream(file), file.getName());
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void checkSingleFileEntry(File file) throws IOException
+  {
+    try (ZipFile zipFile = new ZipFile(file))
+    {
+      int fileEntryCount = 0;
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements())
+      {
+        if (!entries.nextElement().isDirectory())
+        {
+          fileEntryCount++;
+        }
+      }
+      if (fileEntryCount > 1)
+      {
+        throw new IOException(tooManyFilesMessage(file.getName()));
+      }
+    }
+  }
+
+  /**
+   * Opens a possibly compressed stream for reading.
+   * If the stream is not compressed, its content is returned unchanged.
+   * The compression is detected from the same buffered stream which is then decompressed.
+   * A stream has no central directory, so for a zip archive, further files are detected
+   * only when the end of the first file is reached; reading then fails.
+   *
+   * @param compressed the stream to read, not null. Is closed when the returned input is closed.
+   * @param fileName the name of the file the stream is read from, not null.
+   *
+   * @return the decompressed input, not null. Must be closed after use.
+   */
+  public static DecompressedInput open(InputStream compressed, String fileName) throws IOException
+  {
+    CountingInputStream counting = new CountingInputStream(compressed);
+    InputStream buffered = new BufferedInputStream(counting, BackgroundInputStream.DEFAULT_BLOCK_SIZE);
+    try
+    {
+      buffered.mark(4);
+      byte[] magic = buffered.readNBytes(4);
+      buffered.reset();
+      Compression compression = Compression.of(ByteBuffer.wrap(magic));
+      String name = fileName;
+      InputStream decompressing;
+      switch (compression)
+      {
+        case GZIP:
+          decompressing = new GZIPInputStream(buffered, BackgroundInputStream.DEFAULT_BLOCK_SIZE);
+          if (name.toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION))
+          {
+            name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+          }
+          break;
+        case ZIP:
+          ZipInputStream zipInputStream = new ZipInputStream(buffered);
+          name = nextFileEntry(zipInputStream);
+          if (name == null)
+          {
+            throw new IOException("Zip file " + fileName + " contains no file");
+          }
+          decompressing = new SingleFileZipInputStream(zipInputStream, fileName);
+          break;
+        default:
+          decompressing = buffered;
+      }
+      InputStream background = new BackgroundInputStream(decompressing, "decompress " + fileName);
+      byte[] headerBytes = background.readNBytes(ImporterRegistry.HEADER_BYTES);
+      InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(headerBytes), background);
+      return new DecompressedInput(
+          name,
+          compression,
+          ByteBuffer.wrap(headerBytes).asReadOnlyBuffer(),
+          inputStream,
+          counting);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      buffered.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Advances a zip stream to its next entry which is not a directory.
+   *
+   * @return the name of the entry, or null if the archive contains no further file.
+   */
+  private static String nextFileEntry(ZipInputStream zipInputStream) throws IOException
+  {
+    ZipEntry entry = zipInputStream.getNextEntry();
+    while (entry != null && entry.isDirectory())
+    {
+      entry = zipInputStream.getNextEntry();
+    }
+    return entry == null ? null : entry.getName();
+  }
+
+  private static String tooManyFilesMessage(String fileName)
+  {
+    return "Zip file " + fileName + " contains more than one file";
+  }
+
+  /**
+   * Reads the current entry of a zip stream and fails at its end if the archive contains another file.
+   */
+  private static final class SingleFileZipInputStream extends FilterInputStream
+  {
+    private final String fileName;
+
+    private SingleFileZipInputStream(ZipInputStream zipInputStream, String fileName)
+    {
+      super(zipInputStream);
+      this.fileName = fileName;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      return checkEnd(super.read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      return checkEnd(super.read(b, off, len));
+    }
+
+    private int checkEnd(int result) throws IOException
+    {
+      if (result == -1 && nextFileEntry((ZipInputStream) in) != null)
+      {
+        throw new IOException(tooManyFilesMessage(fileName));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Returns the name of the decompressed content.
+   * For gzip, this is the file name without the .gz extension,
+   * for zip, the name of the first file in the archive.
+   *
+   * @return the name, not null.
+   */
+  public String getName()
+  {
+    return name;
+  }
+
+  public Compression getCompression()
+  {
+    return compression;
+  }
+
+  /**
+   * Returns the start of the decompressed content.
+   *
+   * @return a read-only buffer containing at most ImporterRegistry.HEADER_BYTES bytes, not null.
+   */
+  public ByteBuffer getHeader()
+  {
+    return header.duplicate();
+  }
+
+  /**
+   * Returns the decompressed content, including the header.
+   *
+   * @return the stream, not null. Can be read only once.
+   */
+  public InputStream getInputStream()
+  {
+    return inputStream;
+  }
+
+  /**
+   * Returns how many bytes were read from the compressed stream so far.
+   * Because decompression runs ahead of the consumer, this is slightly more
+   * than the compressed size of the content consumed.
+   *
+   * @return the number of compressed bytes read.
+   */
+  public long getCompressedBytesRead()
+  {
+    return compressedInputStream.getCount();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    inputStream.close();
+  }
+}
@@ -1,50 +1,106 @@
 package com.github.thomasfox.sailplotter.importer;
 
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
-import com.github.thomasfox.sailplotter.importer.saillogger.SailDataImporter;
 
+/**
+ * Imports a file of any known format.
+ * The format is determined by the ImporterRegistry from the start of the file content
+ * and the file extension.
+ * Gzip-compressed files and zip files containing a single file are decompressed while reading;
+ * in this case the format is determined from the start of the decompressed content.
+ */
 public class FormatAwareImporter implements Importer
 {
+  private static final ImporterRegistry DEFAULT_REGISTRY = new ImporterRegistry();
+
   private final LoadProgress loadProgress;
 
+  private final ImporterRegistry registry;
+
   public FormatAwareImporter(LoadProgress loadProgress)
+  {
+    this(loadProgress, DEFAULT_REGISTRY);
+  }
+
+  public FormatAwareImporter(LoadProgress loadProgress, ImporterRegistry registry)
   {
     this.loadProgress = loadProgress;
+    this.registry = registry;
   }
 
   @Override
   public ImporterResult read(File file)
   {
     ImporterResult result;
-    if (file.getPath().endsWith(".log"))
+    ByteBuffer header = ImporterRegistry.readHeader(file);
+    DecompressedInput.Compression compression = DecompressedInput.Compression.of(header);
+    if (compression != DecompressedInput.Compression.NONE)
     {
-      result = new SailRacerImporter(loadProgress).read(file);
+      try (DecompressedInput input = DecompressedInput.open(file, compression))
+      {
+        loadProgress.readingBytes(file.length(), input::getCompressedBytesRead);
+        result = read(input);
+      }
+      catch (IOException e)
+      {
+        throw new RuntimeException(e);
+      }
     }
-    if (file.getPath().endsWith(".saillog") || file.getPath().endsWith(".saildata"))
+    else
     {
-      result = new SailDataImporter(loadProgress).read(file);
+      result = registry.select(file.getName(), header).create(loadProgress).read(file);
     }
-    else if (file.getPath().endsWith(".vrtp"))
+    checkResult(result);
+    result.getData().setFile(file);
+    return result;
+  }
+
+  /**
+   * Reads a possibly compressed stream.
+   * As no file name is known, the format is determined from the content alone.
+   */
+  @Override
+  public ImporterResult read(InputStream inputStream)
+  {
+    InputStream notClosing = new FilterInputStream(inputStream)
     {
-      result = new ViewRangerImporter(loadProgress).read(file);
-    }
-    else if (file.getPath().endsWith(".gpx"))
+      @Override
+      public void close()
+      {
+        // the caller closes the stream
+      }
+    };
+    try (DecompressedInput input = DecompressedInput.open(notClosing, ""))
     {
-      result = new GpxImporter(loadProgress).read(file);
+      ImporterResult result = read(input);
+      checkResult(result);
+      return result;
     }
-    else
+    catch (IOException e)
     {
-      throw new RuntimeException("unknown extenson of file " + file.getName()
-          + ", known extensions are .gpx, .log, .saillog, .saildata and .vrtp");
+      throw new RuntimeException(e);
     }
+  }
+
+  private ImporterResult read(DecompressedInput input)
+  {
+    return registry.select(input.getName(), input.getHeader())
+        .create(loadProgress)
+        .read(input.getInputStream());
+  }
+
+  private void checkResult(ImporterResult result)
+  {
     if (result.getData() == null
         || result.getData().getPointsWithLocation().size() < 2)
     {
       throw new RuntimeException("Track contains lesss than 2 locations");
     }
-    result.getData().setFile(file);
-    return result;
   }
 }
@@ -1,18 +1,19 @@
 package com.github.thomasfox.sailplotter.importer;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
-import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.github.thomasfox.sailplotter.Constants;
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.DataPoint;
@@ -20,9 +21,19 @@ import com.github.thomasfox.sailplotter.model.Location;
 
 /**
  * Imports data from a GPX file.
+ *
+ * The file is read as a stream, and the track points of all tracks and track segments
+ * are converted to data points in document order.
+ * Besides position and time, the elevation and the speed and course
+ * (either as GPX 1.0 elements or within extensions of the track point) are read.
  */
 public class GpxImporter implements Importer
 {
+  /** After how many track points the progress is reported. */
+  private static final int PROGRESS_INTERVAL = 10_000;
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
   private final LoadProgress loadProgress;
 
 
@@ -31,78 +42,284 @@ public class GpxImporter implements Importer
     this.loadProgress = loadProgress;
   }
 
+  private static XMLInputFactory createXmlInputFactory()
+  {
+    XMLInputFactory result = XMLInputFactory.newInstance();
+    result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    return result;
+  }
+
   @Override
   public ImporterResult read(File file)
+  {
+    try (CountingInputStream counting = new CountingInputStream(new FileInputStream(file));
+        InputStream is = new BufferedInputStream(counting, 1 << 16))
+    {
+      loadProgress.readingBytes(file.length(), counting::getCount);
+      return read(is);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public ImporterResult read(InputStream inputStream)
   {
     List<String> warnMessages = new ArrayList<>();
-    Data data = new Data();
-    List<GpxPoint> rawData = readFileInternal(file);
-    int index = 0;
-    for (GpxPoint rawPoint : rawData)
-    {
-      DataPoint dataPoint = new DataPoint(index);
-      dataPoint.location = new Location();
-      dataPoint.location.latitude = rawPoint.lat / 180d * Math.PI;
-      dataPoint.location.longitude = rawPoint.lon / 180d * Math.PI;
+    Data.Builder dataBuilder = new Data.Builder();
+    loadProgress.fileReadingStarted();
+    long startNanos = System.nanoTime();
+    try
+    {
+      XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
       try
       {
-        dataPoint.time = rawPoint.time.getTime();
+        int trackPointCount = 0;
+        while (reader.hasNext())
+        {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT && "trkpt".equals(reader.getLocalName()))
+          {
+            readTrackPoint(reader, trackPointCount, dataBuilder, warnMessages);
+            trackPointCount++;
+            if (trackPointCount % PROGRESS_INTERVAL == 0)
+            {
+              loadProgress.fileReadingProgress(trackPointCount);
+            }
+          }
+        }
       }
-      catch (Exception e)
+      finally
       {
-        warnMessages.add("bad timestamp in data point with index " + index);
-        continue;
+        reader.close();
       }
-      data.add(dataPoint);
-      index++;
     }
-    return new ImporterResult(data, warnMessages);
+    catch (XMLStreamException e)
+    {
+      loadProgress.finished();
+      throw new RuntimeException(e);
+    }
+    loadProgress.fileReadingFinished(dataBuilder.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(dataBuilder.build(), warnMessages);
   }
 
-  public List<GpxPoint> readFileInternal(File file)
+  /**
+   * Reads a trkpt element and adds the resulting point to the builder.
+   *
+   * @param reader the reader, positioned on the start of the trkpt element.
+   *        After the call, it is positioned on the end of the trkpt element.
+   */
+  private void readTrackPoint(
+        XMLStreamReader reader,
+        int trackPointIndex,
+        Data.Builder dataBuilder,
+        List<String> warnMessages)
+      throws XMLStreamException
   {
-    List<GpxPoint> result = new ArrayList<>();
-    loadProgress.fileReadingStarted();
-    try (InputStream is = new FileInputStream(file))
+    DataPoint dataPoint = new DataPoint(dataBuilder.size());
+    dataPoint.location = new Location();
+    String timeString = null;
+    try
     {
-      ObjectMapper xmlMapper = new XmlMapper()
-          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-      Gpx value = xmlMapper.readValue(is, Gpx.class);
-      result = value.trk.trkseg.trkpt;
+      dataPoint.location.latitude = Double.parseDouble(reader.getAttributeValue(null, "lat")) / 180d * Math.PI;
+      dataPoint.location.longitude = Double.parseDouble(reader.getAttributeValue(null, "lon")) / 180d * Math.PI;
     }
-    catch (IOException e)
+    catch (NullPointerException | NumberFormatException e)
     {
-      loadProgress.finished();
-      throw new RuntimeException(e);
+      warnMessages.add("bad position in track point with index " + trackPointIndex);
+      dataPoint = null;
+    }
+    int depth = 1;
+    while (depth > 0)
+    {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT)
+      {
+        depth--;
+      }
+      else if (event == XMLStreamConstants.START_ELEMENT)
+      {
+        String name = reader.getLocalName();
+        if ("time".equals(name) && depth == 1)
+        {
+          timeString = reader.getElementText();
+        }
+        else if (dataPoint != null && ("ele".equals(name) || "speed".equals(name) || "course".equals(name)))
+        {
+          readOptionalValue(reader, name, dataPoint.location, trackPointIndex, warnMessages);
+        }
+        else
+        {
+          depth++;
+        }
+      }
+    }
+    if (dataPoint == null)
+    {
+      return;
+    }
+    try
+    {
+      dataPoint.time = parseTime(timeString);
+    }
+    catch (RuntimeException e)
+    {
+      warnMessages.add("bad timestamp in track point with index " + trackPointIndex);
+      return;
+    }
+    try
+    {
+      dataBuilder.add(dataPoint);
+    }
+    catch (RuntimeException e)
+    {
+      warnMessages.add("Could not add track point with index " + trackPointIndex + ":" + e.getMessage());
     }
-    loadProgress.fileReadingFinished();
-    return result;
   }
 
-  public static class Gpx
+  private void readOptionalValue(
+        XMLStreamReader reader,
+        String name,
+        Location location,
+        int trackPointIndex,
+        List<String> warnMessages)
+      throws XMLStreamException
   {
-    public GpxTrack trk;
+    double value;
+    try
+    {
+      value = Double.parseDouble(reader.getElementText().trim());
+    }
+    catch (NumberFormatException e)
+    {
+      warnMessages.add("bad " + name + " in track point with index " + trackPointIndex);
+      return;
+    }
+    switch (name)
+    {
+      case "ele":
+        location.altitude = value;
+        break;
+      case "speed":
+        // GPX speed is in meters per second
+        location.velocity = value / Constants.NAUTICAL_MILE * 3600d;
+        break;
+      case "course":
+        location.bearing = value / 180d * Math.PI;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown value " + name);
+    }
   }
 
-  public static class GpxTrack
+  /**
+   * Parses an ISO-8601 date-time as used in GPX files,
+   * e.g. <code>2017-07-14T02:40:00Z</code> or <code>2017-07-14T04:40:00.123+02:00</code>.
+   * Fractions of seconds beyond milliseconds are truncated.
+   * A time without zone designator is interpreted as UTC.
+   *
+   * @param text the text to parse, not null.
+   *
+   * @return the time in millis since 01.01.1970 0:00:00.000 GMT.
+   *
+   * @throws IllegalArgumentException if the text is not a valid date-time.
+   */
+  static long parseTime(String text)
   {
-    public GpxTrackSegment trkseg;
+    String trimmed = text.trim();
+    int length = trimmed.length();
+    if (length < 19
+        || trimmed.charAt(4) != '-'
+        || trimmed.charAt(7) != '-'
+        || (trimmed.charAt(10) != 'T' && trimmed.charAt(10) != 't' && trimmed.charAt(10) != ' ')
+        || trimmed.charAt(13) != ':'
+        || trimmed.charAt(16) != ':')
+    {
+      throw new IllegalArgumentException("Invalid time " + text);
+    }
+    int year = parseDigits(trimmed, 0, 4);
+    int month = parseDigits(trimmed, 5, 7);
+    int day = parseDigits(trimmed, 8, 10);
+    int hour = parseDigits(trimmed, 11, 13);
+    int minute = parseDigits(trimmed, 14, 16);
+    int second = parseDigits(trimmed, 17, 19);
+    if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 60)
+    {
+      throw new IllegalArgumentException("Invalid time " + text);
+    }
+    int position = 19;
+    int millis = 0;
+    if (position < length && trimmed.charAt(position) == '.')
+    {
+      position++;
+      int fractionStart = position;
+      int factor = 100;
+      while (position < length && isDigit(trimmed.charAt(position)))
+      {
+        millis += factor * (trimmed.charAt(position) - '0');
+        factor /= 10;
+        position++;
+      }
+      if (position == fractionStart)
+      {
+        throw new IllegalArgumentException("Invalid time " + text);
+      }
+    }
+    int offsetMinutes = 0;
+    if (position < length)
+    {
+      char zone = trimmed.charAt(position);
+      if ((zone == 'Z' || zone == 'z') && position == length - 1)
+      {
+        position++;
+      }
+      else if (zone == '+' || zone == '-')
+      {
+        int offsetHours = parseDigits(trimmed, position + 1, position + 3);
+        int offsetMinutesStart = position + 3;
+        if (offsetMinutesStart < length && trimmed.charAt(offsetMinutesStart) == ':')
+        {
+          offsetMinutesStart++;
+        }
+        offsetMinutes = offsetHours * 60 + parseDigits(trimmed, offsetMinutesStart, offsetMinutesStart + 2);
+        if (zone == '-')
+        {
+          offsetMinutes = -offsetMinutes;
+        }
+        position = offsetMinutesStart + 2;
+      }
+      if (position != length)
+      {
+        throw new IllegalArgumentException("Invalid time " + text);
+      }
+    }
+    return CivilTime.toEpochMillis(year, month, day, hour, minute, second, millis) - offsetMinutes * 60_000L;
   }
 
-  public static class GpxTrackSegment
+  private static int parseDigits(String text, int start, int end)
   {
-    @JacksonXmlElementWrapper(useWrapping = false)
-    public List<GpxPoint> trkpt;
+    if (end > text.length())
+    {
+      throw new IllegalArgumentException("Invalid time " + text);
+    }
+    int result = 0;
+    for (int i = start; i < end; i++)
+    {
+      char c = text.charAt(i);
+      if (!isDigit(c))
+      {
+        throw new IllegalArgumentException("Invalid time " + text);
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
   }
 
-  public static final class GpxPoint
+  private static boolean isDigit(char c)
   {
-    public Date time;
-
-    @JacksonXmlProperty(isAttribute = true)
-    public double lat;
-
-    @JacksonXmlProperty(isAttribute = true)
-    public double lon;
+    return c >= '0' && c <= '9';
   }
 }
@@ -0,0 +1,46 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+
+/**
+ * Provides the GpxImporter for GPX files.
+ */
+public class GpxImporterProvider implements ImporterProvider
+{
+  @Override
+  public String getName()
+  {
+    return "GPX";
+  }
+
+  @Override
+  public List<String> getExtensions()
+  {
+    return Collections.singletonList(".gpx");
+  }
+
+  @Override
+  public int probe(ByteBuffer header)
+  {
+    String text = ImporterProvider.toText(header);
+    if (ImporterProvider.firstNonWhitespace(text) != '<')
+    {
+      return NO_MATCH;
+    }
+    if (text.contains("<gpx") || text.contains(":gpx"))
+    {
+      return CERTAIN_MATCH;
+    }
+    return POSSIBLE_MATCH;
+  }
+
+  @Override
+  public Importer create(LoadProgress loadProgress)
+  {
+    return new GpxImporter(loadProgress);
+  }
+}
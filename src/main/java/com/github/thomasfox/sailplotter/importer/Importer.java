@@ -1,6 +1,7 @@
 package com.github.thomasfox.sailplotter.importer;
 
 import java.io.File;
+import java.io.InputStream;
 
 /**
  * Reads a file and loads the contained Data into sailplotter.
@@ -15,4 +16,14 @@ public interface Importer
    * @return the data points contained in the file.
    */
   ImporterResult read(File file);
-}
\ No newline at end of file
+
+  /**
+   * Reads the content of a file from a stream and loads the contained Data into sailplotter.
+   * The stream is read to its end but not closed.
+   *
+   * @param inputStream the stream to read, not null.
+   *
+   * @return the data points contained in the stream.
+   */
+  ImporterResult read(InputStream inputStream);
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+
+/**
+ * Describes a file format which can be imported, and creates importers for it.
+ *
+ * Implementations are discovered by the ImporterRegistry using java.util.ServiceLoader,
+ * so they must have a public no-argument constructor and be listed in
+ * <code>META-INF/services/com.github.thomasfox.sailplotter.importer.ImporterProvider</code>.
+ */
+public interface ImporterProvider
+{
+  /** Probe result if the header does not look like the format of this provider. */
+  int NO_MATCH = 0;
+
+  /** Probe result if the header is compatible with the format but not specific to it. */
+  int POSSIBLE_MATCH = 10;
+
+  /** Probe result if the header contains markers which are typical for the format. */
+  int LIKELY_MATCH = 50;
+
+  /** Probe result if the header contains markers which identify the format. */
+  int CERTAIN_MATCH = 100;
+
+  /**
+   * @return a short name of the format, for messages, not null.
+   */
+  String getName();
+
+  /**
+   * @return the file extensions of the format including the leading dot, in lower case, not null.
+   */
+  List<String> getExtensions();
+
+  /**
+   * Checks how well the start of a file matches the format of this provider.
+   * This must be cheap, it must only look at the passed bytes and not try to parse the file.
+   *
+   * @param header the first bytes of the file, at most ImporterRegistry.HEADER_BYTES long.
+   *        The position and limit of the buffer must not be changed.
+   *
+   * @return one of the constants NO_MATCH, POSSIBLE_MATCH, LIKELY_MATCH or CERTAIN_MATCH.
+   */
+  int probe(ByteBuffer header);
+
+  /**
+   * Creates an importer for the format.
+   *
+   * @param loadProgress where the importer should advertise its progress, not null.
+   *
+   * @return the new importer, not null.
+   */
+  Importer create(LoadProgress loadProgress);
+
+  /**
+   * Decodes a header as ISO-8859-1, so that each byte becomes one character.
+   *
+   * @param header the header to decode, not null. Its position is not changed.
+   *
+   * @return the decoded header, not null.
+   */
+  static String toText(ByteBuffer header)
+  {
+    return StandardCharsets.ISO_8859_1.decode(header.duplicate()).toString();
+  }
+
+  /**
+   * Returns the first character which is not whitespace and not part of a UTF-8 byte order mark.
+   *
+   * @param text the decoded header, not null.
+   *
+   * @return the first non-whitespace character, or 0 if there is none.
+   */
+  static char firstNonWhitespace(String text)
+  {
+    int start = text.startsWith("\u00ef\u00bb\u00bf") ? 3 : 0;
+    for (int i = start; i < text.length(); i++)
+    {
+      if (!Character.isWhitespace(text.charAt(i)))
+      {
+        return text.charAt(i);
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,159 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the importer for a file by probing the start of the file.
+ *
+ * The available formats are discovered via java.util.ServiceLoader as ImporterProvider implementations.
+ * Each provider is asked how well the first HEADER_BYTES bytes of the file match its format,
+ * and the provider with the best match is chosen.
+ * If several providers match equally well, a provider whose extension matches the file name wins;
+ * if no provider matches the content, the provider is chosen by the file extension.
+ */
+public class ImporterRegistry
+{
+  /** The number of bytes at the start of a file which are passed to the probes. */
+  public static final int HEADER_BYTES = 4096;
+
+  private final List<ImporterProvider> providers;
+
+  /**
+   * Creates a registry containing all providers found by the ServiceLoader.
+   */
+  public ImporterRegistry()
+  {
+    this(ServiceLoader.load(ImporterProvider.class));
+  }
+
+  /**
+   * Creates a registry containing the given providers.
+   *
+   * @param providers the providers, not null.
+   */
+  public ImporterRegistry(Iterable<ImporterProvider> providers)
+  {
+    List<ImporterProvider> providerList = new ArrayList<>();
+    for (ImporterProvider provider : providers)
+    {
+      providerList.add(provider);
+    }
+    this.providers = Collections.unmodifiableList(providerList);
+  }
+
+  public List<ImporterProvider> getProviders()
+  {
+    return providers;
+  }
+
+  /**
+   * @return all known extensions, sorted, not null.
+   */
+  public List<String> getExtensions()
+  {
+    return providers.stream()
+        .flatMap(provider -> provider.getExtensions().stream())
+        .sorted()
+        .distinct()
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Selects the provider for a file by probing its first bytes.
+   *
+   * @param file the file to import, not null.
+   *
+   * @return the best matching provider, not null.
+   *
+   * @throws RuntimeException if no provider matches the content or the extension of the file,
+   *         or if the file cannot be read.
+   */
+  public ImporterProvider select(File file)
+  {
+    return select(file.getName(), readHeader(file));
+  }
+
+  /**
+   * Selects the provider for a file name and the start of the file content.
+   *
+   * @param fileName the name of the file, not null.
+   * @param header the first bytes of the file, not null.
+   *
+   * @return the best matching provider, not null.
+   *
+   * @throws RuntimeException if no provider matches the content or the extension of the file.
+   */
+  public ImporterProvider select(String fileName, ByteBuffer header)
+  {
+    String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+    ImporterProvider best = null;
+    int bestScore = 0;
+    for (ImporterProvider provider : providers)
+    {
+      // the probe result decides, the extension only breaks ties and selects if no probe matches
+      int score = provider.probe(header.asReadOnlyBuffer()) * 2;
+      if (hasExtension(lowerCaseName, provider))
+      {
+        score++;
+      }
+      if (score > bestScore)
+      {
+        best = provider;
+        bestScore = score;
+      }
+    }
+    if (best == null)
+    {
+      throw new RuntimeException("unknown format of file " + fileName
+          + ", known extensions are " + String.join(", ", getExtensions()));
+    }
+    return best;
+  }
+
+  private static boolean hasExtension(String lowerCaseName, ImporterProvider provider)
+  {
+    for (String extension : provider.getExtensions())
+    {
+      if (lowerCaseName.endsWith(extension))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads the first HEADER_BYTES bytes of a file.
+   *
+   * @param file the file to read, not null.
+   *
+   * @return a buffer containing the bytes, positioned at the start.
+   */
+  static ByteBuffer readHeader(File file)
+  {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      ByteBuffer result = ByteBuffer.allocate(HEADER_BYTES);
+      while (result.hasRemaining() && channel.read(result) >= 0)
+      {
+        // read until the buffer is full or the end of the file is reached
+      }
+      result.flip();
+      return result;
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -1,89 +1,175 @@
 package com.github.thomasfox.sailplotter.importer;
 
-import static java.time.temporal.ChronoField.DAY_OF_MONTH;
-import static java.time.temporal.ChronoField.HOUR_OF_DAY;
-import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
-import static java.time.temporal.ChronoField.MONTH_OF_YEAR;
-import static java.time.temporal.ChronoField.NANO_OF_SECOND;
-import static java.time.temporal.ChronoField.SECOND_OF_MINUTE;
-import static java.time.temporal.ChronoField.YEAR;
-
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.SignStyle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.model.Data;
-import com.github.thomasfox.sailplotter.model.DataPoint;
-import com.github.thomasfox.sailplotter.model.Location;
 
+/**
+ * Imports data from a SailRacer log file.
+ *
+ * The file is memory-mapped and parsed directly from its bytes by SailRacerLogParser.
+ * Files larger than the maximum window size are mapped in consecutive windows
+ * which end at line boundaries. Streams are read in blocks which are treated like windows;
+ * the blocks are large enough to be split into chunks for all threads of the common fork join pool,
+ * but not larger than the maximum window size.
+ *
+ * Large windows are split into chunks starting at line boundaries, which are parsed in parallel
+ * on the common fork join pool. The chunks are then added to the data in file order,
+ * which gives the same points and warnings as parsing the window sequentially.
+ */
 public class SailRacerImporter implements Importer
 {
+  /**
+   * The default maximum number of bytes mapped at once.
+   * Progress is reported and cancellation is checked after each window.
+   */
+  private static final int DEFAULT_MAX_WINDOW_SIZE = 64 << 20;
+
+  /** The default minimum number of bytes parsed by one task when parsing in parallel. */
+  private static final int DEFAULT_MIN_CHUNK_SIZE = 4 << 20;
+
+  /** The number of chunks per thread, to even out different parsing speeds of the threads. */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** The initial size of the buffer a stream is read into. The buffer grows up to the stream block size. */
+  private static final int INITIAL_STREAM_BUFFER_SIZE = 1 << 20;
+
   private final LoadProgress loadProgress;
 
+  private final int maxWindowSize;
+
+  private final int minChunkSize;
+
+  /** The number of chunks parsed by the last read; a window which is parsed sequentially is one chunk. */
+  private int parsedChunkCount;
+
   public SailRacerImporter(LoadProgress loadProgress)
   {
-    this.loadProgress = loadProgress;
+    this(loadProgress, DEFAULT_MAX_WINDOW_SIZE, DEFAULT_MIN_CHUNK_SIZE);
   }
 
-  private static final DateTimeFormatter dateTimeFormatter = new DateTimeFormatterBuilder()
-      .appendValue(YEAR, 4, 10, SignStyle.EXCEEDS_PAD)
-      .appendLiteral('.')
-      .appendValue(MONTH_OF_YEAR, 2)
-      .appendLiteral('.')
-      .appendValue(DAY_OF_MONTH, 2)
-      .appendLiteral(' ')
-      .appendValue(HOUR_OF_DAY, 2)
-      .appendLiteral(':')
-      .appendValue(MINUTE_OF_HOUR, 2)
-      .optionalStart()
-      .appendLiteral(':')
-      .appendValue(SECOND_OF_MINUTE, 2)
-      .appendLiteral(':')
-      .appendFraction(NANO_OF_SECOND, 0, 9, false)
-      .toFormatter();
-
+  /**
+   * Constructor.
+   *
+   * @param loadProgress where to advertise the loading progress, not null.
+   * @param maxWindowSize the maximum number of bytes mapped at once,
+   *        must be larger than the longest line.
+   * @param minChunkSize the minimum number of bytes parsed by one task when parsing in parallel.
+   *        Windows smaller than twice this size are parsed sequentially.
+   */
+  SailRacerImporter(LoadProgress loadProgress, int maxWindowSize, int minChunkSize)
+  {
+    this.loadProgress = loadProgress;
+    this.maxWindowSize = maxWindowSize;
+    this.minChunkSize = minChunkSize;
+  }
 
   @Override
   public ImporterResult read(File file)
   {
-    Data data = new Data();
-    List<SailRacerPoint> rawData = readFileInternal(file);
-    int index = 0;
-    for (SailRacerPoint rawPoint : rawData)
+    List<String> warnings = new ArrayList<>();
+    Data.Builder dataBuilder = new Data.Builder();
+    parsedChunkCount = 0;
+    loadProgress.fileReadingStarted();
+    long startNanos = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      long fileSize = channel.size();
+      AtomicLong bytesParsed = new AtomicLong();
+      loadProgress.readingBytes(fileSize, bytesParsed::get);
+      long windowStart = 0;
+      while (windowStart < fileSize)
+      {
+        int windowSize = (int) Math.min(maxWindowSize, fileSize - windowStart);
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+        int windowEnd = windowSize;
+        if (windowStart + windowSize < fileSize)
+        {
+          windowEnd = SailRacerLogParser.lastLineEnd(window, windowSize);
+          if (windowEnd == 0)
+          {
+            throw new IOException("Line starting at byte offset " + windowStart + " is longer than "
+                + maxWindowSize + " bytes");
+          }
+        }
+        parseWindow(window, windowEnd, windowStart, dataBuilder, warnings);
+        windowStart += windowEnd;
+        bytesParsed.set(windowStart);
+        loadProgress.fileReadingProgress(dataBuilder.size());
+      }
+    }
+    catch (IOException e)
     {
-      DataPoint dataPoint = new DataPoint(index);
-      dataPoint.location = new Location();
-      dataPoint.location.latitude = rawPoint.lat / 180d * Math.PI;
-      dataPoint.location.longitude = rawPoint.lon / 180d * Math.PI;
-      dataPoint.time = rawPoint.datetime.toInstant(ZoneOffset.UTC).toEpochMilli();
-      data.add(dataPoint);
-      index++;
+      loadProgress.finished();
+      throw new RuntimeException(e);
     }
-    return new ImporterResult(data, new ArrayList<>());
+    loadProgress.fileReadingFinished(dataBuilder.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(dataBuilder.build(), warnings);
   }
 
-  public List<SailRacerPoint> readFileInternal(File file)
+  @Override
+  public ImporterResult read(InputStream inputStream)
   {
-    List<SailRacerPoint> result = new ArrayList<>();
+    List<String> warnings = new ArrayList<>();
+    Data.Builder dataBuilder = new Data.Builder();
+    parsedChunkCount = 0;
     loadProgress.fileReadingStarted();
-    try (InputStream is = new FileInputStream(file))
+    long startNanos = System.nanoTime();
+    try
     {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(is, "ISO-8859-1"));
-      String line;
-      while ((line = reader.readLine()) != null)
+      int blockSize = getStreamBlockSize();
+      byte[] block = new byte[Math.min(INITIAL_STREAM_BUFFER_SIZE, blockSize)];
+      int filled = 0;
+      long blockStart = 0;
+      boolean endOfStream = false;
+      while (!endOfStream)
       {
-        result.add(new SailRacerPoint(line));
+        int read = inputStream.read(block, filled, block.length - filled);
+        if (read < 0)
+        {
+          endOfStream = true;
+        }
+        else
+        {
+          filled += read;
+        }
+        if (!endOfStream && filled < blockSize)
+        {
+          if (filled == block.length)
+          {
+            block = Arrays.copyOf(block, Math.min(block.length * 2, blockSize));
+          }
+          continue;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int blockEnd = endOfStream ? filled : SailRacerLogParser.lastLineEnd(buffer, filled);
+        if (blockEnd == 0)
+        {
+          if (filled == block.length)
+          {
+            block = Arrays.copyOf(block, block.length * 2);
+          }
+          continue;
+        }
+        parseWindow(buffer, blockEnd, blockStart, dataBuilder, warnings);
+        loadProgress.fileReadingProgress(dataBuilder.size());
+        System.arraycopy(block, blockEnd, block, 0, filled - blockEnd);
+        filled -= blockEnd;
+        blockStart += blockEnd;
       }
     }
     catch (IOException e)
@@ -91,41 +177,68 @@ public class SailRacerImporter implements Importer
       loadProgress.finished();
       throw new RuntimeException(e);
     }
-    loadProgress.fileReadingFinished();
-    return result;
+    loadProgress.fileReadingFinished(dataBuilder.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(dataBuilder.build(), warnings);
   }
 
-  public static final class SailRacerPoint
+  /**
+   * Returns the number of chunks parsed by the last read.
+   * A window which is parsed sequentially counts as one chunk.
+   *
+   * @return the number of chunks, 0 if nothing was read yet.
+   */
+  int getParsedChunkCount()
   {
-    /** 2016.09.21 14:02:16:000. The Datetime is in GMT*/
-    public LocalDateTime datetime;
-
-    public double lat;
-
-    public double lon;
-
-    /** absolute? relative ? */
-    public int bearing1;
-
-    /** unit? perhaps m/s? */
-    public double velocity;
-
-    /** absolute? relative ? */
-    public int bearing2;
+    return parsedChunkCount;
+  }
 
-    /** not sure what this is. */
-    public double race;
+  /**
+   * Returns the number of bytes of a stream which are parsed at once,
+   * so that a block can be split into CHUNKS_PER_THREAD chunks of at least the minimum chunk size
+   * per thread of the common fork join pool.
+   *
+   * @return the block size in bytes, not larger than the maximum window size.
+   */
+  private int getStreamBlockSize()
+  {
+    long parallelBlockSize = (long) CHUNKS_PER_THREAD * ForkJoinPool.getCommonPoolParallelism() * minChunkSize;
+    return (int) Math.max(1, Math.min(parallelBlockSize, maxWindowSize));
+  }
 
-    public SailRacerPoint(String line)
+  private void parseWindow(
+      ByteBuffer window,
+      int windowEnd,
+      long windowStart,
+      Data.Builder dataBuilder,
+      List<String> warnings)
+  {
+    int chunkCount = (int) Math.min(
+        windowEnd / minChunkSize,
+        (long) ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD);
+    if (chunkCount < 2)
+    {
+      new SailRacerLogParser(window).parseLines(0, windowEnd, windowStart, dataBuilder, warnings);
+      parsedChunkCount++;
+      return;
+    }
+    int[] chunkStarts = new int[chunkCount + 1];
+    for (int i = 1; i < chunkCount; i++)
+    {
+      int approximateStart = (int) ((long) windowEnd * i / chunkCount);
+      chunkStarts[i] = SailRacerLogParser.lineStartAtOrAfter(
+          window,
+          Math.max(approximateStart, chunkStarts[i - 1]),
+          windowEnd);
+    }
+    chunkStarts[chunkCount] = windowEnd;
+    List<SailRacerLogParser.ParsedChunk> chunks = IntStream.range(0, chunkCount)
+        .parallel()
+        .mapToObj(i -> new SailRacerLogParser(window).parseChunk(chunkStarts[i], chunkStarts[i + 1], windowStart))
+        .collect(Collectors.toList());
+    for (SailRacerLogParser.ParsedChunk chunk : chunks)
     {
-      String[] token = line.split("\t");
-      datetime = LocalDateTime.parse(token[0], dateTimeFormatter);
-      lat = Double.parseDouble(token[1]);
-      lon = Double.parseDouble(token[2]);
-      bearing1 = Integer.parseInt(token[3]);
-      velocity = Double.parseDouble(token[4]);
-      bearing2 = Integer.parseInt(token[5]);
-      race = Double.parseDouble(token[6]);
+      chunk.addTo(dataBuilder, warnings);
     }
+    parsedChunkCount += chunkCount;
   }
 }
@@ -0,0 +1,47 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+
+/**
+ * Provides the SailRacerImporter for SailRacer log files.
+ */
+public class SailRacerImporterProvider implements ImporterProvider
+{
+  /** The start of a SailRacer log line: the time followed by a tab and the latitude. */
+  private static final Pattern LINE_START
+      = Pattern.compile("\\d{4}\\.\\d\\d\\.\\d\\d \\d\\d:\\d\\d(:\\d\\d:\\d*)?\\t[-+]?\\d");
+
+  @Override
+  public String getName()
+  {
+    return "SailRacer log";
+  }
+
+  @Override
+  public List<String> getExtensions()
+  {
+    return Collections.singletonList(".log");
+  }
+
+  @Override
+  public int probe(ByteBuffer header)
+  {
+    String text = ImporterProvider.toText(header);
+    if (LINE_START.matcher(text).lookingAt())
+    {
+      return CERTAIN_MATCH;
+    }
+    return NO_MATCH;
+  }
+
+  @Override
+  public Importer create(LoadProgress loadProgress)
+  {
+    return new SailRacerImporter(loadProgress);
+  }
+}
@@ -0,0 +1,491 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+
+/**
+ * Parses the lines of a SailRacer log file directly from its bytes.
+ *
+ * Each line contains tab separated fields, of which the first three are read:
+ * the time in GMT as <code>yyyy.MM.dd HH:mm:ss:SSS</code> (seconds and fraction are optional),
+ * the latitude and the longitude in degrees.
+ * The remaining fields (bearings, velocity, race) are skipped.
+ *
+ * Fields are decoded from the bytes without creating strings or other per-line objects;
+ * only decimal numbers whose digits do not fit into a 53 bit mantissa or which have an exponent
+ * are converted to a string and parsed by Double.parseDouble().
+ * The decoded values are identical to those of the original line-based parser using LocalDateTime.parse().
+ *
+ * This class is not thread safe, but several instances can parse different ranges
+ * of the same buffer concurrently.
+ */
+class SailRacerLogParser
+{
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+      1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  /** The largest mantissa which is exactly representable as a double. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final ByteBuffer buffer;
+
+  /** The position of the next byte to read. */
+  private int position;
+
+  /**
+   * Constructor.
+   *
+   * @param buffer the bytes to parse, not null. Only absolute get methods are used,
+   *        so the position and limit of the buffer are not changed.
+   */
+  SailRacerLogParser(ByteBuffer buffer)
+  {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Parses the lines in a range of the buffer and adds a point for each line to a builder.
+   * Empty lines are skipped; lines which cannot be parsed are skipped with a warning.
+   *
+   * @param from the position of the first byte of the first line to parse.
+   * @param to the position after the last line to parse,
+   *        must be directly after a line feed or the end of the buffer.
+   * @param bufferOffset the offset of the buffer in the file, used in warnings.
+   * @param dataBuilder the builder to add the points to, not null.
+   * @param warnings the list to add warnings to, not null.
+   *
+   * @return the number of parsed lines, including empty and bad lines.
+   */
+  int parseLines(int from, int to, long bufferOffset, Data.Builder dataBuilder, List<String> warnings)
+  {
+    int lineCount = 0;
+    position = from;
+    while (position < to)
+    {
+      int lineStart = position;
+      lineCount++;
+      if (isEndOfLine(to))
+      {
+        skipLine(to);
+        continue;
+      }
+      DataPoint dataPoint;
+      try
+      {
+        dataPoint = parseLine(to, dataBuilder.size());
+      }
+      catch (IllegalArgumentException e)
+      {
+        warnings.add(badLineWarning(bufferOffset + lineStart, e));
+        skipLine(to);
+        continue;
+      }
+      try
+      {
+        dataBuilder.add(dataPoint);
+      }
+      catch (RuntimeException e)
+      {
+        warnings.add(notAddedWarning(bufferOffset + lineStart, e));
+      }
+    }
+    return lineCount;
+  }
+
+  /**
+   * Parses the lines in a range of the buffer into a chunk, without checking the time order.
+   * Adding the chunk to a builder afterwards gives the same points and warnings
+   * as parsing the range with parseLines().
+   *
+   * @param from the position of the first byte of the first line to parse.
+   * @param to the position after the last line to parse,
+   *        must be directly after a line feed or the end of the buffer.
+   * @param bufferOffset the offset of the buffer in the file, used in warnings.
+   *
+   * @return the parsed chunk, not null.
+   */
+  ParsedChunk parseChunk(int from, int to, long bufferOffset)
+  {
+    ParsedChunk result = new ParsedChunk(bufferOffset);
+    position = from;
+    while (position < to)
+    {
+      int lineStart = position;
+      if (isEndOfLine(to))
+      {
+        skipLine(to);
+        continue;
+      }
+      try
+      {
+        result.addPoint(lineStart, parseLine(to, result.points.size()));
+      }
+      catch (IllegalArgumentException e)
+      {
+        result.addWarning(lineStart, badLineWarning(bufferOffset + lineStart, e));
+        skipLine(to);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the start of the first line which starts at or after a position.
+   *
+   * @param buffer the buffer to search, not null.
+   * @param position the position to start searching.
+   * @param to the end of the range to search.
+   *
+   * @return the start of the line, or <code>to</code> if no line starts in the range.
+   */
+  static int lineStartAtOrAfter(ByteBuffer buffer, int position, int to)
+  {
+    if (position == 0)
+    {
+      return 0;
+    }
+    for (int i = position - 1; i < to; i++)
+    {
+      if (buffer.get(i) == '\n')
+      {
+        return i + 1;
+      }
+    }
+    return to;
+  }
+
+  private static String badLineWarning(long offset, IllegalArgumentException e)
+  {
+    return "bad line at byte offset " + offset + ": " + e.getMessage();
+  }
+
+  private static String notAddedWarning(long offset, RuntimeException e)
+  {
+    return "Could not add line at byte offset " + offset + ":" + e.getMessage();
+  }
+
+  /**
+   * Returns the position after the last line feed before a position.
+   *
+   * @param buffer the buffer to search, not null.
+   * @param before the position before which to search.
+   *
+   * @return the position after the last line feed, or 0 if there is no line feed before the position.
+   */
+  static int lastLineEnd(ByteBuffer buffer, int before)
+  {
+    for (int i = before - 1; i >= 0; i--)
+    {
+      if (buffer.get(i) == '\n')
+      {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  private DataPoint parseLine(int to, int index)
+  {
+    long time = parseTime(to);
+    expectTab(to);
+    double latitude = parseDecimal(to);
+    expectTab(to);
+    double longitude = parseDecimal(to);
+    if (!isEndOfLine(to))
+    {
+      expectTab(to);
+    }
+    skipLine(to);
+
+    DataPoint dataPoint = new DataPoint(index);
+    dataPoint.location = new Location();
+    dataPoint.location.latitude = latitude / 180d * Math.PI;
+    dataPoint.location.longitude = longitude / 180d * Math.PI;
+    dataPoint.time = time;
+    return dataPoint;
+  }
+
+  /**
+   * Parses <code>yyyy.MM.dd HH:mm</code> optionally followed by <code>:ss:</code>
+   * and a fraction of up to 9 digits, of which the first three are used.
+   */
+  private long parseTime(int to)
+  {
+    int year = parseDigits(to, 4, 10);
+    expect(to, '.');
+    int month = parseDigits(to, 2, 2);
+    expect(to, '.');
+    int day = parseDigits(to, 2, 2);
+    expect(to, ' ');
+    int hour = parseDigits(to, 2, 2);
+    expect(to, ':');
+    int minute = parseDigits(to, 2, 2);
+    int second = 0;
+    int millis = 0;
+    if (position < to && buffer.get(position) == ':')
+    {
+      position++;
+      second = parseDigits(to, 2, 2);
+      expect(to, ':');
+      int factor = 100;
+      int fractionDigits = 0;
+      while (position < to && isDigit(buffer.get(position)))
+      {
+        if (++fractionDigits > 9)
+        {
+          throw new IllegalArgumentException("too many fraction digits in time");
+        }
+        millis += factor * (buffer.get(position) - '0');
+        factor /= 10;
+        position++;
+      }
+    }
+    if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59)
+    {
+      throw new IllegalArgumentException("invalid time");
+    }
+    return CivilTime.toEpochMillis(year, month, day, hour, minute, second, millis);
+  }
+
+  private int parseDigits(int to, int minDigits, int maxDigits)
+  {
+    int result = 0;
+    int digits = 0;
+    while (position < to && digits < maxDigits && isDigit(buffer.get(position)))
+    {
+      result = result * 10 + (buffer.get(position) - '0');
+      position++;
+      digits++;
+    }
+    if (digits < minDigits)
+    {
+      throw new IllegalArgumentException("expected " + minDigits + " digits in time");
+    }
+    return result;
+  }
+
+  /**
+   * Parses a decimal number. If the digits of the number fit into a 53 bit mantissa and there is no exponent,
+   * the result is computed as the quotient of two exactly representable doubles,
+   * which is correctly rounded and thus identical to the result of Double.parseDouble().
+   */
+  private double parseDecimal(int to)
+  {
+    int start = position;
+    boolean negative = false;
+    if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+'))
+    {
+      negative = buffer.get(position) == '-';
+      position++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = 0;
+    boolean inFraction = false;
+    boolean exact = true;
+    while (position < to)
+    {
+      byte current = buffer.get(position);
+      if (isDigit(current))
+      {
+        if (mantissa < MAX_EXACT_MANTISSA / 10)
+        {
+          mantissa = mantissa * 10 + (current - '0');
+          if (inFraction)
+          {
+            fractionDigits++;
+          }
+        }
+        else
+        {
+          exact = false;
+        }
+        digits++;
+      }
+      else if (current == '.' && !inFraction)
+      {
+        inFraction = true;
+      }
+      else if (current == 'e' || current == 'E' || current == '-' || current == '+')
+      {
+        exact = false;
+      }
+      else
+      {
+        break;
+      }
+      position++;
+    }
+    if (digits == 0)
+    {
+      throw new IllegalArgumentException("expected a decimal number");
+    }
+    if (!exact || fractionDigits >= POWERS_OF_TEN.length)
+    {
+      return parseDecimalSlow(start, position);
+    }
+    double result = mantissa / POWERS_OF_TEN[fractionDigits];
+    return negative ? -result : result;
+  }
+
+  private double parseDecimalSlow(int start, int end)
+  {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++)
+    {
+      bytes[i] = buffer.get(start + i);
+    }
+    try
+    {
+      return Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  private void expect(int to, char expected)
+  {
+    if (position >= to || buffer.get(position) != expected)
+    {
+      throw new IllegalArgumentException("expected '" + expected + "'");
+    }
+    position++;
+  }
+
+  private void expectTab(int to)
+  {
+    expect(to, '\t');
+  }
+
+  private boolean isEndOfLine(int to)
+  {
+    if (position >= to)
+    {
+      return true;
+    }
+    byte current = buffer.get(position);
+    return current == '\n' || current == '\r';
+  }
+
+  private void skipLine(int to)
+  {
+    while (position < to && buffer.get(position) != '\n')
+    {
+      position++;
+    }
+    if (position < to)
+    {
+      position++;
+    }
+  }
+
+  private static boolean isDigit(byte b)
+  {
+    return b >= '0' && b <= '9';
+  }
+
+  /**
+   * The points and warnings parsed from a range of lines, before their time order is checked.
+   * The line offsets of points and warnings are kept,
+   * so that warnings can be reported in the order of the lines.
+   */
+  static final class ParsedChunk
+  {
+    private final long bufferOffset;
+
+    private final List<DataPoint> points = new ArrayList<>();
+
+    private int[] pointOffsets = new int[16];
+
+    private final List<String> warnings = new ArrayList<>();
+
+    private int[] warningOffsets = new int[4];
+
+    /** Whether the points are ordered in time. */
+    private boolean ordered = true;
+
+    private ParsedChunk(long bufferOffset)
+    {
+      this.bufferOffset = bufferOffset;
+    }
+
+    private void addPoint(int lineStart, DataPoint point)
+    {
+      if (!points.isEmpty() && points.get(points.size() - 1).time > point.time)
+      {
+        ordered = false;
+      }
+      if (points.size() == pointOffsets.length)
+      {
+        pointOffsets = Arrays.copyOf(pointOffsets, pointOffsets.length * 2);
+      }
+      pointOffsets[points.size()] = lineStart;
+      points.add(point);
+    }
+
+    private void addWarning(int lineStart, String warning)
+    {
+      if (warnings.size() == warningOffsets.length)
+      {
+        warningOffsets = Arrays.copyOf(warningOffsets, warningOffsets.length * 2);
+      }
+      warningOffsets[warnings.size()] = lineStart;
+      warnings.add(warning);
+    }
+
+    int size()
+    {
+      return points.size();
+    }
+
+    /**
+     * Adds the points of this chunk to a builder.
+     * If the points of the chunk are ordered in time and the first point is not before the last point
+     * in the builder, all points are added at once. Otherwise, the points are added one by one
+     * and points which are before the last added point are skipped with a warning.
+     *
+     * @param dataBuilder the builder to add the points to, not null.
+     * @param allWarnings the list to add the warnings of this chunk to, not null.
+     */
+    void addTo(Data.Builder dataBuilder, List<String> allWarnings)
+    {
+      DataPoint last = dataBuilder.getLast();
+      if (ordered && (last == null || points.isEmpty() || last.time <= points.get(0).time))
+      {
+        dataBuilder.addAll(points);
+        allWarnings.addAll(warnings);
+        return;
+      }
+      int warningIndex = 0;
+      for (int i = 0; i < points.size(); i++)
+      {
+        while (warningIndex < warnings.size() && warningOffsets[warningIndex] < pointOffsets[i])
+        {
+          allWarnings.add(warnings.get(warningIndex++));
+        }
+        try
+        {
+          dataBuilder.add(points.get(i));
+        }
+        catch (RuntimeException e)
+        {
+          allWarnings.add(notAddedWarning(bufferOffset + pointOffsets[i], e));
+        }
+      }
+      while (warningIndex < warnings.size())
+      {
+        allWarnings.add(warnings.get(warningIndex++));
+      }
+    }
+  }
+}
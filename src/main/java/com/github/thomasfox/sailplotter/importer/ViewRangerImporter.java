@@ -2,22 +2,35 @@ package com.github.thomasfox.sailplotter.importer;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.LongSupplier;
 
-import org.apache.commons.io.FileUtils;
-
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.model.Data;
 import com.github.thomasfox.sailplotter.model.DataPoint;
 import com.github.thomasfox.sailplotter.model.Location;
 
+/**
+ * Imports data from a ViewRanger track file.
+ *
+ * The file is read token by token in a single pass, and each element of the <code>points</code> array
+ * is converted directly into a data point.
+ * ViewRanger forgets the closing brackets when saving, so the end of the file
+ * within or after the <code>points</code> array is treated as the end of the data.
+ * A point which is cut off by the end of the file is skipped with a warning.
+ */
 public class ViewRangerImporter implements Importer
 {
-  private final ObjectMapper mapper = new ObjectMapper();
+  /** After how many points the progress is reported. */
+  private static final int PROGRESS_INTERVAL = 10_000;
+
+  private final JsonFactory jsonFactory = new JsonFactory();
 
   private final LoadProgress loadProgress;
 
@@ -29,46 +42,68 @@ public class ViewRangerImporter implements Importer
   @Override
   public ImporterResult read(File file)
   {
-    Data data = new Data();
-    ViewRangerData rawData = readFileInternal(file);
-    int index = 0;
-    for (ViewRangerPoint rawPoint : rawData.points)
+    try
     {
-      DataPoint dataPoint = new DataPoint(index);
-      dataPoint.location = new Location();
-      dataPoint.location.latitude = rawPoint.lat / 180d * Math.PI;
-      dataPoint.location.longitude = rawPoint.lon / 180d * Math.PI;
-      dataPoint.time = rawPoint.time;
-      data.add(dataPoint);
-      index++;
+      long fileLength = file.length();
+      JsonParser parser = jsonFactory.createParser(file);
+      loadProgress.readingBytes(fileLength, () -> parser.currentLocation().getByteOffset());
+      return read(parser, () -> fileLength);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
     }
-    return new ImporterResult(data, new ArrayList<>());
   }
 
-  public ViewRangerData readFileInternal(File file)
+  @Override
+  public ImporterResult read(InputStream inputStream)
   {
+    CountingInputStream countingInputStream = new CountingInputStream(inputStream);
     try
     {
-      loadProgress.fileReadingStarted();
-      ViewRangerData readValue = mapper.readValue(file, ViewRangerData.class);
-      loadProgress.fileReadingFinished();
-      return readValue;
+      JsonParser parser = jsonFactory.createParser(countingInputStream);
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      return read(parser, () -> countingInputStream.isAtEnd() ? countingInputStream.getCount() : Long.MAX_VALUE);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
     }
-    catch (JsonMappingException e)
+  }
+
+  /**
+   * Reads the file.
+   *
+   * @param jsonParser the parser to read from, not null.
+   * @param inputLength returns the length of the input in bytes if it is known,
+   *        or Long.MAX_VALUE if the end of the input was not reached yet.
+   */
+  private ImporterResult read(JsonParser jsonParser, LongSupplier inputLength)
+  {
+    List<String> warnings = new ArrayList<>();
+    Data.Builder dataBuilder = new Data.Builder();
+    loadProgress.fileReadingStarted();
+    long startNanos = System.nanoTime();
+    try (JsonParser parser = jsonParser)
     {
-      // ViewRanger forgets closing tags when saving. Try adding them.
-      try
-      {
-        String fileContentAsString = FileUtils.readFileToString(file, StandardCharsets.ISO_8859_1);
-        fileContentAsString = fileContentAsString + "]}";
-        ViewRangerData readValue = mapper.readValue(fileContentAsString, ViewRangerData.class);
-        loadProgress.fileReadingFinished();
-        return readValue;
-      }
-      catch (IOException ee)
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      boolean pointsRead = false;
+      while (nextTokenOrEndOfData(parser, pointsRead, inputLength) == JsonToken.FIELD_NAME)
       {
-        loadProgress.finished();
-        throw new RuntimeException(ee);
+        String fieldName = parser.currentName();
+        JsonToken valueToken = parser.nextToken();
+        if ("points".equals(fieldName) && valueToken == JsonToken.START_ARRAY)
+        {
+          if (!readPoints(parser, inputLength, dataBuilder, warnings))
+          {
+            break;
+          }
+          pointsRead = true;
+        }
+        else
+        {
+          parser.skipChildren();
+        }
       }
     }
     catch (IOException e)
@@ -76,46 +111,162 @@ public class ViewRangerImporter implements Importer
       loadProgress.finished();
       throw new RuntimeException(e);
     }
+    loadProgress.fileReadingFinished(dataBuilder.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(dataBuilder.build(), warnings);
   }
 
-  public static final class ViewRangerData
+  /**
+   * Returns the next token, or null if the file ends after the points have been read.
+   */
+  private static JsonToken nextTokenOrEndOfData(JsonParser parser, boolean pointsRead, LongSupplier inputLength)
+      throws IOException
   {
-    public ViewRangerHeader header;
-
-    public List<ViewRangerPoint> points;
+    try
+    {
+      return parser.nextToken();
+    }
+    catch (JsonParseException e)
+    {
+      if (pointsRead && isEndOfInput(e, inputLength))
+      {
+        return null;
+      }
+      throw e;
+    }
   }
 
-  public static final class ViewRangerHeader
+  /**
+   * Checks whether a parse exception was caused by the end of the input
+   * within an unclosed array or object.
+   */
+  private static boolean isEndOfInput(JsonParseException e, LongSupplier inputLength)
   {
-    public int colour;
-
-    public String name;
-
-    public long lastModTime;
-
-    public int gridPositionCoordType;
+    return e.getLocation() != null && e.getLocation().getByteOffset() >= inputLength.getAsLong();
   }
 
-  public static final class ViewRangerPoint
+  /**
+   * Reads the points array.
+   *
+   * @param parser the parser, positioned at the start of the points array.
+   * @param inputLength returns the length of the input in bytes, if known.
+   *
+   * @return true if the array was read completely, false if the file ended within the array.
+   */
+  private boolean readPoints(JsonParser parser, LongSupplier inputLength, Data.Builder dataBuilder, List<String> warnings)
+      throws IOException
   {
-    public double lat;
-
-    public double lon;
-
-    public double map_x;
-
-    public double map_y;
-
-    public double alt;
-
-    public long time;
-
-    public Boolean from_gps;
-
-    public Boolean is_marker;
+    int pointCount = 0;
+    while (true)
+    {
+      JsonToken token;
+      try
+      {
+        token = parser.nextToken();
+      }
+      catch (JsonParseException e)
+      {
+        if (isEndOfInput(e, inputLength))
+        {
+          return false;
+        }
+        throw e;
+      }
+      if (token == JsonToken.END_ARRAY)
+      {
+        return true;
+      }
+      expect(parser, token, JsonToken.START_OBJECT);
+      DataPoint dataPoint;
+      try
+      {
+        dataPoint = readPoint(parser, dataBuilder.size());
+      }
+      catch (JsonParseException e)
+      {
+        if (isEndOfInput(e, inputLength))
+        {
+          warnings.add("point with index " + pointCount + " is cut off by the end of the file");
+          return false;
+        }
+        throw e;
+      }
+      if (dataPoint == null)
+      {
+        warnings.add("point with index " + pointCount + " has no position or time");
+      }
+      else
+      {
+        try
+        {
+          dataBuilder.add(dataPoint);
+        }
+        catch (RuntimeException e)
+        {
+          warnings.add("Could not add point with index " + pointCount + ":" + e.getMessage());
+        }
+      }
+      pointCount++;
+      if (pointCount % PROGRESS_INTERVAL == 0)
+      {
+        loadProgress.fileReadingProgress(pointCount);
+      }
+    }
+  }
 
-    public Boolean segment_start;
+  /**
+   * Reads one element of the points array.
+   *
+   * @param parser the parser, positioned at the start of the point object.
+   *        After the call, it is positioned at the end of the point object.
+   *
+   * @return the data point, or null if latitude, longitude or time are missing.
+   */
+  private DataPoint readPoint(JsonParser parser, int index) throws IOException
+  {
+    double latitude = Double.NaN;
+    double longitude = Double.NaN;
+    Long time = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME)
+    {
+      String fieldName = parser.currentName();
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.VALUE_NULL)
+      {
+        continue;
+      }
+      switch (fieldName)
+      {
+        case "lat":
+          latitude = parser.getValueAsDouble(Double.NaN);
+          break;
+        case "lon":
+          longitude = parser.getValueAsDouble(Double.NaN);
+          break;
+        case "time":
+          time = parser.getValueAsLong();
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    if (Double.isNaN(latitude) || Double.isNaN(longitude) || time == null)
+    {
+      return null;
+    }
+    DataPoint dataPoint = new DataPoint(index);
+    dataPoint.location = new Location();
+    dataPoint.location.latitude = latitude / 180d * Math.PI;
+    dataPoint.location.longitude = longitude / 180d * Math.PI;
+    dataPoint.time = time;
+    return dataPoint;
+  }
 
-    public Boolean has_position;
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+      throws JsonParseException
+  {
+    if (actual != expected)
+    {
+      throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+    }
   }
 }
@@ -0,0 +1,50 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+
+/**
+ * Provides the ViewRangerImporter for ViewRanger track files.
+ */
+public class ViewRangerImporterProvider implements ImporterProvider
+{
+  @Override
+  public String getName()
+  {
+    return "ViewRanger";
+  }
+
+  @Override
+  public List<String> getExtensions()
+  {
+    return Collections.singletonList(".vrtp");
+  }
+
+  @Override
+  public int probe(ByteBuffer header)
+  {
+    String text = ImporterProvider.toText(header);
+    if (ImporterProvider.firstNonWhitespace(text) != '{')
+    {
+      return NO_MATCH;
+    }
+    if (text.contains("\"gridPositionCoordType\"") || text.contains("\"from_gps\""))
+    {
+      return CERTAIN_MATCH;
+    }
+    if (text.contains("\"points\""))
+    {
+      return LIKELY_MATCH;
+    }
+    return POSSIBLE_MATCH;
+  }
+
+  @Override
+  public Importer create(LoadProgress loadProgress)
+  {
+    return new ViewRangerImporter(loadProgress);
+  }
+}
@@ -0,0 +1,668 @@
+package com.github.thomasfox.sailplotter.importer.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.thomasfox.sailplotter.exporter.SailplotWriter;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadCancelledException;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.importer.sailplot.SailplotFormat;
+import com.github.thomasfox.sailplotter.importer.sailplot.SailplotImporter;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
+import com.github.thomasfox.sailplotter.model.Data;
+
+/**
+ * Caches imported and analyzed data of raw track files in a directory,
+ * so that opening the same file again only needs to read a sailplot file.
+ *
+ * An entry is addressed by the SHA-256 hash of the raw file content, its extension
+ * (which may determine the importer), the sailplot format version and the versions of the analysis stages.
+ * Thus copies of a file share one entry, and changing the analysis invalidates all entries.
+ * The entry consists of a sailplot file with the analysis results and, if the import produced warnings,
+ * a text file with the warnings.
+ *
+ * To find the entry of a file without reading the file, the key is also recorded for the path of the file,
+ * together with the size and modification time of the file when it was hashed.
+ * If no key is recorded for the path, or the size or modification time of the file changed,
+ * the content is hashed and the entry is looked up by its content key (see lookUp()),
+ * so a copied, renamed or downloaded again file is not imported again.
+ * Entries are written by a background thread, so that storing an entry does not delay displaying the data.
+ *
+ * If the total size of the entries exceeds the size budget, the least recently used entries are deleted,
+ * together with the keys recorded for paths which refer to deleted entries.
+ * The last use is recorded as the modification time of the entry file, so it survives restarts.
+ *
+ * Failures of the cache are printed and treated as misses; they never prevent loading the raw file.
+ * This class is thread safe.
+ */
+public class AnalysisCache
+{
+  /** The system property containing the cache directory. */
+  public static final String DIRECTORY_PROPERTY = "sailplotter.cache.directory";
+
+  /** The system property containing the size budget in megabytes. 0 disables the cache. */
+  public static final String MAX_MEGABYTES_PROPERTY = "sailplotter.cache.maxMegabytes";
+
+  private static final long DEFAULT_MAX_MEGABYTES = 1024;
+
+  private static final String ENTRY_SUFFIX = ".sailplot";
+
+  private static final String WARNINGS_SUFFIX = ".warnings";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final String KNOWN_FILE_SUFFIX = ".file";
+
+  /** The number of bytes of a raw file passed to the digest at once. */
+  private static final int HASH_BUFFER_SIZE = 1 << 20;
+
+  private static AnalysisCache defaultCache;
+
+  private final File directory;
+
+  private final long maxBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  /** Writes the entries; created on first use. */
+  private ExecutorService writer;
+
+  /**
+   * Constructor.
+   *
+   * @param directory the directory to store the entries in, not null. Is created if it does not exist.
+   * @param maxBytes the size budget for all entries in bytes. If 0, nothing is cached.
+   */
+  public AnalysisCache(File directory, long maxBytes)
+  {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cache configured by the system properties DIRECTORY_PROPERTY and MAX_MEGABYTES_PROPERTY.
+   * The directory defaults to .sailplotter/cache in the user's home directory,
+   * the size budget to 1024 MB.
+   *
+   * @return the default cache, not null.
+   */
+  public static synchronized AnalysisCache getDefault()
+  {
+    if (defaultCache == null)
+    {
+      File directory = new File(System.getProperty(
+          DIRECTORY_PROPERTY,
+          new File(new File(System.getProperty("user.home"), ".sailplotter"), "cache").getPath()));
+      long maxMegabytes = Long.getLong(MAX_MEGABYTES_PROPERTY, DEFAULT_MAX_MEGABYTES);
+      defaultCache = new AnalysisCache(directory, maxMegabytes * 1_000_000L);
+    }
+    return defaultCache;
+  }
+
+  /**
+   * Returns whether the file should be cached.
+   * Sailplot files are not cached because reading them is as fast as reading an entry.
+   *
+   * @param file the file to check, not null.
+   *
+   * @return true if the cache is enabled and the file is no sailplot file, false otherwise.
+   */
+  public boolean isCacheable(File file)
+  {
+    return maxBytes > 0 && !getExtension(file).equals(ENTRY_SUFFIX);
+  }
+
+  /**
+   * Calculates the key of the entry for a raw file.
+   *
+   * @param file the raw file, not null.
+   * @param loadProgress checked for cancellation while the file is read, not null.
+   *
+   * @return the key, a hex string.
+   *
+   * @throws IOException if the file cannot be read.
+   */
+  public String getKey(File file, LoadProgress loadProgress) throws IOException
+  {
+    MessageDigest digest = newContentDigest();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+      while (channel.read(buffer) != -1)
+      {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+        loadProgress.checkCancelled();
+      }
+    }
+    digest.update(getExtension(file).getBytes(StandardCharsets.UTF_8));
+    digest.update(getAnalysisParameters().getBytes(StandardCharsets.UTF_8));
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Looks up the entry of a raw file and marks it as recently used.
+   * The entry is first looked up by the key recorded for the path of the file, see getKnownKey().
+   * If no key is recorded or its entry was evicted, the content of the file is hashed
+   * and the entry is looked up by the content key, so that copies of a file share one entry.
+   * A hit by content records the key for the path, so the file is not hashed when it is opened again.
+   * Each call counts as one hit or one miss in the statistics.
+   *
+   * @param file the raw file, not null.
+   * @param loadProgress checked for cancellation while the file is hashed,
+   *        and where to report the reading progress of the entry, not null.
+   *
+   * @return the result of the lookup, not null.
+   */
+  public Lookup lookUp(File file, LoadProgress loadProgress)
+  {
+    FileState fileState = FileState.of(file);
+    String knownKey = getKnownKey(file);
+    ImporterResult result = knownKey == null ? null : read(knownKey, loadProgress);
+    if (result != null)
+    {
+      hits.incrementAndGet();
+      return new Lookup(fileState, knownKey, result);
+    }
+    String key;
+    try
+    {
+      key = getKey(file, loadProgress);
+    }
+    catch (IOException e)
+    {
+      System.err.println("Could not hash " + file + " for the cache");
+      e.printStackTrace(System.err);
+      misses.incrementAndGet();
+      return new Lookup(fileState, null, null);
+    }
+    if (!key.equals(knownKey))
+    {
+      result = read(key, loadProgress);
+    }
+    if (result == null)
+    {
+      misses.incrementAndGet();
+      return new Lookup(fileState, key, null);
+    }
+    hits.incrementAndGet();
+    putKnownKey(file, fileState, key);
+    return new Lookup(fileState, key, result);
+  }
+
+  /**
+   * Returns the key recorded for a file by putInBackground(), without reading the file.
+   *
+   * @param file the raw file, not null.
+   *
+   * @return the key, or null if no key was recorded for the path of the file,
+   *         or if the size or modification time of the file changed since.
+   */
+  public String getKnownKey(File file)
+  {
+    File knownFile = getKnownFile(file);
+    try
+    {
+      if (!knownFile.isFile())
+      {
+        return null;
+      }
+      String recorded = new String(Files.readAllBytes(knownFile.toPath()), StandardCharsets.UTF_8);
+      String prefix = FileState.of(file) + " ";
+      if (!recorded.startsWith(prefix))
+      {
+        return null;
+      }
+      return recorded.substring(prefix.length());
+    }
+    catch (IOException e)
+    {
+      return null;
+    }
+  }
+
+  private File getKnownFile(File file)
+  {
+    MessageDigest digest = newContentDigest();
+    digest.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    digest.update(getAnalysisParameters().getBytes(StandardCharsets.UTF_8));
+    return new File(directory, toHex(digest.digest()) + KNOWN_FILE_SUFFIX);
+  }
+
+  private static String toHex(byte[] bytes)
+  {
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes)
+    {
+      result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return result.toString();
+  }
+
+  private static String getAnalysisParameters()
+  {
+    StringBuilder result = new StringBuilder("format:").append(SailplotFormat.VERSION);
+    for (AnalysisStage stage : AnalysisStage.values())
+    {
+      result.append(';').append(stage.name()).append(':').append(stage.getVersion());
+    }
+    return result.toString();
+  }
+
+  private static String getExtension(File file)
+  {
+    String name = file.getName();
+    int dotIndex = name.lastIndexOf('.');
+    return dotIndex == -1 ? "" : name.substring(dotIndex).toLowerCase(Locale.ROOT);
+  }
+
+  private static MessageDigest newContentDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Reads an entry and marks it as recently used.
+   *
+   * @param key the key of the entry, as returned by getKey().
+   * @param loadProgress where to report the reading progress, not null.
+   *
+   * @return the imported data with the restored analysis results and the import warnings,
+   *         or null if the cache contains no such entry.
+   */
+  public ImporterResult get(String key, LoadProgress loadProgress)
+  {
+    ImporterResult result = read(key, loadProgress);
+    if (result == null)
+    {
+      misses.incrementAndGet();
+    }
+    else
+    {
+      hits.incrementAndGet();
+    }
+    return result;
+  }
+
+  /**
+   * Reads an entry and marks it as recently used, without counting the lookup.
+   *
+   * @return the imported data with the restored analysis results and the import warnings,
+   *         or null if the cache contains no such entry.
+   */
+  private ImporterResult read(String key, LoadProgress loadProgress)
+  {
+    File entry = new File(directory, key + ENTRY_SUFFIX);
+    File warningsFile = new File(directory, key + WARNINGS_SUFFIX);
+    ImporterResult cached;
+    List<String> warnings;
+    synchronized (this)
+    {
+      if (!entry.isFile())
+      {
+        return null;
+      }
+      try
+      {
+        cached = new SailplotImporter(loadProgress).read(entry);
+        warnings = warningsFile.isFile()
+            ? Files.readAllLines(warningsFile.toPath(), StandardCharsets.UTF_8)
+            : new ArrayList<>();
+        entry.setLastModified(System.currentTimeMillis());
+      }
+      catch (LoadCancelledException e)
+      {
+        throw e;
+      }
+      catch (IOException | RuntimeException e)
+      {
+        System.err.println("Could not read cache entry " + entry + ", removing it");
+        e.printStackTrace(System.err);
+        entry.delete();
+        warningsFile.delete();
+        return null;
+      }
+    }
+    return new ImporterResult(cached.getData(), warnings);
+  }
+
+  /**
+   * Stores an entry, then deletes the least recently used entries until the size budget is met.
+   * The entry is written to a temporary file first, so that readers never see partial entries.
+   *
+   * @param key the key of the entry, as returned by getKey().
+   * @param data the imported and analyzed data, not null.
+   * @param warnings the warnings of the import, not null.
+   */
+  public void put(String key, Data data, List<String> warnings)
+  {
+    File entry = new File(directory, key + ENTRY_SUFFIX);
+    File warningsFile = new File(directory, key + WARNINGS_SUFFIX);
+    try
+    {
+      Files.createDirectories(directory.toPath());
+      Path tempFile = Files.createTempFile(directory.toPath(), key, TEMP_SUFFIX);
+      try
+      {
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile)))
+        {
+          new SailplotWriter().write(data, outputStream);
+        }
+        synchronized (this)
+        {
+          if (warnings.isEmpty())
+          {
+            Files.deleteIfExists(warningsFile.toPath());
+          }
+          else
+          {
+            Files.write(warningsFile.toPath(), warnings, StandardCharsets.UTF_8);
+          }
+          Files.move(tempFile, entry.toPath(),
+              StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          evict();
+        }
+      }
+      finally
+      {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+    catch (IOException | RuntimeException e)
+    {
+      System.err.println("Could not write cache entry " + entry);
+      e.printStackTrace(System.err);
+    }
+  }
+
+  /**
+   * Stores an entry in a background thread, as put() does,
+   * and records the key for the path of the raw file, see getKnownKey().
+   * The data is read by the background thread, so it must not be modified afterwards,
+   * and all its caches must be built, see Data.fillCaches().
+   *
+   * @param file the raw file, not null.
+   * @param fileState the state of the raw file before it was read, not null.
+   * @param key the key of the entry, as returned by getKey().
+   * @param data the imported and analyzed data, not null.
+   * @param warnings the warnings of the import, not null.
+   *
+   * @return the completion of the write, not null.
+   */
+  public Future<?> putInBackground(File file, FileState fileState, String key, Data data, List<String> warnings)
+  {
+    return getWriter().submit(() ->
+    {
+      put(key, data, warnings);
+      putKnownKey(file, fileState, key);
+    });
+  }
+
+  /**
+   * Records the key of the entry for the path of a raw file, see getKnownKey().
+   */
+  private void putKnownKey(File file, FileState fileState, String key)
+  {
+    File knownFile = getKnownFile(file);
+    try
+    {
+      Files.createDirectories(directory.toPath());
+      synchronized (this)
+      {
+        // the writer thread must not prune a partially written file
+        Files.write(knownFile.toPath(), (fileState + " " + key).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println("Could not write cache file " + knownFile);
+      e.printStackTrace(System.err);
+    }
+  }
+
+  private synchronized ExecutorService getWriter()
+  {
+    if (writer == null)
+    {
+      writer = Executors.newSingleThreadExecutor(runnable ->
+      {
+        Thread result = new Thread(runnable, "analysis cache writer");
+        result.setDaemon(true);
+        return result;
+      });
+    }
+    return writer;
+  }
+
+  /**
+   * Deletes the least recently used entries until the total size of all entries fits into the size budget,
+   * and deletes the keys recorded for paths whose entry does not exist any more.
+   */
+  private void evict() throws IOException
+  {
+    File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+    if (entries == null)
+    {
+      return;
+    }
+    deleteEntries(entries);
+    deleteKnownFilesOfMissingEntries();
+  }
+
+  private void deleteEntries(File[] entries) throws IOException
+  {
+    List<EntryFile> entryFiles = new ArrayList<>();
+    long totalBytes = 0;
+    for (File entry : entries)
+    {
+      EntryFile entryFile = new EntryFile(entry);
+      entryFiles.add(entryFile);
+      totalBytes += entryFile.size;
+    }
+    entryFiles.sort(Comparator.comparing((EntryFile entryFile) -> entryFile.lastUsed));
+    for (EntryFile entryFile : entryFiles)
+    {
+      if (totalBytes <= maxBytes)
+      {
+        return;
+      }
+      Files.deleteIfExists(entryFile.entry.toPath());
+      Files.deleteIfExists(entryFile.warningsFile.toPath());
+      totalBytes -= entryFile.size;
+      evictions.incrementAndGet();
+    }
+  }
+
+  /**
+   * Deletes the keys recorded for paths which refer to entries which were evicted or could not be read.
+   */
+  private void deleteKnownFilesOfMissingEntries() throws IOException
+  {
+    File[] knownFiles = directory.listFiles((dir, name) -> name.endsWith(KNOWN_FILE_SUFFIX));
+    if (knownFiles == null)
+    {
+      return;
+    }
+    for (File knownFile : knownFiles)
+    {
+      String recorded = new String(Files.readAllBytes(knownFile.toPath()), StandardCharsets.UTF_8);
+      String key = recorded.substring(recorded.lastIndexOf(' ') + 1);
+      if (!new File(directory, key + ENTRY_SUFFIX).isFile())
+      {
+        Files.deleteIfExists(knownFile.toPath());
+      }
+    }
+  }
+
+  /**
+   * Returns how often the cache has been used since this object was created.
+   *
+   * @return the statistics, not null.
+   */
+  public Statistics getStatistics()
+  {
+    File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+    long totalBytes = entries == null
+        ? 0
+        : Arrays.stream(entries).mapToLong(File::length).sum();
+    return new Statistics(hits.get(), misses.get(), evictions.get(),
+        entries == null ? 0 : entries.length, totalBytes);
+  }
+
+  /**
+   * An entry file with the size of the entry and the time of its last use.
+   * The attributes are read once, so that sorting sees consistent values.
+   */
+  private class EntryFile
+  {
+    private final File entry;
+
+    private final File warningsFile;
+
+    private final long size;
+
+    private final FileTime lastUsed;
+
+    private EntryFile(File entry) throws IOException
+    {
+      this.entry = entry;
+      String name = entry.getName();
+      this.warningsFile = new File(directory,
+          name.substring(0, name.length() - ENTRY_SUFFIX.length()) + WARNINGS_SUFFIX);
+      this.size = entry.length() + warningsFile.length();
+      this.lastUsed = Files.getLastModifiedTime(entry.toPath());
+    }
+  }
+
+  /**
+   * The size and modification time of a raw file, which identify its content for getKnownKey().
+   */
+  public static final class FileState
+  {
+    private final long length;
+
+    private final long lastModified;
+
+    private FileState(long length, long lastModified)
+    {
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the current state of a file.
+     * Should be called before the file is read, so that changes while reading are detected later.
+     *
+     * @param file the file, not null.
+     *
+     * @return the state, not null.
+     */
+    public static FileState of(File file)
+    {
+      return new FileState(file.length(), file.lastModified());
+    }
+
+    @Override
+    public String toString()
+    {
+      return length + " " + lastModified;
+    }
+  }
+
+  /**
+   * The result of looking up the entry of a raw file, see lookUp().
+   */
+  public static final class Lookup
+  {
+    /** The state of the raw file before it was hashed, not null. */
+    public final FileState fileState;
+
+    /** The key of the entry of the raw file, or null if the file could not be hashed. */
+    public final String key;
+
+    /** The cached data and warnings, or null if the cache contains no entry for the file. */
+    public final ImporterResult result;
+
+    private Lookup(FileState fileState, String key, ImporterResult result)
+    {
+      this.fileState = fileState;
+      this.key = key;
+      this.result = result;
+    }
+  }
+
+  /**
+   * The usage statistics of a cache.
+   */
+  public static class Statistics
+  {
+    public final long hits;
+
+    public final long misses;
+
+    public final long evictions;
+
+    public final int entryCount;
+
+    public final long totalBytes;
+
+    public Statistics(long hits, long misses, long evictions, int entryCount, long totalBytes)
+    {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.entryCount = entryCount;
+      this.totalBytes = totalBytes;
+    }
+
+    /**
+     * @return the fraction of lookups which were hits, or 0 if there were no lookups.
+     */
+    public double getHitRatio()
+    {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0d : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+          + entryCount + " entries with " + totalBytes / 1_000_000L + " MB";
+    }
+  }
+}
@@ -2,10 +2,14 @@ package com.github.thomasfox.sailplotter.importer.saillogger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.github.thomasfox.sailplotter.Constants;
 import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
 import com.github.thomasfox.sailplotter.importer.Importer;
@@ -16,9 +20,19 @@ import com.github.thomasfox.sailplotter.model.DataPoint;
 import com.github.thomasfox.sailplotter.model.Location;
 import com.github.thomasfox.sailplotter.model.MagneticField;
 
+/**
+ * Reads saillog files.
+ *
+ * The file is read token by token, and each record of the <code>track</code> array
+ * is converted directly into a data point, so no intermediate object model of the file is built.
+ * The <code>start</code> and <code>end</code> objects and unknown fields are skipped.
+ */
 public class SailDataImporter implements Importer
 {
-  private final ObjectMapper mapper = new ObjectMapper();
+  /** After how many records the progress is reported. */
+  private static final int PROGRESS_INTERVAL = 10_000;
+
+  private final JsonFactory jsonFactory = new JsonFactory();
 
   private final LoadProgress loadProgress;
 
@@ -30,63 +44,299 @@ public class SailDataImporter implements Importer
   @Override
   public ImporterResult read(File file)
   {
-    Data data = new Data();
+    try
+    {
+      JsonParser parser = jsonFactory.createParser(file);
+      loadProgress.readingBytes(file.length(), () -> parser.currentLocation().getByteOffset());
+      return read(parser);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public ImporterResult read(InputStream inputStream)
+  {
+    try
+    {
+      JsonParser parser = jsonFactory.createParser(inputStream);
+      parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+      return read(parser);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private ImporterResult read(JsonParser jsonParser)
+  {
     List<String> warningList = new ArrayList<>();
-    SailLoggerData rawData = readFileInternal(file);
-    int index = 0;
-    for (SailLoggerTrackPoint rawPoint : rawData.track)
+    Data.Builder dataBuilder = new Data.Builder();
+    loadProgress.fileReadingStarted();
+    long startNanos = System.nanoTime();
+    try (JsonParser parser = jsonParser)
+    {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME)
+      {
+        String fieldName = parser.currentName();
+        JsonToken valueToken = parser.nextToken();
+        if ("track".equals(fieldName) && valueToken == JsonToken.START_ARRAY)
+        {
+          readTrack(parser, dataBuilder, warningList);
+        }
+        else
+        {
+          parser.skipChildren();
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      loadProgress.finished();
+      throw new RuntimeException(e);
+    }
+    loadProgress.fileReadingFinished(dataBuilder.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(dataBuilder.build(), warningList);
+  }
+
+  private void readTrack(JsonParser parser, Data.Builder dataBuilder, List<String> warningList)
+      throws IOException
+  {
+    TrackPointReader pointReader = new TrackPointReader();
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY)
     {
-      if (!rawPoint.hasGpsData() && !rawPoint.hasCompassData() && !rawPoint.hasAccelerationData())
+      expect(parser, token, JsonToken.START_OBJECT);
+      pointReader.read(parser);
+      DataPoint dataPoint = pointReader.toDataPoint(dataBuilder.size());
+      if (dataPoint == null)
       {
         continue;
       }
-      DataPoint dataPoint = new DataPoint(index);
-      if (rawPoint.hasGpsData())
+      try
       {
-        dataPoint.location = new Location();
-        dataPoint.location.latitude = rawPoint.locLat / 180d * Math.PI;
-        dataPoint.location.longitude = rawPoint.locLong / 180d * Math.PI;
-        dataPoint.location.velocity = rawPoint.locVel / Constants.NAUTICAL_MILE * 3600d;
-        dataPoint.location.bearing = rawPoint.locBear / 180d * Math.PI;
-        dataPoint.location.satelliteTime = rawPoint.locT;
-        dataPoint.time = rawPoint.locDevT;
+        dataBuilder.add(dataPoint);
       }
-      if (rawPoint.hasCompassData())
+      catch (RuntimeException e)
       {
-        dataPoint.magneticField = new MagneticField(rawPoint.magX, rawPoint.magY, rawPoint.magZ);
-        dataPoint.time = rawPoint.magT;
+        warningList.add("Could not add point with index " + dataPoint.index + ":" + e.getMessage());
+        continue;
       }
-      if (rawPoint.hasAccelerationData())
+      if (dataBuilder.size() % PROGRESS_INTERVAL == 0)
       {
-        dataPoint.acceleration = new Acceleration(rawPoint.accX, rawPoint.accY, rawPoint.accZ);
-        dataPoint.time = rawPoint.accT;
+        loadProgress.fileReadingProgress(dataBuilder.size());
       }
-      try
+    }
+  }
+
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+      throws JsonParseException
+  {
+    if (actual != expected)
+    {
+      throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+    }
+  }
+
+  /**
+   * Reads the fields of one record of the track array into primitive fields.
+   * The instance is reused for all records, the values of the previous record
+   * are cleared when the next record is read.
+   * Absent times are stored as NO_TIME and absent numbers as NaN.
+   */
+  static final class TrackPointReader
+  {
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private long locT;
+    private double locLat;
+    private double locLong;
+    private float locBear;
+    private float locVel;
+    private long locDevT;
+    private long magT;
+    private double magX;
+    private double magY;
+    private double magZ;
+    private long accT;
+    private double accX;
+    private double accY;
+    private double accZ;
+
+    /**
+     * Reads one record.
+     *
+     * @param parser the parser, positioned at the START_OBJECT token of the record.
+     *        After the call, the parser is positioned at the corresponding END_OBJECT token.
+     *
+     * @throws IOException if reading fails or the record is malformed.
+     */
+    void read(JsonParser parser) throws IOException
+    {
+      clear();
+      while (parser.nextToken() == JsonToken.FIELD_NAME)
       {
-        data.add(dataPoint);
+        String fieldName = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL)
+        {
+          continue;
+        }
+        switch (fieldName)
+        {
+          case "locT":
+            locT = readLong(parser);
+            break;
+          case "locLat":
+            locLat = readDouble(parser);
+            break;
+          case "locLong":
+            locLong = readDouble(parser);
+            break;
+          case "locBear":
+            locBear = readFloat(parser);
+            break;
+          case "locVel":
+            locVel = readFloat(parser);
+            break;
+          case "locDevT":
+            locDevT = readLong(parser);
+            break;
+          case "magT":
+            magT = readLong(parser);
+            break;
+          case "magX":
+            magX = readDouble(parser);
+            break;
+          case "magY":
+            magY = readDouble(parser);
+            break;
+          case "magZ":
+            magZ = readDouble(parser);
+            break;
+          case "accT":
+            accT = readLong(parser);
+            break;
+          case "accX":
+            accX = readDouble(parser);
+            break;
+          case "accY":
+            accY = readDouble(parser);
+            break;
+          case "accZ":
+            accZ = readDouble(parser);
+            break;
+          default:
+            parser.skipChildren();
+        }
       }
-      catch (RuntimeException e)
+    }
+
+    private static long readLong(JsonParser parser) throws IOException
+    {
+      if (parser.currentToken() == JsonToken.VALUE_STRING)
       {
-        warningList.add("Could not add point with index " + index + ":" + e.getMessage());
+        return Long.parseLong(parser.getText().trim());
       }
-      index++;
+      return parser.getLongValue();
     }
-    return new ImporterResult(data, warningList);
-  }
 
-  public SailLoggerData readFileInternal(File file)
-  {
-    try
+    private static double readDouble(JsonParser parser) throws IOException
     {
-      loadProgress.fileReadingStarted();
-      SailLoggerData readValue = mapper.readValue(file, SailLoggerData.class);
-      loadProgress.fileReadingFinished();
-      return readValue;
+      if (parser.currentToken() == JsonToken.VALUE_STRING)
+      {
+        return Double.parseDouble(parser.getText());
+      }
+      return parser.getDoubleValue();
     }
-    catch (IOException e)
+
+    private static float readFloat(JsonParser parser) throws IOException
     {
-      loadProgress.finished();
-      throw new RuntimeException(e);
+      if (parser.currentToken() == JsonToken.VALUE_STRING)
+      {
+        return Float.parseFloat(parser.getText());
+      }
+      return parser.getFloatValue();
+    }
+
+    private void clear()
+    {
+      locT = NO_TIME;
+      locLat = Double.NaN;
+      locLong = Double.NaN;
+      locBear = Float.NaN;
+      locVel = Float.NaN;
+      locDevT = NO_TIME;
+      magT = NO_TIME;
+      magX = Double.NaN;
+      magY = Double.NaN;
+      magZ = Double.NaN;
+      accT = NO_TIME;
+      accX = Double.NaN;
+      accY = Double.NaN;
+      accZ = Double.NaN;
+    }
+
+    boolean hasGpsData()
+    {
+      return (locT != NO_TIME && !Double.isNaN(locLat) && !Double.isNaN(locLong));
+    }
+
+    boolean hasCompassData()
+    {
+      return (!Double.isNaN(magX) && !Double.isNaN(magY) && !Double.isNaN(magZ) && magT != NO_TIME);
+    }
+
+    boolean hasAccelerationData()
+    {
+      return (!Double.isNaN(accX) && !Double.isNaN(accY) && !Double.isNaN(accZ) && accT != NO_TIME);
+    }
+
+    /**
+     * Converts the last read record into a data point.
+     *
+     * @param index the index of the created point.
+     *
+     * @return the data point, or null if the record contains no usable data.
+     */
+    DataPoint toDataPoint(int index)
+    {
+      if (!hasGpsData() && !hasCompassData() && !hasAccelerationData())
+      {
+        return null;
+      }
+      DataPoint dataPoint = new DataPoint(index);
+      if (hasGpsData())
+      {
+        dataPoint.location = new Location();
+        dataPoint.location.latitude = locLat / 180d * Math.PI;
+        dataPoint.location.longitude = locLong / 180d * Math.PI;
+        if (!Float.isNaN(locVel))
+        {
+          dataPoint.location.velocity = locVel / Constants.NAUTICAL_MILE * 3600d;
+        }
+        if (!Float.isNaN(locBear))
+        {
+          dataPoint.location.bearing = locBear / 180d * Math.PI;
+        }
+        dataPoint.location.satelliteTime = locT;
+        dataPoint.time = locDevT == NO_TIME ? null : locDevT;
+      }
+      if (hasCompassData())
+      {
+        dataPoint.magneticField = new MagneticField(magX, magY, magZ);
+        dataPoint.time = magT;
+      }
+      if (hasAccelerationData())
+      {
+        dataPoint.acceleration = new Acceleration(accX, accY, accZ);
+        dataPoint.time = accT;
+      }
+      return dataPoint;
     }
   }
 }
@@ -0,0 +1,53 @@
+package com.github.thomasfox.sailplotter.importer.saillogger;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.Importer;
+import com.github.thomasfox.sailplotter.importer.ImporterProvider;
+
+/**
+ * Provides the SailDataImporter for saillog files.
+ */
+public class SailDataImporterProvider implements ImporterProvider
+{
+  @Override
+  public String getName()
+  {
+    return "saillog";
+  }
+
+  @Override
+  public List<String> getExtensions()
+  {
+    return Arrays.asList(".saillog", ".saildata");
+  }
+
+  @Override
+  public int probe(ByteBuffer header)
+  {
+    String text = ImporterProvider.toText(header);
+    if (ImporterProvider.firstNonWhitespace(text) != '{')
+    {
+      return NO_MATCH;
+    }
+    if (text.contains("\"loggedBy\"") || text.contains("\"locDevT\"")
+        || text.contains("\"magT\"") || text.contains("\"accT\""))
+    {
+      return CERTAIN_MATCH;
+    }
+    if (text.contains("\"track\""))
+    {
+      return LIKELY_MATCH;
+    }
+    return POSSIBLE_MATCH;
+  }
+
+  @Override
+  public Importer create(LoadProgress loadProgress)
+  {
+    return new SailDataImporter(loadProgress);
+  }
+}
@@ -0,0 +1,212 @@
+package com.github.thomasfox.sailplotter.importer.saillogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+
+/**
+ * Reads a saillog file which is still being written.
+ *
+ * Each call of readAppended() reads only the bytes appended to the file since the last call
+ * and feeds them to a non-blocking JSON parser, which keeps its state between the calls.
+ * The tokens of a record of the <code>track</code> array are buffered until the record is complete,
+ * and are then converted to a data point in the same way as by SailDataImporter.
+ * A missing end of the file is therefore no error.
+ *
+ * This class is not thread safe.
+ */
+public class SailDataTailReader implements Closeable
+{
+  private static final int READ_BUFFER_SIZE = 1 << 16;
+
+  /** The nesting depth of the records in the track array. */
+  private static final int RECORD_DEPTH = 2;
+
+  private final File file;
+
+  private final FileChannel channel;
+
+  private final JsonParser parser;
+
+  private final ByteArrayFeeder feeder;
+
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+  private final SailDataImporter.TrackPointReader pointReader = new SailDataImporter.TrackPointReader();
+
+  private final List<String> warnings = new ArrayList<>();
+
+  private long position;
+
+  /** The nesting depth of the JSON structure after the last token. */
+  private int depth;
+
+  private String rootFieldName;
+
+  private boolean inTrack;
+
+  /** The tokens of the current record, or null if no record is being read. */
+  private TokenBuffer record;
+
+  private int recordIndex;
+
+  private Long lastTime;
+
+  public SailDataTailReader(File file)
+  {
+    this.file = file;
+    try
+    {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      parser = new JsonFactory().createNonBlockingByteArrayParser();
+      feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Reads the records appended to the file since the last call.
+   *
+   * @return the data points of all records which were completed since the last call,
+   *         ordered in time, not null.
+   *         Records which are not complete yet are returned by a later call.
+   */
+  public List<DataPoint> readAppended()
+  {
+    List<DataPoint> result = new ArrayList<>();
+    try
+    {
+      long size = channel.size();
+      if (size < position)
+      {
+        throw new IOException("File " + file + " was truncated");
+      }
+      while (position < size)
+      {
+        readBuffer.clear();
+        int read = channel.read(readBuffer, position);
+        if (read <= 0)
+        {
+          break;
+        }
+        position += read;
+        feeder.feedInput(readBuffer.array(), 0, read);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null)
+        {
+          handleToken(token, result);
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+    return result;
+  }
+
+  private void handleToken(JsonToken token, List<DataPoint> result) throws IOException
+  {
+    if (record == null && inTrack && depth == RECORD_DEPTH && token == JsonToken.START_OBJECT)
+    {
+      record = new TokenBuffer(parser);
+    }
+    if (record != null)
+    {
+      record.copyCurrentEvent(parser);
+    }
+    if (token.isStructStart())
+    {
+      depth++;
+      if (depth == RECORD_DEPTH && token == JsonToken.START_ARRAY && "track".equals(rootFieldName))
+      {
+        inTrack = true;
+      }
+    }
+    else if (token.isStructEnd())
+    {
+      depth--;
+      if (record != null && depth == RECORD_DEPTH)
+      {
+        recordCompleted(result);
+      }
+      else if (depth < RECORD_DEPTH)
+      {
+        inTrack = false;
+      }
+    }
+    else if (token == JsonToken.FIELD_NAME && depth == 1)
+    {
+      rootFieldName = parser.currentName();
+    }
+  }
+
+  private void recordCompleted(List<DataPoint> result)
+  {
+    try (JsonParser recordParser = record.asParser())
+    {
+      recordParser.nextToken();
+      pointReader.read(recordParser);
+      DataPoint dataPoint = pointReader.toDataPoint(recordIndex);
+      if (dataPoint != null)
+      {
+        if (lastTime != null && dataPoint.time != null && dataPoint.time < lastTime)
+        {
+          warnings.add("Could not add point with index " + recordIndex + ":"
+              + " Points must be ordered in time. Newly added point has time " + dataPoint.time
+              + " while last point in list has time " + lastTime);
+        }
+        else
+        {
+          result.add(dataPoint);
+          if (dataPoint.time != null)
+          {
+            lastTime = dataPoint.time;
+          }
+        }
+      }
+    }
+    catch (IOException | RuntimeException e)
+    {
+      warnings.add("bad record with index " + recordIndex + ": " + e.getMessage());
+    }
+    record = null;
+    recordIndex++;
+  }
+
+  /**
+   * @return the warnings for all records read so far, not null.
+   */
+  public List<String> getWarnings()
+  {
+    return warnings;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      parser.close();
+    }
+    finally
+    {
+      channel.close();
+    }
+  }
+}
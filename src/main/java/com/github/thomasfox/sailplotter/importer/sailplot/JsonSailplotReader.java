@@ -0,0 +1,264 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.model.Acceleration;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.MagneticField;
+import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
+import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
+
+/**
+ * Reads sailplot files saved as JSON by older versions of this program,
+ * which serialized the data with an ObjectMapper.
+ * Files exported by the JsonExporter with the RAW or RAW_AND_DERIVED profile have the same structure
+ * and can also be read.
+ *
+ * Only the recorded values are read, the derived values are recalculated by the analysis after loading.
+ * Interpolated locations, which older versions stored in points without a measured location, are dropped.
+ */
+class JsonSailplotReader
+{
+  /** After how many points the progress is reported. */
+  private static final int PROGRESS_INTERVAL = 10_000;
+
+  private final LoadProgress loadProgress;
+
+  JsonSailplotReader(LoadProgress loadProgress)
+  {
+    this.loadProgress = loadProgress;
+  }
+
+  /**
+   * Reads the data.
+   *
+   * @param jsonParser the parser to read from, positioned before the start of the file. Is closed after reading.
+   *
+   * @return the read data and warnings, not null.
+   *
+   * @throws IOException if reading fails or the file is malformed.
+   */
+  ImporterResult read(JsonParser jsonParser) throws IOException
+  {
+    long startNanos = System.nanoTime();
+    List<String> warnings = new ArrayList<>();
+    Data.Builder dataBuilder = new Data.Builder();
+    String comment = null;
+    double averageWindBearing = 0d;
+    CoordinateSystem deviceOrientation = null;
+    CoordinateSystem boatCoordinates = null;
+    try (JsonParser parser = jsonParser)
+    {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME)
+      {
+        String fieldName = parser.currentName();
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL)
+        {
+          continue;
+        }
+        switch (fieldName)
+        {
+          case "comment":
+            comment = parser.getText();
+            break;
+          case "averageWindBearing":
+            averageWindBearing = parser.getDoubleValue();
+            break;
+          case "deviceOrientation":
+            deviceOrientation = readCoordinateSystem(parser);
+            break;
+          case "boatCoordinatesInDeviceCoordinates":
+            boatCoordinates = readCoordinateSystem(parser);
+            break;
+          case "allPoints":
+            expect(parser, token, JsonToken.START_ARRAY);
+            readPoints(parser, dataBuilder, warnings);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+    Data data = dataBuilder.build();
+    data.comment = comment;
+    data.deviceOrientation = deviceOrientation;
+    data.setAverageWindBearing(averageWindBearing);
+    data.setBoatCoordinatesInDeviceCoordinates(boatCoordinates);
+    loadProgress.fileReadingFinished(data.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(data, warnings);
+  }
+
+  private void readPoints(JsonParser parser, Data.Builder dataBuilder, List<String> warnings) throws IOException
+  {
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY)
+    {
+      expect(parser, token, JsonToken.START_OBJECT);
+      DataPoint point = readPoint(parser, dataBuilder.size());
+      try
+      {
+        dataBuilder.add(point);
+      }
+      catch (RuntimeException e)
+      {
+        warnings.add("Could not add point with index " + point.index + ":" + e.getMessage());
+        continue;
+      }
+      if (dataBuilder.size() % PROGRESS_INTERVAL == 0)
+      {
+        loadProgress.fileReadingProgress(dataBuilder.size());
+      }
+    }
+  }
+
+  private DataPoint readPoint(JsonParser parser, int index) throws IOException
+  {
+    DataPoint result = new DataPoint(index);
+    while (parser.nextToken() == JsonToken.FIELD_NAME)
+    {
+      String fieldName = parser.currentName();
+      if (parser.nextToken() == JsonToken.VALUE_NULL)
+      {
+        continue;
+      }
+      switch (fieldName)
+      {
+        case "time":
+          result.time = parser.getLongValue();
+          break;
+        case "location":
+          result.location = readLocation(parser);
+          break;
+        case "magneticField":
+          double[] magneticField = readVector(parser);
+          result.magneticField = new MagneticField(magneticField[0], magneticField[1], magneticField[2]);
+          break;
+        case "acceleration":
+          double[] acceleration = readVector(parser);
+          result.acceleration = new Acceleration(acceleration[0], acceleration[1], acceleration[2]);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the location, or null if the location is interpolated.
+   */
+  private Location readLocation(JsonParser parser) throws IOException
+  {
+    expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+    Location result = new Location();
+    while (parser.nextToken() == JsonToken.FIELD_NAME)
+    {
+      String fieldName = parser.currentName();
+      if (parser.nextToken() == JsonToken.VALUE_NULL)
+      {
+        continue;
+      }
+      switch (fieldName)
+      {
+        case "latitude":
+          result.latitude = parser.getDoubleValue();
+          break;
+        case "longitude":
+          result.longitude = parser.getDoubleValue();
+          break;
+        case "altitude":
+          result.altitude = parser.getDoubleValue();
+          break;
+        case "velocity":
+          result.velocity = parser.getDoubleValue();
+          break;
+        case "bearing":
+          result.bearing = parser.getDoubleValue();
+          break;
+        case "satelliteTime":
+          result.satelliteTime = parser.getLongValue();
+          break;
+        case "interpolated":
+          result.interpolated = parser.getBooleanValue();
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return result.interpolated ? null : result;
+  }
+
+  private CoordinateSystem readCoordinateSystem(JsonParser parser) throws IOException
+  {
+    expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+    ThreeDimVector[] axes = new ThreeDimVector[3];
+    while (parser.nextToken() == JsonToken.FIELD_NAME)
+    {
+      String fieldName = parser.currentName();
+      int axis = fieldName.length() == 1 ? "xyz".indexOf(fieldName) : -1;
+      if (parser.nextToken() == JsonToken.VALUE_NULL)
+      {
+        continue;
+      }
+      if (axis == -1)
+      {
+        parser.skipChildren();
+        continue;
+      }
+      double[] vector = readVector(parser);
+      axes[axis] = new ThreeDimVector(vector[0], vector[1], vector[2]);
+    }
+    return new CoordinateSystem(axes[0], axes[1], axes[2]);
+  }
+
+  /**
+   * Reads the x, y and z fields of an object, ignoring other fields.
+   *
+   * @return x, y and z, not null.
+   */
+  private double[] readVector(JsonParser parser) throws IOException
+  {
+    expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+    double[] result = new double[3];
+    while (parser.nextToken() == JsonToken.FIELD_NAME)
+    {
+      String fieldName = parser.currentName();
+      parser.nextToken();
+      switch (fieldName)
+      {
+        case "x":
+          result[0] = parser.getDoubleValue();
+          break;
+        case "y":
+          result[1] = parser.getDoubleValue();
+          break;
+        case "z":
+          result[2] = parser.getDoubleValue();
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return result;
+  }
+
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+      throws JsonParseException
+  {
+    if (actual != expected)
+    {
+      throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+    }
+  }
+}
@@ -0,0 +1,602 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
+import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
+
+/**
+ * Gives access to the channels of a sailplot file, decoding each channel only when it is first requested.
+ *
+ * Opening a file maps it into memory and reads the header block and the positions of the other blocks,
+ * so it takes the same time regardless of the file size.
+ * The content of a block is read when the corresponding channel is first requested,
+ * so the pages of the blocks of other channels are never touched.
+ * The location, magnetic field and acceleration channels need the point flags,
+ * so requesting any of them also decodes the times channel.
+ * Heel and roll are derived from the acceleration channel and the boat coordinates in the header.
+ *
+ * The decoded channels are cached. This class is not thread safe.
+ */
+public class MappedSailplotReader
+{
+  /** Stored in the time arrays if a point or location has no time. */
+  public static final long NO_TIME = Long.MIN_VALUE;
+
+  /**
+   * The channels which can be requested.
+   */
+  public enum Channel
+  {
+    TIMES, LOCATIONS, MAGNETIC_FIELDS, ACCELERATIONS, HEEL_AND_ROLL
+  }
+
+  private final ByteBuffer buffer;
+
+  /** The start positions of the known blocks in the buffer, by block type. */
+  private final Map<Integer, Integer> blockStarts = new HashMap<>();
+
+  /** The lengths of the known blocks, by block type. */
+  private final Map<Integer, Integer> blockLengths = new HashMap<>();
+
+  private final Map<Channel, Object> materialized = new EnumMap<>(Channel.class);
+
+  private String comment;
+
+  private double averageWindBearing;
+
+  private CoordinateSystem deviceOrientation;
+
+  private CoordinateSystem boatCoordinates;
+
+  private int pointCount;
+
+  private int version;
+
+  private byte[] pointFlags;
+
+  /**
+   * Constructor.
+   *
+   * @param buffer the content of a sailplot file, from its position to its limit, not null.
+   *        The buffer is not modified.
+   *
+   * @throws IOException if the content is not a readable sailplot file.
+   */
+  public MappedSailplotReader(ByteBuffer buffer) throws IOException
+  {
+    this.buffer = buffer.slice();
+    try
+    {
+      indexBlocks();
+    }
+    catch (BufferUnderflowException e)
+    {
+      throw new IOException("Unexpected end of sailplot file", e);
+    }
+  }
+
+  /**
+   * Maps a file into memory.
+   *
+   * @param file the file to map, not null.
+   *
+   * @return the reader for the file, not null.
+   *
+   * @throws IOException if the file cannot be mapped or is not a readable sailplot file.
+   */
+  public static MappedSailplotReader map(File file) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      if (channel.size() > Integer.MAX_VALUE)
+      {
+        throw new IOException("File " + file + " is too large to be mapped");
+      }
+      return new MappedSailplotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  private void indexBlocks() throws IOException
+  {
+    ByteBuffer input = buffer.duplicate();
+    byte[] magic = new byte[SailplotFormat.MAGIC.length];
+    input.get(magic);
+    if (!Arrays.equals(magic, SailplotFormat.MAGIC))
+    {
+      throw new IOException("Not a sailplot file");
+    }
+    long fileVersion = readVarLong(input);
+    if (fileVersion > SailplotFormat.VERSION)
+    {
+      throw new IOException("Unsupported sailplot format version " + fileVersion
+          + ", the highest supported version is " + SailplotFormat.VERSION);
+    }
+    version = (int) fileVersion;
+    int blockType;
+    while ((blockType = (int) readVarLong(input)) != SailplotFormat.BLOCK_END)
+    {
+      long length = readVarLong(input);
+      if (length > input.remaining())
+      {
+        throw new IOException("Block of type " + blockType + " is longer than the rest of the file");
+      }
+      // blocks of unknown type are from a newer minor revision of the format and are ignored
+      blockStarts.put(blockType, input.position());
+      blockLengths.put(blockType, (int) length);
+      input.position(input.position() + (int) length);
+    }
+    readHeader();
+    ByteBuffer points = block(SailplotFormat.BLOCK_POINTS);
+    pointCount = points == null ? 0 : (int) readVarLong(points);
+  }
+
+  /**
+   * Returns a view on the content of a block.
+   *
+   * @return the view positioned at the start of the block content, or null if the file has no such block.
+   */
+  private ByteBuffer block(int blockType)
+  {
+    Integer start = blockStarts.get(blockType);
+    if (start == null)
+    {
+      return null;
+    }
+    ByteBuffer result = buffer.duplicate();
+    result.position(start);
+    return result;
+  }
+
+  /**
+   * Returns a view on the content of the analysis block.
+   *
+   * @return the view positioned at the start of the block content, or null if the file has no analysis block.
+   */
+  ByteBuffer getAnalysisBlock()
+  {
+    return block(SailplotFormat.BLOCK_ANALYSIS);
+  }
+
+  /**
+   * Calculates the hash of the data blocks, to be compared with the hash the saved analysis results
+   * were calculated from. Reads the content of the data blocks but does not decode it.
+   *
+   * @return the hash, see SailplotFormat.DataHash.
+   */
+  public long getDataHash()
+  {
+    SailplotFormat.DataHash result = new SailplotFormat.DataHash();
+    for (int blockType : new int[] {
+        SailplotFormat.BLOCK_POINTS,
+        SailplotFormat.BLOCK_LOCATIONS,
+        SailplotFormat.BLOCK_MAGNETIC_FIELDS,
+        SailplotFormat.BLOCK_ACCELERATIONS})
+    {
+      ByteBuffer content = block(blockType);
+      if (content != null)
+      {
+        content.limit(content.position() + blockLengths.get(blockType));
+        result.update(content);
+      }
+    }
+    return result.getValue();
+  }
+
+  private void readHeader() throws IOException
+  {
+    ByteBuffer input = block(SailplotFormat.BLOCK_HEADER);
+    if (input == null)
+    {
+      return;
+    }
+    int flags = input.get() & 0xFF;
+    averageWindBearing = input.getDouble();
+    if ((flags & SailplotFormat.HEADER_COMMENT) != 0)
+    {
+      byte[] commentBytes = new byte[(int) readVarLong(input)];
+      input.get(commentBytes);
+      comment = new String(commentBytes, StandardCharsets.UTF_8);
+    }
+    if ((flags & SailplotFormat.HEADER_DEVICE_ORIENTATION) != 0)
+    {
+      deviceOrientation = readCoordinateSystem(input);
+    }
+    if ((flags & SailplotFormat.HEADER_BOAT_COORDINATES) != 0)
+    {
+      boatCoordinates = readCoordinateSystem(input);
+    }
+  }
+
+  private static CoordinateSystem readCoordinateSystem(ByteBuffer input)
+  {
+    ThreeDimVector x = new ThreeDimVector(input.getDouble(), input.getDouble(), input.getDouble());
+    ThreeDimVector y = new ThreeDimVector(input.getDouble(), input.getDouble(), input.getDouble());
+    ThreeDimVector z = new ThreeDimVector(input.getDouble(), input.getDouble(), input.getDouble());
+    return new CoordinateSystem(x, y, z);
+  }
+
+  static long readVarLong(ByteBuffer input) throws IOException
+  {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7)
+    {
+      int b = input.get();
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0)
+      {
+        return result;
+      }
+    }
+    throw new IOException("Malformed varint at byte offset " + input.position());
+  }
+
+  public String getComment()
+  {
+    return comment;
+  }
+
+  public double getAverageWindBearing()
+  {
+    return averageWindBearing;
+  }
+
+  public CoordinateSystem getDeviceOrientation()
+  {
+    return deviceOrientation;
+  }
+
+  public CoordinateSystem getBoatCoordinatesInDeviceCoordinates()
+  {
+    return boatCoordinates;
+  }
+
+  public int getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * @param channel the channel to check, not null.
+   *
+   * @return whether the channel has already been decoded.
+   */
+  public boolean isMaterialized(Channel channel)
+  {
+    return materialized.containsKey(channel);
+  }
+
+  /**
+   * Returns the time of each point.
+   *
+   * @return the times in millis since 01.01.1970 0:00:00.000 GMT, indexed by point index,
+   *         NO_TIME for points without time. Not null.
+   *
+   * @throws IOException if the block is malformed.
+   */
+  public long[] getTimes() throws IOException
+  {
+    long[] result = (long[]) materialized.get(Channel.TIMES);
+    if (result != null)
+    {
+      return result;
+    }
+    result = new long[pointCount];
+    pointFlags = new byte[pointCount];
+    ByteBuffer input = block(SailplotFormat.BLOCK_POINTS);
+    if (input != null)
+    {
+      try
+      {
+        readVarLong(input);
+        long time = 0;
+        for (int i = 0; i < pointCount; i++)
+        {
+          pointFlags[i] = input.get();
+          if ((pointFlags[i] & SailplotFormat.POINT_TIME) != 0)
+          {
+            time += SailplotFormat.zigzagDecode(readVarLong(input));
+            result[i] = time;
+          }
+          else
+          {
+            result[i] = NO_TIME;
+          }
+        }
+      }
+      catch (BufferUnderflowException e)
+      {
+        throw new IOException("Unexpected end of points block", e);
+      }
+    }
+    materialized.put(Channel.TIMES, result);
+    return result;
+  }
+
+  /**
+   * @return the locations, not null.
+   *
+   * @throws IOException if a block is malformed.
+   */
+  public LocationChannel getLocations() throws IOException
+  {
+    LocationChannel result = (LocationChannel) materialized.get(Channel.LOCATIONS);
+    if (result != null)
+    {
+      return result;
+    }
+    long[] times = getTimes();
+    result = new LocationChannel(pointIndices(SailplotFormat.POINT_LOCATION));
+    ByteBuffer input = block(SailplotFormat.BLOCK_LOCATIONS);
+    if (input != null)
+    {
+      try
+      {
+        readLocations(input, times, result);
+      }
+      catch (BufferUnderflowException e)
+      {
+        throw new IOException("Unexpected end of locations block", e);
+      }
+    }
+    materialized.put(Channel.LOCATIONS, result);
+    return result;
+  }
+
+  private void readLocations(ByteBuffer input, long[] times, LocationChannel result) throws IOException
+  {
+    long latitude = SailplotFormat.zigzagDecode(readVarLong(input));
+    long longitude = SailplotFormat.zigzagDecode(readVarLong(input));
+    for (int i = 0; i < result.size(); i++)
+    {
+      int flags = input.get() & 0xFF;
+      if ((flags & SailplotFormat.LOCATION_LATITUDE) != 0)
+      {
+        latitude += SailplotFormat.zigzagDecode(readVarLong(input));
+        result.latitude[i] = SailplotFormat.fromCoordinateUnits(latitude);
+      }
+      if ((flags & SailplotFormat.LOCATION_LONGITUDE) != 0)
+      {
+        longitude += SailplotFormat.zigzagDecode(readVarLong(input));
+        result.longitude[i] = SailplotFormat.fromCoordinateUnits(longitude);
+      }
+      if ((flags & SailplotFormat.LOCATION_ALTITUDE) != 0)
+      {
+        result.altitude[i] = readValue(input);
+      }
+      if ((flags & SailplotFormat.LOCATION_VELOCITY) != 0)
+      {
+        result.velocity[i] = readValue(input);
+      }
+      if ((flags & SailplotFormat.LOCATION_BEARING) != 0)
+      {
+        result.bearing[i] = readValue(input);
+      }
+      if ((flags & SailplotFormat.LOCATION_SATELLITE_TIME) != 0)
+      {
+        result.satelliteTime[i] = times[result.pointIndices[i]] + SailplotFormat.zigzagDecode(readVarLong(input));
+      }
+    }
+  }
+
+  /**
+   * @return the magnetic field values, not null.
+   *
+   * @throws IOException if a block is malformed.
+   */
+  public VectorChannel getMagneticFields() throws IOException
+  {
+    return getVectorChannel(
+        Channel.MAGNETIC_FIELDS,
+        SailplotFormat.POINT_MAGNETIC_FIELD,
+        SailplotFormat.BLOCK_MAGNETIC_FIELDS);
+  }
+
+  /**
+   * @return the acceleration values, not null.
+   *
+   * @throws IOException if a block is malformed.
+   */
+  public VectorChannel getAccelerations() throws IOException
+  {
+    return getVectorChannel(
+        Channel.ACCELERATIONS,
+        SailplotFormat.POINT_ACCELERATION,
+        SailplotFormat.BLOCK_ACCELERATIONS);
+  }
+
+  private VectorChannel getVectorChannel(Channel channel, int pointFlag, int blockType) throws IOException
+  {
+    VectorChannel result = (VectorChannel) materialized.get(channel);
+    if (result != null)
+    {
+      return result;
+    }
+    getTimes();
+    result = new VectorChannel(pointIndices(pointFlag));
+    ByteBuffer input = block(blockType);
+    if (input != null)
+    {
+      try
+      {
+        for (int i = 0; i < result.size(); i++)
+        {
+          result.x[i] = readValue(input);
+          result.y[i] = readValue(input);
+          result.z[i] = readValue(input);
+        }
+      }
+      catch (BufferUnderflowException e)
+      {
+        throw new IOException("Unexpected end of block of type " + blockType, e);
+      }
+    }
+    materialized.put(channel, result);
+    return result;
+  }
+
+  /**
+   * Reads an altitude, velocity, bearing or sensor value, which older versions of the format stored as float.
+   */
+  private double readValue(ByteBuffer input)
+  {
+    return version <= SailplotFormat.LAST_FLOAT_VERSION ? input.getFloat() : input.getDouble();
+  }
+
+  /**
+   * Returns heel and roll for each acceleration value,
+   * calculated in the same way as the DeviceOrientationAnalyzer does.
+   *
+   * @return heel and roll, or null if the file contains no boat coordinates.
+   *
+   * @throws IOException if a block is malformed.
+   */
+  public HeelAndRollChannel getHeelAndRoll() throws IOException
+  {
+    if (boatCoordinates == null)
+    {
+      return null;
+    }
+    HeelAndRollChannel result = (HeelAndRollChannel) materialized.get(Channel.HEEL_AND_ROLL);
+    if (result != null)
+    {
+      return result;
+    }
+    VectorChannel accelerations = getAccelerations();
+    result = new HeelAndRollChannel(accelerations.pointIndices);
+    for (int i = 0; i < result.size(); i++)
+    {
+      ThreeDimVector normalizedAcceleration
+          = new ThreeDimVector(accelerations.x[i], accelerations.y[i], accelerations.z[i]).normalize();
+      result.heel[i] = Math.atan(boatCoordinates.getX(normalizedAcceleration));
+      result.roll[i] = Math.atan(boatCoordinates.getY(normalizedAcceleration));
+    }
+    materialized.put(Channel.HEEL_AND_ROLL, result);
+    return result;
+  }
+
+  private int[] pointIndices(int pointFlag)
+  {
+    int count = 0;
+    for (byte flags : pointFlags)
+    {
+      if ((flags & pointFlag) != 0)
+      {
+        count++;
+      }
+    }
+    int[] result = new int[count];
+    int position = 0;
+    for (int i = 0; i < pointFlags.length; i++)
+    {
+      if ((pointFlags[i] & pointFlag) != 0)
+      {
+        result[position++] = i;
+      }
+    }
+    return result;
+  }
+
+  private static double[] nanArray(int length)
+  {
+    double[] result = new double[length];
+    Arrays.fill(result, Double.NaN);
+    return result;
+  }
+
+  /**
+   * The values of a channel which exists only for some points.
+   * The values at array index i belong to the point with index <code>pointIndices[i]</code>.
+   */
+  public abstract static class SparseChannel
+  {
+    public final int[] pointIndices;
+
+    protected SparseChannel(int[] pointIndices)
+    {
+      this.pointIndices = pointIndices;
+    }
+
+    public int size()
+    {
+      return pointIndices.length;
+    }
+  }
+
+  /**
+   * Locations in column form. Absent values are stored as NaN, absent satellite times as NO_TIME.
+   */
+  public static class LocationChannel extends SparseChannel
+  {
+    public final double[] latitude;
+
+    public final double[] longitude;
+
+    public final double[] altitude;
+
+    public final double[] velocity;
+
+    public final double[] bearing;
+
+    public final long[] satelliteTime;
+
+    private LocationChannel(int[] pointIndices)
+    {
+      super(pointIndices);
+      latitude = nanArray(pointIndices.length);
+      longitude = nanArray(pointIndices.length);
+      altitude = nanArray(pointIndices.length);
+      velocity = nanArray(pointIndices.length);
+      bearing = nanArray(pointIndices.length);
+      satelliteTime = new long[pointIndices.length];
+      Arrays.fill(satelliteTime, NO_TIME);
+    }
+  }
+
+  /**
+   * Three-dimensional sensor values in column form.
+   */
+  public static class VectorChannel extends SparseChannel
+  {
+    public final double[] x;
+
+    public final double[] y;
+
+    public final double[] z;
+
+    private VectorChannel(int[] pointIndices)
+    {
+      super(pointIndices);
+      x = new double[pointIndices.length];
+      y = new double[pointIndices.length];
+      z = new double[pointIndices.length];
+    }
+  }
+
+  /**
+   * Heel and roll in arcs, for the points of the acceleration channel.
+   */
+  public static class HeelAndRollChannel extends SparseChannel
+  {
+    public final double[] heel;
+
+    public final double[] roll;
+
+    private HeelAndRollChannel(int[] pointIndices)
+    {
+      super(pointIndices);
+      heel = new double[pointIndices.length];
+      roll = new double[pointIndices.length];
+    }
+  }
+}
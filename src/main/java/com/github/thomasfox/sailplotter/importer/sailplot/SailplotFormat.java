@@ -0,0 +1,203 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
+
+/**
+ * Constants of the binary sailplot format.
+ *
+ * A sailplot file starts with the MAGIC bytes and the format version as unsigned varint,
+ * followed by blocks. Each block consists of the block type and the length of the block content
+ * in bytes, both as unsigned varint, and the block content. The last block is BLOCK_END without content.
+ * Readers skip blocks of unknown type, so new block types can be added without increasing the version.
+ * The blocks are written in the order header, points, locations, magnetic fields, accelerations, analysis.
+ *
+ * <ul>
+ * <li>The header block contains a byte of HEADER_* flags, the average wind bearing as double,
+ * and, if flagged, the comment as unsigned varint length and UTF-8 bytes,
+ * the device orientation and the boat coordinates in device coordinates as 9 doubles each.</li>
+ * <li>The points block contains the number of points as unsigned varint,
+ * then for each point a byte of POINT_* flags and, if the point has a time,
+ * the difference to the time of the previous point having a time as zigzag varint.</li>
+ * <li>The locations block contains the origin latitude and longitude in coordinate units
+ * as zigzag varint, then for each point having a location a byte of LOCATION_* flags,
+ * the latitude and longitude as differences to the previous location (the first to the origin)
+ * in coordinate units as zigzag varint, altitude, velocity and bearing as double
+ * and the satellite time as difference to the point time as zigzag varint, each if flagged.</li>
+ * <li>The magnetic field and acceleration blocks contain x, y and z as double
+ * for each point having the respective sensor value.</li>
+ * <li>The optional analysis block contains the number of saved analysis stages as unsigned varint,
+ * then for each stage its ordinal in AnalysisStage as unsigned varint and its fingerprint as long
+ * (see fingerprint()).
+ * If the velocity and bearing stage is saved, it is followed for each location by a byte of VELOCITY_*
+ * flags and the flagged values as doubles.
+ * If the tacks stage is saved, the number of tacks follows as unsigned varint, then for each tack
+ * the positions of its start and end point in the points with location as unsigned varint
+ * (the end position plus one, 0 if the tack has no end), the number of points within the tack
+ * and, if it is not 0, the position of the first point within the tack as unsigned varint
+ * (it may differ from the start position if the start was moved), the point of sail and the maneuver types
+ * at start and end as ordinal plus one (0 for none) as unsigned varint, a byte of TACK_* flags,
+ * the wind direction as double and the intersection points at start and end as latitude and longitude
+ * doubles and time as zigzag varint, each if flagged.
+ * The time correction and device orientation stages have no content:
+ * the saved times are already corrected, and compass bearings, heel and roll
+ * are recalculated from the boat coordinates in the header.</li>
+ * </ul>
+ * Other derived values are not stored, they are recalculated by the analysis after loading.
+ *
+ * Apart from latitude and longitude, which are rounded to COORDINATE_UNITS_PER_ARC,
+ * all values are stored without loss of precision.
+ * Version 1 of the format stored altitude, velocity, bearing and the sensor values as float;
+ * such files can still be read.
+ */
+public class SailplotFormat
+{
+  public static final byte[] MAGIC = {'S', 'A', 'I', 'L', 'P', 'L', 'O', 'T'};
+
+  /** The version of the format written by this program. */
+  public static final int VERSION = 2;
+
+  /** The last version of the format which stored altitude, velocity, bearing and sensor values as float. */
+  public static final int LAST_FLOAT_VERSION = 1;
+
+  public static final int BLOCK_END = 0;
+
+  public static final int BLOCK_HEADER = 1;
+
+  public static final int BLOCK_POINTS = 2;
+
+  public static final int BLOCK_LOCATIONS = 3;
+
+  public static final int BLOCK_MAGNETIC_FIELDS = 4;
+
+  public static final int BLOCK_ACCELERATIONS = 5;
+
+  public static final int BLOCK_ANALYSIS = 6;
+
+  public static final int HEADER_COMMENT = 1;
+
+  public static final int HEADER_DEVICE_ORIENTATION = 2;
+
+  public static final int HEADER_BOAT_COORDINATES = 4;
+
+  public static final int POINT_TIME = 1;
+
+  public static final int POINT_LOCATION = 2;
+
+  public static final int POINT_MAGNETIC_FIELD = 4;
+
+  public static final int POINT_ACCELERATION = 8;
+
+  public static final int LOCATION_LATITUDE = 1;
+
+  public static final int LOCATION_LONGITUDE = 2;
+
+  public static final int LOCATION_ALTITUDE = 4;
+
+  public static final int LOCATION_VELOCITY = 8;
+
+  public static final int LOCATION_BEARING = 16;
+
+  public static final int LOCATION_SATELLITE_TIME = 32;
+
+  public static final int VELOCITY_FROM_LAT_LONG = 1;
+
+  public static final int VELOCITY_BEARING_FROM_LAT_LONG = 2;
+
+  public static final int VELOCITY_AVERAGED_OVER_DISTANCE = 4;
+
+  public static final int VELOCITY_WIND_DIRECTION = 8;
+
+  public static final int TACK_WIND_DIRECTION = 1;
+
+  public static final int TACK_INTERSECTION_START = 2;
+
+  public static final int TACK_INTERSECTION_START_TIME = 4;
+
+  public static final int TACK_INTERSECTION_END = 8;
+
+  public static final int TACK_INTERSECTION_END_TIME = 16;
+
+  /**
+   * Latitude and longitude are stored as multiples of 1/COORDINATE_UNITS_PER_ARC,
+   * which is about 0.6 mm on the earth surface.
+   */
+  public static final double COORDINATE_UNITS_PER_ARC = 1e10d;
+
+  private SailplotFormat()
+  {
+  }
+
+  public static long toCoordinateUnits(double arcs)
+  {
+    return Math.round(arcs * COORDINATE_UNITS_PER_ARC);
+  }
+
+  public static double fromCoordinateUnits(long units)
+  {
+    return units / COORDINATE_UNITS_PER_ARC;
+  }
+
+  public static long zigzagEncode(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  public static long zigzagDecode(long value)
+  {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Calculates the fingerprint of the inputs of an analysis stage.
+   * A saved stage result is valid if its saved fingerprint equals the fingerprint of the loaded data.
+   *
+   * @param dataHash the hash of the points, locations, magnetic field and acceleration blocks.
+   * @param averageWindBearing the average wind bearing of the data.
+   * @param stage the analysis stage, not null.
+   *
+   * @return the fingerprint.
+   */
+  public static long fingerprint(long dataHash, double averageWindBearing, AnalysisStage stage)
+  {
+    long result = dataHash;
+    result = 31 * result + Double.doubleToLongBits(averageWindBearing);
+    result = 31 * result + stage.ordinal();
+    result = 31 * result + stage.getVersion();
+    return result;
+  }
+
+  /**
+   * Calculates the hash of the content of the data blocks,
+   * which are passed in the order points, locations, magnetic fields, accelerations.
+   */
+  public static class DataHash
+  {
+    private final CRC32C crc32c = new CRC32C();
+
+    private final CRC32 crc32 = new CRC32();
+
+    public void update(byte[] bytes, int offset, int length)
+    {
+      crc32c.update(bytes, offset, length);
+      crc32.update(bytes, offset, length);
+    }
+
+    /**
+     * @param buffer the bytes to hash, from its position to its limit. The position is not changed.
+     */
+    public void update(ByteBuffer buffer)
+    {
+      crc32c.update(buffer.duplicate());
+      crc32.update(buffer.duplicate());
+    }
+
+    public long getValue()
+    {
+      return (crc32c.getValue() << 32) | crc32.getValue();
+    }
+  }
+}
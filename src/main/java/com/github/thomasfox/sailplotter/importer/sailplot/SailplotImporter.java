@@ -0,0 +1,400 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.github.thomasfox.sailplotter.analyze.DeviceOrientationAnalyzer;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.Importer;
+import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.importer.sailplot.MappedSailplotReader.LocationChannel;
+import com.github.thomasfox.sailplotter.importer.sailplot.MappedSailplotReader.VectorChannel;
+import com.github.thomasfox.sailplotter.model.Acceleration;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.MagneticField;
+import com.github.thomasfox.sailplotter.model.ManeuverType;
+import com.github.thomasfox.sailplotter.model.PointOfSail;
+import com.github.thomasfox.sailplotter.model.Tack;
+import com.github.thomasfox.sailplotter.model.Wind;
+
+/**
+ * Reads files in the binary sailplot format described in SailplotFormat.
+ *
+ * Files are memory-mapped and decoded channel by channel by a MappedSailplotReader,
+ * streams are copied to a temporary file which is mapped, so that their content is not held in the heap.
+ * The magnetic fields and accelerations are only decoded when they are first needed
+ * (see Data.loadSensorValuesOnDemand(Runnable)), so their pages are not touched
+ * as long as only the track is looked at.
+ * Files which do not start with the magic bytes were saved as JSON by older versions of this program
+ * and are read by a JsonSailplotReader.
+ * Saved analysis results are restored if they were calculated from the same data
+ * and the same average wind bearing, so that the analysis can skip the respective stages.
+ */
+public class SailplotImporter implements Importer
+{
+  /** After how many points the progress is reported. */
+  private static final int PROGRESS_INTERVAL = 100_000;
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  private final LoadProgress loadProgress;
+
+  public SailplotImporter(LoadProgress loadProgress)
+  {
+    this.loadProgress = loadProgress;
+  }
+
+  @Override
+  public ImporterResult read(File file)
+  {
+    loadProgress.fileReadingStarted();
+    try
+    {
+      if (!startsWithMagic(file))
+      {
+        JsonParser parser = jsonFactory.createParser(file);
+        loadProgress.readingBytes(file.length(), () -> parser.currentLocation().getByteOffset());
+        return new JsonSailplotReader(loadProgress).read(parser);
+      }
+      return read(MappedSailplotReader.map(file));
+    }
+    catch (IOException e)
+    {
+      loadProgress.finished();
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public ImporterResult read(InputStream inputStream)
+  {
+    loadProgress.fileReadingStarted();
+    try
+    {
+      InputStream bufferedStream = new BufferedInputStream(inputStream);
+      bufferedStream.mark(SailplotFormat.MAGIC.length);
+      boolean startsWithMagic = startsWithMagic(bufferedStream);
+      bufferedStream.reset();
+      if (!startsWithMagic)
+      {
+        JsonParser parser = jsonFactory.createParser(bufferedStream);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return new JsonSailplotReader(loadProgress).read(parser);
+      }
+      return read(mapCopy(bufferedStream));
+    }
+    catch (IOException e)
+    {
+      loadProgress.finished();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static boolean startsWithMagic(File file) throws IOException
+  {
+    try (InputStream inputStream = new FileInputStream(file))
+    {
+      return startsWithMagic(inputStream);
+    }
+  }
+
+  private static boolean startsWithMagic(InputStream inputStream) throws IOException
+  {
+    return Arrays.equals(inputStream.readNBytes(SailplotFormat.MAGIC.length), SailplotFormat.MAGIC);
+  }
+
+  /**
+   * Copies a stream to a temporary file and maps the file.
+   * The file is deleted right away, the mapping stays valid;
+   * on systems which do not allow deleting a mapped file, it is deleted on exit.
+   */
+  private static MappedSailplotReader mapCopy(InputStream inputStream) throws IOException
+  {
+    Path tempFile = Files.createTempFile("sailplotter", ".sailplot");
+    try
+    {
+      Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      return MappedSailplotReader.map(tempFile.toFile());
+    }
+    finally
+    {
+      try
+      {
+        Files.delete(tempFile);
+      }
+      catch (IOException e)
+      {
+        tempFile.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  private ImporterResult read(MappedSailplotReader reader) throws IOException
+  {
+    long startNanos = System.nanoTime();
+    List<String> warnings = new ArrayList<>();
+    DataPoint[] points = createPoints(reader.getTimes());
+    setLocations(reader.getLocations(), points);
+    Data data = buildData(points, warnings);
+    data.comment = reader.getComment();
+    data.deviceOrientation = reader.getDeviceOrientation();
+    data.setAverageWindBearing(reader.getAverageWindBearing());
+    data.setBoatCoordinatesInDeviceCoordinates(reader.getBoatCoordinatesInDeviceCoordinates());
+    if (data.size() == reader.getPointCount())
+    {
+      restoreAnalysis(reader, data);
+    }
+    data.loadSensorValuesOnDemand(() -> setSensorValues(reader, points, data));
+    loadProgress.fileReadingFinished(data.size(), System.nanoTime() - startNanos);
+    return new ImporterResult(data, warnings);
+  }
+
+  private DataPoint[] createPoints(long[] times)
+  {
+    DataPoint[] points = new DataPoint[times.length];
+    for (int i = 0; i < times.length; i++)
+    {
+      DataPoint point = new DataPoint(i);
+      if (times[i] != MappedSailplotReader.NO_TIME)
+      {
+        point.time = times[i];
+      }
+      points[i] = point;
+      if ((i + 1) % PROGRESS_INTERVAL == 0)
+      {
+        loadProgress.fileReadingProgress(i + 1);
+      }
+    }
+    return points;
+  }
+
+  private void setLocations(LocationChannel locations, DataPoint[] points)
+  {
+    for (int i = 0; i < locations.size(); i++)
+    {
+      Location location = new Location();
+      location.latitude = toDouble(locations.latitude[i]);
+      location.longitude = toDouble(locations.longitude[i]);
+      location.altitude = toDouble(locations.altitude[i]);
+      location.velocity = toDouble(locations.velocity[i]);
+      location.bearing = toDouble(locations.bearing[i]);
+      if (locations.satelliteTime[i] != MappedSailplotReader.NO_TIME)
+      {
+        location.satelliteTime = locations.satelliteTime[i];
+      }
+      points[locations.pointIndices[i]].location = location;
+    }
+  }
+
+  /**
+   * Sets the magnetic fields and accelerations of the points.
+   * If the saved boat coordinates are valid, compass bearings, heel and roll are calculated from them,
+   * as the analysis is skipped.
+   */
+  private void setSensorValues(MappedSailplotReader reader, DataPoint[] points, Data data)
+  {
+    try
+    {
+      VectorChannel magneticFields = reader.getMagneticFields();
+      for (int i = 0; i < magneticFields.size(); i++)
+      {
+        points[magneticFields.pointIndices[i]].magneticField = new MagneticField(
+            magneticFields.x[i], magneticFields.y[i], magneticFields.z[i]);
+      }
+      VectorChannel accelerations = reader.getAccelerations();
+      for (int i = 0; i < accelerations.size(); i++)
+      {
+        points[accelerations.pointIndices[i]].acceleration = new Acceleration(
+            accelerations.x[i], accelerations.y[i], accelerations.z[i]);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+    if (data.isAnalyzed(AnalysisStage.DEVICE_ORIENTATION))
+    {
+      new DeviceOrientationAnalyzer().applyBoatCoordinates(data);
+    }
+  }
+
+  private static Double toDouble(double value)
+  {
+    return Double.isNaN(value) ? null : value;
+  }
+
+  /**
+   * Restores the saved analysis results whose fingerprint matches the loaded data.
+   * Nothing is restored if points were dropped while loading, because the saved results refer to them.
+   */
+  private void restoreAnalysis(MappedSailplotReader reader, Data data) throws IOException
+  {
+    ByteBuffer input = reader.getAnalysisBlock();
+    if (input == null)
+    {
+      return;
+    }
+    long dataHash = reader.getDataHash();
+    Set<AnalysisStage> savedStages = EnumSet.noneOf(AnalysisStage.class);
+    Set<AnalysisStage> validStages = EnumSet.noneOf(AnalysisStage.class);
+    long stageCount = MappedSailplotReader.readVarLong(input);
+    for (int i = 0; i < stageCount; i++)
+    {
+      int ordinal = (int) MappedSailplotReader.readVarLong(input);
+      long fingerprint = input.getLong();
+      if (ordinal >= AnalysisStage.values().length)
+      {
+        // a stage from a newer revision of the format, its content would follow the known stages
+        continue;
+      }
+      AnalysisStage stage = AnalysisStage.values()[ordinal];
+      savedStages.add(stage);
+      if (fingerprint == SailplotFormat.fingerprint(dataHash, data.getAverageWindBearing(), stage)
+          && validStages.containsAll(stage.getDependencies()))
+      {
+        validStages.add(stage);
+      }
+    }
+    if (savedStages.contains(AnalysisStage.VELOCITY_BEARING))
+    {
+      readVelocityBearing(input, data, validStages.contains(AnalysisStage.VELOCITY_BEARING));
+    }
+    if (validStages.contains(AnalysisStage.TACKS))
+    {
+      readTacks(input, data);
+    }
+    for (AnalysisStage stage : validStages)
+    {
+      data.setAnalyzed(stage);
+    }
+  }
+
+  /**
+   * Reads the velocities and bearings calculated from the locations.
+   *
+   * @param apply whether to set the values on the data, or only skip them.
+   */
+  private void readVelocityBearing(ByteBuffer input, Data data, boolean apply)
+  {
+    for (DataPoint point : data.getPointsWithLocation())
+    {
+      int flags = input.get() & 0xFF;
+      Double velocityFromLatLong = readIfFlagged(input, flags, SailplotFormat.VELOCITY_FROM_LAT_LONG);
+      Double bearingFromLatLong = readIfFlagged(input, flags, SailplotFormat.VELOCITY_BEARING_FROM_LAT_LONG);
+      Double velocityBearingAveragedOverDistance
+          = readIfFlagged(input, flags, SailplotFormat.VELOCITY_AVERAGED_OVER_DISTANCE);
+      Double windDirection = readIfFlagged(input, flags, SailplotFormat.VELOCITY_WIND_DIRECTION);
+      if (apply)
+      {
+        point.location.velocityFromLatLong = velocityFromLatLong;
+        point.location.bearingFromLatLong = bearingFromLatLong;
+        point.location.velocityBearingAveragedOverDistance = velocityBearingAveragedOverDistance;
+        if (windDirection != null)
+        {
+          point.wind = new Wind();
+          point.wind.direction = windDirection;
+        }
+      }
+    }
+  }
+
+  private void readTacks(ByteBuffer input, Data data) throws IOException
+  {
+    List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
+    int tackCount = (int) MappedSailplotReader.readVarLong(input);
+    data.getTackList().clear();
+    for (int i = 0; i < tackCount; i++)
+    {
+      Tack tack = new Tack();
+      tack.index = i;
+      tack.startOfTackDataPointIndex = (int) MappedSailplotReader.readVarLong(input);
+      tack.start = pointsWithLocation.get(tack.startOfTackDataPointIndex);
+      int endPlusOne = (int) MappedSailplotReader.readVarLong(input);
+      if (endPlusOne > 0)
+      {
+        tack.endOfTackDataPointIndex = endPlusOne - 1;
+        tack.end = pointsWithLocation.get(tack.endOfTackDataPointIndex);
+      }
+      int pointsWithinTackCount = (int) MappedSailplotReader.readVarLong(input);
+      if (pointsWithinTackCount > 0)
+      {
+        int firstPointWithinTack = (int) MappedSailplotReader.readVarLong(input);
+        tack.pointsWithinTack
+            = pointsWithLocation.subList(firstPointWithinTack, firstPointWithinTack + pointsWithinTackCount);
+      }
+      tack.pointOfSail = readEnum(input, PointOfSail.values());
+      tack.maneuverTypeAtStart = readEnum(input, ManeuverType.values());
+      tack.maneuverTypeAtEnd = readEnum(input, ManeuverType.values());
+      int flags = input.get() & 0xFF;
+      tack.windDirection = readIfFlagged(input, flags, SailplotFormat.TACK_WIND_DIRECTION);
+      tack.tackStraightLineIntersectionStart = readIntersection(input, flags,
+          SailplotFormat.TACK_INTERSECTION_START, SailplotFormat.TACK_INTERSECTION_START_TIME);
+      tack.tackStraightLineIntersectionEnd = readIntersection(input, flags,
+          SailplotFormat.TACK_INTERSECTION_END, SailplotFormat.TACK_INTERSECTION_END_TIME);
+      data.getTackList().add(tack);
+    }
+  }
+
+  private DataPoint readIntersection(ByteBuffer input, int flags, int intersectionFlag, int timeFlag)
+      throws IOException
+  {
+    if ((flags & intersectionFlag) == 0)
+    {
+      return null;
+    }
+    DataPoint result = new DataPoint(-1);
+    result.location = new Location();
+    result.location.latitude = input.getDouble();
+    result.location.longitude = input.getDouble();
+    if ((flags & timeFlag) != 0)
+    {
+      result.time = SailplotFormat.zigzagDecode(MappedSailplotReader.readVarLong(input));
+    }
+    return result;
+  }
+
+  private static <T> T readEnum(ByteBuffer input, T[] values) throws IOException
+  {
+    int ordinalPlusOne = (int) MappedSailplotReader.readVarLong(input);
+    return ordinalPlusOne == 0 ? null : values[ordinalPlusOne - 1];
+  }
+
+  private static Double readIfFlagged(ByteBuffer input, int flags, int flag)
+  {
+    return (flags & flag) == 0 ? null : input.getDouble();
+  }
+
+  private Data buildData(DataPoint[] points, List<String> warnings)
+  {
+    Data.Builder dataBuilder = new Data.Builder(points.length);
+    for (DataPoint point : points)
+    {
+      try
+      {
+        dataBuilder.add(point);
+      }
+      catch (RuntimeException e)
+      {
+        warnings.add("Could not add point with index " + point.index + ":" + e.getMessage());
+      }
+    }
+    return dataBuilder.build();
+  }
+}
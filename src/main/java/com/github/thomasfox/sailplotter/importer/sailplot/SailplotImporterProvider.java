@@ -0,0 +1,59 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.Importer;
+import com.github.thomasfox.sailplotter.importer.ImporterProvider;
+
+/**
+ * Provides the SailplotImporter for files in the binary sailplot format
+ * and for sailplot files saved as JSON by older versions of this program.
+ */
+public class SailplotImporterProvider implements ImporterProvider
+{
+  @Override
+  public String getName()
+  {
+    return "sailplot";
+  }
+
+  @Override
+  public List<String> getExtensions()
+  {
+    return Collections.singletonList(".sailplot");
+  }
+
+  @Override
+  public int probe(ByteBuffer header)
+  {
+    if (header.remaining() >= SailplotFormat.MAGIC.length)
+    {
+      byte[] start = new byte[SailplotFormat.MAGIC.length];
+      header.duplicate().get(start);
+      if (Arrays.equals(start, SailplotFormat.MAGIC))
+      {
+        return CERTAIN_MATCH;
+      }
+    }
+    String text = ImporterProvider.toText(header);
+    if (ImporterProvider.firstNonWhitespace(text) != '{')
+    {
+      return NO_MATCH;
+    }
+    if (text.contains("\"allPoints\""))
+    {
+      return LIKELY_MATCH;
+    }
+    return POSSIBLE_MATCH;
+  }
+
+  @Override
+  public Importer create(LoadProgress loadProgress)
+  {
+    return new SailplotImporter(loadProgress);
+  }
+}
@@ -0,0 +1,45 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The stages of the analysis of loaded data, in the order in which they run.
+ *
+ * Results of a stage can be saved together with the data and are reused after loading
+ * if the data, the wind bearing and the version of the stage are unchanged.
+ * The version must be increased whenever the algorithm or the parameters of a stage change
+ * in a way which changes its results.
+ */
+public enum AnalysisStage
+{
+  TIME_CORRECTION(1),
+  VELOCITY_BEARING(1, TIME_CORRECTION),
+  TACKS(1, VELOCITY_BEARING),
+  TACK_SERIES(1, TACKS),
+  DEVICE_ORIENTATION(1, VELOCITY_BEARING);
+
+  private final int version;
+
+  private final List<AnalysisStage> dependencies;
+
+  AnalysisStage(int version, AnalysisStage... dependencies)
+  {
+    this.version = version;
+    this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+  }
+
+  public int getVersion()
+  {
+    return version;
+  }
+
+  /**
+   * @return the stages whose results this stage uses, not null.
+   */
+  public List<AnalysisStage> getDependencies()
+  {
+    return dependencies;
+  }
+}
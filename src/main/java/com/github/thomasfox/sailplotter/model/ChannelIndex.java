@@ -0,0 +1,237 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * The indices of those data points in a Data object which contain data
+ * of a certain sensor channel (e.g. location), in ascending order.
+ *
+ * Changes which do not only append indices copy the index array,
+ * so that list views which were created earlier are not affected.
+ * This class is not thread safe.
+ */
+class ChannelIndex
+{
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] indices;
+
+  private int size;
+
+  ChannelIndex(int capacity)
+  {
+    indices = new int[Math.max(capacity, DEFAULT_CAPACITY)];
+  }
+
+  private ChannelIndex(int[] indices)
+  {
+    this.indices = indices;
+  }
+
+  /**
+   * Creates the index for a channel by scanning all data points.
+   *
+   * @param points all data points, not null.
+   * @param inChannel determines whether a point contains data of the channel, not null.
+   *
+   * @return the index of the points in the channel, not null.
+   */
+  static ChannelIndex of(List<DataPoint> points, Predicate<DataPoint> inChannel)
+  {
+    ChannelIndex result = new ChannelIndex(DEFAULT_CAPACITY);
+    int pointIndex = 0;
+    for (DataPoint point : points)
+    {
+      if (inChannel.test(point))
+      {
+        result.append(pointIndex);
+      }
+      pointIndex++;
+    }
+    return result;
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the estimated heap size of this index in bytes.
+   */
+  long estimateBytes()
+  {
+    return MemoryFootprint.shallowSize(ChannelIndex.class) + MemoryFootprint.arraySize(Integer.BYTES, indices.length);
+  }
+
+  /**
+   * Returns the index of the n-th point in the channel.
+   *
+   * @param n the position in the channel.
+   *
+   * @return the index of the point in the list of all points.
+   */
+  int get(int n)
+  {
+    if (n < 0 || n >= size)
+    {
+      throw new IndexOutOfBoundsException("Index " + n + " out of bounds for size " + size);
+    }
+    return indices[n];
+  }
+
+  /**
+   * Returns the position of a point in the channel.
+   *
+   * @param pointIndex the index of the point in the list of all points.
+   *
+   * @return the position of the point in the channel, or -1 if the point is not in the channel.
+   */
+  int positionOf(int pointIndex)
+  {
+    int result = Arrays.binarySearch(indices, 0, size, pointIndex);
+    return result < 0 ? -1 : result;
+  }
+
+  /**
+   * Returns the index of the channel points among the first points of the list of all points.
+   * The returned index shares the index array with this index, and points which are appended
+   * to this index later are not contained in it. The returned index must not be modified.
+   *
+   * @param pointCount the number of points at the start of the list of all points.
+   *
+   * @return the index of the channel points with an index below pointCount, not null.
+   */
+  ChannelIndex prefix(int pointCount)
+  {
+    int position = Arrays.binarySearch(indices, 0, size, pointCount);
+    ChannelIndex result = new ChannelIndex(indices);
+    result.size = position < 0 ? -position - 1 : position;
+    return result;
+  }
+
+  /**
+   * Appends a point index. The point index must be larger than all contained indices.
+   *
+   * @param pointIndex the index of the point in the list of all points.
+   */
+  void append(int pointIndex)
+  {
+    if (size > 0 && indices[size - 1] >= pointIndex)
+    {
+      throw new IllegalArgumentException("Point index " + pointIndex
+          + " must be larger than last index " + indices[size - 1]);
+    }
+    if (size == indices.length)
+    {
+      indices = Arrays.copyOf(indices, size + (size >> 1) + 1);
+    }
+    indices[size++] = pointIndex;
+  }
+
+  /**
+   * Updates whether a single point is contained in the channel.
+   *
+   * @param pointIndex the index of the point in the list of all points.
+   * @param inChannel whether the point contains data of the channel.
+   */
+  void update(int pointIndex, boolean inChannel)
+  {
+    int position = Arrays.binarySearch(indices, 0, size, pointIndex);
+    if (position >= 0 && !inChannel)
+    {
+      int[] newIndices = new int[indices.length];
+      System.arraycopy(indices, 0, newIndices, 0, position);
+      System.arraycopy(indices, position + 1, newIndices, position, size - position - 1);
+      indices = newIndices;
+      size--;
+    }
+    else if (position < 0 && inChannel)
+    {
+      int insertionPoint = -position - 1;
+      int[] newIndices = new int[Math.max(indices.length, size + 1)];
+      System.arraycopy(indices, 0, newIndices, 0, insertionPoint);
+      newIndices[insertionPoint] = pointIndex;
+      System.arraycopy(indices, insertionPoint, newIndices, insertionPoint + 1, size - insertionPoint);
+      indices = newIndices;
+      size++;
+    }
+  }
+
+  /**
+   * Adjusts the index after a point was inserted into the list of all points.
+   *
+   * @param pointIndex the index at which the point was inserted.
+   * @param inChannel whether the inserted point contains data of the channel.
+   */
+  void pointInserted(int pointIndex, boolean inChannel)
+  {
+    int[] newIndices = new int[Math.max(indices.length, size + 1)];
+    int newSize = 0;
+    int n = 0;
+    while (n < size && indices[n] < pointIndex)
+    {
+      newIndices[newSize++] = indices[n++];
+    }
+    if (inChannel)
+    {
+      newIndices[newSize++] = pointIndex;
+    }
+    while (n < size)
+    {
+      newIndices[newSize++] = indices[n++] + 1;
+    }
+    indices = newIndices;
+    size = newSize;
+  }
+
+  /**
+   * Returns a read-only list of the points in this channel, backed by the list of all points.
+   * The returned list contains the points which are in the channel at the time of calling;
+   * later changes to this index are not reflected in the list.
+   *
+   * @param points the list of all points, not null.
+   *
+   * @return the points in this channel, not null.
+   */
+  List<DataPoint> view(List<DataPoint> points)
+  {
+    return new ChannelView(points, indices, size);
+  }
+
+  private static final class ChannelView extends AbstractList<DataPoint> implements RandomAccess
+  {
+    private final List<DataPoint> points;
+
+    private final int[] indices;
+
+    private final int size;
+
+    private ChannelView(List<DataPoint> points, int[] indices, int size)
+    {
+      this.points = points;
+      this.indices = indices;
+      this.size = size;
+    }
+
+    @Override
+    public DataPoint get(int index)
+    {
+      if (index < 0 || index >= size)
+      {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+      }
+      return points.get(indices[index]);
+    }
+
+    @Override
+    public int size()
+    {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,442 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Multi-resolution summary of a value of the points with location, for plotting long tracks.
+ *
+ * Level 0 consists of the points themselves. On level k, the points are grouped into buckets
+ * of BRANCHING_FACTOR^k consecutive points, and for each bucket the positions
+ * (in the list of points with location) of the first, last, minimum and maximum value are stored.
+ * The points are sampled at a roughly constant rate, so a bucket corresponds to a time interval.
+ * Each level is built from the level below, so building takes linear time.
+ * Appending or changing a value only updates the bucket containing it on each level,
+ * so the pyramid of a growing track can be kept up to date in logarithmic time per point.
+ *
+ * For a plot which is a given number of pixels wide, select() returns the positions of the first, last,
+ * minimum and maximum point of each bucket on the coarsest level which still has a bucket per pixel.
+ * Drawing lines between these points gives the same image as drawing all points,
+ * but the number of drawn points only depends on the plot width, not on the length of the track.
+ *
+ * A prefix of a pyramid (see prefix(int)) shares the arrays of the pyramid,
+ * so the prefix of a growing track can be published without copying.
+ *
+ * Values which are NaN are ignored. This class is not thread safe.
+ */
+public class ChannelPyramid
+{
+  /** How many buckets of a level are combined into one bucket of the next level. */
+  public static final int BRANCHING_FACTOR = 4;
+
+  /** Stored as position of buckets which contain no values. */
+  private static final int NONE = -1;
+
+  /**
+   * The values for which pyramids can be built.
+   */
+  public enum Channel
+  {
+    VELOCITY_FROM_LAT_LONG(point -> toDouble(point.location.velocityFromLatLong)),
+    BEARING_FROM_LAT_LONG_IN_DEGREES(point -> toDouble(point.location.getBearingFromLatLongAs360Degrees())),
+    X(point -> point.location.getX()),
+    Y(point -> point.location.getY());
+
+    private final ToDoubleFunction<DataPoint> value;
+
+    Channel(ToDoubleFunction<DataPoint> value)
+    {
+      this.value = value;
+    }
+
+    private static double toDouble(Double value)
+    {
+      return value == null ? Double.NaN : value;
+    }
+
+    /**
+     * @param point a point with location, not null.
+     *
+     * @return the value of the point, NaN if the point has no such value.
+     */
+    public double getValue(DataPoint point)
+    {
+      return value.applyAsDouble(point);
+    }
+  }
+
+  private double[] values;
+
+  private int size;
+
+  /** first[k - 1][bucket] is the position of the first value of the bucket on level k. */
+  private int[][] first;
+
+  private int[][] last;
+
+  private int[][] min;
+
+  private int[][] max;
+
+  /**
+   * Constructor.
+   *
+   * @param values the values of the points, NaN for missing values. Is not copied and must not be modified.
+   */
+  public ChannelPyramid(double[] values)
+  {
+    this.values = values;
+    this.size = values.length;
+    int levelCount = getLevelCount(size);
+    first = new int[levelCount][];
+    last = new int[levelCount][];
+    min = new int[levelCount][];
+    max = new int[levelCount][];
+    for (int level = 1; level <= levelCount; level++)
+    {
+      buildLevel(level);
+    }
+  }
+
+  private ChannelPyramid(ChannelPyramid toShare, int size)
+  {
+    this.values = toShare.values;
+    this.size = size;
+    int levelCount = getLevelCount(size);
+    first = Arrays.copyOf(toShare.first, levelCount);
+    last = Arrays.copyOf(toShare.last, levelCount);
+    min = Arrays.copyOf(toShare.min, levelCount);
+    max = Arrays.copyOf(toShare.max, levelCount);
+  }
+
+  /**
+   * Builds the pyramid of a channel.
+   *
+   * @param pointsWithLocation the points with location, not null.
+   * @param channel the value to summarize, not null.
+   *
+   * @return the pyramid, not null.
+   */
+  public static ChannelPyramid of(List<DataPoint> pointsWithLocation, Channel channel)
+  {
+    double[] values = new double[pointsWithLocation.size()];
+    for (int i = 0; i < values.length; i++)
+    {
+      values[i] = channel.getValue(pointsWithLocation.get(i));
+    }
+    return new ChannelPyramid(values);
+  }
+
+  /**
+   * Appends a value at the end.
+   *
+   * @param value the value to append, NaN for a missing value.
+   */
+  public void append(double value)
+  {
+    if (size == values.length)
+    {
+      values = Arrays.copyOf(values, size + (size >> 1) + 1);
+    }
+    values[size++] = value;
+    int position = size - 1;
+    for (int level = 1; level <= first.length; level++)
+    {
+      int bucket = (int) (position / getBucketSize(level));
+      if (bucket == first[level - 1].length)
+      {
+        int capacity = bucket + (bucket >> 1) + 1;
+        first[level - 1] = Arrays.copyOf(first[level - 1], capacity);
+        last[level - 1] = Arrays.copyOf(last[level - 1], capacity);
+        min[level - 1] = Arrays.copyOf(min[level - 1], capacity);
+        max[level - 1] = Arrays.copyOf(max[level - 1], capacity);
+      }
+      summarizeBucket(level, bucket);
+    }
+    int levelCount = getLevelCount(size);
+    if (levelCount > first.length)
+    {
+      first = Arrays.copyOf(first, levelCount);
+      last = Arrays.copyOf(last, levelCount);
+      min = Arrays.copyOf(min, levelCount);
+      max = Arrays.copyOf(max, levelCount);
+      buildLevel(levelCount);
+    }
+  }
+
+  /**
+   * Changes a value.
+   *
+   * @param position the position of the value, less than size().
+   * @param value the new value, NaN for a missing value.
+   */
+  public void set(int position, double value)
+  {
+    if (position < 0 || position >= size)
+    {
+      throw new IndexOutOfBoundsException("Position " + position + " out of bounds for size " + size);
+    }
+    values[position] = value;
+    for (int level = 1; level <= first.length; level++)
+    {
+      summarizeBucket(level, (int) (position / getBucketSize(level)));
+    }
+  }
+
+  /**
+   * Returns the pyramid of the first values, sharing the value and bucket arrays with this pyramid.
+   * The returned pyramid only reads values and buckets which lie completely within its size,
+   * so appending to this pyramid, and changing values which are not among the first values,
+   * does not affect it. The returned pyramid must not be modified.
+   *
+   * @param prefixSize the number of values in the returned pyramid, not larger than size().
+   *
+   * @return the pyramid of the first values, not null.
+   */
+  public ChannelPyramid prefix(int prefixSize)
+  {
+    if (prefixSize < 0 || prefixSize > size)
+    {
+      throw new IndexOutOfBoundsException("Prefix size " + prefixSize + " out of bounds for size " + size);
+    }
+    return new ChannelPyramid(this, prefixSize);
+  }
+
+  private void buildLevel(int level)
+  {
+    int bucketCount = getBucketCount(level);
+    first[level - 1] = new int[bucketCount];
+    last[level - 1] = new int[bucketCount];
+    min[level - 1] = new int[bucketCount];
+    max[level - 1] = new int[bucketCount];
+    for (int bucket = 0; bucket < bucketCount; bucket++)
+    {
+      summarizeBucket(level, bucket);
+    }
+  }
+
+  /**
+   * Calculates the first, last, minimum and maximum position of a bucket from its children on the level below.
+   */
+  private void summarizeBucket(int level, int bucket)
+  {
+    int bucketFirst = NONE;
+    int bucketLast = NONE;
+    int bucketMin = NONE;
+    int bucketMax = NONE;
+    int fromChild = bucket * BRANCHING_FACTOR;
+    int toChild = Math.min(fromChild + BRANCHING_FACTOR, getBucketCount(level - 1));
+    for (int child = fromChild; child < toChild; child++)
+    {
+      int childFirst;
+      int childLast;
+      int childMin;
+      int childMax;
+      if (level == 1)
+      {
+        if (Double.isNaN(values[child]))
+        {
+          continue;
+        }
+        childFirst = child;
+        childLast = child;
+        childMin = child;
+        childMax = child;
+      }
+      else
+      {
+        childFirst = first[level - 2][child];
+        if (childFirst == NONE)
+        {
+          continue;
+        }
+        childLast = last[level - 2][child];
+        childMin = min[level - 2][child];
+        childMax = max[level - 2][child];
+      }
+      if (bucketFirst == NONE)
+      {
+        bucketFirst = childFirst;
+        bucketMin = childMin;
+        bucketMax = childMax;
+      }
+      else
+      {
+        if (values[childMin] < values[bucketMin])
+        {
+          bucketMin = childMin;
+        }
+        if (values[childMax] > values[bucketMax])
+        {
+          bucketMax = childMax;
+        }
+      }
+      bucketLast = childLast;
+    }
+    first[level - 1][bucket] = bucketFirst;
+    last[level - 1][bucket] = bucketLast;
+    min[level - 1][bucket] = bucketMin;
+    max[level - 1][bucket] = bucketMax;
+  }
+
+  /**
+   * @return the number of buckets on a level, on level 0 the number of values.
+   */
+  private int getBucketCount(int level)
+  {
+    return (int) divideRoundingUp(size, getBucketSize(level));
+  }
+
+  /**
+   * @return the number of levels above level 0 for the given number of values.
+   */
+  private static int getLevelCount(int size)
+  {
+    int result = 0;
+    for (long bucketSize = BRANCHING_FACTOR; bucketSize < size; bucketSize *= BRANCHING_FACTOR)
+    {
+      result++;
+    }
+    return result;
+  }
+
+  private static long getBucketSize(int level)
+  {
+    long result = 1;
+    for (int i = 0; i < level; i++)
+    {
+      result *= BRANCHING_FACTOR;
+    }
+    return result;
+  }
+
+  private static long divideRoundingUp(long dividend, long divisor)
+  {
+    return (dividend + divisor - 1) / divisor;
+  }
+
+  /**
+   * @return the number of levels, including level 0 which consists of the points themselves.
+   */
+  public int getLevelCount()
+  {
+    return first.length + 1;
+  }
+
+  /**
+   * @return the number of summarized values.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the coarsest level which has at least the given number of buckets in a range of positions.
+   *
+   * @param fromPosition the first position of the range, inclusive.
+   * @param toPosition the last position of the range, exclusive.
+   * @param minBucketCount the minimum number of buckets, e.g. the width of the plot in pixels.
+   *
+   * @return the level, 0 if even the finest summary level has too few buckets.
+   */
+  public int getLevel(int fromPosition, int toPosition, int minBucketCount)
+  {
+    int result = 0;
+    while (result < first.length
+        && (toPosition - fromPosition) / getBucketSize(result + 1) >= minBucketCount)
+    {
+      result++;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the positions of the points to draw for a range of positions, so that
+   * the drawn lines look the same as the lines through all points in the range, in a plot of the given width.
+   * For each bucket of the level chosen by getLevel(), the first, last, minimum and maximum point is selected.
+   * Buckets which are only partly within the range are replaced by the points within the range.
+   *
+   * @param fromPosition the first position of the range, inclusive.
+   * @param toPosition the last position of the range, exclusive.
+   * @param pixelWidth the width of the plot in pixels.
+   *
+   * @return the selected positions in ascending order, without duplicates. Positions of NaN values are omitted.
+   */
+  public int[] select(int fromPosition, int toPosition, int pixelWidth)
+  {
+    int level = getLevel(fromPosition, toPosition, pixelWidth);
+    if (level == 0)
+    {
+      return selectPoints(fromPosition, toPosition, new Selection(toPosition - fromPosition)).toArray();
+    }
+    long bucketSize = getBucketSize(level);
+    int firstFullBucket = (int) divideRoundingUp(fromPosition, bucketSize);
+    int endOfFullBuckets = (int) (toPosition / bucketSize);
+    Selection result = new Selection((endOfFullBuckets - firstFullBucket) * 4 + 16);
+    selectPoints(fromPosition, (int) Math.min(firstFullBucket * bucketSize, toPosition), result);
+    int[] levelFirst = first[level - 1];
+    int[] levelLast = last[level - 1];
+    int[] levelMin = min[level - 1];
+    int[] levelMax = max[level - 1];
+    for (int bucket = firstFullBucket; bucket < endOfFullBuckets; bucket++)
+    {
+      if (levelFirst[bucket] == NONE)
+      {
+        continue;
+      }
+      result.add(levelFirst[bucket]);
+      result.add(Math.min(levelMin[bucket], levelMax[bucket]));
+      result.add(Math.max(levelMin[bucket], levelMax[bucket]));
+      result.add(levelLast[bucket]);
+    }
+    selectPoints((int) Math.max(endOfFullBuckets * bucketSize, fromPosition), toPosition, result);
+    return result.toArray();
+  }
+
+  private Selection selectPoints(int fromPosition, int toPosition, Selection result)
+  {
+    for (int position = fromPosition; position < toPosition; position++)
+    {
+      if (!Double.isNaN(values[position]))
+      {
+        result.add(position);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Collects ascending positions, dropping repeated positions.
+   */
+  private static class Selection
+  {
+    private int[] positions;
+
+    private int size;
+
+    private Selection(int capacity)
+    {
+      positions = new int[Math.max(capacity, 1)];
+    }
+
+    private void add(int position)
+    {
+      if (size > 0 && positions[size - 1] == position)
+      {
+        return;
+      }
+      if (size == positions.length)
+      {
+        positions = Arrays.copyOf(positions, size * 2);
+      }
+      positions[size++] = position;
+    }
+
+    private int[] toArray()
+    {
+      return Arrays.copyOf(positions, size);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.List;
+
+import com.github.thomasfox.sailplotter.Constants;
+import com.github.thomasfox.sailplotter.model.vector.TwoDimVector;
+
+/**
+ * Compact in-memory representation of the location channel of a track,
+ * for keeping many tracks resident at once instead of their Data objects.
+ *
+ * Latitude and longitude are stored as <code>int</code> fixed point values
+ * in units of 1e-7 degrees (about 1 cm) relative to the first location of the track,
+ * and times are stored as <code>int</code> millisecond offsets from the time of the first location.
+ * Velocities and bearings are stored as <code>float</code>, NaN if not present.
+ * This takes 28 bytes per location, compared to about 280 bytes for a data point with location.
+ *
+ * All values are decoded in the accessors. As in DataColumns, x and y are the coordinates
+ * in the tangent plane of the earth at the first location of the track,
+ * so decoding them needs no trigonometric functions.
+ * The track can be analyzed without decoding it into data points,
+ * see VelocityBearingAnalyzer.analyze(CompactTrack).
+ *
+ * Only points with location are contained; altitude, satellite time, magnetic field,
+ * acceleration and wind are not stored.
+ * This class is not thread safe.
+ */
+public class CompactTrack
+{
+  /** The size of one unit of the fixed point coordinates, in degrees. */
+  public static final double COORDINATE_UNIT_DEGREES = 1e-7d;
+
+  private static final double COORDINATE_UNIT_ARCS = Math.toRadians(COORDINATE_UNIT_DEGREES);
+
+  private final long startTime;
+
+  private final double originLatitude;
+
+  private final double originLongitude;
+
+  /** The length of one unit of the latitude offsets, in meters. */
+  private final double metersPerLatitudeUnit;
+
+  /** The length of one unit of the longitude offsets at the latitude of the origin, in meters. */
+  private final double metersPerLongitudeUnit;
+
+  private final int[] timeOffsets;
+
+  private final int[] latitudeOffsets;
+
+  private final int[] longitudeOffsets;
+
+  private final float[] velocity;
+
+  private final float[] bearing;
+
+  private final float[] velocityFromLatLong;
+
+  private final float[] bearingFromLatLong;
+
+  private CompactTrack(int size, long startTime, double originLatitude, double originLongitude)
+  {
+    this.startTime = startTime;
+    this.originLatitude = originLatitude;
+    this.originLongitude = originLongitude;
+    metersPerLatitudeUnit = COORDINATE_UNIT_ARCS * Constants.EARTH_RADIUS;
+    metersPerLongitudeUnit = metersPerLatitudeUnit * Math.cos(originLatitude);
+    timeOffsets = new int[size];
+    latitudeOffsets = new int[size];
+    longitudeOffsets = new int[size];
+    velocity = new float[size];
+    bearing = new float[size];
+    velocityFromLatLong = new float[size];
+    bearingFromLatLong = new float[size];
+  }
+
+  /**
+   * Encodes the points with location of the given data.
+   *
+   * @param data the data to encode, not null.
+   *
+   * @return the compact track, not null.
+   *
+   * @throws IllegalArgumentException if a point with location has no time
+   *         or if the track is too long to be encoded as int millisecond offsets.
+   */
+  public static CompactTrack of(Data data)
+  {
+    List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
+    if (pointsWithLocation.isEmpty())
+    {
+      return new CompactTrack(0, 0L, 0d, 0d);
+    }
+    DataPoint first = pointsWithLocation.get(0);
+    CompactTrack result = new CompactTrack(
+        pointsWithLocation.size(),
+        getTime(first),
+        first.location.latitude,
+        first.location.longitude);
+    int n = 0;
+    for (DataPoint point : pointsWithLocation)
+    {
+      long timeOffset = getTime(point) - result.startTime;
+      if (timeOffset < Integer.MIN_VALUE || timeOffset > Integer.MAX_VALUE)
+      {
+        throw new IllegalArgumentException("Track is too long to be stored compactly, time offset is "
+            + timeOffset + " ms at point " + point.index);
+      }
+      Location location = point.location;
+      result.timeOffsets[n] = (int) timeOffset;
+      result.latitudeOffsets[n] = encodeCoordinate(location.latitude - result.originLatitude);
+      result.longitudeOffsets[n] = encodeCoordinate(location.longitude - result.originLongitude);
+      result.velocity[n] = encodeOptional(location.velocity);
+      result.bearing[n] = encodeOptional(location.bearing);
+      result.velocityFromLatLong[n] = encodeOptional(location.velocityFromLatLong);
+      result.bearingFromLatLong[n] = encodeOptional(location.bearingFromLatLong);
+      n++;
+    }
+    return result;
+  }
+
+  private static long getTime(DataPoint point)
+  {
+    if (point.time == null)
+    {
+      throw new IllegalArgumentException("Point " + point.index + " has no time");
+    }
+    return point.time;
+  }
+
+  private static int encodeCoordinate(double offsetInArcs)
+  {
+    return (int) Math.round(offsetInArcs / COORDINATE_UNIT_ARCS);
+  }
+
+  private static float encodeOptional(Double value)
+  {
+    if (value == null)
+    {
+      return Float.NaN;
+    }
+    return value.floatValue();
+  }
+
+  private static Double decodeOptional(float value)
+  {
+    if (Float.isNaN(value))
+    {
+      return null;
+    }
+    return (double) value;
+  }
+
+  public int size()
+  {
+    return timeOffsets.length;
+  }
+
+  /**
+   * @return the time of the n-th location in millis since 01.01.1970 0:00:00.000 GMT.
+   */
+  public long getTime(int n)
+  {
+    return startTime + timeOffsets[n];
+  }
+
+  /**
+   * @return the latitude of the n-th location in arcs.
+   */
+  public double getLatitude(int n)
+  {
+    return originLatitude + latitudeOffsets[n] * COORDINATE_UNIT_ARCS;
+  }
+
+  /**
+   * @return the longitude of the n-th location in arcs.
+   */
+  public double getLongitude(int n)
+  {
+    return originLongitude + longitudeOffsets[n] * COORDINATE_UNIT_ARCS;
+  }
+
+  /**
+   * @return the distance of the n-th location east of the first location in meters.
+   */
+  public double getX(int n)
+  {
+    return longitudeOffsets[n] * metersPerLongitudeUnit;
+  }
+
+  /**
+   * @return the distance of the n-th location north of the first location in meters.
+   */
+  public double getY(int n)
+  {
+    return latitudeOffsets[n] * metersPerLatitudeUnit;
+  }
+
+  /**
+   * Calculates the distance between two locations, as DataColumns.approximateDistance() does.
+   *
+   * @param n the index of the first location.
+   * @param other the index of the second location.
+   *
+   * @return the distance in meters.
+   */
+  public double approximateDistance(int n, int other)
+  {
+    double xDist = getX(n) - getX(other);
+    double yDist = getY(n) - getY(other);
+    return Math.sqrt(xDist * xDist + yDist * yDist);
+  }
+
+  /**
+   * Calculates the bearing from one location to another, as DataColumns.getBearing(int, int) does.
+   *
+   * @param from the index of the location to calculate the bearing from.
+   * @param to the index of the location to calculate the bearing to.
+   *
+   * @return the bearing in arcs, in the range [0, 2*PI[, or null if both locations are equal.
+   */
+  public Double getBearing(int from, int to)
+  {
+    return new TwoDimVector(getX(to) - getX(from), getY(to) - getY(from)).getBearingToYInArcs();
+  }
+
+  /**
+   * @return the velocity of the n-th location measured by GPS in knots, or NaN if not present.
+   */
+  public double getVelocity(int n)
+  {
+    return velocity[n];
+  }
+
+  /**
+   * @return the bearing of the n-th location measured by GPS in arcs, or NaN if not present.
+   */
+  public double getBearing(int n)
+  {
+    return bearing[n];
+  }
+
+  /**
+   * @return the velocity of the n-th location calculated from latitude and longitude in knots,
+   *         or NaN if not present.
+   */
+  public double getVelocityFromLatLong(int n)
+  {
+    return velocityFromLatLong[n];
+  }
+
+  /**
+   * @return the bearing of the n-th location calculated from latitude and longitude in arcs,
+   *         or NaN if not present.
+   */
+  public double getBearingFromLatLong(int n)
+  {
+    return bearingFromLatLong[n];
+  }
+
+  /**
+   * Stores the velocity and bearing of the n-th location calculated from latitude and longitude.
+   *
+   * @param n the index of the location.
+   * @param velocityInKnots the velocity, or NaN if not known.
+   * @param bearingInArcs the bearing, or null if not known.
+   */
+  public void setVelocityBearingFromLatLong(int n, double velocityInKnots, Double bearingInArcs)
+  {
+    velocityFromLatLong[n] = (float) velocityInKnots;
+    bearingFromLatLong[n] = encodeOptional(bearingInArcs);
+  }
+
+  /**
+   * Decodes the n-th location.
+   *
+   * @return a new location object containing the decoded values, not null.
+   */
+  public Location getLocation(int n)
+  {
+    Location result = new Location();
+    result.latitude = getLatitude(n);
+    result.longitude = getLongitude(n);
+    result.velocity = decodeOptional(velocity[n]);
+    result.bearing = decodeOptional(bearing[n]);
+    result.velocityFromLatLong = decodeOptional(velocityFromLatLong[n]);
+    result.bearingFromLatLong = decodeOptional(bearingFromLatLong[n]);
+    return result;
+  }
+
+  /**
+   * Decodes this track into a Data object, e.g. for displaying it.
+   *
+   * @return a new data object containing one point with location per stored location, not null.
+   */
+  public Data toData()
+  {
+    Data.Builder builder = new Data.Builder(size());
+    for (int n = 0; n < size(); n++)
+    {
+      DataPoint point = new DataPoint(n);
+      point.time = getTime(n);
+      point.location = getLocation(n);
+      builder.add(point);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the estimated heap size of this track in bytes.
+   */
+  public long estimateBytes()
+  {
+    return MemoryFootprint.shallowSize(CompactTrack.class)
+        + 3 * MemoryFootprint.arraySize(Integer.BYTES, size())
+        + 4 * MemoryFootprint.arraySize(Float.BYTES, size());
+  }
+}
@@ -2,7 +2,12 @@ package com.github.thomasfox.sailplotter.model;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -12,7 +17,13 @@ import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
 
 public class Data
 {
-  private final List<DataPoint> points = new ArrayList<>();
+  private final PointList points;
+
+  /**
+   * Whether this object is a prefix of another Data object (see prefix(int))
+   * and shares its storage, so that it must not be modified.
+   */
+  private transient boolean prefix;
 
   /** The file where the data was loaded from.
    */
@@ -29,16 +40,51 @@ public class Data
    */
   private CoordinateSystem boatCoordinatesInDeviceCoordinates;
 
-  private transient List<DataPoint> locationPoints;
+  private transient ChannelIndex locationIndex;
+
+  private transient ChannelIndex magneticFieldIndex;
+
+  private transient ChannelIndex accelerationIndex;
+
+  private transient TimeIndex locationTimeIndex;
+
+  private transient TimeIndex magneticFieldTimeIndex;
+
+  private transient TimeIndex accelerationTimeIndex;
+
+  /**
+   * The columns of the points, or null if they were not requested since the last reset.
+   * Built on first request under columnLock, because a published Data object may be read from several threads.
+   */
+  private transient volatile DataColumns columns;
+
+  private final transient Object columnLock = new Object();
+
+  /** The pyramids requested so far. Access is synchronized on the map, because they are built on first request. */
+  private transient Map<ChannelPyramid.Channel, ChannelPyramid> pyramids
+      = new EnumMap<>(ChannelPyramid.Channel.class);
+
+  /**
+   * Sets the magnetic fields and accelerations of the points when they are first needed,
+   * or null if they are set. See loadSensorValuesOnDemand(Runnable).
+   */
+  private transient volatile Runnable sensorValueLoader;
 
-  private transient List<DataPoint> magneticFieldPoints;
+  /** Whether the sensorValueLoader is running. Guarded by sensorValueLock. */
+  private transient boolean loadingSensorValues;
 
-  private transient List<DataPoint> accelerationPoints;
+  private final transient Object sensorValueLock = new Object();
 
   private transient TackList tackList = new TackList();
 
   private transient List<TackSeries> tackSeriesList = new ArrayList<TackSeries>();
 
+  /**
+   * The analysis stages whose results are present in this object.
+   * Cleared if points are added or the wind bearing changes.
+   */
+  private transient Set<AnalysisStage> analyzedStages = EnumSet.noneOf(AnalysisStage.class);
+
   /**
    * Coordinate System of the boat main axes (front, right, down)
    * in the coordinate system of the measuring device.
@@ -51,27 +97,175 @@ public class Data
    */
   public String comment;
 
+  public Data()
+  {
+    points = new PointList();
+  }
+
+  private Data(PointList points)
+  {
+    this.points = points;
+  }
+
+  /**
+   * Copy constructor.
+   * Copies the data points and the input of the analysis,
+   * but not the results of the tack analysis, which refer to the points of <code>toCopy</code>.
+   *
+   * @param toCopy the data to copy, not null.
+   */
+  public Data(Data toCopy)
+  {
+    toCopy.loadSensorValues();
+    points = new PointList(toCopy.points.size());
+    for (DataPoint point : toCopy.points)
+    {
+      points.add(new DataPoint(point));
+    }
+    file = toCopy.file;
+    averageWindBearing = toCopy.averageWindBearing;
+    boatCoordinatesInDeviceCoordinates = toCopy.boatCoordinatesInDeviceCoordinates;
+    deviceOrientation = toCopy.deviceOrientation;
+    comment = toCopy.comment;
+  }
+
   public void add(DataPoint point)
   {
-    if (size() > 0 && point.time != null && getLast().time != null && getLast().time > point.time)
+    checkModifiable();
+    if (size() > 0)
+    {
+      checkTimeOrder(getLast(), point);
+    }
+    DataPoint copy = new DataPoint(point);
+    points.add(copy);
+    pointAppended(copy);
+    analyzedStages.clear();
+  }
+
+  /**
+   * Appends a list of points at the end of the data.
+   * In contrast to add(DataPoint), the points are not copied
+   * but are owned by this object afterwards; they also get their index assigned.
+   * The time order of the points is checked before any point is added,
+   * so either all or none of the points are added.
+   *
+   * @param toAppend the points to append, not null.
+   *
+   * @throws IllegalArgumentException if the points are not ordered in time.
+   */
+  public void appendAll(List<DataPoint> toAppend)
+  {
+    checkModifiable();
+    DataPoint previous = points.isEmpty() ? null : getLast();
+    for (DataPoint point : toAppend)
+    {
+      if (previous != null)
+      {
+        checkTimeOrder(previous, point);
+      }
+      previous = point;
+    }
+    points.ensureCapacity(points.size() + toAppend.size());
+    for (DataPoint point : toAppend)
+    {
+      point.index = points.size();
+      points.add(point);
+      pointAppended(point);
+    }
+    analyzedStages.clear();
+  }
+
+  /**
+   * Updates the cached sensor channels, columns and pyramids after a point was appended
+   * to the list of points.
+   *
+   * @param point the appended point, not null.
+   */
+  private void pointAppended(DataPoint point)
+  {
+    int index = points.size() - 1;
+    if (locationIndex != null && point.hasLocation())
+    {
+      locationIndex.append(index);
+      if (locationTimeIndex != null)
+      {
+        locationTimeIndex.append(point);
+      }
+    }
+    if (magneticFieldIndex != null && point.hasMagneticField())
+    {
+      magneticFieldIndex.append(index);
+      if (magneticFieldTimeIndex != null)
+      {
+        magneticFieldTimeIndex.append(point);
+      }
+    }
+    if (accelerationIndex != null && point.hasAcceleration())
+    {
+      accelerationIndex.append(index);
+      if (accelerationTimeIndex != null)
+      {
+        accelerationTimeIndex.append(point);
+      }
+    }
+    if (columns != null)
+    {
+      columns.append(point);
+    }
+    if (point.hasLocation())
+    {
+      synchronized (pyramids)
+      {
+        pyramids.forEach((channel, pyramid) -> pyramid.append(channel.getValue(point)));
+      }
+    }
+  }
+
+  private void checkModifiable()
+  {
+    if (prefix)
+    {
+      throw new IllegalStateException("The points of a prefix cannot be modified");
+    }
+  }
+
+  private static void checkTimeOrder(DataPoint last, DataPoint point)
+  {
+    if (point.time != null && last.time != null && last.time > point.time)
     {
       throw new IllegalArgumentException("Points must be ordered in time. "
           + "Newly added point has time " + point.time
-          + " while last point in list has time " + getLast().time);
+          + " while last point in list has time " + last.time);
     }
-    points.add(new DataPoint(point));
-    resetCache();
   }
 
   public void add(int position, DataPoint point)
   {
-    points.add(position, new DataPoint(point));
-    resetCache();
+    checkModifiable();
+    DataPoint copy = new DataPoint(point);
+    points.add(position, copy);
+    analyzedStages.clear();
+    if (locationIndex != null)
+    {
+      locationIndex.pointInserted(position, copy.hasLocation());
+    }
+    if (magneticFieldIndex != null)
+    {
+      magneticFieldIndex.pointInserted(position, copy.hasMagneticField());
+    }
+    if (accelerationIndex != null)
+    {
+      accelerationIndex.pointInserted(position, copy.hasAcceleration());
+    }
+    resetColumnCache();
   }
 
   /**
    * Returns the data point at a certain index.
-   * If the data point is modified, resetCache() should be called on this object.
+   * If the data point is modified, pointChanged(int) or resetCache()
+   * should be called on this object.
+   * If the sensor values are loaded on demand, the magnetic field and acceleration
+   * of the point are only set after loadSensorValues() was called.
    *
    * @param index the data point index
    * @return the data point at the index
@@ -100,91 +294,476 @@ public class Data
   }
 
   /**
-   * Returns all data points.
+   * Returns a read-only view on all data points.
    * The points are expected to be ordered in time, though this is not fully enforced.
-   * If a data point is modified, resetCache() should be called on this object.
+   * If a data point is modified, pointChanged(int) or resetCache()
+   * should be called on this object.
+   * The sensor values are loaded if this has not happened yet, see loadSensorValues().
    *
    * @return all data points, never null, may be empty.
    */
   public List<DataPoint> getAllPoints()
   {
-    return new ArrayList<>(points);
+    loadSensorValues();
+    return Collections.unmodifiableList(points);
+  }
+
+  private void fillSensorIndices()
+  {
+    int expectedSize = points.size() / 2;
+    ChannelIndex locationIndex = new ChannelIndex(expectedSize);
+    ChannelIndex magneticFieldIndex = new ChannelIndex(expectedSize);
+    ChannelIndex accelerationIndex = new ChannelIndex(expectedSize);
+    int index = 0;
+    for (DataPoint point : points)
+    {
+      if (point.hasLocation())
+      {
+        locationIndex.append(index);
+      }
+      if (point.hasMagneticField())
+      {
+        magneticFieldIndex.append(index);
+      }
+      if (point.hasAcceleration())
+      {
+        accelerationIndex.append(index);
+      }
+      index++;
+    }
+    this.locationIndex = locationIndex;
+    this.magneticFieldIndex = magneticFieldIndex;
+    this.accelerationIndex = accelerationIndex;
   }
 
+  /**
+   * Returns a read-only view on all points with location.
+   * The view is not affected by points which are added later.
+   *
+   * @return the points with location, not null.
+   */
   @JsonIgnore
   public List<DataPoint> getPointsWithLocation()
   {
-    if (locationPoints == null)
+    if (locationIndex == null)
     {
-      fillLocationPoints();
+      locationIndex = ChannelIndex.of(points, DataPoint::hasLocation);
     }
-    return locationPoints;
+    return locationIndex.view(points);
   }
 
-  private void fillLocationPoints()
+  /**
+   * Returns the index in the list of all points of a point with location.
+   * In contrast to the index field of the point, this is always the row of the point
+   * in get(int) and in the columns, also for points added by add(DataPoint) or add(int, DataPoint).
+   *
+   * @param position the position of the point in getPointsWithLocation().
+   *
+   * @return the index of the point in the list of all points.
+   */
+  public int getLocationRow(int position)
   {
-    List<DataPoint> locationPoints = new ArrayList<>();
-    for (DataPoint point : points)
+    if (locationIndex == null)
     {
-      if (point.hasLocation())
-      {
-        locationPoints.add(point);
-      }
+      locationIndex = ChannelIndex.of(points, DataPoint::hasLocation);
     }
-    this.locationPoints = locationPoints;
+    return locationIndex.get(position);
   }
 
+  /**
+   * Returns a read-only view on all points with magnetic field.
+   * The view is not affected by points which are added later.
+   *
+   * @return the points with magnetic field, not null.
+   */
   @JsonIgnore
   public List<DataPoint> getPointsWithMagneticField()
   {
-    if (magneticFieldPoints == null)
+    loadSensorValues();
+    if (magneticFieldIndex == null)
     {
-      fillMagneticFieldPoints();
+      magneticFieldIndex = ChannelIndex.of(points, DataPoint::hasMagneticField);
     }
-    return magneticFieldPoints;
+    return magneticFieldIndex.view(points);
   }
 
-  private void fillMagneticFieldPoints()
+  /**
+   * Returns a read-only view on all points with acceleration.
+   * The view is not affected by points which are added later.
+   *
+   * @return the points with acceleration, not null.
+   */
+  @JsonIgnore
+  public List<DataPoint> getPointsWithAcceleration()
   {
-    List<DataPoint> magneticFieldPoints = new ArrayList<>();
-    for (DataPoint point : points)
+    loadSensorValues();
+    if (accelerationIndex == null)
     {
-      if (point.hasMagneticField())
+      fillAccelerationPoints();
+    }
+    return accelerationIndex.view(points);
+  }
+
+  public void fillAccelerationPoints()
+  {
+    loadSensorValues();
+    accelerationIndex = ChannelIndex.of(points, DataPoint::hasAcceleration);
+  }
+
+  /**
+   * Returns the times of all points with location, in the order of getPointsWithLocation().
+   * The index is cached, so if the time of a data point is modified,
+   * pointChanged(int), resetColumnCache() or resetCache() should be called on this object.
+   *
+   * @return the time index of the location channel, not null.
+   */
+  @JsonIgnore
+  public TimeIndex getLocationTimeIndex()
+  {
+    if (locationTimeIndex == null)
+    {
+      locationTimeIndex = TimeIndex.of(getPointsWithLocation());
+    }
+    return locationTimeIndex;
+  }
+
+  /**
+   * Returns the times of all points with magnetic field, in the order of getPointsWithMagneticField().
+   * The index is cached, so if the time of a data point is modified,
+   * pointChanged(int), resetColumnCache() or resetCache() should be called on this object.
+   *
+   * @return the time index of the magnetic field channel, not null.
+   */
+  @JsonIgnore
+  public TimeIndex getMagneticFieldTimeIndex()
+  {
+    loadSensorValues();
+    if (magneticFieldTimeIndex == null)
+    {
+      magneticFieldTimeIndex = TimeIndex.of(getPointsWithMagneticField());
+    }
+    return magneticFieldTimeIndex;
+  }
+
+  /**
+   * Returns the times of all points with acceleration, in the order of getPointsWithAcceleration().
+   * The index is cached, so if the time of a data point is modified,
+   * pointChanged(int), resetColumnCache() or resetCache() should be called on this object.
+   *
+   * @return the time index of the acceleration channel, not null.
+   */
+  @JsonIgnore
+  public TimeIndex getAccelerationTimeIndex()
+  {
+    loadSensorValues();
+    if (accelerationTimeIndex == null)
+    {
+      accelerationTimeIndex = TimeIndex.of(getPointsWithAcceleration());
+    }
+    return accelerationTimeIndex;
+  }
+
+  /**
+   * Returns a copy of the measured values of all data points in column oriented form,
+   * for loops over many points which only need a few values of each point.
+   * The row index in the returned columns is the index of the data point in this object.
+   * The columns are built on first request and cached until the next reset,
+   * so if a data point is modified, pointChanged(int), pointValuesChanged(int),
+   * resetColumnCache() or resetCache() should be called on this object.
+   * They are not built by fillCaches(), so code which does not loop over the columns does not pay for them.
+   * If the sensor values are loaded on demand, the magnetic field and acceleration columns
+   * are only filled after loadSensorValues() was called.
+   * This method may be called concurrently from several threads as long as this object is not modified.
+   *
+   * @return the columns of all data points, not null.
+   */
+  @JsonIgnore
+  public DataColumns getColumns()
+  {
+    DataColumns result = columns;
+    if (result != null)
+    {
+      return result;
+    }
+    synchronized (columnLock)
+    {
+      if (columns == null)
+      {
+        columns = DataColumns.of(points, points.size());
+      }
+      return columns;
+    }
+  }
+
+  /**
+   * Builds the caches which are otherwise built lazily on first access,
+   * except the pyramids, which are only needed for plotted values, and the columns,
+   * which are only needed by loops over the columns. Both are built on first request.
+   * If the sensor values are loaded on demand, they are not loaded, and the caches of the sensor channels
+   * are built when they are loaded.
+   * Afterwards, this object can be read concurrently from several threads as long as it is not modified.
+   */
+  public void fillCaches()
+  {
+    getLocationTimeIndex();
+    if (sensorValueLoader == null)
+    {
+      getMagneticFieldTimeIndex();
+      getAccelerationTimeIndex();
+    }
+  }
+
+  /**
+   * Defers setting the magnetic fields and accelerations of the points until they are first needed,
+   * so that the sensor values of data which is only looked at for its track are never decoded.
+   * They are needed by the accessors of the magnetic field and acceleration channels,
+   * by getAllPoints(), getAverageAcceleration() and the copy constructor,
+   * and are loaded explicitly by loadSensorValues().
+   *
+   * @param loader sets the magnetic fields and accelerations of the points of this object, not null.
+   *        Is run once, while other threads wait for the sensor values.
+   */
+  public void loadSensorValuesOnDemand(Runnable loader)
+  {
+    sensorValueLoader = loader;
+  }
+
+  /**
+   * Sets the magnetic fields and accelerations of the points if this was deferred
+   * by loadSensorValuesOnDemand(Runnable), and builds the caches of the sensor channels.
+   * Code reading the sensor values of points obtained by get(int) must call this method first.
+   * This method may be called concurrently from several threads.
+   */
+  public void loadSensorValues()
+  {
+    if (sensorValueLoader == null)
+    {
+      return;
+    }
+    synchronized (sensorValueLock)
+    {
+      Runnable loader = sensorValueLoader;
+      if (loader == null || loadingSensorValues)
+      {
+        // loaded by another thread meanwhile, or called by the loader
+        return;
+      }
+      magneticFieldIndex = null;
+      accelerationIndex = null;
+      magneticFieldTimeIndex = null;
+      accelerationTimeIndex = null;
+      loadingSensorValues = true;
+      try
+      {
+        loader.run();
+      }
+      finally
       {
-        magneticFieldPoints.add(point);
+        loadingSensorValues = false;
       }
+      magneticFieldIndex = ChannelIndex.of(points, DataPoint::hasMagneticField);
+      accelerationIndex = ChannelIndex.of(points, DataPoint::hasAcceleration);
+      magneticFieldTimeIndex = TimeIndex.of(magneticFieldIndex.view(points));
+      accelerationTimeIndex = TimeIndex.of(accelerationIndex.view(points));
+      if (columns != null)
+      {
+        for (int row = 0; row < points.size(); row++)
+        {
+          columns.setSensorValues(row, points.get(row));
+        }
+      }
+      sensorValueLoader = null;
     }
-    this.magneticFieldPoints = magneticFieldPoints;
   }
 
+  /**
+   * Returns the multi-resolution summary of a value of the points with location, for plotting.
+   * The pyramid is built on first request and cached. It is extended when points are appended
+   * and updated by pointValuesChanged(int); pointChanged(int), resetColumnCache() and resetCache() drop it.
+   * This method may be called concurrently from several threads.
+   *
+   * @param channel the summarized value, not null.
+   *
+   * @return the pyramid over the points in the order of getPointsWithLocation(), not null.
+   */
   @JsonIgnore
-  public List<DataPoint> getPointsWithAcceleration()
+  public ChannelPyramid getPyramid(ChannelPyramid.Channel channel)
   {
-    if (accelerationPoints == null)
+    synchronized (pyramids)
     {
-      fillAccelerationPoints();
+      return pyramids.computeIfAbsent(channel, c -> ChannelPyramid.of(getPointsWithLocation(), c));
     }
-    return accelerationPoints;
   }
 
-  public void fillAccelerationPoints()
+  /**
+   * Returns the first points of this object as a new Data object, without copying the points and the caches.
+   * The returned object shares the points, the sensor indices, the time indices, the pyramids
+   * and the columns, if they were built, with this object, but only reads the part belonging to its points.
+   * So this object may be modified afterwards by appending points and by changing points
+   * which are not contained in the returned object, while the returned object is read from another thread.
+   * The returned object must not be modified. Its tack list and tack series list are empty.
+   *
+   * The caches of this object are built if they do not exist yet, including the pyramids of all channels,
+   * so that they are extended when points are appended and later prefixes can share them.
+   *
+   * @param size the number of points of the returned object, not larger than size().
+   *
+   * @return the first points, not null.
+   */
+  public Data prefix(int size)
   {
-    List<DataPoint> accelerationPoints = new ArrayList<>();
-    for (DataPoint point : points)
+    loadSensorValues();
+    fillCaches();
+    Data result = new Data(points.prefix(size));
+    result.prefix = true;
+    result.locationIndex = locationIndex.prefix(size);
+    result.magneticFieldIndex = magneticFieldIndex.prefix(size);
+    result.accelerationIndex = accelerationIndex.prefix(size);
+    result.locationTimeIndex = locationTimeIndex.prefix(result.locationIndex.size());
+    result.magneticFieldTimeIndex = magneticFieldTimeIndex.prefix(result.magneticFieldIndex.size());
+    result.accelerationTimeIndex = accelerationTimeIndex.prefix(result.accelerationIndex.size());
+    DataColumns currentColumns = columns;
+    if (currentColumns != null)
     {
-      if (point.hasAcceleration())
+      result.columns = currentColumns.prefix(size);
+    }
+    for (ChannelPyramid.Channel channel : ChannelPyramid.Channel.values())
+    {
+      result.pyramids.put(channel, getPyramid(channel).prefix(result.locationIndex.size()));
+    }
+    result.file = file;
+    result.averageWindBearing = averageWindBearing;
+    result.boatCoordinatesInDeviceCoordinates = boatCoordinatesInDeviceCoordinates;
+    result.deviceOrientation = deviceOrientation;
+    result.comment = comment;
+    result.analyzedStages.addAll(analyzedStages);
+    return result;
+  }
+
+  /**
+   * Estimates the retained heap of this object, split by sensor channel and derived structures.
+   * This iterates over all data points, so it should not be called in time-critical code.
+   *
+   * @return the estimated memory footprint, not null.
+   */
+  @JsonIgnore
+  public MemoryFootprint getMemoryFootprint()
+  {
+    loadSensorValues();
+    return MemoryFootprint.of(this, estimateCacheBytes());
+  }
+
+  private long estimateCacheBytes()
+  {
+    long result = 0;
+    for (ChannelIndex channelIndex : new ChannelIndex[] {locationIndex, magneticFieldIndex, accelerationIndex})
+    {
+      if (channelIndex != null)
       {
-        accelerationPoints.add(point);
+        result += channelIndex.estimateBytes();
       }
     }
-    this.accelerationPoints = accelerationPoints;
+    for (TimeIndex timeIndex : new TimeIndex[] {locationTimeIndex, magneticFieldTimeIndex, accelerationTimeIndex})
+    {
+      if (timeIndex != null)
+      {
+        result += timeIndex.estimateBytes();
+      }
+    }
+    DataColumns currentColumns = columns;
+    if (currentColumns != null)
+    {
+      result += currentColumns.estimateBytes();
+    }
+    return result;
   }
 
+  /**
+   * Updates the cached sensor channels and columns after a single data point was modified.
+   *
+   * @param index the index of the modified data point.
+   */
+  public void pointChanged(int index)
+  {
+    checkModifiable();
+    DataPoint point = points.get(index);
+    if (locationIndex != null)
+    {
+      locationIndex.update(index, point.hasLocation());
+    }
+    if (magneticFieldIndex != null)
+    {
+      magneticFieldIndex.update(index, point.hasMagneticField());
+    }
+    if (accelerationIndex != null)
+    {
+      accelerationIndex.update(index, point.hasAcceleration());
+    }
+    if (columns != null)
+    {
+      columns.set(index, point);
+    }
+    locationTimeIndex = null;
+    magneticFieldTimeIndex = null;
+    accelerationTimeIndex = null;
+    synchronized (pyramids)
+    {
+      pyramids.clear();
+    }
+  }
+
+  /**
+   * Updates the cached columns and pyramids after values of a single data point were modified
+   * without changing its time and without adding or removing sensor data.
+   * In contrast to pointChanged(int), the time indices are kept.
+   *
+   * @param index the index of the modified data point.
+   */
+  public void pointValuesChanged(int index)
+  {
+    checkModifiable();
+    DataPoint point = points.get(index);
+    if (columns != null)
+    {
+      columns.set(index, point);
+    }
+    synchronized (pyramids)
+    {
+      if (!pyramids.isEmpty() && point.hasLocation())
+      {
+        int position = locationIndex.positionOf(index);
+        pyramids.forEach((channel, pyramid) -> pyramid.set(position, channel.getValue(point)));
+      }
+    }
+  }
+
+  /**
+   * Drops the cached columns and time indices.
+   * Should be called if values of many data points were modified,
+   * but no sensor data was added to or removed from any data point.
+   */
+  public void resetColumnCache()
+  {
+    columns = null;
+    synchronized (pyramids)
+    {
+      pyramids.clear();
+    }
+    locationTimeIndex = null;
+    magneticFieldTimeIndex = null;
+    accelerationTimeIndex = null;
+  }
+
+  /**
+   * Drops all cached information.
+   * Should be called if sensor data was added to or removed from data points.
+   */
   public void resetCache()
   {
-    locationPoints = null;
-    magneticFieldPoints = null;
-    accelerationPoints = null;
+    locationIndex = null;
+    magneticFieldIndex = null;
+    accelerationIndex = null;
+    resetColumnCache();
   }
 
   public void setComment(String comment)
@@ -231,6 +810,27 @@ public class Data
   public void setAverageWindBearing(double averageWindBearing)
   {
     this.averageWindBearing = averageWindBearing;
+    analyzedStages.clear();
+  }
+
+  /**
+   * @param stage the stage to check, not null.
+   *
+   * @return whether the results of the analysis stage are present in this object.
+   */
+  public boolean isAnalyzed(AnalysisStage stage)
+  {
+    return analyzedStages.contains(stage);
+  }
+
+  /**
+   * Records that the results of an analysis stage are present in this object.
+   *
+   * @param stage the analyzed stage, not null.
+   */
+  public void setAnalyzed(AnalysisStage stage)
+  {
+    analyzedStages.add(stage);
   }
 
   public int getAverageWindDirectionInDegrees()
@@ -262,7 +862,7 @@ public class Data
     {
       return null;
     }
-    return locationPoints.get(0).time;
+    return getPointsWithLocation().get(0).time;
   }
 
   public Long getLocationEndTime()
@@ -271,6 +871,7 @@ public class Data
     {
       return null;
     }
+    List<DataPoint> locationPoints = getPointsWithLocation();
     return locationPoints.get(locationPoints.size() - 1).time;
   }
 
@@ -280,7 +881,7 @@ public class Data
     {
       return null;
     }
-    return magneticFieldPoints.get(0).time;
+    return getPointsWithMagneticField().get(0).time;
   }
 
   public Long getMagneticFieldEndTime()
@@ -289,6 +890,7 @@ public class Data
     {
       return null;
     }
+    List<DataPoint> magneticFieldPoints = getPointsWithMagneticField();
     return magneticFieldPoints.get(magneticFieldPoints.size() - 1).time;
   }
 
@@ -298,7 +900,7 @@ public class Data
     {
       return null;
     }
-    return accelerationPoints.get(0).time;
+    return getPointsWithAcceleration().get(0).time;
   }
 
   public Long getAccelerationEndTime()
@@ -307,6 +909,7 @@ public class Data
     {
       return null;
     }
+    List<DataPoint> accelerationPoints = getPointsWithAcceleration();
     return accelerationPoints.get(accelerationPoints.size() - 1).time;
   }
 
@@ -354,6 +957,7 @@ public class Data
 
   public ThreeDimVector getAverageAcceleration()
   {
+    loadSensorValues();
     ThreeDimVector averageAcceleration = new ThreeDimVector(0d, 0d, 0d);
     int accelerationCount = 0;
 
@@ -370,4 +974,122 @@ public class Data
     return averageAcceleration;
   }
 
+  /**
+   * Builds a Data object from points which are added in time order.
+   * The added points are not copied but owned by the built Data object.
+   * This class is not thread safe.
+   */
+  public static class Builder
+  {
+    private final PointList points;
+
+    private DataPoint last;
+
+    private boolean built = false;
+
+    public Builder()
+    {
+      points = new PointList();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize the expected number of points, used to pre-size the storage.
+     */
+    public Builder(int expectedSize)
+    {
+      points = new PointList(expectedSize);
+    }
+
+    /**
+     * Adds a point after the previously added points and assigns its index.
+     *
+     * @param point the point to add, not null.
+     *
+     * @return this builder.
+     *
+     * @throws IllegalArgumentException if the point is before the previously added point.
+     * @throws IllegalStateException if build() has already been called.
+     */
+    public Builder add(DataPoint point)
+    {
+      if (built)
+      {
+        throw new IllegalStateException("build() has already been called");
+      }
+      if (last != null)
+      {
+        checkTimeOrder(last, point);
+      }
+      point.index = points.size();
+      points.add(point);
+      last = point;
+      return this;
+    }
+
+    /**
+     * Adds points after the previously added points and assigns their indices.
+     * The time order of the points is checked before any point is added,
+     * so either all or none of the points are added.
+     *
+     * @param toAdd the points to add, not null.
+     *
+     * @return this builder.
+     *
+     * @throws IllegalArgumentException if the points are not ordered in time.
+     * @throws IllegalStateException if build() has already been called.
+     */
+    public Builder addAll(List<DataPoint> toAdd)
+    {
+      if (built)
+      {
+        throw new IllegalStateException("build() has already been called");
+      }
+      DataPoint previous = last;
+      for (DataPoint point : toAdd)
+      {
+        if (previous != null)
+        {
+          checkTimeOrder(previous, point);
+        }
+        previous = point;
+      }
+      points.ensureCapacity(points.size() + toAdd.size());
+      for (DataPoint point : toAdd)
+      {
+        point.index = points.size();
+        points.add(point);
+      }
+      last = previous;
+      return this;
+    }
+
+    public int size()
+    {
+      return points.size();
+    }
+
+    /**
+     * @return the last added point, or null if no point has been added yet.
+     */
+    public DataPoint getLast()
+    {
+      return last;
+    }
+
+    /**
+     * Creates the Data object containing all added points.
+     * The builder cannot be used any more after calling this method.
+     *
+     * @return the data, not null.
+     */
+    public Data build()
+    {
+      built = true;
+      Data result = new Data(points);
+      result.fillSensorIndices();
+      return result;
+    }
+  }
 }
@@ -0,0 +1,536 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.github.thomasfox.sailplotter.Constants;
+import com.github.thomasfox.sailplotter.model.vector.TwoDimVector;
+
+/**
+ * Column oriented copy of the measured values of the data points in a Data object,
+ * which is built on demand for loops over many points (see Data.getColumns()).
+ * Each value type is stored in a primitive array, the row index of a value
+ * is the index of the data point in the Data object.
+ * The data points remain the only storage of the values, so the columns cost memory in addition to the points:
+ * a row takes 96 bytes (the time, 8 location doubles and 6 sensor floats) plus 3 bits,
+ * compared to about 280 bytes for a data point with a GPS location and its boxed values,
+ * and 96 bytes for a data point with a magnetic field or acceleration.
+ * In exchange, loops over a channel read contiguous primitive arrays instead of chasing references.
+ * Magnetic field and acceleration values are stored as float, which exceeds the precision of the sensors.
+ * Whether a row contains location, magnetic field or acceleration values
+ * is recorded in a bit set per sensor channel.
+ * Latitude and longitude are projected once, when a row is written, to metric x and y coordinates
+ * in the tangent plane of the earth at a reference location, which is the first location written to the columns.
+ * The projection only needs the cosine of the reference latitude, so neither writing the rows
+ * nor loops over the columns evaluate trigonometric functions per row.
+ * The scale of x is exact at the reference latitude; at mid latitudes, its relative error stays below
+ * 0.1 percent within 5 km north or south of the reference location.
+ * Double values which are not present are stored as NaN,
+ * time values which are not present are stored as <code>NO_TIME</code>.
+ *
+ * This class is not thread safe.
+ */
+public class DataColumns
+{
+  /** Stored in the time column if a data point has no time. */
+  public static final long NO_TIME = Long.MIN_VALUE;
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int size;
+
+  private long[] time;
+
+  private double[] latitude;
+
+  private double[] longitude;
+
+  private double[] x;
+
+  private double[] y;
+
+  private double[] velocity;
+
+  private double[] bearing;
+
+  private double[] velocityFromLatLong;
+
+  private double[] bearingFromLatLong;
+
+  private float[] magneticFieldX;
+
+  private float[] magneticFieldY;
+
+  private float[] magneticFieldZ;
+
+  private float[] accelerationX;
+
+  private float[] accelerationY;
+
+  private float[] accelerationZ;
+
+  /** The latitude of the origin of x and y in arcs, or NaN if no location was written yet. */
+  private double referenceLatitude = Double.NaN;
+
+  /** The longitude of the origin of x and y in arcs. */
+  private double referenceLongitude;
+
+  /** The length of an arc of longitude at the reference latitude, in meters. */
+  private double metersPerLongitudeArc;
+
+  private BitSet hasLocation = new BitSet();
+
+  private BitSet hasMagneticField = new BitSet();
+
+  private BitSet hasAcceleration = new BitSet();
+
+  public DataColumns()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param capacity the number of rows which can be stored without resizing the columns.
+   */
+  public DataColumns(int capacity)
+  {
+    int initialCapacity = Math.max(capacity, 1);
+    time = new long[initialCapacity];
+    latitude = new double[initialCapacity];
+    longitude = new double[initialCapacity];
+    x = new double[initialCapacity];
+    y = new double[initialCapacity];
+    velocity = new double[initialCapacity];
+    bearing = new double[initialCapacity];
+    velocityFromLatLong = new double[initialCapacity];
+    bearingFromLatLong = new double[initialCapacity];
+    magneticFieldX = new float[initialCapacity];
+    magneticFieldY = new float[initialCapacity];
+    magneticFieldZ = new float[initialCapacity];
+    accelerationX = new float[initialCapacity];
+    accelerationY = new float[initialCapacity];
+    accelerationZ = new float[initialCapacity];
+  }
+
+  /**
+   * Constructor sharing the column arrays of another object.
+   *
+   * @param toShare the object whose column arrays are shared, not null.
+   */
+  private DataColumns(DataColumns toShare)
+  {
+    time = toShare.time;
+    latitude = toShare.latitude;
+    longitude = toShare.longitude;
+    x = toShare.x;
+    y = toShare.y;
+    velocity = toShare.velocity;
+    bearing = toShare.bearing;
+    velocityFromLatLong = toShare.velocityFromLatLong;
+    bearingFromLatLong = toShare.bearingFromLatLong;
+    magneticFieldX = toShare.magneticFieldX;
+    magneticFieldY = toShare.magneticFieldY;
+    magneticFieldZ = toShare.magneticFieldZ;
+    accelerationX = toShare.accelerationX;
+    accelerationY = toShare.accelerationY;
+    accelerationZ = toShare.accelerationZ;
+    referenceLatitude = toShare.referenceLatitude;
+    referenceLongitude = toShare.referenceLongitude;
+    metersPerLongitudeArc = toShare.metersPerLongitudeArc;
+  }
+
+  /**
+   * Creates the columns for a list of data points.
+   *
+   * @param points the points to store in columns, not null.
+   * @param size the number of points.
+   *
+   * @return the column store, containing one row for each point.
+   */
+  public static DataColumns of(Iterable<DataPoint> points, int size)
+  {
+    DataColumns result = new DataColumns(size);
+    for (DataPoint point : points)
+    {
+      result.append(point);
+    }
+    return result;
+  }
+
+  /**
+   * Appends the measured values of a data point as a new row.
+   *
+   * @param point the point to append, not null.
+   */
+  public void append(DataPoint point)
+  {
+    ensureCapacity(size + 1);
+    write(size, point);
+    size++;
+  }
+
+  /**
+   * Overwrites the row with the given index with the values of a data point.
+   *
+   * @param row the index of the row to overwrite.
+   * @param point the point containing the new values, not null.
+   *
+   * @throws IndexOutOfBoundsException if the row does not exist.
+   */
+  public void set(int row, DataPoint point)
+  {
+    write(checkRow(row), point);
+  }
+
+  /**
+   * Overwrites the magnetic field and acceleration values of a row with those of a data point,
+   * e.g. after the sensor values were loaded on demand. The other values of the row are not changed.
+   *
+   * @param row the index of the row to overwrite.
+   * @param point the point containing the new values, not null.
+   *
+   * @throws IndexOutOfBoundsException if the row does not exist.
+   */
+  public void setSensorValues(int row, DataPoint point)
+  {
+    writeSensorValues(checkRow(row), point);
+  }
+
+  private void write(int row, DataPoint point)
+  {
+    time[row] = point.time == null ? NO_TIME : point.time;
+    Location location = point.location;
+    latitude[row] = location == null ? Double.NaN : toPrimitive(location.latitude);
+    longitude[row] = location == null ? Double.NaN : toPrimitive(location.longitude);
+    boolean hasCoordinates = location != null && location.latitude != null && location.longitude != null;
+    if (hasCoordinates && Double.isNaN(referenceLatitude))
+    {
+      referenceLatitude = location.latitude;
+      referenceLongitude = location.longitude;
+      metersPerLongitudeArc = Math.cos(referenceLatitude) * Constants.EARTH_RADIUS;
+    }
+    x[row] = hasCoordinates ? (location.longitude - referenceLongitude) * metersPerLongitudeArc : Double.NaN;
+    y[row] = hasCoordinates ? (location.latitude - referenceLatitude) * Constants.EARTH_RADIUS : Double.NaN;
+    velocity[row] = location == null ? Double.NaN : toPrimitive(location.velocity);
+    bearing[row] = location == null ? Double.NaN : toPrimitive(location.bearing);
+    velocityFromLatLong[row] = location == null ? Double.NaN : toPrimitive(location.velocityFromLatLong);
+    bearingFromLatLong[row] = location == null ? Double.NaN : toPrimitive(location.bearingFromLatLong);
+    hasLocation.set(row, point.hasLocation());
+    writeSensorValues(row, point);
+  }
+
+  private void writeSensorValues(int row, DataPoint point)
+  {
+    MagneticField magneticField = point.magneticField;
+    magneticFieldX[row] = magneticField == null ? Float.NaN : (float) magneticField.x;
+    magneticFieldY[row] = magneticField == null ? Float.NaN : (float) magneticField.y;
+    magneticFieldZ[row] = magneticField == null ? Float.NaN : (float) magneticField.z;
+    hasMagneticField.set(row, point.hasMagneticField());
+
+    Acceleration acceleration = point.acceleration;
+    accelerationX[row] = acceleration == null ? Float.NaN : (float) acceleration.x;
+    accelerationY[row] = acceleration == null ? Float.NaN : (float) acceleration.y;
+    accelerationZ[row] = acceleration == null ? Float.NaN : (float) acceleration.z;
+    hasAcceleration.set(row, point.hasAcceleration());
+  }
+
+  private static double toPrimitive(Double value)
+  {
+    if (value == null)
+    {
+      return Double.NaN;
+    }
+    return value;
+  }
+
+  private void ensureCapacity(int minCapacity)
+  {
+    if (minCapacity <= time.length)
+    {
+      return;
+    }
+    int newCapacity = Math.max(minCapacity, time.length + (time.length >> 1));
+    time = Arrays.copyOf(time, newCapacity);
+    latitude = Arrays.copyOf(latitude, newCapacity);
+    longitude = Arrays.copyOf(longitude, newCapacity);
+    x = Arrays.copyOf(x, newCapacity);
+    y = Arrays.copyOf(y, newCapacity);
+    velocity = Arrays.copyOf(velocity, newCapacity);
+    bearing = Arrays.copyOf(bearing, newCapacity);
+    velocityFromLatLong = Arrays.copyOf(velocityFromLatLong, newCapacity);
+    bearingFromLatLong = Arrays.copyOf(bearingFromLatLong, newCapacity);
+    magneticFieldX = Arrays.copyOf(magneticFieldX, newCapacity);
+    magneticFieldY = Arrays.copyOf(magneticFieldY, newCapacity);
+    magneticFieldZ = Arrays.copyOf(magneticFieldZ, newCapacity);
+    accelerationX = Arrays.copyOf(accelerationX, newCapacity);
+    accelerationY = Arrays.copyOf(accelerationY, newCapacity);
+    accelerationZ = Arrays.copyOf(accelerationZ, newCapacity);
+  }
+
+  /**
+   * Returns the first rows of these columns, sharing the column arrays with this object.
+   * Only the bit sets of the sensor channels are copied, which takes one bit per row.
+   * Rows which are appended to this object later, and changes to rows which are not
+   * among the first rows, do not affect the returned columns. The returned columns must not be modified.
+   *
+   * @param rows the number of rows in the returned columns, not larger than size().
+   *
+   * @return the columns containing the first rows, not null.
+   */
+  DataColumns prefix(int rows)
+  {
+    if (rows < 0 || rows > size)
+    {
+      throw new IndexOutOfBoundsException("Prefix size " + rows + " out of bounds for size " + size);
+    }
+    DataColumns result = new DataColumns(this);
+    result.size = rows;
+    result.hasLocation = hasLocation.get(0, rows);
+    result.hasMagneticField = hasMagneticField.get(0, rows);
+    result.hasAcceleration = hasAcceleration.get(0, rows);
+    return result;
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the estimated heap size of the columns in bytes.
+   */
+  long estimateBytes()
+  {
+    int capacity = time.length;
+    long bitSetBytes = MemoryFootprint.shallowSize(BitSet.class)
+        + MemoryFootprint.arraySize(Long.BYTES, (capacity + Long.SIZE - 1) / Long.SIZE);
+    return MemoryFootprint.shallowSize(DataColumns.class)
+        + MemoryFootprint.arraySize(Long.BYTES, capacity)
+        + 8 * MemoryFootprint.arraySize(Double.BYTES, capacity)
+        + 6 * MemoryFootprint.arraySize(Float.BYTES, capacity)
+        + 3 * bitSetBytes;
+  }
+
+  /**
+   * Returns the time of a row.
+   *
+   * @param row the row index.
+   *
+   * @return the time in millis since 01.01.1970 0:00:00.000 GMT,
+   *         or <code>NO_TIME</code> if the point has no time.
+   */
+  public long getTime(int row)
+  {
+    return time[checkRow(row)];
+  }
+
+  public boolean hasLocation(int row)
+  {
+    return hasLocation.get(checkRow(row));
+  }
+
+  /**
+   * @return the latitude in arcs, or NaN if not present.
+   */
+  public double getLatitude(int row)
+  {
+    return latitude[checkRow(row)];
+  }
+
+  /**
+   * @return the longitude in arcs, or NaN if not present.
+   */
+  public double getLongitude(int row)
+  {
+    return longitude[checkRow(row)];
+  }
+
+  /**
+   * @return the distance east of the reference location in meters, or NaN if not present.
+   */
+  public double getX(int row)
+  {
+    return x[checkRow(row)];
+  }
+
+  /**
+   * @return the distance north of the reference location in meters, or NaN if not present.
+   */
+  public double getY(int row)
+  {
+    return y[checkRow(row)];
+  }
+
+  /**
+   * Calculates the distance between the locations of two rows in the tangent plane at the reference location.
+   *
+   * @param row the first row, must contain a location.
+   * @param otherRow the second row, must contain a location.
+   *
+   * @return the distance in meters.
+   */
+  public double approximateDistance(int row, int otherRow)
+  {
+    double xDist = getX(row) - getX(otherRow);
+    double yDist = getY(row) - getY(otherRow);
+    return Math.sqrt(xDist * xDist + yDist * yDist);
+  }
+
+  /**
+   * Calculates the bearing from the location of one row to the location of another row
+   * in the tangent plane at the reference location, as in DataPoint.getBearingTo().
+   *
+   * @param fromRow the row to calculate the bearing from, must contain a location.
+   * @param toRow the row to calculate the bearing to, must contain a location.
+   *
+   * @return the bearing in arcs, in the range [0, 2*PI[, or null if both locations are equal.
+   */
+  public Double getBearing(int fromRow, int toRow)
+  {
+    return new TwoDimVector(getX(toRow) - getX(fromRow), getY(toRow) - getY(fromRow)).getBearingToYInArcs();
+  }
+
+  /**
+   * @return the velocity measured by GPS in knots, or NaN if not present.
+   */
+  public double getVelocity(int row)
+  {
+    return velocity[checkRow(row)];
+  }
+
+  /**
+   * @return the bearing measured by GPS in arcs, or NaN if not present.
+   */
+  public double getBearing(int row)
+  {
+    return bearing[checkRow(row)];
+  }
+
+  /**
+   * @return the velocity calculated from latitude and longitude in knots, or NaN if not present.
+   */
+  public double getVelocityFromLatLong(int row)
+  {
+    return velocityFromLatLong[checkRow(row)];
+  }
+
+  /**
+   * @return the bearing calculated from latitude and longitude in arcs, or NaN if not present.
+   */
+  public double getBearingFromLatLong(int row)
+  {
+    return bearingFromLatLong[checkRow(row)];
+  }
+
+  public boolean hasMagneticField(int row)
+  {
+    return hasMagneticField.get(checkRow(row));
+  }
+
+  public float getMagneticFieldX(int row)
+  {
+    return magneticFieldX[checkRow(row)];
+  }
+
+  public float getMagneticFieldY(int row)
+  {
+    return magneticFieldY[checkRow(row)];
+  }
+
+  public float getMagneticFieldZ(int row)
+  {
+    return magneticFieldZ[checkRow(row)];
+  }
+
+  public boolean hasAcceleration(int row)
+  {
+    return hasAcceleration.get(checkRow(row));
+  }
+
+  public float getAccelerationX(int row)
+  {
+    return accelerationX[checkRow(row)];
+  }
+
+  public float getAccelerationY(int row)
+  {
+    return accelerationY[checkRow(row)];
+  }
+
+  public float getAccelerationZ(int row)
+  {
+    return accelerationZ[checkRow(row)];
+  }
+
+  /**
+   * Returns the index of the next row with location data.
+   *
+   * @param fromRow the row to start searching from (inclusive).
+   *
+   * @return the index of the next row with location, or -1 if no such row exists.
+   */
+  public int nextLocationRow(int fromRow)
+  {
+    return nextRow(hasLocation, fromRow);
+  }
+
+  /**
+   * Returns the index of the next row with magnetic field data.
+   *
+   * @param fromRow the row to start searching from (inclusive).
+   *
+   * @return the index of the next row with magnetic field, or -1 if no such row exists.
+   */
+  public int nextMagneticFieldRow(int fromRow)
+  {
+    return nextRow(hasMagneticField, fromRow);
+  }
+
+  /**
+   * Returns the index of the next row with acceleration data.
+   *
+   * @param fromRow the row to start searching from (inclusive).
+   *
+   * @return the index of the next row with acceleration, or -1 if no such row exists.
+   */
+  public int nextAccelerationRow(int fromRow)
+  {
+    return nextRow(hasAcceleration, fromRow);
+  }
+
+  private int nextRow(BitSet channel, int fromRow)
+  {
+    int result = channel.nextSetBit(fromRow);
+    if (result >= size)
+    {
+      return -1;
+    }
+    return result;
+  }
+
+  public int getLocationCount()
+  {
+    return hasLocation.cardinality();
+  }
+
+  public int getMagneticFieldCount()
+  {
+    return hasMagneticField.cardinality();
+  }
+
+  public int getAccelerationCount()
+  {
+    return hasAcceleration.cardinality();
+  }
+
+  private int checkRow(int row)
+  {
+    if (row < 0 || row >= size)
+    {
+      throw new IndexOutOfBoundsException("row " + row + " does not exist, size is " + size);
+    }
+    return row;
+  }
+}
@@ -0,0 +1,66 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A published version of analyzed data.
+ * The data of a snapshot is not modified after publication;
+ * a new analysis works on a copy of the data (see Data(Data))
+ * and is published as the next version.
+ * The caches of the data are built when the snapshot is created (see Data.fillCaches()),
+ * so the data can be read from several threads without copying.
+ * The caches which are built on first request, such as the pyramids and the columns,
+ * are built under a lock.
+ * Snapshots are created by the thread which analyzed the data, so that building the caches
+ * does not block the event dispatch thread, which only replaces the displayed snapshot.
+ * A file which is followed while it is written is published as a sequence of prefixes
+ * of the growing data (see Data.prefix(int)), which share the storage of the points and caches,
+ * so publishing does not copy the points.
+ */
+public final class DataSnapshot
+{
+  /** The version of the last created snapshot. */
+  private static final AtomicLong LAST_VERSION = new AtomicLong();
+
+  /** The initial snapshot, containing no data points. */
+  public static final DataSnapshot EMPTY = new DataSnapshot(new Data(), 0);
+
+  private final Data data;
+
+  private final long version;
+
+  private DataSnapshot(Data data, long version)
+  {
+    this.data = data;
+    this.version = version;
+  }
+
+  /**
+   * Creates a snapshot of analyzed data and builds the caches of the data, see Data.fillCaches().
+   * Building the caches takes time proportional to the size of the data,
+   * so this method should not be called in the event dispatch thread.
+   *
+   * @param data the data to publish, not null.
+   *        Must not be modified after calling this method.
+   *
+   * @return the new snapshot, not null.
+   */
+  public static DataSnapshot of(Data data)
+  {
+    data.fillCaches();
+    return new DataSnapshot(data, LAST_VERSION.incrementAndGet());
+  }
+
+  public Data getData()
+  {
+    return data;
+  }
+
+  /**
+   * @return the version of this snapshot, increasing with each created snapshot.
+   */
+  public long getVersion()
+  {
+    return version;
+  }
+}
@@ -47,7 +47,11 @@ public class Location
   @JsonInclude(Include.NON_NULL)
   public Long satelliteTime;
 
-  /** true if this location is not measured directly but interpolated from neighbouring points. */
+  /**
+   * true if this location is not measured directly but interpolated from neighbouring points,
+   * as the locations returned by LocationInterpolator.
+   * Data points do not store interpolated locations any more, but files saved by older versions may contain them.
+   */
   @JsonInclude(Include.NON_DEFAULT)
   public boolean interpolated;
 
@@ -0,0 +1,371 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimated retained heap of a Data object, split by sensor channel and derived structures.
+ *
+ * The estimate assumes a 64 bit JVM with compressed object pointers
+ * (12 byte object headers, 4 byte references, objects aligned to 8 bytes),
+ * which is the default for heaps below 32 GB.
+ * Boxed values are counted as separate objects, as they are not shared in practice.
+ */
+public class MemoryFootprint
+{
+  private static final int OBJECT_HEADER_BYTES = 12;
+
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  private static final int REFERENCE_BYTES = 4;
+
+  private static final int ALIGNMENT_BYTES = 8;
+
+  /** Size of a boxed Long, Double or Integer. */
+  private static final int BOXED_VALUE_BYTES = 16;
+
+  private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<Long>()
+  {
+    @Override
+    protected Long computeValue(Class<?> type)
+    {
+      return computeShallowSize(type);
+    }
+  };
+
+  private final int pointCount;
+
+  private final long pointBytes;
+
+  private final long locationBytes;
+
+  private final long magneticFieldBytes;
+
+  private final long accelerationBytes;
+
+  private final long windBytes;
+
+  private final long cacheBytes;
+
+  private final long tackBytes;
+
+  private MemoryFootprint(
+      int pointCount,
+      long pointBytes,
+      long locationBytes,
+      long magneticFieldBytes,
+      long accelerationBytes,
+      long windBytes,
+      long cacheBytes,
+      long tackBytes)
+  {
+    this.pointCount = pointCount;
+    this.pointBytes = pointBytes;
+    this.locationBytes = locationBytes;
+    this.magneticFieldBytes = magneticFieldBytes;
+    this.accelerationBytes = accelerationBytes;
+    this.windBytes = windBytes;
+    this.cacheBytes = cacheBytes;
+    this.tackBytes = tackBytes;
+  }
+
+  /**
+   * Estimates the memory footprint of a data object.
+   * This iterates over all data points, so it should not be called in time-critical code.
+   *
+   * @param data the data to estimate, not null.
+   * @param cacheBytes the estimated size of the currently filled caches of the data object.
+   *
+   * @return the estimated memory footprint, not null.
+   */
+  static MemoryFootprint of(Data data, long cacheBytes)
+  {
+    long pointBytes = arraySize(REFERENCE_BYTES, data.size());
+    long locationBytes = 0;
+    long magneticFieldBytes = 0;
+    long accelerationBytes = 0;
+    long windBytes = 0;
+    for (DataPoint point : data.getAllPoints())
+    {
+      pointBytes += getPointBytes(point);
+      locationBytes += getLocationBytes(point.location);
+      magneticFieldBytes += getMagneticFieldBytes(point.magneticField);
+      accelerationBytes += getAccelerationBytes(point.acceleration);
+      windBytes += getWindBytes(point.wind);
+    }
+    return new MemoryFootprint(
+        data.size(),
+        pointBytes,
+        locationBytes,
+        magneticFieldBytes,
+        accelerationBytes,
+        windBytes,
+        cacheBytes,
+        getTackBytes(data.getTackList()) + getTackSeriesBytes(data.getTackSeriesList()));
+  }
+
+  private static long getPointBytes(DataPoint point)
+  {
+    return shallowSize(DataPoint.class) + boxedSize(point.time);
+  }
+
+  private static long getLocationBytes(Location location)
+  {
+    if (location == null)
+    {
+      return 0;
+    }
+    return shallowSize(Location.class)
+        + boxedSize(location.latitude)
+        + boxedSize(location.longitude)
+        + boxedSize(location.altitude)
+        + boxedSize(location.velocity)
+        + boxedSize(location.bearing)
+        + boxedSize(location.velocityFromLatLong)
+        + boxedSize(location.bearingFromLatLong)
+        + boxedSize(location.velocityBearingAveragedOverDistance)
+        + boxedSize(location.satelliteTime);
+  }
+
+  private static long getMagneticFieldBytes(MagneticField magneticField)
+  {
+    if (magneticField == null)
+    {
+      return 0;
+    }
+    return shallowSize(MagneticField.class) + boxedSize(magneticField.compassBearing);
+  }
+
+  private static long getAccelerationBytes(Acceleration acceleration)
+  {
+    if (acceleration == null)
+    {
+      return 0;
+    }
+    return shallowSize(Acceleration.class) + boxedSize(acceleration.heel) + boxedSize(acceleration.roll);
+  }
+
+  private static long getWindBytes(Wind wind)
+  {
+    if (wind == null)
+    {
+      return 0;
+    }
+    return shallowSize(Wind.class) + boxedSize(wind.direction) + boxedSize(wind.velocity);
+  }
+
+  /**
+   * Estimates the size of the tack list.
+   * The points within a tack are views on the list of points, so only the views are counted,
+   * except the intersection points which are created for the tack.
+   */
+  private static long getTackBytes(TackList tackList)
+  {
+    long result = shallowSize(TackList.class) + arraySize(REFERENCE_BYTES, tackList.size());
+    for (Tack tack : tackList)
+    {
+      result += shallowSize(Tack.class) + boxedSize(tack.windDirection);
+      if (tack.pointsWithinTack != null)
+      {
+        result += shallowSize(tack.pointsWithinTack.getClass());
+        if (tack.pointsWithinTack instanceof ArrayList)
+        {
+          result += arraySize(REFERENCE_BYTES, tack.pointsWithinTack.size());
+        }
+      }
+      result += getCreatedPointBytes(tack.tackStraightLineIntersectionStart);
+      result += getCreatedPointBytes(tack.tackStraightLineIntersectionEnd);
+    }
+    return result;
+  }
+
+  private static long getCreatedPointBytes(DataPoint point)
+  {
+    if (point == null)
+    {
+      return 0;
+    }
+    return getPointBytes(point) + getLocationBytes(point.location) + getWindBytes(point.wind);
+  }
+
+  private static long getTackSeriesBytes(List<TackSeries> tackSeriesList)
+  {
+    long result = shallowSize(ArrayList.class) + arraySize(REFERENCE_BYTES, tackSeriesList.size());
+    for (TackSeries tackSeries : tackSeriesList)
+    {
+      result += shallowSize(TackSeries.class)
+          + boxedSize(tackSeries.startTackIndex)
+          + boxedSize(tackSeries.endTackIndex);
+    }
+    return result;
+  }
+
+  private static long boxedSize(Object boxed)
+  {
+    return boxed == null ? 0 : BOXED_VALUE_BYTES;
+  }
+
+  /**
+   * Returns the estimated size of an object of the given class, without referenced objects.
+   *
+   * @param type the class of the object, not null.
+   *
+   * @return the estimated size in bytes.
+   */
+  static long shallowSize(Class<?> type)
+  {
+    return SHALLOW_SIZES.get(type);
+  }
+
+  private static long computeShallowSize(Class<?> type)
+  {
+    long size = OBJECT_HEADER_BYTES;
+    for (Class<?> current = type; current != null; current = current.getSuperclass())
+    {
+      for (Field field : current.getDeclaredFields())
+      {
+        if (Modifier.isStatic(field.getModifiers()))
+        {
+          continue;
+        }
+        size += fieldSize(field.getType());
+      }
+    }
+    return align(size);
+  }
+
+  private static int fieldSize(Class<?> type)
+  {
+    if (type == long.class || type == double.class)
+    {
+      return 8;
+    }
+    if (type == int.class || type == float.class)
+    {
+      return 4;
+    }
+    if (type == short.class || type == char.class)
+    {
+      return 2;
+    }
+    if (type == byte.class || type == boolean.class)
+    {
+      return 1;
+    }
+    return REFERENCE_BYTES;
+  }
+
+  /**
+   * Returns the estimated size of an array.
+   *
+   * @param elementBytes the size of one element in bytes.
+   * @param length the length of the array.
+   *
+   * @return the estimated size in bytes.
+   */
+  static long arraySize(int elementBytes, int length)
+  {
+    return align(ARRAY_HEADER_BYTES + (long) elementBytes * length);
+  }
+
+  private static long align(long size)
+  {
+    return (size + ALIGNMENT_BYTES - 1) / ALIGNMENT_BYTES * ALIGNMENT_BYTES;
+  }
+
+  public int getPointCount()
+  {
+    return pointCount;
+  }
+
+  /**
+   * @return the estimated size of the data point objects, their times and the list containing them.
+   */
+  public long getPointBytes()
+  {
+    return pointBytes;
+  }
+
+  public long getLocationBytes()
+  {
+    return locationBytes;
+  }
+
+  public long getMagneticFieldBytes()
+  {
+    return magneticFieldBytes;
+  }
+
+  public long getAccelerationBytes()
+  {
+    return accelerationBytes;
+  }
+
+  /**
+   * @return the estimated size of the wind objects, which are set by the analysis.
+   */
+  public long getWindBytes()
+  {
+    return windBytes;
+  }
+
+  /**
+   * @return the estimated size of the cached channel indices, time indices and columns.
+   */
+  public long getCacheBytes()
+  {
+    return cacheBytes;
+  }
+
+  /**
+   * @return the estimated size of the tack list and the tack series list.
+   */
+  public long getTackBytes()
+  {
+    return tackBytes;
+  }
+
+  public long getTotalBytes()
+  {
+    return pointBytes + locationBytes + magneticFieldBytes + accelerationBytes
+        + windBytes + cacheBytes + tackBytes;
+  }
+
+  /**
+   * @return the average estimated size per data point in bytes, or 0 if there are no data points.
+   */
+  public double getBytesPerPoint()
+  {
+    if (pointCount == 0)
+    {
+      return 0;
+    }
+    return ((double) getTotalBytes()) / pointCount;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "total: " + formatBytes(getTotalBytes())
+        + " (" + Math.round(getBytesPerPoint()) + " bytes per point;"
+        + " points: " + formatBytes(pointBytes)
+        + ", location: " + formatBytes(locationBytes)
+        + ", magnetic field: " + formatBytes(magneticFieldBytes)
+        + ", acceleration: " + formatBytes(accelerationBytes)
+        + ", wind: " + formatBytes(windBytes)
+        + ", caches: " + formatBytes(cacheBytes)
+        + ", tacks: " + formatBytes(tackBytes)
+        + ")";
+  }
+
+  private static String formatBytes(long bytes)
+  {
+    if (bytes < 1024 * 1024)
+    {
+      return (bytes / 1024) + " kB";
+    }
+    return (bytes / 1024 / 1024) + " MB";
+  }
+}
@@ -0,0 +1,108 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The list of the data points in a Data object.
+ * Points can only be appended or inserted. Inserting copies the point array,
+ * so that prefixes which were created earlier (see prefix(int)) are not affected.
+ * This class is not thread safe.
+ */
+class PointList extends AbstractList<DataPoint> implements RandomAccess
+{
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private DataPoint[] elements;
+
+  private int size;
+
+  PointList()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  PointList(int capacity)
+  {
+    elements = new DataPoint[Math.max(capacity, 1)];
+  }
+
+  private PointList(DataPoint[] elements, int size)
+  {
+    this.elements = elements;
+    this.size = size;
+  }
+
+  @Override
+  public DataPoint get(int index)
+  {
+    if (index < 0 || index >= size)
+    {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+    return elements[index];
+  }
+
+  @Override
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public boolean add(DataPoint point)
+  {
+    ensureCapacity(size + 1);
+    elements[size++] = point;
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public void add(int position, DataPoint point)
+  {
+    if (position < 0 || position > size)
+    {
+      throw new IndexOutOfBoundsException("Index " + position + " out of bounds for size " + size);
+    }
+    DataPoint[] newElements = new DataPoint[Math.max(elements.length, size + 1)];
+    System.arraycopy(elements, 0, newElements, 0, position);
+    newElements[position] = point;
+    System.arraycopy(elements, position, newElements, position + 1, size - position);
+    elements = newElements;
+    size++;
+    modCount++;
+  }
+
+  /**
+   * Makes sure that the given number of points can be stored without resizing.
+   *
+   * @param minCapacity the number of points.
+   */
+  void ensureCapacity(int minCapacity)
+  {
+    if (minCapacity > elements.length)
+    {
+      elements = Arrays.copyOf(elements, Math.max(minCapacity, elements.length + (elements.length >> 1)));
+    }
+  }
+
+  /**
+   * Returns a list of the first points of this list, sharing the point array with this list.
+   * Points which are appended to this list later are not contained in the returned list.
+   * The returned list must not be modified.
+   *
+   * @param prefixSize the number of points in the returned list, not larger than size().
+   *
+   * @return the first points, not null.
+   */
+  PointList prefix(int prefixSize)
+  {
+    if (prefixSize < 0 || prefixSize > size)
+    {
+      throw new IndexOutOfBoundsException("Prefix size " + prefixSize + " out of bounds for size " + size);
+    }
+    return new PointList(elements, prefixSize);
+  }
+}
@@ -38,6 +38,31 @@ public class Tack
 
   public DataPoint tackStraightLineIntersectionEnd;
 
+  public Tack()
+  {
+  }
+
+  /**
+   * Copy constructor. The data points are not copied but shared with <code>toCopy</code>.
+   *
+   * @param toCopy the tack to copy, not null.
+   */
+  public Tack(Tack toCopy)
+  {
+    this.index = toCopy.index;
+    this.pointOfSail = toCopy.pointOfSail;
+    this.start = toCopy.start;
+    this.startOfTackDataPointIndex = toCopy.startOfTackDataPointIndex;
+    this.end = toCopy.end;
+    this.endOfTackDataPointIndex = toCopy.endOfTackDataPointIndex;
+    this.pointsWithinTack = toCopy.pointsWithinTack;
+    this.windDirection = toCopy.windDirection;
+    this.maneuverTypeAtStart = toCopy.maneuverTypeAtStart;
+    this.maneuverTypeAtEnd = toCopy.maneuverTypeAtEnd;
+    this.tackStraightLineIntersectionStart = toCopy.tackStraightLineIntersectionStart;
+    this.tackStraightLineIntersectionEnd = toCopy.tackStraightLineIntersectionEnd;
+  }
+
   /**
    * @return the length of the tack in meters
    */
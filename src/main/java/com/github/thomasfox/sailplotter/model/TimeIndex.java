@@ -0,0 +1,151 @@
+package com.github.thomasfox.sailplotter.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The times of the data points of one sensor channel, in the order of the channel,
+ * allowing to locate time ranges in the channel by binary search.
+ * The points of the channel are expected to be ordered in time.
+ *
+ * This class is not thread safe.
+ */
+public class TimeIndex
+{
+  private long[] times;
+
+  private int size;
+
+  private TimeIndex(int capacity)
+  {
+    times = new long[Math.max(capacity, 1)];
+  }
+
+  private TimeIndex(long[] times, int size)
+  {
+    this.times = times;
+    this.size = size;
+  }
+
+  /**
+   * Creates the time index for the points of a channel.
+   *
+   * @param channelPoints the points of the channel, ordered in time, not null.
+   *
+   * @return the time index, not null.
+   */
+  static TimeIndex of(List<DataPoint> channelPoints)
+  {
+    TimeIndex result = new TimeIndex(channelPoints.size());
+    for (DataPoint point : channelPoints)
+    {
+      result.append(point);
+    }
+    return result;
+  }
+
+  /**
+   * Appends the time of a point which was appended to the channel.
+   *
+   * @param point the appended point, not null.
+   */
+  void append(DataPoint point)
+  {
+    if (size == times.length)
+    {
+      times = Arrays.copyOf(times, size + (size >> 1) + 1);
+    }
+    times[size++] = point.time == null ? DataColumns.NO_TIME : point.time;
+  }
+
+  /**
+   * Returns the time index of the first points of the channel, sharing the time array with this index.
+   * Times which are appended to this index later are not contained in the returned index.
+   * The returned index must not be modified.
+   *
+   * @param prefixSize the number of points in the returned index, not larger than size().
+   *
+   * @return the time index of the first points, not null.
+   */
+  TimeIndex prefix(int prefixSize)
+  {
+    if (prefixSize < 0 || prefixSize > size)
+    {
+      throw new IndexOutOfBoundsException("Prefix size " + prefixSize + " out of bounds for size " + size);
+    }
+    return new TimeIndex(times, prefixSize);
+  }
+
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the estimated heap size of this index in bytes.
+   */
+  long estimateBytes()
+  {
+    return MemoryFootprint.shallowSize(TimeIndex.class) + MemoryFootprint.arraySize(Long.BYTES, times.length);
+  }
+
+  /**
+   * Returns the time of the n-th point in the channel.
+   *
+   * @param n the position in the channel.
+   *
+   * @return the time in millis since 01.01.1970 0:00:00.000 GMT.
+   */
+  public long getTime(int n)
+  {
+    if (n < 0 || n >= size)
+    {
+      throw new IndexOutOfBoundsException("Index " + n + " out of bounds for size " + size);
+    }
+    return times[n];
+  }
+
+  /**
+   * Returns the position of the first point in the channel whose time is not before the given time.
+   *
+   * @param time the time in millis since 01.01.1970 0:00:00.000 GMT.
+   *
+   * @return the position of the first point at or after the given time,
+   *         or size() if all points are before the given time.
+   */
+  public int firstIndexNotBefore(long time)
+  {
+    int low = 0;
+    int high = size;
+    while (low < high)
+    {
+      int middle = (low + high) >>> 1;
+      if (times[middle] < time)
+      {
+        low = middle + 1;
+      }
+      else
+      {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the position of the first point in the channel whose time is after the given time.
+   *
+   * @param time the time in millis since 01.01.1970 0:00:00.000 GMT.
+   *
+   * @return the position of the first point after the given time,
+   *         or size() if no point is after the given time.
+   */
+  public int firstIndexAfter(long time)
+  {
+    if (time == Long.MAX_VALUE)
+    {
+      return size;
+    }
+    return firstIndexNotBefore(time + 1);
+  }
+}
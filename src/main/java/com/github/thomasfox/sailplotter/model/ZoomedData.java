@@ -2,6 +2,7 @@ package com.github.thomasfox.sailplotter.model;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -61,56 +62,195 @@ public class ZoomedData implements ZoomChangeListener
     return data.getPointsWithLocation().get(getLocationDataEndIndex()).getLocalDateTime();
   }
 
+  /**
+   * @return the time of the first location point of the zoom window,
+   *         in millis since 01.01.1970 0:00:00.000 GMT.
+   */
+  public long getLocationDataStartMillis()
+  {
+    return data.getLocationTimeIndex().getTime(getLocationDataStartIndex());
+  }
+
+  /**
+   * @return the time of the last location point of the zoom window,
+   *         in millis since 01.01.1970 0:00:00.000 GMT.
+   */
+  public long getLocationDataEndMillis()
+  {
+    return data.getLocationTimeIndex().getTime(getLocationDataEndIndex());
+  }
+
   public List<DataPoint> getPointsWithLocation()
   {
     return data.getPointsWithLocation();
   }
 
+  /**
+   * Checks whether a point is in a time window position.
+   * A point without time is treated as if it were before all other points, as in the time indices.
+   *
+   * @param point the point to check, not null.
+   * @param position the time window position, or null for all points.
+   *
+   * @return whether the point is in the time window position.
+   */
   public boolean isInSelectedPosition(DataPoint point, TimeWindowPosition position)
   {
     if (position == null)
     {
       return true;
     }
-    if (position == TimeWindowPosition.BEFORE && point.getLocalDateTime().isAfter(getLocationDataStartTime()))
+    long time = point.time == null ? DataColumns.NO_TIME : point.time;
+    if (position == TimeWindowPosition.BEFORE && time > getLocationDataStartMillis())
     {
       return false;
     }
     if (position == TimeWindowPosition.IN
-        && (!point.getLocalDateTime().isAfter(getLocationDataStartTime())
-            || !point.getLocalDateTime().isBefore(getLocationDataEndTime())))
+        && (time <= getLocationDataStartMillis()
+            || time >= getLocationDataEndMillis()))
     {
       return false;
     }
-    if (position == TimeWindowPosition.AFTER && point.getLocalDateTime().isBefore(getLocationDataEndTime()))
+    if (position == TimeWindowPosition.AFTER && time < getLocationDataEndMillis())
     {
       return false;
     }
     return true;
   }
 
+  /**
+   * Returns the points with location in a time window position.
+   * The returned list is a read-only view, located by binary search over the location times.
+   *
+   * @param position the time window position, or null for all points with location.
+   *
+   * @return the points with location in the time window position, not null.
+   */
   public List<DataPoint> getLocationSubset(TimeWindowPosition position)
   {
     if (data == null)
     {
       return new ArrayList<>();
     }
+    return getSubset(data.getPointsWithLocation(), data.getLocationTimeIndex(), position);
+  }
+
+  /**
+   * Returns the points with magnetic field in a time window position.
+   * The returned list is a read-only view, located by binary search over the magnetic field times.
+   *
+   * @param position the time window position, or null for all points with magnetic field.
+   *
+   * @return the points with magnetic field in the time window position, not null.
+   */
+  public List<DataPoint> getMagneticFieldSubset(TimeWindowPosition position)
+  {
+    if (data == null)
+    {
+      return new ArrayList<>();
+    }
+    return getSubset(data.getPointsWithMagneticField(), data.getMagneticFieldTimeIndex(), position);
+  }
 
-    List<DataPoint> result = new ArrayList<>();
-    for (DataPoint point : data.getPointsWithLocation())
+  /**
+   * Returns the points with acceleration in a time window position.
+   * The returned list is a read-only view, located by binary search over the acceleration times.
+   *
+   * @param position the time window position, or null for all points with acceleration.
+   *
+   * @return the points with acceleration in the time window position, not null.
+   */
+  public List<DataPoint> getAccelerationSubset(TimeWindowPosition position)
+  {
+    if (data == null)
+    {
+      return new ArrayList<>();
+    }
+    return getSubset(data.getPointsWithAcceleration(), data.getAccelerationTimeIndex(), position);
+  }
+
+  /**
+   * Returns the points with location in a time window position which are needed to draw
+   * the given values in a plot of the given width.
+   * The points are selected from the pyramids of the values (see ChannelPyramid),
+   * so their number depends on the plot width rather than on the number of points in the time window.
+   *
+   * @param position the time window position, or null for all points with location.
+   * @param pixelWidth the width of the plot in pixels.
+   * @param channels the values which are drawn, not null.
+   *
+   * @return the points to draw in ascending time order, not null.
+   */
+  public List<DataPoint> getLocationSubset(
+      TimeWindowPosition position,
+      int pixelWidth,
+      ChannelPyramid.Channel... channels)
+  {
+    if (data == null)
+    {
+      return new ArrayList<>();
+    }
+    List<DataPoint> pointsWithLocation = data.getPointsWithLocation();
+    int[] range = getSubsetRange(pointsWithLocation.size(), data.getLocationTimeIndex(), position);
+    BitSet selected = new BitSet();
+    for (ChannelPyramid.Channel channel : channels)
     {
-      if (!isInSelectedPosition(point, position))
+      for (int selectedPosition : data.getPyramid(channel).select(range[0], range[1], pixelWidth))
       {
-        continue;
+        selected.set(selectedPosition);
       }
-      result.add(point);
+    }
+    List<DataPoint> result = new ArrayList<>(selected.cardinality());
+    for (int i = selected.nextSetBit(0); i != -1; i = selected.nextSetBit(i + 1))
+    {
+      result.add(pointsWithLocation.get(i));
     }
     return result;
   }
 
+  /**
+   * Selects the same points as isInSelectedPosition() from the points of a channel.
+   */
+  private List<DataPoint> getSubset(
+      List<DataPoint> channelPoints,
+      TimeIndex timeIndex,
+      TimeWindowPosition position)
+  {
+    int[] range = getSubsetRange(channelPoints.size(), timeIndex, position);
+    return channelPoints.subList(range[0], range[1]);
+  }
+
+  /**
+   * Locates the points selected by isInSelectedPosition() in the points of a channel.
+   *
+   * @return the index of the first selected point and the index after the last selected point.
+   */
+  private int[] getSubsetRange(int channelSize, TimeIndex timeIndex, TimeWindowPosition position)
+  {
+    if (position == null || data.getPointsWithLocation().isEmpty())
+    {
+      return new int[] {0, channelSize};
+    }
+    long startMillis = getLocationDataStartMillis();
+    long endMillis = getLocationDataEndMillis();
+    switch (position)
+    {
+      case BEFORE:
+        return new int[] {0, timeIndex.firstIndexAfter(startMillis)};
+      case IN:
+        int fromIndex = timeIndex.firstIndexAfter(startMillis);
+        int toIndex = Math.max(fromIndex, timeIndex.firstIndexNotBefore(endMillis));
+        return new int[] {fromIndex, toIndex};
+      case AFTER:
+        return new int[] {timeIndex.firstIndexNotBefore(endMillis), channelSize};
+      default:
+        throw new IllegalArgumentException("Unknown position " + position);
+    }
+  }
+
   public TimeSeries getTimeSeries(
       String name,
-      Function<Data, List<DataPoint>> pointProvider,
+      Function<ZoomedData, List<DataPoint>> pointProvider,
       Predicate<DataPoint> filter,
       Function<DataPoint, Double> mapper)
   {
@@ -119,7 +259,7 @@ public class ZoomedData implements ZoomChangeListener
     {
       return series;
     }
-    for (DataPoint point : pointProvider.apply(data))
+    for (DataPoint point : pointProvider.apply(this))
     {
       if (filter.test(point))
       {
@@ -133,9 +273,14 @@ public class ZoomedData implements ZoomChangeListener
       String name,
       TimeWindowPosition position,
       Function<DataPoint, Double> mapper)
+  {
+    return getLocationTimeSeries(getLocationSubset(position), mapper);
+  }
+
+  private TimeSeries getLocationTimeSeries(List<DataPoint> points, Function<DataPoint, Double> mapper)
   {
     TimeSeries series = new TimeSeries("velocity");
-    for (DataPoint point : getLocationSubset(position))
+    for (DataPoint point : points)
     {
       Double mapResult = mapper.apply(point);
       if (mapResult != null)
@@ -151,6 +296,16 @@ public class ZoomedData implements ZoomChangeListener
     return getLocationTimeSeries("velocity", position, point -> point.location.velocityFromLatLong);
   }
 
+  /**
+   * Returns the velocity series with the points needed to draw it in a plot of the given width.
+   */
+  public TimeSeries getVelocityTimeSeries(TimeWindowPosition position, int pixelWidth)
+  {
+    return getLocationTimeSeries(
+        getLocationSubset(position, pixelWidth, ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG),
+        point -> point.location.velocityFromLatLong);
+  }
+
   public TimeSeries getBearingInDegreesFromLatLongTimeSeries(TimeWindowPosition position)
   {
     return getLocationTimeSeries(
@@ -159,6 +314,16 @@ public class ZoomedData implements ZoomChangeListener
         point -> point.location.getBearingFromLatLongAs360Degrees());
   }
 
+  /**
+   * Returns the bearing series with the points needed to draw it in a plot of the given width.
+   */
+  public TimeSeries getBearingInDegreesFromLatLongTimeSeries(TimeWindowPosition position, int pixelWidth)
+  {
+    return getLocationTimeSeries(
+        getLocationSubset(position, pixelWidth, ChannelPyramid.Channel.BEARING_FROM_LAT_LONG_IN_DEGREES),
+        point -> point.location.getBearingFromLatLongAs360Degrees());
+  }
+
 
   public TimeSeries getRelativeBearingInDegreesTimeSeries(TimeWindowPosition position)
   {
@@ -193,11 +358,11 @@ public class ZoomedData implements ZoomChangeListener
 
   public Millisecond getStartMillisecond()
   {
-    return data.get(getLocationDataStartIndex()).getMillisecond();
+    return data.getPointsWithLocation().get(getLocationDataStartIndex()).getMillisecond();
   }
 
   public Millisecond getEndMillisecond()
   {
-    return data.get(getLocationDataEndIndex()).getMillisecond();
+    return data.getPointsWithLocation().get(getLocationDataEndIndex()).getMillisecond();
   }
 }
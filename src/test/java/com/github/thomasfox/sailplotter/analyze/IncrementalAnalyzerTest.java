@@ -0,0 +1,142 @@
+package com.github.thomasfox.sailplotter.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.Tack;
+
+public class IncrementalAnalyzerTest
+{
+  private static final int POINT_COUNT = 400;
+
+  @Test
+  public void append_sameAsFullAnalysis()
+  {
+    // arrange
+    Data expected = new Data();
+    expected.appendAll(givenZigZagTrack());
+    Analyzer.analyze(expected, new LoadProgress(null));
+
+    Data data = new Data();
+    IncrementalAnalyzer sut = new IncrementalAnalyzer(data);
+    List<DataPoint> points = givenZigZagTrack();
+
+    // act
+    int appended = 0;
+    int step = 1;
+    while (appended < points.size())
+    {
+      int end = Math.min(appended + step, points.size());
+      sut.append(new ArrayList<>(points.subList(appended, end)));
+      appended = end;
+      step = step * 2 % 37 + 1;
+    }
+
+    // assert
+    assertThat(data.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++)
+    {
+      assertThat(data.get(i).location.velocityFromLatLong).isEqualTo(expected.get(i).location.velocityFromLatLong);
+      assertThat(data.get(i).location.bearingFromLatLong).isEqualTo(expected.get(i).location.bearingFromLatLong);
+      assertThat(Double.doubleToLongBits(data.getColumns().getBearingFromLatLong(i)))
+          .isEqualTo(Double.doubleToLongBits(expected.getColumns().getBearingFromLatLong(i)));
+    }
+    // the incremental analysis also contains the tack which is currently sailed
+    assertThat(expected.getTackList()).hasSizeGreaterThan(3);
+    assertThat(data.getTackList()).hasSize(expected.getTackList().size() + 1);
+    for (int i = 0; i < expected.getTackList().size(); i++)
+    {
+      Tack expectedTack = expected.getTackList().get(i);
+      Tack tack = data.getTackList().get(i);
+      assertThat(tack.startOfTackDataPointIndex).isEqualTo(expectedTack.startOfTackDataPointIndex);
+      assertThat(tack.endOfTackDataPointIndex).isEqualTo(expectedTack.endOfTackDataPointIndex);
+      assertThat(tack.pointOfSail).isEqualTo(expectedTack.pointOfSail);
+      assertThat(tack.maneuverTypeAtStart).isEqualTo(expectedTack.maneuverTypeAtStart);
+      assertThat(tack.maneuverTypeAtEnd).isEqualTo(expectedTack.maneuverTypeAtEnd);
+    }
+    assertThat(data.getTackList().get(data.getTackList().size() - 1).endOfTackDataPointIndex)
+        .isEqualTo(POINT_COUNT - 2);
+  }
+
+  @Test
+  public void getSettledData_notChangedByAppending()
+  {
+    // arrange
+    Data data = new Data();
+    IncrementalAnalyzer sut = new IncrementalAnalyzer(data);
+    List<DataPoint> points = givenZigZagTrack();
+    sut.append(new ArrayList<>(points.subList(0, 120)));
+
+    // act
+    Data settled = sut.getSettledData();
+    int tackCount = settled.getTackList().size();
+    Tack lastTack = settled.getTackList().get(tackCount - 1);
+    int lastTackEnd = lastTack.endOfTackDataPointIndex;
+    sut.append(new ArrayList<>(points.subList(120, POINT_COUNT)));
+
+    // assert
+    assertThat(settled.size()).isEqualTo(119);
+    assertThat(settled.getPointsWithLocation()).hasSize(119);
+    assertThat(settled.getColumns().size()).isEqualTo(119);
+    assertThat(settled.getTackList()).hasSize(tackCount);
+    assertThat(settled.getTackList().get(tackCount - 1)).isSameAs(lastTack);
+    assertThat(lastTack.endOfTackDataPointIndex).isEqualTo(lastTackEnd);
+    assertThat(lastTack.pointsWithinTack).hasSize(lastTackEnd - lastTack.startOfTackDataPointIndex + 1);
+    assertThat(data.getTackList().get(tackCount - 1).endOfTackDataPointIndex).isGreaterThan(lastTackEnd);
+    for (int i = 1; i < settled.size(); i++)
+    {
+      assertThat(settled.get(i).location.velocityFromLatLong).isNotNull();
+    }
+  }
+
+  @Test
+  public void append_pointWithoutTime_appended()
+  {
+    // arrange
+    Data data = new Data();
+    IncrementalAnalyzer sut = new IncrementalAnalyzer(data);
+    List<DataPoint> points = givenZigZagTrack();
+    sut.append(new ArrayList<>(points.subList(0, 120)));
+    DataPoint pointWithoutTime = new DataPoint(0);
+    List<DataPoint> appended = new ArrayList<>();
+    appended.add(pointWithoutTime);
+    appended.addAll(points.subList(120, POINT_COUNT));
+
+    // act
+    sut.append(appended);
+
+    // assert
+    assertThat(data.size()).isEqualTo(POINT_COUNT + 1);
+    assertThat(data.get(120).time).isNull();
+    assertThat(data.get(POINT_COUNT - 1).location.velocityFromLatLong).isNotNull();
+  }
+
+  /**
+   * Creates a track which changes its direction by 90 degrees every 50 seconds.
+   */
+  private List<DataPoint> givenZigZagTrack()
+  {
+    List<DataPoint> result = new ArrayList<>();
+    double x = 0;
+    double y = 0;
+    for (int i = 0; i < POINT_COUNT; i++)
+    {
+      DataPoint point = new DataPoint(i);
+      point.time = 1_000_000L + i * 1000L;
+      point.location = Location.fromXY(x, y);
+      result.add(point);
+      boolean portTack = (i / 50) % 2 == 0;
+      x += portTack ? 2 : -2;
+      y += 2 + (i % 7) / 10d;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,66 @@
+package com.github.thomasfox.sailplotter.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+
+public class LocationInterpolatorTest
+{
+  @Test
+  public void getLocationAt()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(givenPoint(1000L, 0d, 0d));
+    data.add(givenPoint(1500L, null, null));
+    data.add(givenPoint(2000L, 100d, 10d));
+    LocationInterpolator sut = new LocationInterpolator(data);
+
+    // act
+    Location interpolated = sut.getLocationAt(1250L);
+    Location measured = sut.getLocationAt(2000L);
+    Location beforeStart = sut.getLocationAt(999L);
+    Location afterEnd = sut.getLocationAt(2001L);
+
+    // assert
+    assertThat(interpolated.getX()).isCloseTo(25d, within(0.0001d));
+    assertThat(interpolated.getY()).isCloseTo(2.5d, within(0.0001d));
+    assertThat(interpolated.interpolated).isTrue();
+    assertThat(measured).isSameAs(data.get(2).location);
+    assertThat(beforeStart).isNull();
+    assertThat(afterEnd).isNull();
+    assertThat(data.get(1).location).isNull();
+  }
+
+  @Test
+  public void getLocationAt_locationWithoutTime_null()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(givenPoint(null, 0d, 0d));
+    data.add(givenPoint(2000L, 100d, 10d));
+    LocationInterpolator sut = new LocationInterpolator(data);
+
+    // act
+    Location result = sut.getLocationAt(1500L);
+
+    // assert
+    assertThat(result).isNull();
+  }
+
+  private DataPoint givenPoint(Long time, Double x, Double y)
+  {
+    DataPoint point = new DataPoint(-1);
+    point.time = time;
+    if (x != null)
+    {
+      point.location = Location.fromXY(x, y);
+    }
+    return point;
+  }
+}
@@ -0,0 +1,62 @@
+package com.github.thomasfox.sailplotter.analyze;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+
+public class VelocityBearingAnalyzerTest
+{
+  private static final int POINT_COUNT = 50;
+
+  private final VelocityBearingAnalyzer sut = new VelocityBearingAnalyzer();
+
+  @Test
+  public void analyzeFromLocation_dataBuiltByAdd_sameAsFullAnalysis()
+  {
+    // arrange
+    Data expected = givenDataBuiltByAdd();
+    sut.analyze(expected);
+    Data data = givenDataBuiltByAdd();
+
+    // act
+    int nextLocation = sut.analyze(data, 0);
+
+    // assert
+    assertThat(nextLocation).isEqualTo(POINT_COUNT - 1);
+    for (int i = 0; i < expected.size(); i++)
+    {
+      if (expected.get(i).hasLocation())
+      {
+        assertThat(data.get(i).location.velocityFromLatLong).isEqualTo(expected.get(i).location.velocityFromLatLong);
+        assertThat(data.get(i).location.bearingFromLatLong).isEqualTo(expected.get(i).location.bearingFromLatLong);
+        assertThat(Double.doubleToLongBits(data.getColumns().getBearingFromLatLong(i)))
+            .isEqualTo(Double.doubleToLongBits(expected.getColumns().getBearingFromLatLong(i)));
+      }
+    }
+    assertThat(data.get(21).location.velocityFromLatLong).isNotNull();
+  }
+
+  /**
+   * Creates data whose point indices do not match the position of the points,
+   * by adding points with an offset index and inserting a point without location.
+   */
+  private Data givenDataBuiltByAdd()
+  {
+    Data result = new Data();
+    for (int i = 0; i < POINT_COUNT; i++)
+    {
+      DataPoint point = new DataPoint(1000 + i);
+      point.time = 1_000_000L + i * 1000L;
+      point.location = Location.fromXY(i * 3d, i * i / 10d);
+      result.add(point);
+    }
+    DataPoint inserted = new DataPoint(0);
+    inserted.time = 1_000_000L + 9500L;
+    result.add(10, inserted);
+    return result;
+  }
+}
@@ -0,0 +1,136 @@
+package com.github.thomasfox.sailplotter.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.thomasfox.sailplotter.model.Acceleration;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataColumns;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.MagneticField;
+import com.github.thomasfox.sailplotter.model.ManoeuverState;
+
+public class JsonExporterTest
+{
+  @Test
+  public void write_raw_noDerivedValues() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    JsonExporter sut = new JsonExporter(JsonExporter.Profile.RAW, true);
+
+    // act
+    JsonNode result = write(sut, data);
+
+    // assert
+    assertThat(result.get("comment").asText()).isEqualTo("Training");
+    assertThat(result.get("averageWindBearing").asDouble()).isEqualTo(1.2d);
+    JsonNode points = result.get("allPoints");
+    assertThat(points.size()).isEqualTo(3);
+    assertThat(points.get(0).get("time").asLong()).isEqualTo(1000L);
+    assertThat(points.get(0).get("location").get("latitude").asDouble()).isEqualTo(0.9d);
+    assertThat(points.get(0).get("location").has("velocityFromLatLong")).isFalse();
+    assertThat(points.get(0).has("wind")).isFalse();
+    assertThat(points.get(1).has("location")).isFalse();
+    assertThat(points.get(1).get("magneticField").get("x").asDouble()).isEqualTo(20d);
+    assertThat(points.get(1).get("magneticField").has("compassBearing")).isFalse();
+    assertThat(points.get(2).get("acceleration").get("z").asDouble()).isEqualTo(9.81d);
+  }
+
+  @Test
+  public void write_rawAndDerived_derivedValues() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    JsonExporter sut = new JsonExporter(JsonExporter.Profile.RAW_AND_DERIVED, true);
+
+    // act
+    JsonNode result = write(sut, data);
+
+    // assert
+    JsonNode points = result.get("allPoints");
+    assertThat(points.get(0).get("location").get("velocityFromLatLong").asDouble()).isEqualTo(4.5d);
+    assertThat(points.get(0).get("manoeuverState").asText()).isEqualTo(ManoeuverState.IN_TACK.name());
+    assertThat(points.get(1).get("magneticField").get("compassBearing").asDouble()).isEqualTo(0.5d);
+    assertThat(points.get(2).get("acceleration").get("heel").asDouble()).isEqualTo(0.1d);
+  }
+
+  @Test
+  public void write_compactWithoutIndentation_shortNamesOnOneLine() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    JsonExporter sut = new JsonExporter(JsonExporter.Profile.COMPACT, false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    sut.write(data, out);
+
+    // assert
+    String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    assertThat(json).doesNotContain("\n");
+    JsonNode points = new ObjectMapper().readTree(json).get("allPoints");
+    assertThat(points.get(0).get("t").asLong()).isEqualTo(1000L);
+    assertThat(points.get(0).get("lat").asDouble()).isEqualTo(0.9d);
+    assertThat(points.get(1).has("lat")).isFalse();
+    assertThat(points.get(1).get("mx").asDouble()).isEqualTo(20d);
+    assertThat(points.get(2).get("az").asDouble()).isEqualTo(9.81d);
+  }
+
+  @Test
+  public void write_cachesUntouched() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    DataColumns columns = data.getColumns();
+    JsonExporter sut = new JsonExporter(JsonExporter.Profile.RAW, true);
+
+    // act
+    sut.write(data, new ByteArrayOutputStream());
+
+    // assert
+    assertThat(data.getColumns()).isSameAs(columns);
+  }
+
+  private JsonNode write(JsonExporter sut, Data data) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sut.write(data, out);
+    return new ObjectMapper().readTree(out.toByteArray());
+  }
+
+  private Data givenData()
+  {
+    Data.Builder builder = new Data.Builder();
+    DataPoint withLocation = new DataPoint(0);
+    withLocation.time = 1000L;
+    withLocation.location = new Location();
+    withLocation.location.latitude = 0.9d;
+    withLocation.location.longitude = 0.17d;
+    withLocation.location.velocityFromLatLong = 4.5d;
+    withLocation.manoeuverState = ManoeuverState.IN_TACK;
+    builder.add(withLocation);
+    DataPoint withMagneticField = new DataPoint(1);
+    withMagneticField.time = 1100L;
+    withMagneticField.magneticField = new MagneticField(20d, -5d, -40d);
+    withMagneticField.magneticField.compassBearing = 0.5d;
+    builder.add(withMagneticField);
+    DataPoint withAcceleration = new DataPoint(2);
+    withAcceleration.time = 1200L;
+    withAcceleration.acceleration = new Acceleration(0d, 0d, 9.81d);
+    withAcceleration.acceleration.heel = 0.1d;
+    builder.add(withAcceleration);
+    Data result = builder.build();
+    result.comment = "Training";
+    result.setAverageWindBearing(1.2d);
+    return result;
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.thomasfox.sailplotter.gui.component.progress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LoadProgressTest
+{
+  private final RecordingProgressChanged progressChanged = new RecordingProgressChanged();
+
+  private final LoadProgress sut = new LoadProgress(progressChanged);
+
+  @Test
+  public void fileReadingProgress_showsBytesAndThroughput() throws InterruptedException
+  {
+    // arrange
+    sut.fileReadingStarted();
+    sut.readingBytes(4_000_000L, () -> 1_000_000L);
+    Thread.sleep(110);
+
+    // act
+    sut.fileReadingProgress(50_000);
+
+    // assert
+    assertThat(progressChanged.percentDone).containsExactly(25);
+    assertThat(progressChanged.displayed.get(progressChanged.displayed.size() - 1))
+        .startsWith("loading file... 50000 records read, 1 of 4 MB (25 %), ")
+        .endsWith(" records/s");
+  }
+
+  @Test
+  public void fileReadingProgress_displayThrottled()
+  {
+    // arrange
+    sut.fileReadingStarted();
+    sut.readingBytes(4_000_000L, () -> 1_000_000L);
+
+    // act
+    sut.fileReadingProgress(10_000);
+    sut.fileReadingProgress(20_000);
+
+    // assert
+    assertThat(progressChanged.percentDone).isEmpty();
+    assertThat(progressChanged.displayed).containsExactly("loading file...");
+  }
+
+  @Test
+  public void cancel_progressThrows()
+  {
+    // arrange
+    sut.fileReadingStarted();
+
+    // act
+    sut.cancel();
+
+    // assert
+    assertThat(sut.isCancelled()).isTrue();
+    assertThatThrownBy(() -> sut.fileReadingProgress(10_000)).isInstanceOf(LoadCancelledException.class);
+    assertThatThrownBy(() -> sut.startCalculateTackList()).isInstanceOf(LoadCancelledException.class);
+  }
+
+  @Test
+  public void cancel_analyzingPointThrowsAtCheckInterval()
+  {
+    // arrange
+    sut.analyzingStarted();
+
+    // act
+    sut.cancel();
+
+    // assert
+    sut.analyzingPoint(LoadProgress.CANCEL_CHECK_INTERVAL + 1);
+    assertThatThrownBy(() -> sut.analyzingPoint(2 * LoadProgress.CANCEL_CHECK_INTERVAL))
+        .isInstanceOf(LoadCancelledException.class);
+  }
+
+  private static class RecordingProgressChanged extends NoOpProgressChanged
+  {
+    private final List<String> displayed = new ArrayList<>();
+
+    private final List<Integer> percentDone = new ArrayList<>();
+
+    @Override
+    public void setToDisplay(String toDisplay)
+    {
+      displayed.add(toDisplay);
+    }
+
+    @Override
+    public void setPercentDone(int percent)
+    {
+      percentDone.add(percent);
+    }
+  }
+}
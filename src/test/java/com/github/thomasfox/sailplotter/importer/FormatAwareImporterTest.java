@@ -0,0 +1,204 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.Data;
+
+public class FormatAwareImporterTest
+{
+  private static final int LINE_COUNT = 5000;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final FormatAwareImporter sut = new FormatAwareImporter(new LoadProgress(null));
+
+  @Test
+  public void read_gzip()
+  {
+    // arrange
+    File file = givenGzipFile("track.log.gz", givenSailRacerLog());
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    assertSameAsUncompressed(result.getData());
+    assertThat(result.getData().getFile()).isEqualTo(file);
+  }
+
+  @Test
+  public void read_zip()
+  {
+    // arrange
+    File file = givenZipFile("track.zip", "track.txt", givenSailRacerLog());
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    assertSameAsUncompressed(result.getData());
+  }
+
+  @Test
+  public void read_gzipStream()
+  {
+    // arrange
+    File file = givenGzipFile("track.gz", givenSailRacerLog());
+
+    // act
+    ImporterResult result = sut.read(new ByteArrayInputStream(readBytes(file)));
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    assertSameAsUncompressed(result.getData());
+  }
+
+  @Test
+  public void read_gpxInZip()
+  {
+    // arrange
+    File file = givenZipFile("track.zip", "track.gpx", "<?xml version=\"1.0\"?>\n<gpx version=\"1.1\"><trk><trkseg>"
+        + "<trkpt lat=\"45.0\" lon=\"-90.0\"><time>2017-07-14T02:40:00Z</time></trkpt>"
+        + "<trkpt lat=\"45.1\" lon=\"-90.1\"><time>2017-07-14T02:40:01Z</time></trkpt>"
+        + "</trkseg></trk></gpx>");
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getData().size()).isEqualTo(2);
+    assertThat(result.getData().get(1).time).isEqualTo(1500000001000L);
+  }
+
+  @Test
+  public void read_zipWithTwoFiles_rejected()
+  {
+    // arrange
+    File file = givenZipFile("track.zip", "track.txt", givenSailRacerLog(), "other.txt", givenSailRacerLog());
+
+    // act and assert
+    assertThatThrownBy(() -> sut.read(file))
+        .hasMessageContaining("Zip file track.zip contains more than one file");
+  }
+
+  @Test
+  public void read_zipStreamWithTwoFiles_rejected()
+  {
+    // arrange
+    File file = givenZipFile("track.zip", "track.txt", givenSailRacerLog(), "other.txt", givenSailRacerLog());
+
+    // act and assert
+    assertThatThrownBy(() -> sut.read(new ByteArrayInputStream(readBytes(file))))
+        .hasMessageContaining("contains more than one file");
+  }
+
+  private void assertSameAsUncompressed(Data data)
+  {
+    File uncompressed = new File(folder.getRoot(), "uncompressed.log");
+    writeFile(uncompressed, givenSailRacerLog().getBytes(StandardCharsets.ISO_8859_1));
+    Data expected = sut.read(uncompressed).getData();
+    assertThat(data.size()).isEqualTo(LINE_COUNT);
+    for (int i = 0; i < expected.size(); i++)
+    {
+      assertThat(data.get(i).time).isEqualTo(expected.get(i).time);
+      assertThat(data.get(i).location.latitude).isEqualTo(expected.get(i).location.latitude);
+      assertThat(data.get(i).location.longitude).isEqualTo(expected.get(i).location.longitude);
+    }
+  }
+
+  private String givenSailRacerLog()
+  {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < LINE_COUNT; i++)
+    {
+      result.append(String.format(Locale.ROOT, "2016.09.21 %02d:%02d:%02d:000\t%.7f\t%.7f\t45\t2.57\t45\t0.0\n",
+          i / 3600, i / 60 % 60, i % 60, 53.5d + i / 1e6d, 10d + i / 1e6d));
+    }
+    return result.toString();
+  }
+
+  private File givenGzipFile(String name, String content)
+  {
+    File file = new File(folder.getRoot(), name);
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file)))
+    {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+    return file;
+  }
+
+  /**
+   * Creates a zip file with a directory entry followed by the given file entries.
+   *
+   * @param entryNamesAndContents alternating entry names and contents.
+   */
+  private File givenZipFile(String name, String... entryNamesAndContents)
+  {
+    File file = new File(folder.getRoot(), name);
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file)))
+    {
+      out.putNextEntry(new ZipEntry("tracks/"));
+      out.closeEntry();
+      for (int i = 0; i < entryNamesAndContents.length; i += 2)
+      {
+        out.putNextEntry(new ZipEntry(entryNamesAndContents[i]));
+        out.write(entryNamesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+    return file;
+  }
+
+  private void writeFile(File file, byte[] content)
+  {
+    try
+    {
+      Files.write(file.toPath(), content);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private byte[] readBytes(File file)
+  {
+    try
+    {
+      return Files.readAllBytes(file.toPath());
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.OffsetDateTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.Data;
+
+public class GpxImporterTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_allTracksAndSegments()
+  {
+    // arrange
+    File file = givenFile("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<gpx version=\"1.1\" xmlns=\"http://www.topografix.com/GPX/1/1\""
+        + " xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\">\n"
+        + "<wpt lat=\"1.0\" lon=\"1.0\"><time>2017-07-14T02:00:00Z</time></wpt>\n"
+        + "<trk><name>first</name>\n"
+        + "<trkseg>\n"
+        + "<trkpt lat=\"45.0\" lon=\"-90.0\"><ele>3.5</ele><time>2017-07-14T02:40:00Z</time>"
+        + "<extensions><gpxtpx:TrackPointExtension><gpxtpx:speed>1.0</gpxtpx:speed>"
+        + "<gpxtpx:course>90.0</gpxtpx:course></gpxtpx:TrackPointExtension></extensions></trkpt>\n"
+        + "</trkseg>\n"
+        + "<trkseg>\n"
+        + "<trkpt lat=\"45.1\" lon=\"-90.1\"><time>2017-07-14T02:40:01.250Z</time></trkpt>\n"
+        + "</trkseg>\n"
+        + "</trk>\n"
+        + "<trk><trkseg>\n"
+        + "<trkpt lat=\"45.2\" lon=\"-90.2\"><time>2017-07-14T04:40:02+02:00</time></trkpt>\n"
+        + "</trkseg></trk>\n"
+        + "</gpx>\n");
+    GpxImporter sut = new GpxImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    Data data = result.getData();
+    assertThat(data.size()).isEqualTo(3);
+    assertThat(data.get(0).time).isEqualTo(1500000000000L);
+    assertThat(data.get(0).location.latitude).isCloseTo(Math.PI / 4, within(1e-12d));
+    assertThat(data.get(0).location.longitude).isCloseTo(-Math.PI / 2, within(1e-12d));
+    assertThat(data.get(0).location.altitude).isEqualTo(3.5d);
+    assertThat(data.get(0).location.velocity).isCloseTo(3600d / 1852d, within(1e-12d));
+    assertThat(data.get(0).location.bearing).isCloseTo(Math.PI / 2, within(1e-12d));
+    assertThat(data.get(1).time).isEqualTo(1500000001250L);
+    assertThat(data.get(1).location.velocity).isNull();
+    assertThat(data.get(2).time).isEqualTo(1500000002000L);
+    assertThat(data.get(2).index).isEqualTo(2);
+  }
+
+  @Test
+  public void read_badPoints_warns()
+  {
+    // arrange
+    File file = givenFile("<gpx><trk><trkseg>"
+        + "<trkpt lat=\"45.0\" lon=\"-90.0\"><time>2017-07-14T02:40:00Z</time></trkpt>"
+        + "<trkpt lat=\"45.0\" lon=\"-90.0\"><time>yesterday</time></trkpt>"
+        + "<trkpt lat=\"45.0\"><time>2017-07-14T02:40:01Z</time></trkpt>"
+        + "<trkpt lat=\"45.0\" lon=\"-90.0\"><time>2017-07-14T02:39:00Z</time></trkpt>"
+        + "<trkpt lat=\"45.0\" lon=\"-90.0\"><time>2017-07-14T02:40:02Z</time></trkpt>"
+        + "</trkseg></trk></gpx>");
+    GpxImporter sut = new GpxImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).hasSize(3);
+    assertThat(result.getData().size()).isEqualTo(2);
+    assertThat(result.getData().get(1).time).isEqualTo(1500000002000L);
+  }
+
+  @Test
+  public void parseTime()
+  {
+    assertParsedLikeJavaTime("2017-07-14T02:40:00Z");
+    assertParsedLikeJavaTime("2017-07-14T02:40:00.1Z");
+    assertParsedLikeJavaTime("2017-07-14T02:40:00.123456Z");
+    assertParsedLikeJavaTime("2000-02-29T23:59:59.999-05:30");
+    assertParsedLikeJavaTime("1969-12-31T23:59:59Z");
+    assertParsedLikeJavaTime("2100-03-01T00:00:00+14:00");
+    assertThat(GpxImporter.parseTime("2017-07-14T02:40:00")).isEqualTo(1500000000000L);
+    assertThat(GpxImporter.parseTime("2017-07-14T04:40:00+0200")).isEqualTo(1500000000000L);
+  }
+
+  @Test
+  public void parseTime_invalid()
+  {
+    assertThatThrownBy(() -> GpxImporter.parseTime("2017-07-14")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> GpxImporter.parseTime("2017-07-14T02:40:00X"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> GpxImporter.parseTime("2017-13-14T02:40:00Z"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> GpxImporter.parseTime("2017-07-14T02:40:00.Z"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private void assertParsedLikeJavaTime(String text)
+  {
+    assertThat(GpxImporter.parseTime(text)).isEqualTo(OffsetDateTime.parse(text).toInstant().toEpochMilli());
+  }
+
+  private File givenFile(String content)
+  {
+    try
+    {
+      File file = folder.newFile("test.gpx");
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      return file;
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
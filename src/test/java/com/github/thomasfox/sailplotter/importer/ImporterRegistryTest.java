@@ -0,0 +1,71 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.importer.saillogger.SailDataImporterProvider;
+
+public class ImporterRegistryTest
+{
+  private static final String GPX = "<?xml version=\"1.0\"?>\n<gpx version=\"1.1\"><trk>";
+
+  private static final String SAIL_RACER_LOG = "2016.09.21 14:02:16:000\t53.5\t10.0\t45\t2.57\t45\t0.0\n";
+
+  private static final String SAILLOG = "{\"start\":{\"format\":\"1.0\",\"loggedBy\":\"SailLogger\"},\"track\":[";
+
+  private static final String VIEW_RANGER = "{\"header\":{\"colour\":0,\"gridPositionCoordType\":0},\"points\":[";
+
+  private final ImporterRegistry sut = new ImporterRegistry();
+
+  @Test
+  public void getProviders_discoveredByServiceLoader()
+  {
+    assertThat(sut.getProviders()).hasSize(5);
+    assertThat(sut.getExtensions())
+        .containsExactly(".gpx", ".log", ".saildata", ".saillog", ".sailplot", ".vrtp");
+  }
+
+  @Test
+  public void select_byContent()
+  {
+    assertThat(sut.select("track.gpx", header(GPX))).isInstanceOf(GpxImporterProvider.class);
+    assertThat(sut.select("track.log", header(SAIL_RACER_LOG))).isInstanceOf(SailRacerImporterProvider.class);
+    assertThat(sut.select("track.saillog", header(SAILLOG))).isInstanceOf(SailDataImporterProvider.class);
+    assertThat(sut.select("track.vrtp", header(VIEW_RANGER))).isInstanceOf(ViewRangerImporterProvider.class);
+  }
+
+  @Test
+  public void select_misnamedFiles_byContent()
+  {
+    assertThat(sut.select("track.txt", header(GPX))).isInstanceOf(GpxImporterProvider.class);
+    assertThat(sut.select("track.gpx", header(SAIL_RACER_LOG))).isInstanceOf(SailRacerImporterProvider.class);
+    assertThat(sut.select("track.vrtp", header("\uFEFF" + SAILLOG))).isInstanceOf(SailDataImporterProvider.class);
+    assertThat(sut.select("track.saillog", header(VIEW_RANGER))).isInstanceOf(ViewRangerImporterProvider.class);
+  }
+
+  @Test
+  public void select_contentNotSpecific_byExtension()
+  {
+    assertThat(sut.select("track.VRTP", header("{}"))).isInstanceOf(ViewRangerImporterProvider.class);
+    assertThat(sut.select("track.saildata", header("{}"))).isInstanceOf(SailDataImporterProvider.class);
+    assertThat(sut.select("track.log", header(""))).isInstanceOf(SailRacerImporterProvider.class);
+  }
+
+  @Test
+  public void select_unknown()
+  {
+    assertThatThrownBy(() -> sut.select("track.txt", header("hello")))
+        .isInstanceOf(RuntimeException.class)
+        .hasMessageContaining("track.txt");
+  }
+
+  private static ByteBuffer header(String content)
+  {
+    return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,218 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadCancelledException;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.SailRacerLineParser.SailRacerPoint;
+import com.github.thomasfox.sailplotter.model.Data;
+
+public class SailRacerImporterTest
+{
+  private static final String CONTENT
+      = "2016.09.21 14:02:16:000\t53.5012345\t10.0000001\t45\t2.57\t45\t0.0\n"
+      + "2016.09.21 14:02:17:5\t53.50124\t-10.1234567890123456789\t45\t2.57\t45\t0.0\r\n"
+      + "2016.09.21 14:02:18:123456\t-0.0\t1e-3\t315\t2.57\t315\t0.0\n"
+      + "2016.09.21 14:03\t89.99999999\t179.99999999\t315\t2.57\t315\t0.0";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_sameValuesAsLineParser() throws IOException
+  {
+    // arrange
+    File file = givenFile(CONTENT);
+    SailRacerImporter sut = new SailRacerImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    assertSameAsLineParser(result.getData(), new SailRacerLineParser().read(file));
+  }
+
+  @Test
+  public void read_smallWindows() throws IOException
+  {
+    // arrange
+    File file = givenFile(CONTENT);
+    SailRacerImporter sut = new SailRacerImporter(new LoadProgress(null), 80, Integer.MAX_VALUE);
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    assertSameAsLineParser(result.getData(), new SailRacerLineParser().read(file));
+  }
+
+  @Test
+  public void read_badLines_warns()
+  {
+    // arrange
+    File file = givenFile("2016.09.21 14:02:16:000\t53.5\t10.0\t45\t2.57\t45\t0.0\n"
+        + "\n"
+        + "2016.09.21 14:02:17:000\tnorth\t10.0\t45\t2.57\t45\t0.0\n"
+        + "2016.13.21 14:02:17:000\t53.5\t10.0\t45\t2.57\t45\t0.0\n"
+        + "2016.09.21 14:02:17:000\t53.5\t10.0\n");
+    SailRacerImporter sut = new SailRacerImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).hasSize(2);
+    assertThat(result.getWarnings().get(0)).startsWith("bad line at byte offset 50");
+    assertThat(result.getData().size()).isEqualTo(2);
+  }
+
+  @Test
+  public void read_parallel_identicalToSequential()
+  {
+    // arrange
+    File file = givenFile(givenLinesWithErrors());
+    ImporterResult sequential = new SailRacerImporter(new LoadProgress(null), 1 << 20, Integer.MAX_VALUE).read(file);
+
+    for (int minChunkSize : new int[] {1, 100, 1000, 5000})
+    {
+      for (int maxWindowSize : new int[] {1 << 20, 3000})
+      {
+        SailRacerImporter sut = new SailRacerImporter(new LoadProgress(null), maxWindowSize, minChunkSize);
+
+        // act
+        ImporterResult parallel = sut.read(file);
+
+        // assert
+        assertThat(parallel.getWarnings()).isEqualTo(sequential.getWarnings());
+        Data expected = sequential.getData();
+        Data actual = parallel.getData();
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+          assertThat(actual.get(i).index).isEqualTo(i);
+          assertThat(actual.get(i).time).isEqualTo(expected.get(i).time);
+          assertThat(Double.doubleToRawLongBits(actual.get(i).location.latitude))
+              .isEqualTo(Double.doubleToRawLongBits(expected.get(i).location.latitude));
+          assertThat(Double.doubleToRawLongBits(actual.get(i).location.longitude))
+              .isEqualTo(Double.doubleToRawLongBits(expected.get(i).location.longitude));
+        }
+      }
+    }
+    assertThat(sequential.getWarnings()).anyMatch(warning -> warning.startsWith("bad line"));
+    assertThat(sequential.getWarnings()).anyMatch(warning -> warning.startsWith("Could not add line"));
+  }
+
+  @Test
+  public void readStream_parsedInParallelChunks_identicalToSequential()
+  {
+    // arrange
+    String content = givenLinesWithErrors();
+    ImporterResult sequential = new SailRacerImporter(new LoadProgress(null), 1 << 20, Integer.MAX_VALUE)
+        .read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    SailRacerImporter sut = new SailRacerImporter(new LoadProgress(null), 1 << 20, 1000);
+
+    // act
+    ImporterResult parallel = sut.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+    // assert
+    assertThat(sut.getParsedChunkCount()).isGreaterThan(1);
+    assertThat(parallel.getWarnings()).isEqualTo(sequential.getWarnings());
+    Data expected = sequential.getData();
+    Data actual = parallel.getData();
+    assertThat(actual.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++)
+    {
+      assertThat(actual.get(i).time).isEqualTo(expected.get(i).time);
+      assertThat(Double.doubleToRawLongBits(actual.get(i).location.latitude))
+          .isEqualTo(Double.doubleToRawLongBits(expected.get(i).location.latitude));
+      assertThat(Double.doubleToRawLongBits(actual.get(i).location.longitude))
+          .isEqualTo(Double.doubleToRawLongBits(expected.get(i).location.longitude));
+    }
+  }
+
+  @Test
+  public void read_cancelled_stopsAfterFirstWindow()
+  {
+    // arrange
+    File file = givenFile(givenLinesWithErrors());
+    LoadProgress loadProgress = new LoadProgress(null)
+    {
+      @Override
+      public void fileReadingProgress(int recordCount)
+      {
+        cancel();
+        super.fileReadingProgress(recordCount);
+      }
+    };
+    SailRacerImporter sut = new SailRacerImporter(loadProgress, 3000, Integer.MAX_VALUE);
+
+    // act and assert
+    assertThatThrownBy(() -> sut.read(file)).isInstanceOf(LoadCancelledException.class);
+  }
+
+  /**
+   * Creates lines one second apart, with some bad lines and some lines going back in time.
+   */
+  private String givenLinesWithErrors()
+  {
+    Random random = new Random(4711);
+    StringBuilder result = new StringBuilder();
+    int second = 0;
+    for (int i = 0; i < 500; i++)
+    {
+      int lineSecond = random.nextInt(20) == 0 ? second - random.nextInt(5) : second++;
+      if (random.nextInt(30) == 0)
+      {
+        result.append("x");
+      }
+      result.append(String.format(Locale.ROOT, "2016.09.21 14:%02d:%02d:%03d\t%.7f\t%.7f\t45\t2.57\t45\t0.0",
+          lineSecond / 60 % 60, lineSecond % 60, random.nextInt(1000),
+          53.5d + random.nextDouble() / 100, 10d + random.nextDouble() / 100));
+      result.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+    }
+    return result.toString();
+  }
+
+  private void assertSameAsLineParser(Data data, List<SailRacerPoint> expected)
+  {
+    assertThat(data.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++)
+    {
+      SailRacerPoint expectedPoint = expected.get(i);
+      assertThat(data.get(i).time).isEqualTo(expectedPoint.datetime.toInstant(ZoneOffset.UTC).toEpochMilli());
+      assertThat(data.get(i).location.latitude).isEqualTo(expectedPoint.lat / 180d * Math.PI);
+      assertThat(data.get(i).location.longitude).isEqualTo(expectedPoint.lon / 180d * Math.PI);
+    }
+  }
+
+  private File givenFile(String content)
+  {
+    try
+    {
+      File file = folder.newFile("test.log");
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+      return file;
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
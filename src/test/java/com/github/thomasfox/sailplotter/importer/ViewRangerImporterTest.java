@@ -0,0 +1,95 @@
+package com.github.thomasfox.sailplotter.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+
+public class ViewRangerImporterTest
+{
+  private static final String HEADER_AND_POINTS
+      = "{\"header\":{\"colour\":0,\"name\":\"track\",\"lastModTime\":1500000000000,\"gridPositionCoordType\":0},"
+      + "\"points\":["
+      + "{\"lat\":45.0,\"lon\":-90.0,\"map_x\":1.5,\"alt\":0.0,\"time\":1500000000000,\"from_gps\":true},\n"
+      + "{\"lat\":45.1,\"lon\":-90.1,\"alt\":0.0,\"time\":1500000001000,\"has_position\":true}";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_wellFormed()
+  {
+    assertTwoPointsRead(HEADER_AND_POINTS + "]}", 0);
+  }
+
+  @Test
+  public void read_missingClosingBrackets()
+  {
+    assertTwoPointsRead(HEADER_AND_POINTS, 0);
+    assertTwoPointsRead(HEADER_AND_POINTS + "]", 0);
+    assertTwoPointsRead(HEADER_AND_POINTS + ",\n", 0);
+  }
+
+  @Test
+  public void read_lastPointCutOff()
+  {
+    assertTwoPointsRead(HEADER_AND_POINTS + ",{\"lat\":45.2,\"lon\":-90.2,\"ti", 1);
+  }
+
+  @Test
+  public void read_stream_missingClosingBrackets()
+  {
+    // arrange
+    ViewRangerImporter sut = new ViewRangerImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(new ByteArrayInputStream(
+        (HEADER_AND_POINTS + ",{\"lat\":45.2,").getBytes(StandardCharsets.UTF_8)));
+
+    // assert
+    assertThat(result.getWarnings()).hasSize(1);
+    assertThat(result.getData().size()).isEqualTo(2);
+  }
+
+  private void assertTwoPointsRead(String content, int expectedWarnings)
+  {
+    // arrange
+    File file = givenFile(content);
+    ViewRangerImporter sut = new ViewRangerImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).hasSize(expectedWarnings);
+    assertThat(result.getData().size()).isEqualTo(2);
+    assertThat(result.getData().get(0).location.latitude).isCloseTo(Math.PI / 4, within(1e-12d));
+    assertThat(result.getData().get(0).location.longitude).isCloseTo(-Math.PI / 2, within(1e-12d));
+    assertThat(result.getData().get(0).time).isEqualTo(1500000000000L);
+    assertThat(result.getData().get(1).time).isEqualTo(1500000001000L);
+  }
+
+  private File givenFile(String content)
+  {
+    try
+    {
+      File file = folder.newFile();
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      return file;
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
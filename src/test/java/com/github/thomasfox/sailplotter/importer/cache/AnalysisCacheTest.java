@@ -0,0 +1,244 @@
+package com.github.thomasfox.sailplotter.importer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.analyze.Analyzer;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+
+public class AnalysisCacheTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void get_afterPut_hit() throws IOException
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.newFolder(), 1_000_000_000L);
+    Data data = givenAnalyzedData();
+    sut.put("abc", data, Arrays.asList("bad line at byte offset 50"));
+
+    // act
+    ImporterResult result = sut.get("abc", new LoadProgress(null));
+
+    // assert
+    assertThat(result.getData().size()).isEqualTo(data.size());
+    assertThat(result.getData().isAnalyzed(AnalysisStage.TACKS)).isTrue();
+    assertThat(result.getData().getTackList()).hasSameSizeAs(data.getTackList());
+    assertThat(result.getWarnings()).containsExactly("bad line at byte offset 50");
+    assertThat(sut.getStatistics().hits).isEqualTo(1);
+    assertThat(sut.getStatistics().misses).isEqualTo(0);
+    assertThat(sut.getStatistics().entryCount).isEqualTo(1);
+  }
+
+  @Test
+  public void get_unknownKey_miss() throws IOException
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.newFolder(), 1_000_000_000L);
+
+    // act
+    ImporterResult result = sut.get("abc", new LoadProgress(null));
+
+    // assert
+    assertThat(result).isNull();
+    assertThat(sut.getStatistics().hits).isEqualTo(0);
+    assertThat(sut.getStatistics().misses).isEqualTo(1);
+  }
+
+  @Test
+  public void getKey_dependsOnContentOnly() throws IOException
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.newFolder(), 1_000_000_000L);
+    File file = givenFile("track.gpx", "<gpx/>");
+    File copy = givenFile("copy.gpx", "<gpx/>");
+    File changed = givenFile("changed.gpx", "<gpx />");
+
+    // act
+    String key = sut.getKey(file, new LoadProgress(null));
+
+    // assert
+    assertThat(key).hasSize(64);
+    assertThat(sut.getKey(copy, new LoadProgress(null))).isEqualTo(key);
+    assertThat(sut.getKey(changed, new LoadProgress(null))).isNotEqualTo(key);
+  }
+
+  @Test
+  public void lookUp_copyOfCachedFile_hitByContent()
+      throws IOException, InterruptedException, ExecutionException
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.newFolder(), 1_000_000_000L);
+    File file = givenFile("track.gpx", "<gpx/>");
+    File copy = givenFile("copy.gpx", "<gpx/>");
+    String key = sut.getKey(file, new LoadProgress(null));
+    Data data = givenAnalyzedData();
+    data.fillCaches();
+    sut.putInBackground(file, AnalysisCache.FileState.of(file), key, data, Collections.emptyList()).get();
+
+    // act
+    AnalysisCache.Lookup lookup = sut.lookUp(copy, new LoadProgress(null));
+
+    // assert
+    assertThat(lookup.key).isEqualTo(key);
+    assertThat(lookup.result.getData().size()).isEqualTo(data.size());
+    assertThat(sut.getKnownKey(copy)).isEqualTo(key);
+    assertThat(sut.getStatistics().hits).isEqualTo(1);
+    assertThat(sut.getStatistics().misses).isEqualTo(0);
+  }
+
+  @Test
+  public void lookUp_unknownFile_miss() throws IOException
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.newFolder(), 1_000_000_000L);
+    File file = givenFile("track.gpx", "<gpx/>");
+
+    // act
+    AnalysisCache.Lookup lookup = sut.lookUp(file, new LoadProgress(null));
+
+    // assert
+    assertThat(lookup.result).isNull();
+    assertThat(lookup.key).isEqualTo(sut.getKey(file, new LoadProgress(null)));
+    assertThat(sut.getStatistics().hits).isEqualTo(0);
+    assertThat(sut.getStatistics().misses).isEqualTo(1);
+  }
+
+  @Test
+  public void getKnownKey_afterPutInBackground_keyUntilFileChanges()
+      throws IOException, InterruptedException, ExecutionException
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.newFolder(), 1_000_000_000L);
+    File file = givenFile("track.gpx", "<gpx/>");
+    AnalysisCache.FileState fileState = AnalysisCache.FileState.of(file);
+    String key = sut.getKey(file, new LoadProgress(null));
+    Data data = givenAnalyzedData();
+    data.fillCaches();
+
+    // act
+    sut.putInBackground(file, fileState, key, data, Collections.emptyList()).get();
+
+    // assert
+    assertThat(sut.getKnownKey(file)).isEqualTo(key);
+    assertThat(sut.get(key, new LoadProgress(null))).isNotNull();
+    Files.write(file.toPath(), "<gpx />".getBytes(StandardCharsets.UTF_8));
+    assertThat(sut.getKnownKey(file)).isNull();
+    assertThat(sut.getKnownKey(givenFile("other.gpx", "<gpx/>"))).isNull();
+  }
+
+  @Test
+  public void put_overBudget_evictsLeastRecentlyUsed() throws IOException
+  {
+    // arrange
+    File directory = folder.newFolder();
+    Data data = givenAnalyzedData();
+    new AnalysisCache(directory, Long.MAX_VALUE).put("size", data, Collections.emptyList());
+    long entrySize = new File(directory, "size.sailplot").length();
+    new File(directory, "size.sailplot").delete();
+    AnalysisCache sut = new AnalysisCache(directory, entrySize * 5 / 2);
+    sut.put("a", data, Collections.emptyList());
+    sut.put("b", data, Collections.emptyList());
+    new File(directory, "a.sailplot").setLastModified(2_000_000_000_000L);
+    new File(directory, "b.sailplot").setLastModified(1_000_000_000_000L);
+
+    // act
+    sut.put("c", data, Collections.emptyList());
+
+    // assert
+    assertThat(sut.getStatistics().evictions).isEqualTo(1);
+    assertThat(sut.getStatistics().entryCount).isEqualTo(2);
+    assertThat(sut.get("b", new LoadProgress(null))).isNull();
+    assertThat(sut.get("a", new LoadProgress(null))).isNotNull();
+    assertThat(sut.get("c", new LoadProgress(null))).isNotNull();
+  }
+
+  @Test
+  public void put_overBudget_deletesKnownKeysOfEvictedEntries()
+      throws IOException, InterruptedException, ExecutionException
+  {
+    // arrange
+    File directory = folder.newFolder();
+    Data data = givenAnalyzedData();
+    data.fillCaches();
+    new AnalysisCache(directory, Long.MAX_VALUE).put("size", data, Collections.emptyList());
+    long entrySize = new File(directory, "size.sailplot").length();
+    new File(directory, "size.sailplot").delete();
+    AnalysisCache sut = new AnalysisCache(directory, entrySize * 3 / 2);
+    File file = givenFile("track.gpx", "<gpx/>");
+    sut.putInBackground(file, AnalysisCache.FileState.of(file), "a", data, Collections.emptyList()).get();
+    new File(directory, "a.sailplot").setLastModified(1_000_000_000_000L);
+
+    // act
+    sut.put("b", data, Collections.emptyList());
+
+    // assert
+    assertThat(sut.getStatistics().evictions).isEqualTo(1);
+    assertThat(sut.getKnownKey(file)).isNull();
+    assertThat(directory.listFiles((dir, name) -> name.endsWith(".file"))).isEmpty();
+  }
+
+  @Test
+  public void isCacheable_sailplotFile_false()
+  {
+    // arrange
+    AnalysisCache sut = new AnalysisCache(folder.getRoot(), 1_000_000_000L);
+
+    // act and assert
+    assertThat(sut.isCacheable(new File("track.sailplot"))).isFalse();
+    assertThat(sut.isCacheable(new File("track.saillog"))).isTrue();
+    assertThat(new AnalysisCache(folder.getRoot(), 0).isCacheable(new File("track.saillog"))).isFalse();
+  }
+
+  /**
+   * Creates a track of ten minutes, tacking every two minutes.
+   */
+  private Data givenAnalyzedData()
+  {
+    Random random = new Random(4711);
+    Data.Builder builder = new Data.Builder();
+    double latitude = 0.9d;
+    double longitude = 0.17d;
+    for (int i = 0; i < 600; i++)
+    {
+      DataPoint point = new DataPoint(i);
+      point.time = 1_500_000_000_000L + i * 1000L;
+      double sign = (i / 120) % 2 == 0 ? 1d : -1d;
+      latitude += 3e-7d + random.nextGaussian() * 1e-8d;
+      longitude += sign * 5e-7d + random.nextGaussian() * 1e-8d;
+      point.location = new Location();
+      point.location.latitude = latitude;
+      point.location.longitude = longitude;
+      builder.add(point);
+    }
+    Data result = builder.build();
+    Analyzer.analyze(result, new LoadProgress(null));
+    return result;
+  }
+
+  private File givenFile(String name, String content) throws IOException
+  {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
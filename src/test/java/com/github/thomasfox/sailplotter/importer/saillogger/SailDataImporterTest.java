@@ -0,0 +1,103 @@
+package com.github.thomasfox.sailplotter.importer.saillogger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+
+public class SailDataImporterTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read()
+  {
+    // arrange
+    File file = givenFile("{\"start\":{\"format\":\"1.0\",\"startT\":1000,\"custom\":{\"a\":[1,2]}},"
+        + "\"track\":["
+        + "{\"locT\":999,\"locAcc\":3.0,\"locLat\":45.0,\"locLong\":-90.0,\"locBear\":90.0,"
+        + "\"locVel\":1.0,\"locAlt\":0.0,\"locDevT\":1000},"
+        + "{\"magT\":1010,\"magX\":1.5,\"magY\":-2.5,\"magZ\":3.5,\"unknown\":{\"x\":null}},"
+        + "{\"magT\":1015,\"magX\":null},"
+        + "{\"accT\":1020,\"accX\":0.1,\"accY\":0.2,\"accZ\":9.8}"
+        + "],\"end\":{\"endT\":2000}}");
+    SailDataImporter sut = new SailDataImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.hasWarnMessages()).isFalse();
+    Data data = result.getData();
+    assertThat(data.size()).isEqualTo(3);
+
+    DataPoint gpsPoint = data.get(0);
+    assertThat(gpsPoint.time).isEqualTo(1000L);
+    assertThat(gpsPoint.location.satelliteTime).isEqualTo(999L);
+    assertThat(gpsPoint.location.latitude).isCloseTo(Math.PI / 4, within(1e-12d));
+    assertThat(gpsPoint.location.longitude).isCloseTo(-Math.PI / 2, within(1e-12d));
+    assertThat(gpsPoint.location.bearing).isCloseTo(Math.PI / 2, within(1e-12d));
+    assertThat(gpsPoint.location.velocity).isCloseTo(3600d / 1852d, within(1e-12d));
+
+    DataPoint compassPoint = data.get(1);
+    assertThat(compassPoint.index).isEqualTo(1);
+    assertThat(compassPoint.time).isEqualTo(1010L);
+    assertThat(compassPoint.location).isNull();
+    assertThat(compassPoint.magneticField.x).isEqualTo(1.5d);
+    assertThat(compassPoint.magneticField.y).isEqualTo(-2.5d);
+    assertThat(compassPoint.magneticField.z).isEqualTo(3.5d);
+
+    DataPoint accelerationPoint = data.get(2);
+    assertThat(accelerationPoint.index).isEqualTo(2);
+    assertThat(accelerationPoint.time).isEqualTo(1020L);
+    assertThat(accelerationPoint.acceleration.x).isEqualTo(0.1d);
+    assertThat(accelerationPoint.acceleration.z).isEqualTo(9.8d);
+  }
+
+  @Test
+  public void read_pointsOutOfOrder_warns()
+  {
+    // arrange
+    File file = givenFile("{\"track\":["
+        + "{\"magT\":2000,\"magX\":1,\"magY\":2,\"magZ\":3},"
+        + "{\"magT\":1000,\"magX\":1,\"magY\":2,\"magZ\":3},"
+        + "{\"magT\":3000,\"magX\":1,\"magY\":2,\"magZ\":3}"
+        + "]}");
+    SailDataImporter sut = new SailDataImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(file);
+
+    // assert
+    assertThat(result.getWarnings()).hasSize(1);
+    assertThat(result.getData().size()).isEqualTo(2);
+    assertThat(result.getData().get(1).time).isEqualTo(3000L);
+  }
+
+  private File givenFile(String content)
+  {
+    try
+    {
+      File file = folder.newFile("test.saillog");
+      Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      return file;
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.github.thomasfox.sailplotter.importer.saillogger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+
+public class SailDataTailReaderTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readAppended_sameAsImporter()
+  {
+    // arrange
+    String content = givenSailLog(300);
+    File file = new File(folder.getRoot(), "growing.saillog");
+    append(file, "");
+    List<DataPoint> result = new ArrayList<>();
+
+    // act
+    try (SailDataTailReader sut = new SailDataTailReader(file))
+    {
+      int written = 0;
+      int step = 1;
+      while (written < content.length())
+      {
+        int end = Math.min(written + step, content.length());
+        append(file, content.substring(written, end));
+        written = end;
+        step = step * 3 % 97 + 1;
+        result.addAll(sut.readAppended());
+      }
+      assertThat(sut.getWarnings()).isEmpty();
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+
+    // assert
+    Data expected = new SailDataImporter(new LoadProgress(null)).read(file).getData();
+    assertThat(result).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); i++)
+    {
+      DataPoint expectedPoint = expected.get(i);
+      DataPoint actualPoint = result.get(i);
+      assertThat(actualPoint.time).isEqualTo(expectedPoint.time);
+      assertThat(actualPoint.hasLocation()).isEqualTo(expectedPoint.hasLocation());
+      if (expectedPoint.hasLocation())
+      {
+        assertThat(actualPoint.location.latitude).isEqualTo(expectedPoint.location.latitude);
+        assertThat(actualPoint.location.longitude).isEqualTo(expectedPoint.location.longitude);
+        assertThat(actualPoint.location.velocity).isEqualTo(expectedPoint.location.velocity);
+      }
+      assertThat(actualPoint.hasMagneticField()).isEqualTo(expectedPoint.hasMagneticField());
+      if (expectedPoint.hasMagneticField())
+      {
+        assertThat(actualPoint.magneticField.x).isEqualTo(expectedPoint.magneticField.x);
+      }
+    }
+  }
+
+  @Test
+  public void readAppended_incompleteRecordNotReturned()
+  {
+    // arrange
+    File file = new File(folder.getRoot(), "growing.saillog");
+    append(file, "{\"start\":{\"format\":\"1.0\"},\"track\":[{\"magT\":1010,\"magX\":1.5,\"magY\":-2.5,\"magZ\":3.5},"
+        + "{\"magT\":1020,\"magX\":1.5,\"magY\":-2.5,\"magZ\":3.");
+
+    try (SailDataTailReader sut = new SailDataTailReader(file))
+    {
+      // act
+      List<DataPoint> first = sut.readAppended();
+      List<DataPoint> none = sut.readAppended();
+      append(file, "75}");
+      List<DataPoint> second = sut.readAppended();
+
+      // assert
+      assertThat(first).hasSize(1);
+      assertThat(none).isEmpty();
+      assertThat(second).hasSize(1);
+      assertThat(second.get(0).magneticField.z).isEqualTo(3.75d);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private String givenSailLog(int pointCount)
+  {
+    StringBuilder result = new StringBuilder("{\"start\":{\"format\":\"1.0\",\"startT\":1000},\"track\":[");
+    for (int i = 0; i < pointCount; i++)
+    {
+      if (i > 0)
+      {
+        result.append(",\n");
+      }
+      if (i % 3 == 0)
+      {
+        result.append(String.format(Locale.ROOT,
+            "{\"locT\":%d,\"locLat\":%.8f,\"locLong\":%.8f,\"locBear\":90.5,\"locVel\":%.2f,\"locDevT\":%d}",
+            1000 + i * 10, 45d + i / 1e5d, -90d - i / 1e5d, 1d + i / 100d, 1001 + i * 10));
+      }
+      else
+      {
+        result.append(String.format(Locale.ROOT,
+            "{\"magT\":%d,\"magX\":%.3f,\"magY\":-2.5,\"magZ\":3.5,\"extra\":{\"a\":[1,2]}}",
+            1001 + i * 10, i / 7d));
+      }
+    }
+    return result.append("],\"end\":{\"endT\":99999}}").toString();
+  }
+
+  private void append(File file, String content)
+  {
+    try (OutputStream out = Files.newOutputStream(
+        file.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND))
+    {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.thomasfox.sailplotter.exporter.Exporter;
+import com.github.thomasfox.sailplotter.importer.sailplot.MappedSailplotReader.Channel;
+import com.github.thomasfox.sailplotter.importer.sailplot.MappedSailplotReader.HeelAndRollChannel;
+import com.github.thomasfox.sailplotter.importer.sailplot.MappedSailplotReader.VectorChannel;
+import com.github.thomasfox.sailplotter.model.Acceleration;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.MagneticField;
+import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
+import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
+
+public class MappedSailplotReaderTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void map_decodesNoChannel() throws IOException
+  {
+    // arrange
+    File file = givenFile();
+
+    // act
+    MappedSailplotReader sut = MappedSailplotReader.map(file);
+
+    // assert
+    assertThat(sut.getPointCount()).isEqualTo(3);
+    assertThat(sut.getComment()).isEqualTo("comment");
+    for (Channel channel : Channel.values())
+    {
+      assertThat(sut.isMaterialized(channel)).isFalse();
+    }
+  }
+
+  @Test
+  public void getMagneticFields_decodesOnlyTimesAndMagneticFields() throws IOException
+  {
+    // arrange
+    MappedSailplotReader sut = MappedSailplotReader.map(givenFile());
+
+    // act
+    VectorChannel magneticFields = sut.getMagneticFields();
+
+    // assert
+    assertThat(magneticFields.pointIndices).containsExactly(1);
+    assertThat(magneticFields.x[0]).isEqualTo(20d);
+    assertThat(magneticFields.z[0]).isEqualTo(-40d);
+    assertThat(sut.isMaterialized(Channel.TIMES)).isTrue();
+    assertThat(sut.isMaterialized(Channel.MAGNETIC_FIELDS)).isTrue();
+    assertThat(sut.isMaterialized(Channel.LOCATIONS)).isFalse();
+    assertThat(sut.isMaterialized(Channel.ACCELERATIONS)).isFalse();
+    assertThat(sut.isMaterialized(Channel.HEEL_AND_ROLL)).isFalse();
+  }
+
+  @Test
+  public void getHeelAndRoll_derivedFromAcceleration() throws IOException
+  {
+    // arrange
+    MappedSailplotReader sut = MappedSailplotReader.map(givenFile());
+
+    // act
+    HeelAndRollChannel heelAndRoll = sut.getHeelAndRoll();
+
+    // assert
+    assertThat(heelAndRoll.pointIndices).containsExactly(2);
+    assertThat(heelAndRoll.heel[0]).isCloseTo(Math.atan(Math.sin(0.2d)), within(1e-6d));
+    assertThat(heelAndRoll.roll[0]).isCloseTo(0d, within(1e-6d));
+    assertThat(sut.isMaterialized(Channel.ACCELERATIONS)).isTrue();
+    assertThat(sut.isMaterialized(Channel.LOCATIONS)).isFalse();
+  }
+
+  @Test
+  public void getMagneticFields_version1_readsFloats() throws IOException
+  {
+    // arrange
+    ByteBuffer file = ByteBuffer.allocate(64);
+    file.put(SailplotFormat.MAGIC);
+    file.put((byte) SailplotFormat.LAST_FLOAT_VERSION);
+    // one point with time 1000 and a magnetic field
+    file.put((byte) SailplotFormat.BLOCK_POINTS).put((byte) 4).put((byte) 1)
+        .put((byte) (SailplotFormat.POINT_TIME | SailplotFormat.POINT_MAGNETIC_FIELD))
+        .put((byte) 0xD0).put((byte) 0x0F);
+    file.put((byte) SailplotFormat.BLOCK_MAGNETIC_FIELDS).put((byte) 12)
+        .putFloat(20.1f).putFloat(-5f).putFloat(-40f);
+    file.put((byte) SailplotFormat.BLOCK_END);
+    file.flip();
+    MappedSailplotReader sut = new MappedSailplotReader(file);
+
+    // act
+    VectorChannel magneticFields = sut.getMagneticFields();
+
+    // assert
+    assertThat(sut.getTimes()).containsExactly(1000L);
+    assertThat(magneticFields.pointIndices).containsExactly(0);
+    assertThat(magneticFields.x[0]).isEqualTo(20.1f);
+    assertThat(magneticFields.y[0]).isEqualTo(-5d);
+    assertThat(magneticFields.z[0]).isEqualTo(-40d);
+  }
+
+  private File givenFile()
+  {
+    Data.Builder builder = new Data.Builder();
+    DataPoint locationPoint = new DataPoint(0);
+    locationPoint.time = 1_500_000_000_000L;
+    locationPoint.location = new Location();
+    locationPoint.location.latitude = 0.9d;
+    locationPoint.location.longitude = 0.17d;
+    builder.add(locationPoint);
+    DataPoint magneticFieldPoint = new DataPoint(1);
+    magneticFieldPoint.time = 1_500_000_000_010L;
+    magneticFieldPoint.magneticField = new MagneticField(20d, -5d, -40d);
+    builder.add(magneticFieldPoint);
+    DataPoint accelerationPoint = new DataPoint(2);
+    accelerationPoint.time = 1_500_000_000_020L;
+    accelerationPoint.acceleration = new Acceleration(9.81d * Math.sin(0.2d), 0d, 9.81d * Math.cos(0.2d));
+    builder.add(accelerationPoint);
+    Data data = builder.build();
+    data.comment = "comment";
+    data.setBoatCoordinatesInDeviceCoordinates(new CoordinateSystem(
+        new ThreeDimVector(1d, 0d, 0d), new ThreeDimVector(0d, 1d, 0d), new ThreeDimVector(0d, 0d, 1d)));
+    File file = new File(folder.getRoot(), "track.sailplot");
+    new Exporter().save(file, data);
+    return file;
+  }
+}
@@ -0,0 +1,367 @@
+package com.github.thomasfox.sailplotter.importer.sailplot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.thomasfox.sailplotter.analyze.Analyzer;
+import com.github.thomasfox.sailplotter.exporter.Exporter;
+import com.github.thomasfox.sailplotter.exporter.SailplotWriter;
+import com.github.thomasfox.sailplotter.gui.component.progress.LoadProgress;
+import com.github.thomasfox.sailplotter.importer.FormatAwareImporter;
+import com.github.thomasfox.sailplotter.importer.ImporterResult;
+import com.github.thomasfox.sailplotter.model.Acceleration;
+import com.github.thomasfox.sailplotter.model.AnalysisStage;
+import com.github.thomasfox.sailplotter.model.Data;
+import com.github.thomasfox.sailplotter.model.DataPoint;
+import com.github.thomasfox.sailplotter.model.Location;
+import com.github.thomasfox.sailplotter.model.MagneticField;
+import com.github.thomasfox.sailplotter.model.Tack;
+import com.github.thomasfox.sailplotter.model.vector.CoordinateSystem;
+import com.github.thomasfox.sailplotter.model.vector.ThreeDimVector;
+
+public class SailplotImporterTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void read_savedFile_sameData() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    File file = new File(folder.getRoot(), "track.sailplot");
+    new Exporter().save(file, data);
+
+    // act
+    ImporterResult result = new FormatAwareImporter(new LoadProgress(null)).read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    Data read = result.getData();
+    assertThat(read.size()).isEqualTo(data.size());
+    assertThat(read.comment).isEqualTo(data.comment);
+    assertThat(read.getAverageWindBearing()).isEqualTo(data.getAverageWindBearing());
+    assertThat(read.deviceOrientation).isEqualTo(data.deviceOrientation);
+    assertThat(read.getBoatCoordinatesInDeviceCoordinates()).isNull();
+    read.loadSensorValues();
+    for (int i = 0; i < data.size(); i++)
+    {
+      DataPoint expected = data.get(i);
+      DataPoint actual = read.get(i);
+      assertThat(actual.time).isEqualTo(expected.time);
+      assertThat(actual.hasLocation()).isEqualTo(expected.hasLocation());
+      if (expected.hasLocation())
+      {
+        // rounded to coordinate units
+        double maxCoordinateError = 0.5d / SailplotFormat.COORDINATE_UNITS_PER_ARC;
+        assertThat(actual.location.latitude).isCloseTo(expected.location.latitude, within(maxCoordinateError));
+        assertThat(actual.location.longitude).isCloseTo(expected.location.longitude, within(maxCoordinateError));
+        assertThat(actual.location.altitude).isEqualTo(expected.location.altitude);
+        assertThat(actual.location.velocity).isEqualTo(expected.location.velocity);
+        assertThat(actual.location.bearing).isEqualTo(expected.location.bearing);
+        assertThat(actual.location.satelliteTime).isEqualTo(expected.location.satelliteTime);
+      }
+      assertThat(actual.hasMagneticField()).isEqualTo(expected.hasMagneticField());
+      if (expected.hasMagneticField())
+      {
+        assertThat(actual.magneticField).isEqualTo(expected.magneticField);
+      }
+      assertThat(actual.hasAcceleration()).isEqualTo(expected.hasAcceleration());
+      if (expected.hasAcceleration())
+      {
+        assertThat(actual.acceleration).isEqualTo(expected.acceleration);
+      }
+    }
+  }
+
+  @Test
+  public void read_jsonSavedByOlderVersion_sameData() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    data.setBoatCoordinatesInDeviceCoordinates(new CoordinateSystem(
+        new ThreeDimVector(0d, 1d, 0d), new ThreeDimVector(1d, 0d, 0d), new ThreeDimVector(0d, 0d, -1d)));
+    File file = new File(folder.getRoot(), "track.sailplot");
+    // older versions saved the data in this way
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, data);
+
+    // act
+    ImporterResult result = new FormatAwareImporter(new LoadProgress(null)).read(file);
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    Data read = result.getData();
+    assertThat(read.size()).isEqualTo(data.size());
+    assertThat(read.comment).isEqualTo(data.comment);
+    assertThat(read.getAverageWindBearing()).isEqualTo(data.getAverageWindBearing());
+    assertThat(read.deviceOrientation).isEqualTo(data.deviceOrientation);
+    assertThat(read.getBoatCoordinatesInDeviceCoordinates()).isEqualTo(data.getBoatCoordinatesInDeviceCoordinates());
+    for (int i = 0; i < data.size(); i++)
+    {
+      DataPoint expected = data.get(i);
+      DataPoint actual = read.get(i);
+      assertThat(actual.time).isEqualTo(expected.time);
+      assertThat(actual.hasLocation()).isEqualTo(expected.hasLocation());
+      if (expected.hasLocation())
+      {
+        assertThat(actual.location.latitude).isEqualTo(expected.location.latitude);
+        assertThat(actual.location.longitude).isEqualTo(expected.location.longitude);
+        assertThat(actual.location.velocity).isEqualTo(expected.location.velocity);
+        assertThat(actual.location.bearing).isEqualTo(expected.location.bearing);
+        assertThat(actual.location.satelliteTime).isEqualTo(expected.location.satelliteTime);
+      }
+      assertThat(actual.magneticField).isEqualTo(expected.magneticField);
+      assertThat(actual.acceleration).isEqualTo(expected.acceleration);
+    }
+  }
+
+  @Test
+  public void read_jsonStreamSavedByOlderVersion_sameSize() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    byte[] json = new ObjectMapper().writeValueAsBytes(data);
+    SailplotImporter sut = new SailplotImporter(new LoadProgress(null));
+
+    // act
+    ImporterResult result = sut.read(new ByteArrayInputStream(json));
+
+    // assert
+    assertThat(result.getWarnings()).isEmpty();
+    assertThat(result.getData().size()).isEqualTo(data.size());
+    assertThat(result.getData().comment).isEqualTo(data.comment);
+  }
+
+  @Test
+  public void read_analyzedData_restoresAnalysis() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    Analyzer.analyze(data, new LoadProgress(null));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new SailplotWriter().write(data, out);
+    SailplotImporter sut = new SailplotImporter(new LoadProgress(null));
+
+    // act
+    Data read = sut.read(new ByteArrayInputStream(out.toByteArray())).getData();
+
+    // assert
+    assertThat(read.isAnalyzed(AnalysisStage.TIME_CORRECTION)).isTrue();
+    assertThat(read.isAnalyzed(AnalysisStage.VELOCITY_BEARING)).isTrue();
+    assertThat(read.isAnalyzed(AnalysisStage.TACKS)).isTrue();
+    assertThat(read.isAnalyzed(AnalysisStage.TACK_SERIES)).isFalse();
+    for (int i = 0; i < data.size(); i++)
+    {
+      Location expected = data.get(i).location;
+      Location actual = read.get(i).location;
+      if (expected != null)
+      {
+        assertThat(actual.velocityFromLatLong).isEqualTo(expected.velocityFromLatLong);
+        assertThat(actual.bearingFromLatLong).isEqualTo(expected.bearingFromLatLong);
+        assertThat(actual.velocityBearingAveragedOverDistance)
+            .isEqualTo(expected.velocityBearingAveragedOverDistance);
+        assertThat(read.get(i).wind == null).isEqualTo(data.get(i).wind == null);
+        if (data.get(i).wind != null)
+        {
+          assertThat(read.get(i).wind.direction).isEqualTo(data.get(i).wind.direction);
+        }
+      }
+    }
+    assertThat(read.getTackList()).hasSameSizeAs(data.getTackList());
+    for (int i = 0; i < data.getTackList().size(); i++)
+    {
+      Tack expected = data.getTackList().get(i);
+      Tack actual = read.getTackList().get(i);
+      assertThat(actual.toString()).isEqualTo(expected.toString());
+      assertThat(actual.start.index).isEqualTo(expected.start.index);
+      assertThat(actual.end.index).isEqualTo(expected.end.index);
+      assertThat(actual.pointsWithinTack).hasSameSizeAs(expected.pointsWithinTack);
+    }
+  }
+
+  @Test
+  public void read_savedFile_sensorValuesLoadedOnFirstAccess() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    File file = new File(folder.getRoot(), "track.sailplot");
+    new Exporter().save(file, data);
+    Data read = new FormatAwareImporter(new LoadProgress(null)).read(file).getData();
+    assertThat(read.get(2).magneticField).isNull();
+    assertThat(read.get(1).acceleration).isNull();
+    assertThat(read.getColumns().hasMagneticField(2)).isFalse();
+
+    // act
+    int magneticFieldCount = read.getPointsWithMagneticField().size();
+
+    // assert
+    assertThat(magneticFieldCount).isEqualTo(data.getPointsWithMagneticField().size());
+    assertThat(read.get(2).magneticField).isEqualTo(data.get(2).magneticField);
+    assertThat(read.get(1).acceleration).isEqualTo(data.get(1).acceleration);
+    assertThat(read.getColumns().hasMagneticField(2)).isTrue();
+    assertThat(read.getAccelerationTimeIndex().size()).isEqualTo(data.getPointsWithAcceleration().size());
+  }
+
+  @Test
+  public void read_analyzedData_restoresHeelWhenSensorValuesAreLoaded() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    Analyzer.analyze(data, new LoadProgress(null));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new SailplotWriter().write(data, out);
+    SailplotImporter sut = new SailplotImporter(new LoadProgress(null));
+    Data read = sut.read(new ByteArrayInputStream(out.toByteArray())).getData();
+
+    // act
+    read.loadSensorValues();
+
+    // assert
+    assertThat(read.isAnalyzed(AnalysisStage.DEVICE_ORIENTATION)).isTrue();
+    assertThat(read.get(1).acceleration.heel).isNotNull();
+    for (int i = 0; i < data.size(); i++)
+    {
+      if (data.get(i).hasAcceleration())
+      {
+        assertThat(read.get(i).acceleration.heel).isEqualTo(data.get(i).acceleration.heel);
+      }
+    }
+  }
+
+  @Test
+  public void read_analysisOfOtherData_notRestored() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    ByteArrayOutputStream unanalyzed = new ByteArrayOutputStream();
+    new SailplotWriter().write(data, unanalyzed);
+    Analyzer.analyze(data, new LoadProgress(null));
+    ByteArrayOutputStream analyzed = new ByteArrayOutputStream();
+    new SailplotWriter().write(data, analyzed);
+    byte[] bytes = analyzed.toByteArray();
+    // the last byte of the acceleration block, which precedes the analysis block
+    bytes[unanalyzed.size() - 2] ^= 1;
+    SailplotImporter sut = new SailplotImporter(new LoadProgress(null));
+
+    // act
+    Data read = sut.read(new ByteArrayInputStream(bytes)).getData();
+
+    // assert
+    assertThat(read.size()).isEqualTo(data.size());
+    for (AnalysisStage stage : AnalysisStage.values())
+    {
+      assertThat(read.isAnalyzed(stage)).isFalse();
+    }
+    assertThat(read.getTackList()).isEmpty();
+    assertThat(read.getPointsWithLocation().get(1).location.velocityFromLatLong).isNull();
+  }
+
+  @Test
+  public void write_muchSmallerThanJson() throws IOException
+  {
+    // arrange
+    Data data = givenData();
+    ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+    // act
+    new SailplotWriter().write(data, binary);
+
+    // assert
+    byte[] json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(data);
+    assertThat(binary.size() * 8).isLessThan(json.length);
+  }
+
+  @Test
+  public void read_unknownBlock_skipped() throws IOException
+  {
+    // arrange
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    new SailplotWriter().write(givenData(), written);
+    byte[] bytes = written.toByteArray();
+    // replace the end block by an unknown block of length 2 followed by the end block
+    byte[] withUnknownBlock = Arrays.copyOf(bytes, bytes.length + 4);
+    withUnknownBlock[bytes.length - 1] = 99;
+    withUnknownBlock[bytes.length] = 2;
+    withUnknownBlock[bytes.length + 3] = SailplotFormat.BLOCK_END;
+
+    // act
+    ImporterResult result = new SailplotImporter(new LoadProgress(null))
+        .read(new ByteArrayInputStream(withUnknownBlock));
+
+    // assert
+    assertThat(result.getData().size()).isEqualTo(givenData().size());
+  }
+
+  @Test
+  public void read_newerVersion_fails() throws IOException
+  {
+    // arrange
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    new SailplotWriter().write(givenData(), written);
+    byte[] bytes = written.toByteArray();
+    bytes[SailplotFormat.MAGIC.length] = SailplotFormat.VERSION + 1;
+    SailplotImporter sut = new SailplotImporter(new LoadProgress(null));
+
+    // act and assert
+    assertThatThrownBy(() -> sut.read(new ByteArrayInputStream(bytes)))
+        .hasMessageContaining("Unsupported sailplot format version");
+  }
+
+  /**
+   * Creates data with a location each second and ten magnetic field and acceleration values per second.
+   */
+  private Data givenData()
+  {
+    Random random = new Random(4711);
+    Data.Builder builder = new Data.Builder();
+    double latitude = 0.9d;
+    double longitude = 0.17d;
+    for (int i = 0; i < 3000; i++)
+    {
+      DataPoint point = new DataPoint(i);
+      point.time = 1_500_000_000_000L + i * 100L;
+      if (i % 10 == 0)
+      {
+        latitude += random.nextGaussian() * 1e-7d;
+        longitude += random.nextGaussian() * 1e-7d;
+        point.location = new Location();
+        point.location.latitude = latitude;
+        point.location.longitude = longitude;
+        point.location.velocity = 5d + random.nextGaussian();
+        point.location.bearing = random.nextDouble() * 2 * Math.PI;
+        point.location.altitude = 10d + i / 1000d;
+        point.location.satelliteTime = point.time - random.nextInt(2000);
+      }
+      else if (i % 2 == 0)
+      {
+        point.magneticField = new MagneticField(
+            20d + random.nextGaussian(), -5d + random.nextGaussian(), -40d + random.nextGaussian());
+      }
+      else
+      {
+        point.acceleration = new Acceleration(random.nextGaussian(), random.nextGaussian(), 9.81d);
+      }
+      builder.add(point);
+    }
+    Data result = builder.build();
+    result.comment = "Training\nmit \u00c4nderungen";
+    result.setAverageWindBearing(1.2d);
+    result.deviceOrientation = new CoordinateSystem(
+        new ThreeDimVector(1d, 0d, 0d), new ThreeDimVector(0d, 0d, 1d), new ThreeDimVector(0d, -1d, 0d));
+    return result;
+  }
+}
@@ -0,0 +1,223 @@
+package com.github.thomasfox.sailplotter.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ChannelPyramidTest
+{
+  @Test
+  public void select_fewPoints_allPointsWithValue()
+  {
+    // arrange
+    ChannelPyramid sut = new ChannelPyramid(new double[] {1d, Double.NaN, 3d, 2d, 5d, 4d});
+
+    // act
+    int[] result = sut.select(1, 6, 100);
+
+    // assert
+    assertThat(result).containsExactly(2, 3, 4, 5);
+  }
+
+  @Test
+  public void select_manyPoints_sameMinMaxFirstLastPerBucket()
+  {
+    // arrange
+    double[] values = givenRandomWalk(100_000);
+    ChannelPyramid sut = new ChannelPyramid(values);
+    int fromPosition = 1234;
+    int toPosition = 98765;
+
+    // act
+    int[] result = sut.select(fromPosition, toPosition, 500);
+
+    // assert
+    int level = sut.getLevel(fromPosition, toPosition, 500);
+    int bucketSize = (int) Math.pow(ChannelPyramid.BRANCHING_FACTOR, level);
+    assertThat(level).isGreaterThan(0);
+    assertThat(result.length).isLessThan((toPosition - fromPosition) / bucketSize * 4 + 2 * bucketSize);
+    assertThat(result).isSorted();
+    assertThat(result[0]).isEqualTo(fromPosition);
+    assertThat(result[result.length - 1]).isEqualTo(toPosition - 1);
+    for (int alignedStart = fromPosition / bucketSize * bucketSize; alignedStart < toPosition;
+        alignedStart += bucketSize)
+    {
+      int bucketStart = Math.max(alignedStart, fromPosition);
+      int bucketEnd = Math.min(alignedStart + bucketSize, toPosition);
+      assertThat(min(values, result, bucketStart, bucketEnd))
+          .isEqualTo(Arrays.stream(values, bucketStart, bucketEnd).min().getAsDouble());
+      assertThat(max(values, result, bucketStart, bucketEnd))
+          .isEqualTo(Arrays.stream(values, bucketStart, bucketEnd).max().getAsDouble());
+    }
+  }
+
+  @Test
+  public void getLevel_wideRangeNarrowPlot_coarseLevel()
+  {
+    // arrange
+    ChannelPyramid sut = new ChannelPyramid(new double[4096]);
+
+    // act and assert
+    assertThat(sut.getLevelCount()).isEqualTo(6);
+    assertThat(sut.getLevel(0, 4096, 4096)).isEqualTo(0);
+    assertThat(sut.getLevel(0, 4096, 1024)).isEqualTo(1);
+    assertThat(sut.getLevel(0, 4096, 100)).isEqualTo(2);
+    assertThat(sut.getLevel(0, 4096, 1)).isEqualTo(5);
+  }
+
+  @Test
+  public void append_sameAsBuiltAtOnce()
+  {
+    // arrange
+    double[] values = givenRandomWalk(5000);
+    values[17] = Double.NaN;
+    ChannelPyramid sut = new ChannelPyramid(new double[0]);
+
+    // act
+    for (double value : values)
+    {
+      sut.append(value);
+    }
+
+    // assert
+    ChannelPyramid expected = new ChannelPyramid(values);
+    assertThat(sut.size()).isEqualTo(expected.size());
+    assertThat(sut.getLevelCount()).isEqualTo(expected.getLevelCount());
+    for (int pixelWidth : new int[] {1, 10, 100, 1000, 10000})
+    {
+      assertThat(sut.select(3, 4999, pixelWidth)).containsExactly(expected.select(3, 4999, pixelWidth));
+    }
+  }
+
+  @Test
+  public void set_sameAsBuiltAtOnce()
+  {
+    // arrange
+    double[] values = givenRandomWalk(5000);
+    ChannelPyramid sut = new ChannelPyramid(values.clone());
+
+    // act
+    sut.set(4321, 1000d);
+    sut.set(12, Double.NaN);
+
+    // assert
+    values[4321] = 1000d;
+    values[12] = Double.NaN;
+    ChannelPyramid expected = new ChannelPyramid(values);
+    for (int pixelWidth : new int[] {1, 10, 100, 1000, 10000})
+    {
+      assertThat(sut.select(0, 5000, pixelWidth)).containsExactly(expected.select(0, 5000, pixelWidth));
+    }
+  }
+
+  @Test
+  public void prefix_notAffectedByChangesBehindIt()
+  {
+    // arrange
+    double[] values = givenRandomWalk(5000);
+    ChannelPyramid sut = new ChannelPyramid(Arrays.copyOf(values, 3000));
+
+    // act
+    ChannelPyramid prefix = sut.prefix(2999);
+    for (int i = 3000; i < values.length; i++)
+    {
+      sut.append(values[i] + 1000d);
+    }
+    sut.set(2999, -1000d);
+
+    // assert
+    ChannelPyramid expected = new ChannelPyramid(Arrays.copyOf(values, 2999));
+    assertThat(prefix.size()).isEqualTo(2999);
+    assertThat(prefix.getLevelCount()).isEqualTo(expected.getLevelCount());
+    for (int pixelWidth : new int[] {1, 10, 100, 1000, 10000})
+    {
+      assertThat(prefix.select(0, 2999, pixelWidth)).containsExactly(expected.select(0, 2999, pixelWidth));
+    }
+  }
+
+  @Test
+  public void getPyramid_pointAppended_extended()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(givenPoint(0, 1d));
+    data.add(givenPoint(1000, 2d));
+    ChannelPyramid before = data.getPyramid(ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG);
+
+    // act
+    data.add(givenPoint(2000, 3d));
+
+    // assert
+    assertThat(data.getPyramid(ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG)).isSameAs(before);
+    assertThat(before.size()).isEqualTo(3);
+    assertThat(before.select(0, 3, 100)).containsExactly(0, 1, 2);
+  }
+
+  @Test
+  public void getPyramid_pointValuesChanged_updated()
+  {
+    // arrange
+    Data data = new Data();
+    for (int i = 0; i < 100; i++)
+    {
+      data.add(givenPoint(i * 1000, 1d));
+    }
+    ChannelPyramid pyramid = data.getPyramid(ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG);
+
+    // act
+    data.get(42).location.velocityFromLatLong = 5d;
+    data.pointValuesChanged(42);
+
+    // assert
+    assertThat(data.getPyramid(ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG)).isSameAs(pyramid);
+    assertThat(pyramid.select(0, 100, 1)).contains(42);
+  }
+
+  /**
+   * Returns the minimum of the values at the selected positions within the bucket.
+   */
+  private double min(double[] values, int[] selected, int bucketStart, int bucketEnd)
+  {
+    return Arrays.stream(selected)
+        .filter(position -> position >= bucketStart && position < bucketEnd)
+        .mapToDouble(position -> values[position])
+        .min()
+        .getAsDouble();
+  }
+
+  private double max(double[] values, int[] selected, int bucketStart, int bucketEnd)
+  {
+    return Arrays.stream(selected)
+        .filter(position -> position >= bucketStart && position < bucketEnd)
+        .mapToDouble(position -> values[position])
+        .max()
+        .getAsDouble();
+  }
+
+  private double[] givenRandomWalk(int size)
+  {
+    Random random = new Random(4711);
+    double[] result = new double[size];
+    double value = 0d;
+    for (int i = 0; i < size; i++)
+    {
+      value += random.nextGaussian();
+      result[i] = value;
+    }
+    return result;
+  }
+
+  private DataPoint givenPoint(long time, double velocity)
+  {
+    DataPoint result = new DataPoint(0);
+    result.time = time;
+    result.location = new Location();
+    result.location.latitude = 0.9d;
+    result.location.longitude = 0.17d;
+    result.location.velocityFromLatLong = velocity;
+    return result;
+  }
+}
@@ -0,0 +1,115 @@
+package com.github.thomasfox.sailplotter.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.analyze.VelocityBearingAnalyzer;
+
+public class CompactTrackTest
+{
+  private static final int POINT_COUNT = 600;
+
+  @Test
+  public void testEncodeDecode()
+  {
+    // prepare
+    Data data = givenZigZagTrack();
+    DataColumns columns = data.getColumns();
+
+    // execute
+    CompactTrack compactTrack = CompactTrack.of(data);
+
+    // verify
+    assertThat(compactTrack.size()).isEqualTo(POINT_COUNT);
+    for (int n = 0; n < POINT_COUNT; n++)
+    {
+      Location original = data.get(n).location;
+      assertThat(compactTrack.getTime(n)).isEqualTo(data.get(n).time);
+      assertThat(compactTrack.getX(n)).isCloseTo(columns.getX(n), within(0.02d));
+      assertThat(compactTrack.getY(n)).isCloseTo(columns.getY(n), within(0.02d));
+      assertThat(compactTrack.getLocation(n).getX()).isCloseTo(original.getX(), within(0.02d));
+      assertThat(compactTrack.getLocation(n).getY()).isCloseTo(original.getY(), within(0.02d));
+      assertThat(compactTrack.getLocation(n).velocity).isCloseTo(original.velocity, within(1e-5d));
+      assertThat(compactTrack.getLocation(n).bearing).isNull();
+    }
+  }
+
+  @Test
+  public void testAnalysisWithinTolerance()
+  {
+    // prepare
+    Data data = givenZigZagTrack();
+    CompactTrack compactTrack = CompactTrack.of(data);
+
+    // execute
+    new VelocityBearingAnalyzer().analyze(data);
+    new VelocityBearingAnalyzer().analyze(compactTrack);
+
+    // verify
+    List<DataPoint> originalPoints = data.getPointsWithLocation();
+    assertThat(compactTrack.getVelocityFromLatLong(0)).isNaN();
+    assertThat(compactTrack.getLocation(POINT_COUNT - 1).bearingFromLatLong).isNull();
+    for (int n = 1; n < originalPoints.size() - 1; n++)
+    {
+      Location original = originalPoints.get(n).location;
+      assertThat(compactTrack.getVelocityFromLatLong(n)).isCloseTo(original.velocityFromLatLong, within(0.05d));
+      double bearingDifference = Math.abs(compactTrack.getBearingFromLatLong(n) - original.bearingFromLatLong);
+      assertThat(Math.min(bearingDifference, 2 * Math.PI - bearingDifference)).isLessThan(0.01d);
+    }
+  }
+
+  @Test
+  public void testEstimateBytes()
+  {
+    // prepare
+    Data data = givenZigZagTrack();
+    new VelocityBearingAnalyzer().analyze(data);
+
+    // execute
+    CompactTrack compactTrack = CompactTrack.of(data);
+
+    // verify
+    assertThat(compactTrack.estimateBytes()).isBetween(POINT_COUNT * 28L, POINT_COUNT * 28L + 200L);
+    assertThat(compactTrack.estimateBytes() * 4).isLessThan(data.getMemoryFootprint().getTotalBytes());
+  }
+
+  @Test
+  public void testOf_pointWithoutTime()
+  {
+    // prepare
+    Data data = givenZigZagTrack();
+    data.get(10).time = null;
+
+    // execute and verify
+    assertThatThrownBy(() -> CompactTrack.of(data))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("has no time");
+  }
+
+  /**
+   * Creates a track sailing upwind in tacks of 60 seconds, at 5 knots, one location per second.
+   */
+  private static Data givenZigZagTrack()
+  {
+    Data.Builder builder = new Data.Builder(POINT_COUNT);
+    double x = 1_000_000d;
+    double y = 5_500_000d;
+    for (int i = 0; i < POINT_COUNT; i++)
+    {
+      DataPoint point = new DataPoint(i);
+      point.time = 1_500_000_000_000L + 1000L * i;
+      point.location = Location.fromXY(x, y);
+      point.location.velocity = 5d;
+      builder.add(point);
+      double bearing = (i / 60) % 2 == 0 ? Math.PI / 4 : -Math.PI / 4;
+      x += 2.57d * Math.sin(bearing);
+      y += 2.57d * Math.cos(bearing);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,147 @@
+package com.github.thomasfox.sailplotter.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.Constants;
+
+public class DataColumnsTest
+{
+  @Test
+  public void testGetColumns()
+  {
+    // prepare
+    Data data = new Data();
+    DataPoint locationPoint = new DataPoint(0);
+    locationPoint.time = 1000L;
+    locationPoint.location = new Location();
+    locationPoint.location.latitude = 0.5d;
+    locationPoint.location.longitude = 0.1d;
+    locationPoint.location.velocity = 4d;
+    data.add(locationPoint);
+    DataPoint magneticFieldPoint = new DataPoint(1);
+    magneticFieldPoint.time = 1100L;
+    magneticFieldPoint.magneticField = new MagneticField(1d, 2d, 3d);
+    data.add(magneticFieldPoint);
+    DataPoint accelerationPoint = new DataPoint(2);
+    accelerationPoint.acceleration = new Acceleration(4d, 5d, 6d);
+    data.add(accelerationPoint);
+
+    // execute
+    DataColumns columns = data.getColumns();
+
+    // verify
+    assertThat(columns.size()).isEqualTo(3);
+    assertThat(columns.getTime(0)).isEqualTo(1000L);
+    assertThat(columns.getTime(1)).isEqualTo(1100L);
+    assertThat(columns.getTime(2)).isEqualTo(DataColumns.NO_TIME);
+
+    assertThat(columns.hasLocation(0)).isTrue();
+    assertThat(columns.getLatitude(0)).isEqualTo(0.5d);
+    assertThat(columns.getLongitude(0)).isEqualTo(0.1d);
+    assertThat(columns.getVelocity(0)).isEqualTo(4d);
+    assertThat(columns.getBearing(0)).isNaN();
+    assertThat(columns.getX(0)).isEqualTo(0d);
+    assertThat(columns.getY(0)).isEqualTo(0d);
+    assertThat(columns.getX(1)).isNaN();
+    assertThat(columns.hasLocation(1)).isFalse();
+    assertThat(columns.getLatitude(1)).isNaN();
+
+    assertThat(columns.hasMagneticField(1)).isTrue();
+    assertThat(columns.getMagneticFieldX(1)).isEqualTo(1f);
+    assertThat(columns.getMagneticFieldZ(1)).isEqualTo(3f);
+    assertThat(columns.hasMagneticField(2)).isFalse();
+
+    assertThat(columns.hasAcceleration(2)).isTrue();
+    assertThat(columns.getAccelerationY(2)).isEqualTo(5f);
+
+    assertThat(columns.nextLocationRow(0)).isEqualTo(0);
+    assertThat(columns.nextLocationRow(1)).isEqualTo(-1);
+    assertThat(columns.nextAccelerationRow(0)).isEqualTo(2);
+    assertThat(columns.getMagneticFieldCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetXY_relativeToFirstLocation()
+  {
+    // prepare
+    DataColumns columns = new DataColumns();
+    columns.append(new DataPoint(-1));
+    columns.append(pointAt(0.9d, 0.12d));
+    columns.append(pointAt(0.9d + 100d / Constants.EARTH_RADIUS, 0.12d + 50d / Constants.EARTH_RADIUS / Math.cos(0.9d)));
+
+    // execute
+    double distance = columns.approximateDistance(2, 1);
+    Double bearing = columns.getBearing(1, 2);
+
+    // verify
+    assertThat(columns.getX(0)).isNaN();
+    assertThat(columns.getX(1)).isEqualTo(0d);
+    assertThat(columns.getY(1)).isEqualTo(0d);
+    assertThat(columns.getX(2)).isCloseTo(50d, within(1e-6d));
+    assertThat(columns.getY(2)).isCloseTo(100d, within(1e-6d));
+    assertThat(distance).isCloseTo(Math.sqrt(50d * 50d + 100d * 100d), within(1e-6d));
+    assertThat(bearing).isCloseTo(Math.atan2(50d, 100d), within(1e-9d));
+  }
+
+  @Test
+  public void testResetCacheRebuildsColumns()
+  {
+    // prepare
+    Data data = new Data();
+    DataPoint point = new DataPoint(0);
+    point.time = 1000L;
+    data.add(point);
+    data.getColumns();
+
+    // execute
+    data.get(0).time = 2000L;
+    data.resetCache();
+
+    // verify
+    assertThat(data.getColumns().getTime(0)).isEqualTo(2000L);
+  }
+
+  @Test
+  public void testAppendGrowsColumns()
+  {
+    // prepare
+    DataColumns columns = new DataColumns(1);
+
+    // execute
+    for (long i = 0; i < 100; i++)
+    {
+      DataPoint point = new DataPoint(-1);
+      point.time = i;
+      columns.append(point);
+    }
+
+    // verify
+    assertThat(columns.size()).isEqualTo(100);
+    assertThat(columns.getTime(99)).isEqualTo(99L);
+  }
+
+  @Test
+  public void testEstimateBytes()
+  {
+    // prepare
+    DataColumns columns = new DataColumns(1000);
+
+    // execute
+    long bytes = columns.estimateBytes();
+
+    // verify
+    assertThat(bytes).isBetween(96_000L, 97_000L);
+  }
+
+  private static DataPoint pointAt(double latitude, double longitude)
+  {
+    DataPoint result = new DataPoint(-1);
+    result.location = new Location();
+    result.location.latitude = latitude;
+    result.location.longitude = longitude;
+    return result;
+  }
+}
@@ -2,6 +2,10 @@ package com.github.thomasfox.sailplotter.model;
 
 import static com.github.thomasfox.sailplotter.TestData.givenAccelerationDataIs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -53,5 +57,227 @@ public class DataTest
     assertThat(averageAcceleration).isNull();
   }
 
+  @Test
+  public void builder_takesOwnershipAndAssignsIndex()
+  {
+    // arrange
+    DataPoint locationPoint = pointAt(1000L);
+    locationPoint.location = new Location();
+    locationPoint.location.latitude = 0.1d;
+    locationPoint.location.longitude = 0.2d;
+    DataPoint accelerationPoint = pointAt(1000L);
+    accelerationPoint.acceleration = new Acceleration(1d, 2d, 3d);
+
+    // act
+    Data data = new Data.Builder(2)
+        .add(locationPoint)
+        .add(accelerationPoint)
+        .build();
+
+    // assert
+    assertThat(data.size()).isEqualTo(2);
+    assertThat(data.get(0)).isSameAs(locationPoint);
+    assertThat(data.get(1)).isSameAs(accelerationPoint);
+    assertThat(locationPoint.index).isEqualTo(0);
+    assertThat(accelerationPoint.index).isEqualTo(1);
+    assertThat(data.getPointsWithLocation()).containsExactly(locationPoint);
+    assertThat(data.getPointsWithAcceleration()).containsExactly(accelerationPoint);
+    assertThat(data.getPointsWithMagneticField()).isEmpty();
+  }
+
+  @Test
+  public void builder_rejectsPointsNotOrderedInTime()
+  {
+    // arrange
+    Data.Builder builder = new Data.Builder().add(pointAt(2000L));
+
+    // act and assert
+    assertThatThrownBy(() -> builder.add(pointAt(1000L)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(builder.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void appendAll()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointAt(1000L));
+    DataPoint point = pointAt(2000L);
 
+    // act
+    data.appendAll(Arrays.asList(point, pointAt(3000L)));
+
+    // assert
+    assertThat(data.size()).isEqualTo(3);
+    assertThat(data.get(1)).isSameAs(point);
+    assertThat(point.index).isEqualTo(1);
+    assertThat(data.getEndTime()).isEqualTo(3000L);
+  }
+
+  @Test
+  public void appendAll_notOrderedInTime_nothingAppended()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointAt(1000L));
+
+    // act and assert
+    assertThatThrownBy(() -> data.appendAll(Arrays.asList(pointAt(2000L), pointAt(1500L))))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(data.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void add_updatesSensorPointsIncrementally()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointWithLocationAt(1000L));
+    data.add(pointAt(1100L));
+    List<DataPoint> locationPointsBefore = data.getPointsWithLocation();
+    data.getColumns();
+
+    // act
+    data.add(pointWithLocationAt(1200L));
+
+    // assert
+    assertThat(locationPointsBefore).extracting(point -> point.time).containsExactly(1000L);
+    assertThat(data.getPointsWithLocation()).extracting(point -> point.time).containsExactly(1000L, 1200L);
+    assertThat(data.getPointsWithLocation().get(1)).isSameAs(data.get(2));
+    assertThat(data.getColumns().size()).isEqualTo(3);
+    assertThat(data.getColumns().hasLocation(2)).isTrue();
+  }
+
+  @Test
+  public void add_atPosition_shiftsSensorPoints()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointWithLocationAt(1000L));
+    data.add(pointWithLocationAt(1200L));
+    data.getPointsWithLocation();
+
+    // act
+    data.add(1, pointWithLocationAt(1100L));
+
+    // assert
+    assertThat(data.getPointsWithLocation()).extracting(point -> point.time).containsExactly(1000L, 1100L, 1200L);
+  }
+
+  @Test
+  public void pointChanged()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointAt(1000L));
+    data.add(pointWithLocationAt(1100L));
+    data.add(pointAt(1200L));
+    data.getPointsWithLocation();
+    data.getColumns();
+
+    // act
+    data.get(0).location = pointWithLocationAt(0L).location;
+    data.pointChanged(0);
+    data.get(1).location = null;
+    data.pointChanged(1);
+
+    // assert
+    assertThat(data.getPointsWithLocation()).extracting(point -> point.time).containsExactly(1000L);
+    assertThat(data.getColumns().hasLocation(0)).isTrue();
+    assertThat(data.getColumns().hasLocation(1)).isFalse();
+  }
+
+  @Test
+  public void getAllPoints_isReadOnly()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointAt(1000L));
+
+    // act and assert
+    assertThatThrownBy(() -> data.getAllPoints().add(pointAt(2000L)))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void copyConstructor_copiesPoints()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointWithLocationAt(1000L));
+    data.setAverageWindBearing(1d);
+    data.comment = "comment";
+
+    // act
+    Data copy = new Data(data);
+    copy.get(0).location.velocityFromLatLong = 5d;
+
+    // assert
+    assertThat(copy.getPointsWithLocation()).hasSize(1);
+    assertThat(copy.getAverageWindBearing()).isEqualTo(1d);
+    assertThat(copy.comment).isEqualTo("comment");
+    assertThat(data.get(0).location.velocityFromLatLong).isNull();
+  }
+
+  @Test
+  public void prefix_notAffectedByAppending()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointWithLocationAt(1000L));
+    data.add(pointAt(1100L));
+    data.add(pointWithLocationAt(1200L));
+
+    // act
+    Data prefix = data.prefix(2);
+    data.add(pointWithLocationAt(1300L));
+    data.get(2).location.velocityFromLatLong = 5d;
+    data.pointValuesChanged(2);
+
+    // assert
+    assertThat(prefix.size()).isEqualTo(2);
+    assertThat(prefix.get(0)).isSameAs(data.get(0));
+    assertThat(prefix.getPointsWithLocation()).extracting(point -> point.time).containsExactly(1000L);
+    assertThat(prefix.getLocationTimeIndex().size()).isEqualTo(1);
+    assertThat(prefix.getColumns().size()).isEqualTo(2);
+    assertThat(prefix.getColumns().getLocationCount()).isEqualTo(1);
+    assertThat(prefix.getColumns().nextLocationRow(1)).isEqualTo(-1);
+    assertThat(prefix.getPyramid(ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG).size()).isEqualTo(1);
+    assertThat(data.getPointsWithLocation()).extracting(point -> point.time).containsExactly(1000L, 1200L, 1300L);
+    assertThat(data.getPyramid(ChannelPyramid.Channel.VELOCITY_FROM_LAT_LONG).size()).isEqualTo(3);
+  }
+
+  @Test
+  public void prefix_cannotBeModified()
+  {
+    // arrange
+    Data data = new Data();
+    data.add(pointAt(1000L));
+    data.add(pointAt(1100L));
+    Data prefix = data.prefix(1);
+
+    // act and assert
+    assertThatThrownBy(() -> prefix.add(pointAt(2000L)))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> prefix.pointChanged(0))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(data.get(1).time).isEqualTo(1100L);
+  }
+
+  private static DataPoint pointWithLocationAt(long time)
+  {
+    DataPoint point = pointAt(time);
+    point.location = new Location();
+    point.location.latitude = 0.5d;
+    point.location.longitude = 0.1d;
+    return point;
+  }
+
+  private static DataPoint pointAt(long time)
+  {
+    DataPoint point = new DataPoint(-1);
+    point.time = time;
+    return point;
+  }
 }
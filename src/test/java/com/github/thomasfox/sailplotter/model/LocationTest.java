@@ -5,6 +5,8 @@ import static org.assertj.core.api.Assertions.within;
 
 import org.junit.Test;
 
+import com.github.thomasfox.sailplotter.Constants;
+
 public class LocationTest
 {
   @Test
@@ -21,4 +23,22 @@ public class LocationTest
     assertThat(location.getY()).isCloseTo(2500000d, within(0.00001d));
   }
 
+  @Test
+  public void testGetXY_coordinatesChanged()
+  {
+    // prepare
+    Location location = new Location();
+    location.latitude = 0.5d;
+    location.longitude = 0.1d;
+    location.getX();
+
+    // execute
+    location.latitude = 0.6d;
+    location.longitude = 0.2d;
+
+    // verify
+    assertThat(location.getX()).isEqualTo(0.2d * Math.cos(0.6d) * Constants.EARTH_RADIUS);
+    assertThat(location.getY()).isEqualTo(0.6d * Constants.EARTH_RADIUS);
+  }
+
 }
@@ -0,0 +1,89 @@
+package com.github.thomasfox.sailplotter.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class MemoryFootprintTest
+{
+  @Test
+  public void testShallowSize()
+  {
+    // header (12) + x, y, z (3 * 8) + compassBearing reference (4)
+    assertThat(MemoryFootprint.shallowSize(MagneticField.class)).isEqualTo(40);
+  }
+
+  @Test
+  public void testGetMemoryFootprint()
+  {
+    // prepare
+    Data data = new Data();
+    for (long time = 1000; time <= 3000; time += 1000)
+    {
+      DataPoint point = new DataPoint(-1);
+      point.time = time;
+      if (time < 3000)
+      {
+        point.location = new Location();
+        point.location.latitude = 0.5d;
+        point.location.longitude = 0.1d;
+      }
+      else
+      {
+        point.magneticField = new MagneticField(1d, 2d, 3d);
+      }
+      data.add(point);
+    }
+
+    // execute
+    MemoryFootprint footprint = data.getMemoryFootprint();
+
+    // verify
+    assertThat(footprint.getPointCount()).isEqualTo(3);
+    assertThat(footprint.getLocationBytes()).isEqualTo(2 * (MemoryFootprint.shallowSize(Location.class) + 2 * 16));
+    assertThat(footprint.getMagneticFieldBytes()).isEqualTo(40);
+    assertThat(footprint.getAccelerationBytes()).isZero();
+    assertThat(footprint.getPointBytes())
+        .isEqualTo(3 * (MemoryFootprint.shallowSize(DataPoint.class) + 16) + MemoryFootprint.arraySize(4, 3));
+    assertThat(footprint.getCacheBytes()).isZero();
+    assertThat(footprint.getTotalBytes()).isEqualTo(footprint.getPointBytes()
+        + footprint.getLocationBytes()
+        + footprint.getMagneticFieldBytes()
+        + footprint.getTackBytes());
+    assertThat(footprint.getBytesPerPoint()).isEqualTo(footprint.getTotalBytes() / 3d);
+  }
+
+  @Test
+  public void testGetMemoryFootprint_countsFilledCaches()
+  {
+    // prepare
+    Data data = new Data();
+    DataPoint point = new DataPoint(-1);
+    point.time = 1000L;
+    data.add(point);
+
+    // execute
+    data.fillCaches();
+
+    // verify
+    assertThat(data.getMemoryFootprint().getCacheBytes()).isPositive();
+  }
+
+  @Test
+  public void testGetMemoryFootprint_columnsCountedOnlyAfterRequest()
+  {
+    // prepare
+    Data data = new Data();
+    DataPoint point = new DataPoint(-1);
+    point.time = 1000L;
+    data.add(point);
+    data.fillCaches();
+    long filledCacheBytes = data.getMemoryFootprint().getCacheBytes();
+
+    // execute
+    data.getColumns();
+
+    // verify
+    assertThat(data.getMemoryFootprint().getCacheBytes()).isGreaterThan(filledCacheBytes);
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.thomasfox.sailplotter.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.github.thomasfox.sailplotter.gui.component.panel.TimeWindowPosition;
+
+public class ZoomedDataTest
+{
+  @Test
+  public void getMagneticFieldSubset()
+  {
+    // prepare
+    ZoomedData zoomedData = new ZoomedData();
+    zoomedData.setData(givenData());
+
+    // execute
+    List<DataPoint> before = zoomedData.getMagneticFieldSubset(TimeWindowPosition.BEFORE);
+    List<DataPoint> in = zoomedData.getMagneticFieldSubset(TimeWindowPosition.IN);
+    List<DataPoint> after = zoomedData.getMagneticFieldSubset(TimeWindowPosition.AFTER);
+
+    // verify
+    assertThat(before).extracting(point -> point.time).containsExactly(500L, 1000L);
+    assertThat(in).extracting(point -> point.time).containsExactly(1500L);
+    assertThat(after).extracting(point -> point.time).containsExactly(2000L, 2500L);
+  }
+
+  @Test
+  public void getLocationSubset_sameAsIsInSelectedPosition()
+  {
+    // prepare
+    ZoomedData zoomedData = new ZoomedData();
+    Data data = givenData();
+    zoomedData.setData(data);
+
+    for (TimeWindowPosition position : TimeWindowPosition.values())
+    {
+      // execute
+      List<DataPoint> subset = zoomedData.getLocationSubset(position);
+
+      // verify
+      assertThat(subset).isEqualTo(data.getPointsWithLocation().stream()
+          .filter(point -> zoomedData.isInSelectedPosition(point, position))
+          .collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void isInSelectedPosition_pointWithoutTime_before()
+  {
+    // prepare
+    ZoomedData zoomedData = new ZoomedData();
+    zoomedData.setData(givenData());
+    DataPoint point = new DataPoint(-1);
+
+    // execute and verify
+    assertThat(zoomedData.isInSelectedPosition(point, TimeWindowPosition.BEFORE)).isTrue();
+    assertThat(zoomedData.isInSelectedPosition(point, TimeWindowPosition.IN)).isFalse();
+    assertThat(zoomedData.isInSelectedPosition(point, TimeWindowPosition.AFTER)).isFalse();
+  }
+
+  private static Data givenData()
+  {
+    Data data = new Data();
+    for (long time = 500; time <= 3000; time += 500)
+    {
+      DataPoint point = new DataPoint(-1);
+      point.time = time;
+      if (time % 1000 == 0)
+      {
+        point.location = new Location();
+        point.location.latitude = 0.5d;
+        point.location.longitude = 0.1d;
+      }
+      if (time < 3000)
+      {
+        point.magneticField = new MagneticField(1d, 2d, 3d);
+      }
+      data.add(point);
+    }
+    return data;
+  }
+}